@@ -0,0 +1,76 @@
+package com.example.billing_platform_mis.config;
+
+import com.example.billing_platform_mis.service.TenantRateLimiter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.Map;
+
+//Applies the per-tenant rate limits to the client, vendor and employee APIs. The tenant is the
+//clientId, vendorId or employeeId request parameter of the API; requests without one pass through here
+//and are admitted by the endpoint itself once it knows its tenant (trip booking reads it from the body).
+@Component
+public class TenantRateLimitInterceptor implements HandlerInterceptor {
+
+    @Autowired
+    private TenantRateLimiter tenantRateLimiter;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        String tenant = resolveTenant(request);
+        if (tenant == null) {
+            return true;
+        }
+        TenantRateLimiter.Decision decision = tenantRateLimiter.admit(request, tenant);
+        if (decision.isAllowed()) {
+            return true;
+        }
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", String.valueOf(decision.getRetryAfterSeconds()));
+        response.setHeader("X-RateLimit-Limit", String.valueOf(decision.getLimit()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        jsonMapper.writeValue(response.getOutputStream(),
+            Map.of("error", decision.getMessage(), "retryAfterMillis", decision.getRetryAfterMillis()));
+        return false;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        tenantRateLimiter.complete(request);
+    }
+
+    private static String resolveTenant(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.startsWith("/api/client/")) {
+            return tenant(TenantRateLimiter.CLIENT, request.getParameter("clientId"));
+        }
+        if (path.startsWith("/api/vendor/")) {
+            return tenant(TenantRateLimiter.VENDOR, request.getParameter("vendorId"));
+        }
+        if (path.startsWith("/api/employee/")) {
+            return tenant(TenantRateLimiter.EMPLOYEE, request.getParameter("employeeId"));
+        }
+        return null;
+    }
+
+    //Malformed IDs are left to the endpoint's own validation
+    private static String tenant(String type, String id) {
+        if (id == null) {
+            return null;
+        }
+        try {
+            return TenantRateLimiter.tenant(type, Long.valueOf(id.trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.billing_platform_mis.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private TenantRateLimitInterceptor tenantRateLimitInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(tenantRateLimitInterceptor)
+            .addPathPatterns("/api/client/**", "/api/vendor/**", "/api/employee/**");
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.billing_platform_mis.controller;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -8,18 +9,22 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.billing_platform_mis.entity.BillingModel;
 import com.example.billing_platform_mis.entity.ClientProfile;
 import com.example.billing_platform_mis.entity.ClientVendor;
+import com.example.billing_platform_mis.entity.HybridPricingTier;
 import com.example.billing_platform_mis.entity.User;
 import com.example.billing_platform_mis.entity.UserRole;
 import com.example.billing_platform_mis.entity.VendorProfile;
@@ -27,7 +32,20 @@ import com.example.billing_platform_mis.repository.ClientProfileRepository;
 import com.example.billing_platform_mis.repository.ClientVendorRepository;
 import com.example.billing_platform_mis.repository.UserRepository;
 import com.example.billing_platform_mis.repository.VendorProfileRepository;
+import com.example.billing_platform_mis.service.HybridBillingService;
+import com.example.billing_platform_mis.service.KeysetPageService;
+import com.example.billing_platform_mis.service.OverageProcessingService;
+import com.example.billing_platform_mis.service.OverageWorkQueue;
+import com.example.billing_platform_mis.service.RateCardService;
+import com.example.billing_platform_mis.service.TenantRateLimiter;
+import com.example.billing_platform_mis.service.TripAccumulatorService;
+import com.example.billing_platform_mis.service.TripArchiveService;
+import com.example.billing_platform_mis.service.TripEventDispatcher;
+import com.example.billing_platform_mis.service.TripIngestionBuffer;
+import com.example.billing_platform_mis.service.TripPartitionService;
+import com.example.billing_platform_mis.service.TripRepricingService;
 import com.example.billing_platform_mis.service.UserService;
+import com.example.billing_platform_mis.service.VendorBillingAggregator;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.DecimalMin;
@@ -38,7 +56,7 @@ import jakarta.validation.constraints.Positive;
 
 @RestController
 @RequestMapping("/api/admin")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = KeysetPageService.NEXT_CURSOR_HEADER)
 public class AdminController {
     
     @Autowired
@@ -56,6 +74,45 @@ public class AdminController {
     @Autowired
     private ClientProfileRepository clientProfileRepository;
     
+    @Autowired
+    private TripAccumulatorService tripAccumulatorService;
+    
+    @Autowired
+    private RateCardService rateCardService;
+    
+    @Autowired
+    private HybridBillingService hybridBillingService;
+    
+    @Autowired
+    private OverageProcessingService overageProcessingService;
+    
+    @Autowired
+    private OverageWorkQueue overageWorkQueue;
+
+    @Autowired
+    private TripIngestionBuffer tripIngestionBuffer;
+
+    @Autowired
+    private TenantRateLimiter tenantRateLimiter;
+
+    @Autowired
+    private TripEventDispatcher tripEventDispatcher;
+
+    @Autowired
+    private TripRepricingService tripRepricingService;
+
+    @Autowired
+    private VendorBillingAggregator vendorBillingAggregator;
+
+    @Autowired
+    private TripPartitionService tripPartitionService;
+
+    @Autowired
+    private TripArchiveService tripArchiveService;
+
+    @Autowired
+    private KeysetPageService keysetPageService;
+    
 
     
     // Get all vendors with their profile information
@@ -255,6 +312,7 @@ public class AdminController {
             assignment.setEstimatedVehiclesNeeded(request.getEstimatedVehiclesNeeded());
             
             ClientVendor savedAssignment = clientVendorRepository.save(assignment);
+            rateCardService.evict(savedAssignment.getId());
             return ResponseEntity.ok(savedAssignment);
             
         } catch (Exception e) {
@@ -296,6 +354,8 @@ public class AdminController {
                 
                 if (needsUpdate) {
                     clientVendorRepository.save(assignment);
+                    rateCardService.evict(assignment.getId());
+                    tripRepricingService.schedule(assignment.getId(), "fix-billing-assignments");
                     fixedCount++;
                 }
             }
@@ -358,6 +418,7 @@ public class AdminController {
                         needsUpdate = true;
                     }
                     
+                    // Only defaults for new assignments change, so no existing trip is repriced
                     if (needsUpdate) {
                         vendorProfileRepository.save(vp);
                         fixedCount++;
@@ -375,11 +436,199 @@ public class AdminController {
         }
     }
 
-    
+    // Rebuild daily billing accumulators from the trips table
+    @PostMapping("/rebuild-trip-totals")
+    public ResponseEntity<?> rebuildTripTotals() {
+        try {
+            int dayRows = tripAccumulatorService.rebuildAll();
+            return ResponseEntity.ok(Map.of(
+                "message", "Rebuilt daily trip totals",
+                "dayRows", dayRows
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+
+    // Create incentives and payouts for over-limit trips past the processing watermark
+    @PostMapping("/process-overages")
+    public ResponseEntity<?> processOverages() {
+        try {
+            OverageProcessingService.OverageRunResult result = overageProcessingService.processUnprocessedTrips();
+            return ResponseEntity.ok(Map.of(
+                "message", "Processed trip overages",
+                "chunks", result.getChunks(),
+                "tripsProcessed", result.getTripsProcessed(),
+                "incentivesCreated", result.getIncentivesCreated(),
+                "payoutsCreated", result.getPayoutsCreated(),
+                "watermark", result.getWatermark()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Depth, lag and throughput of the asynchronous overage work queue
+    @GetMapping("/overage-queue/metrics")
+    public ResponseEntity<?> getOverageQueueMetrics() {
+        try {
+            return ResponseEntity.ok(overageWorkQueue.getMetrics());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Log, flush and recovery counters of the write-behind trip ingestion buffer
+    @GetMapping("/ingestion/metrics")
+    public ResponseEntity<?> getIngestionMetrics() {
+        try {
+            return ResponseEntity.ok(tripIngestionBuffer.getMetrics());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Per-tenant admissions, rejections and latency of the client, vendor and employee APIs
+    @GetMapping("/rate-limits/metrics")
+    public ResponseEntity<?> getRateLimitMetrics(@RequestParam(defaultValue = "50") @Positive int limit) {
+        try {
+            return ResponseEntity.ok(tenantRateLimiter.getMetrics(limit));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Backlog, parked events and delivery lag of the trip outbox dispatcher
+    @GetMapping("/trip-events/metrics")
+    public ResponseEntity<?> getTripEventMetrics() {
+        try {
+            return ResponseEntity.ok(tripEventDispatcher.getMetrics());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Monthly partitions of trips, payouts and incentives (PostgreSQL only)
+    @GetMapping("/partitions")
+    public ResponseEntity<?> getPartitions() {
+        try {
+            return ResponseEntity.ok(tripPartitionService.getStatus());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Create any missing partitions for the coming months now
+    @PostMapping("/partitions/maintain")
+    public ResponseEntity<?> maintainPartitions() {
+        try {
+            List<String> created = tripPartitionService.maintain();
+            return ResponseEntity.ok(Map.of("created", created, "status", tripPartitionService.getStatus()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Trip archive segments, compression and read statistics
+    @GetMapping("/trip-archive/metrics")
+    public ResponseEntity<?> getTripArchiveMetrics() {
+        try {
+            return ResponseEntity.ok(tripArchiveService.getMetrics());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Archive trips of closed periods older than the retention window now
+    @PostMapping("/trip-archive/run")
+    public ResponseEntity<?> runTripArchive() {
+        try {
+            long archived = tripArchiveService.archive();
+            return ResponseEntity.ok(Map.of("archivedTrips", archived, "metrics", tripArchiveService.getMetrics()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Reprice the stored trip costs of a client-vendor relationship in the background
+    @PostMapping("/client-vendors/{clientVendorId}/reprice")
+    public ResponseEntity<?> repriceTrips(@PathVariable @NotNull @Positive Long clientVendorId) {
+        try {
+            if (!clientVendorRepository.existsById(clientVendorId)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Client-vendor relationship not found"));
+            }
+            return ResponseEntity.ok(tripRepricingService.schedule(clientVendorId, "manual"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Trip repricing jobs with their checkpoints, plus worker metrics
+    @GetMapping("/repricing-jobs")
+    public ResponseEntity<?> getRepricingJobs() {
+        try {
+            return ResponseEntity.ok(Map.of(
+                "metrics", tripRepricingService.getMetrics(),
+                "jobs", tripRepricingService.getJobs()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Get hybrid pricing tiers of a client-vendor relationship
+    @GetMapping("/client-vendors/{clientVendorId}/pricing-tiers")
+    public ResponseEntity<?> getPricingTiers(@PathVariable @NotNull @Positive Long clientVendorId) {
+        try {
+            List<Map<String, Object>> tiers = hybridBillingService.getPricingTiers(clientVendorId).stream()
+                .map(this::toTierMap)
+                .collect(Collectors.toList());
+            return ResponseEntity.ok(tiers);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Replace hybrid pricing tiers of a client-vendor relationship (applied in the given order)
+    @PutMapping("/client-vendors/{clientVendorId}/pricing-tiers")
+    public ResponseEntity<?> replacePricingTiers(@PathVariable @NotNull @Positive Long clientVendorId,
+                                                 @Valid @RequestBody PricingTiersRequest request) {
+        try {
+            List<HybridPricingTier> tiers = request.getTiers().stream()
+                .map(tierRequest -> {
+                    HybridPricingTier tier = new HybridPricingTier();
+                    tier.setTripLimit(tierRequest.getTripLimit());
+                    tier.setTripRate(tierRequest.getTripRate());
+                    return tier;
+                })
+                .collect(Collectors.toList());
+
+            List<Map<String, Object>> saved = hybridBillingService.replacePricingTiers(clientVendorId, tiers).stream()
+                .map(this::toTierMap)
+                .collect(Collectors.toList());
+            return ResponseEntity.ok(Map.of(
+                "message", "Pricing tiers updated",
+                "tiers", saved
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private Map<String, Object> toTierMap(HybridPricingTier tier) {
+        Map<String, Object> tierMap = new HashMap<>();
+        tierMap.put("tierOrder", tier.getTierOrder());
+        tierMap.put("tripLimit", tier.getTripLimit());
+        tierMap.put("tripRate", tier.getTripRate());
+        return tierMap;
+    }
 
     // Get system analytics
     @GetMapping("/analytics")
-    public ResponseEntity<?> getSystemAnalytics() {
+    public ResponseEntity<?> getSystemAnalytics(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
         try {
             Map<String, Object> analytics = new HashMap<>();
             
@@ -396,6 +645,11 @@ public class AdminController {
             }
             analytics.put("billingModelDistribution", billingModelStats);
             
+            // Period revenue, payouts and incentives per vendor (parallel aggregation)
+            if (startDate != null && endDate != null) {
+                analytics.put("billing", vendorBillingAggregator.aggregate(startDate, endDate));
+            }
+            
             return ResponseEntity.ok(analytics);
             
         } catch (Exception e) {
@@ -403,12 +657,13 @@ public class AdminController {
         }
     }
     
-    // Get client-vendor assignments
+    // Get client-vendor assignments, a page at a time (newest first; X-Next-Cursor holds the next page's cursor)
     @GetMapping("/assignments")
-    public ResponseEntity<?> getAllAssignments() {
+    public ResponseEntity<?> getAllAssignments(@RequestParam(required = false) String cursor,
+                                               @RequestParam(required = false) Integer limit) {
         try {
-            List<ClientVendor> assignments = clientVendorRepository.findAll();
-            return ResponseEntity.ok(assignments);
+            KeysetPageService.Page<ClientVendor> page = keysetPageService.findAssignments(cursor, limit);
+            return keysetPageService.respond(page, page.getItems());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
@@ -525,4 +780,27 @@ public class AdminController {
         public Integer getEstimatedVehiclesNeeded() { return estimatedVehiclesNeeded; }
         public void setEstimatedVehiclesNeeded(Integer estimatedVehiclesNeeded) { this.estimatedVehiclesNeeded = estimatedVehiclesNeeded; }
     }
+    
+    public static class PricingTiersRequest {
+        @NotNull(message = "Tiers are required")
+        private List<@Valid PricingTierRequest> tiers;
+        
+        public List<PricingTierRequest> getTiers() { return tiers; }
+        public void setTiers(List<PricingTierRequest> tiers) { this.tiers = tiers; }
+    }
+    
+    public static class PricingTierRequest {
+        // Trips priced by this tier (omit for all remaining trips)
+        @Positive(message = "Tier trip limit must be positive")
+        private Integer tripLimit;
+        
+        @NotNull(message = "Tier trip rate is required")
+        @DecimalMin(value = "0.0", message = "Tier trip rate must be non-negative")
+        private java.math.BigDecimal tripRate;
+        
+        public Integer getTripLimit() { return tripLimit; }
+        public void setTripLimit(Integer tripLimit) { this.tripLimit = tripLimit; }
+        public java.math.BigDecimal getTripRate() { return tripRate; }
+        public void setTripRate(java.math.BigDecimal tripRate) { this.tripRate = tripRate; }
+    }
 }
\ No newline at end of file
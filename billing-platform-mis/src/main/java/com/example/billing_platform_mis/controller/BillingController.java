@@ -0,0 +1,187 @@
+package com.example.billing_platform_mis.controller;
+
+import com.example.billing_platform_mis.entity.Invoice;
+import com.example.billing_platform_mis.entity.InvoiceSnapshot;
+import com.example.billing_platform_mis.pricing.RateCard;
+import com.example.billing_platform_mis.repository.InvoiceRepository;
+import com.example.billing_platform_mis.service.BillingRunService;
+import com.example.billing_platform_mis.service.PeriodCloseService;
+import com.example.billing_platform_mis.service.RateCardSimulationService;
+import com.example.billing_platform_mis.service.TripExplanationService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/billing")
+@CrossOrigin(origins = "*")
+public class BillingController {
+
+    @Autowired
+    private BillingRunService billingRunService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private RateCardSimulationService rateCardSimulationService;
+
+    @Autowired
+    private PeriodCloseService periodCloseService;
+
+    @Autowired
+    private TripExplanationService tripExplanationService;
+
+    // Bill every client-vendor relationship for a period
+    @PostMapping("/runs")
+    public ResponseEntity<?> runBilling(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            return ResponseEntity.ok(billingRunService.runBilling(startDate, endDate));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Progress and throughput of the latest billing run
+    @GetMapping("/runs/current")
+    public ResponseEntity<?> getCurrentRun() {
+        BillingRunService.BillingRunProgress progress = billingRunService.getCurrentRun();
+        if (progress == null) {
+            return ResponseEntity.ok(Map.of("status", "IDLE"));
+        }
+        return ResponseEntity.ok(progress);
+    }
+
+    // Freeze the invoices of an ended period (one relationship, or all when clientVendorId is omitted)
+    @PostMapping("/periods/close")
+    public ResponseEntity<?> closePeriod(
+            @RequestParam(required = false) Long clientVendorId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            List<InvoiceSnapshot> closed = periodCloseService.closePeriod(clientVendorId, startDate, endDate);
+            return ResponseEntity.ok(Map.of(
+                "closedRelationships", closed.size(),
+                "snapshots", closed
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Invoice snapshots of a closed billing period
+    @GetMapping("/periods/closed")
+    public ResponseEntity<?> getClosedPeriod(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            return ResponseEntity.ok(periodCloseService.getClosedPeriods(startDate, endDate));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Trip-by-trip charge breakdown of a relationship's period, streamed as NDJSON
+    @GetMapping("/explanations")
+    public ResponseEntity<StreamingResponseBody> explainTrips(
+            @RequestParam Long clientVendorId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            RateCard rateCard = tripExplanationService.prepare(clientVendorId, startDate, endDate);
+            StreamingResponseBody body = output ->
+                tripExplanationService.writeExplanations(rateCard, startDate, endDate, output);
+            return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(output -> tripExplanationService.writeError(e.getMessage(), output));
+        }
+    }
+
+    // Invoices produced for a billing period
+    @GetMapping("/invoices")
+    public ResponseEntity<?> getInvoices(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            List<Invoice> invoices = invoiceRepository.findByPeriodWithDetails(startDate, endDate);
+
+            List<Map<String, Object>> formattedInvoices = invoices.stream()
+                .map(invoice -> {
+                    Map<String, Object> invoiceData = new HashMap<>();
+                    invoiceData.put("id", invoice.getId());
+                    invoiceData.put("clientVendorId", invoice.getClientVendor().getId());
+                    invoiceData.put("clientName", invoice.getClientVendor().getClient().getName());
+                    invoiceData.put("vendorName", invoice.getClientVendor().getVendor().getName());
+                    invoiceData.put("billingModel", invoice.getBillingModel().toString());
+                    invoiceData.put("periodStart", invoice.getPeriodStart().toString());
+                    invoiceData.put("periodEnd", invoice.getPeriodEnd().toString());
+                    invoiceData.put("tripCount", invoice.getTripCount());
+                    invoiceData.put("packageAmount", invoice.getPackageAmount());
+                    invoiceData.put("tripAmount", invoice.getTripAmount());
+                    invoiceData.put("totalAmount", invoice.getTotalAmount());
+                    invoiceData.put("updatedAt", invoice.getUpdatedAt());
+                    return invoiceData;
+                })
+                .collect(Collectors.toList());
+
+            return ResponseEntity.ok(formattedInvoices);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Re-price a relationship's historical trips under candidate rate cards (nothing is saved)
+    @PostMapping("/simulations")
+    public ResponseEntity<?> simulateRateCards(@Valid @RequestBody SimulationRequest request) {
+        try {
+            return ResponseEntity.ok(rateCardSimulationService.simulate(request.getClientVendorId(),
+                request.getStartDate(), request.getEndDate(), request.getCandidates()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // DTO for rate-card simulations
+    public static class SimulationRequest {
+        @NotNull(message = "Client-vendor ID is required")
+        private Long clientVendorId;
+
+        @NotNull(message = "Start date is required")
+        private LocalDate startDate;
+
+        @NotNull(message = "End date is required")
+        private LocalDate endDate;
+
+        @NotEmpty(message = "At least one candidate rate card is required")
+        @Valid
+        private List<RateCardSimulationService.Candidate> candidates;
+
+        // Getters and setters
+        public Long getClientVendorId() { return clientVendorId; }
+        public void setClientVendorId(Long clientVendorId) { this.clientVendorId = clientVendorId; }
+        public LocalDate getStartDate() { return startDate; }
+        public void setStartDate(LocalDate startDate) { this.startDate = startDate; }
+        public LocalDate getEndDate() { return endDate; }
+        public void setEndDate(LocalDate endDate) { this.endDate = endDate; }
+        public List<RateCardSimulationService.Candidate> getCandidates() { return candidates; }
+        public void setCandidates(List<RateCardSimulationService.Candidate> candidates) { this.candidates = candidates; }
+    }
+}
@@ -1,16 +1,33 @@
 package com.example.billing_platform_mis.controller;
 
 import com.example.billing_platform_mis.entity.*;
+import com.example.billing_platform_mis.pricing.PricingEngine;
+import com.example.billing_platform_mis.pricing.TripCharges;
+import com.example.billing_platform_mis.service.BillingEngineService;
+import com.example.billing_platform_mis.service.ClientEmployeeIndex;
+import com.example.billing_platform_mis.service.IdempotencyService;
+import com.example.billing_platform_mis.service.KeysetPageService;
+import com.example.billing_platform_mis.service.PeriodCloseService;
+import com.example.billing_platform_mis.service.RateCardService;
+import com.example.billing_platform_mis.service.TenantRateLimiter;
+import com.example.billing_platform_mis.service.TripHistoryService;
+import com.example.billing_platform_mis.service.TripImportService;
+import com.example.billing_platform_mis.service.TripIngestionBuffer;
+import com.example.billing_platform_mis.service.TripService;
 import com.example.billing_platform_mis.service.UserService;
 import com.example.billing_platform_mis.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.format.annotation.DateTimeFormat;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import java.io.InputStream;
+import java.security.DigestInputStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -21,7 +38,7 @@ import java.math.BigDecimal;
 
 @RestController
 @RequestMapping("/api/client")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = KeysetPageService.NEXT_CURSOR_HEADER)
 public class ClientController {
     
     @Autowired
@@ -35,13 +52,43 @@ public class ClientController {
     
     @Autowired
     private ClientVendorRepository clientVendorRepository;
-    
+
     @Autowired
-    private TripRepository tripRepository;
+    private TripHistoryService tripHistoryService;
     
     @Autowired
     private IncentiveRepository incentiveRepository;
     
+    @Autowired
+    private TripService tripService;
+    
+    @Autowired
+    private RateCardService rateCardService;
+    
+    @Autowired
+    private BillingEngineService billingEngineService;
+    
+    @Autowired
+    private PeriodCloseService periodCloseService;
+    
+    @Autowired
+    private TripImportService tripImportService;
+    
+    @Autowired
+    private ClientEmployeeIndex clientEmployeeIndex;
+
+    @Autowired
+    private TripIngestionBuffer tripIngestionBuffer;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private TenantRateLimiter tenantRateLimiter;
+
+    @Autowired
+    private KeysetPageService keysetPageService;
+    
     @GetMapping("/employees")
     public ResponseEntity<?> getEmployees(@RequestParam @Positive(message = "Client ID must be positive") Long clientId) {
         try {
@@ -71,7 +118,7 @@ public class ClientController {
             }
             
 
-            if (clientEmployeeRepository.existsByClientIdAndEmployeeId(request.getClientId(), request.getEmployeeId())) {
+            if (clientEmployeeIndex.isMember(request.getClientId(), request.getEmployeeId())) {
                 return ResponseEntity.badRequest().body(Map.of("error", "Employee is already assigned to this client"));
             }
             
@@ -80,6 +127,7 @@ public class ClientController {
             clientEmployee.setEmployee(employee);
             
             ClientEmployee saved = clientEmployeeRepository.save(clientEmployee);
+            clientEmployeeIndex.recordAssignment(client.getId(), employee.getId());
             
 
             Map<String, Object> response = new HashMap<>();
@@ -108,6 +156,7 @@ public class ClientController {
                 .orElseThrow(() -> new RuntimeException("Employee assignment not found"));
             
             clientEmployeeRepository.delete(clientEmployee);
+            clientEmployeeIndex.recordRemoval(clientId, employeeId);
             return ResponseEntity.ok(Map.of("message", "Employee removed successfully"));
             
         } catch (Exception e) {
@@ -115,13 +164,17 @@ public class ClientController {
         }
     }
     
+    // One page of the client's trips, newest first; pass X-Next-Cursor back as cursor for the next page
     @GetMapping("/trips")
-    public ResponseEntity<?> getAllTrips(@RequestParam Long clientId) {
+    public ResponseEntity<?> getAllTrips(@RequestParam Long clientId,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(required = false) Integer limit) {
         try {
-            List<Trip> trips = tripRepository.findTripsByClientId(clientId);
+            tripIngestionBuffer.awaitVisible(clientId);
+            KeysetPageService.Page<Trip> page = keysetPageService.findClientTrips(clientId, cursor, limit);
             
             
-            List<Map<String, Object>> formattedTrips = trips.stream()
+            List<Map<String, Object>> formattedTrips = page.getItems().stream()
                 .map(trip -> {
                     Map<String, Object> tripData = new HashMap<>();
                     tripData.put("id", trip.getId());
@@ -152,7 +205,7 @@ public class ClientController {
                 })
                 .collect(Collectors.toList());
             
-            return ResponseEntity.ok(formattedTrips);
+            return keysetPageService.respond(page, formattedTrips);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
@@ -162,7 +215,8 @@ public class ClientController {
     @GetMapping("/trips/employee/{employeeId}")
     public ResponseEntity<?> getEmployeeTrips(@PathVariable Long employeeId, @RequestParam Long clientId) {
         try {
-            List<Trip> trips = tripRepository.findByEmployeeIdAndClientId(employeeId, clientId);
+            tripIngestionBuffer.awaitVisible(clientId);
+            List<Trip> trips = tripHistoryService.findByEmployeeIdAndClientId(employeeId, clientId);
             return ResponseEntity.ok(trips);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -173,7 +227,8 @@ public class ClientController {
     @GetMapping("/trips/vendor/{vendorId}")
     public ResponseEntity<?> getVendorTrips(@PathVariable Long vendorId, @RequestParam Long clientId) {
         try {
-            List<Trip> trips = tripRepository.findByVendorIdAndClientId(vendorId, clientId);
+            tripIngestionBuffer.awaitVisible(clientId);
+            List<Trip> trips = tripHistoryService.findByVendorIdAndClientId(vendorId, clientId);
             return ResponseEntity.ok(trips);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -187,7 +242,8 @@ public class ClientController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
         try {
-            List<Trip> trips = tripRepository.findByClientIdAndDateRange(clientId, startDate, endDate);
+            tripIngestionBuffer.awaitVisible(clientId);
+            List<Trip> trips = tripHistoryService.findByClientIdAndDateRange(clientId, startDate, endDate);
             return ResponseEntity.ok(trips);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -208,7 +264,8 @@ public class ClientController {
     @GetMapping("/vendors/{vendorId}/performance")
     public ResponseEntity<?> getVendorPerformance(@PathVariable Long vendorId, @RequestParam Long clientId) {
         try {
-            List<Trip> vendorTrips = tripRepository.findByVendorIdAndClientId(vendorId, clientId);
+            tripIngestionBuffer.awaitVisible(clientId);
+            List<Trip> vendorTrips = tripHistoryService.findByVendorIdAndClientId(vendorId, clientId);
             
             Map<String, Object> performance = new HashMap<>();
             performance.put("totalTrips", vendorTrips.size());
@@ -229,7 +286,8 @@ public class ClientController {
     @GetMapping("/vendors/{vendorId}/trips")
     public ResponseEntity<?> getVendorAllTrips(@PathVariable Long vendorId, @RequestParam Long clientId) {
         try {
-            List<Trip> trips = tripRepository.findByVendorIdAndClientId(vendorId, clientId);
+            tripIngestionBuffer.awaitVisible(clientId);
+            List<Trip> trips = tripHistoryService.findByVendorIdAndClientId(vendorId, clientId);
             return ResponseEntity.ok(trips);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -239,10 +297,11 @@ public class ClientController {
     @GetMapping("/dashboard")
     public ResponseEntity<?> getDashboardSummary(@RequestParam Long clientId) {
         try {
+            tripIngestionBuffer.awaitVisible(clientId);
             Map<String, Object> summary = new HashMap<>();
             
             // Employee count
-            long employeeCount = clientEmployeeRepository.countByClientId(clientId);
+            long employeeCount = clientEmployeeIndex.countEmployees(clientId);
             summary.put("totalEmployees", employeeCount);
             
             // Vendor count
@@ -250,14 +309,14 @@ public class ClientController {
             summary.put("assignedVendors", vendorCount);
             
             // Trip statistics
-            List<Trip> allTrips = tripRepository.findTripsByClientId(clientId);
+            List<Trip> allTrips = tripHistoryService.findTripsByClientId(clientId);
             summary.put("totalTrips", allTrips.size());
             summary.put("totalDistance", allTrips.stream()
                 .mapToDouble(trip -> trip.getDistance().doubleValue()).sum());
             
             // Recent trips (last 30 days)
             LocalDate thirtyDaysAgo = LocalDate.now().minusDays(30);
-            List<Trip> recentTrips = tripRepository.findByClientIdAndDateRange(clientId, thirtyDaysAgo, LocalDate.now());
+            List<Trip> recentTrips = tripHistoryService.findByClientIdAndDateRange(clientId, thirtyDaysAgo, LocalDate.now());
             summary.put("recentTrips", recentTrips.size());
             
             return ResponseEntity.ok(summary);
@@ -274,12 +333,12 @@ public class ClientController {
             
             Map<Long, Map<String, Object>> employeeIncentives = incentives.stream()
                 .collect(Collectors.groupingBy(
-                    incentive -> incentive.getTrip().getEmployee().getId(),
+                    incentive -> incentive.getClientEmployee().getEmployee().getId(),
                     Collectors.collectingAndThen(
                         Collectors.toList(),
                         list -> {
                             Map<String, Object> stats = new HashMap<>();
-                            stats.put("employeeName", list.get(0).getTrip().getEmployee().getName());
+                            stats.put("employeeName", list.get(0).getClientEmployee().getEmployee().getName());
                             stats.put("totalIncentives", list.stream()
                                 .mapToDouble(i -> i.getTotalAmount().doubleValue()).sum());
                             stats.put("incentiveCount", list.size());
@@ -298,6 +357,7 @@ public class ClientController {
     @GetMapping("/reports/vendor-costs")
     public ResponseEntity<?> getVendorCostReport(@RequestParam Long clientId) {
         try {
+            tripIngestionBuffer.awaitVisible(clientId);
             List<ClientVendor> assignments = clientVendorRepository.findByClientId(clientId);
             
             List<Map<String, Object>> vendorCosts = assignments.stream()
@@ -309,7 +369,7 @@ public class ClientController {
                     cost.put("tripRate", assignment.getTripRate());
                     
                     // Calculate trip count for this vendor
-                    List<Trip> vendorTrips = tripRepository.findByVendorIdAndClientId(
+                    List<Trip> vendorTrips = tripHistoryService.findByVendorIdAndClientId(
                         assignment.getVendor().getId(), clientId);
                     cost.put("totalTrips", vendorTrips.size());
                     
@@ -324,8 +384,12 @@ public class ClientController {
     }
     
     @GetMapping("/billing/summary")
-    public ResponseEntity<?> getBillingSummary(@RequestParam Long clientId) {
+    public ResponseEntity<?> getBillingSummary(
+            @RequestParam Long clientId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
         try {
+            tripIngestionBuffer.awaitVisible(clientId);
             List<ClientVendor> assignments = clientVendorRepository.findByClientId(clientId);
             
             Map<String, Object> billingSummary = new HashMap<>();
@@ -342,50 +406,91 @@ public class ClientController {
                     Collectors.counting()
                 )));
             
+            // Period bills: closed periods are read from their invoice snapshot, the open period is priced live
+            if (startDate != null && endDate != null) {
+                List<Map<String, Object>> periodBilling = clientVendorRepository.findByClientIdWithVendorDetails(clientId).stream()
+                    .map(assignment -> {
+                        Map<String, Object> bill = new HashMap<>();
+                        bill.put("clientVendorId", assignment.getId());
+                        bill.put("vendorName", assignment.getVendor().getName());
+                        bill.put("billingModel", assignment.getBillingModel().toString());
+                        bill.put("closed", periodCloseService.findClosedPeriod(assignment.getId(), startDate, endDate).isPresent());
+                        bill.put("totalAmount", billingEngineService.calculateBilling(assignment.getId(), startDate, endDate));
+                        return bill;
+                    })
+                    .collect(Collectors.toList());
+                
+                billingSummary.put("periodBilling", periodBilling);
+                billingSummary.put("periodTotal", periodBilling.stream()
+                    .map(bill -> (BigDecimal) bill.get("totalAmount"))
+                    .reduce(BigDecimal.ZERO, BigDecimal::add));
+            }
+            
             return ResponseEntity.ok(billingSummary);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
    
+    // One page of the incentives on the client's trips, newest trip first
     @GetMapping("/incentives")
-    public ResponseEntity<?> getIncentiveSummaries(@RequestParam Long clientId) {
+    public ResponseEntity<?> getIncentiveSummaries(@RequestParam Long clientId,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(required = false) Integer limit) {
         try {
-            List<Incentive> incentives = incentiveRepository.findByClientId(clientId);
-            return ResponseEntity.ok(incentives);
+            KeysetPageService.Page<Incentive> page = keysetPageService.findClientIncentives(clientId, cursor, limit);
+            return keysetPageService.respond(page, page.getItems());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
     
+    // Book a trip; with an Idempotency-Key header, client retries never book the same trip twice
     @PostMapping("/trips/book")
-    public ResponseEntity<?> bookTrip(@Valid @RequestBody BookTripRequest request) {
+    public ResponseEntity<?> bookTrip(@Valid @RequestBody BookTripRequest request,
+                                      @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                      HttpServletRequest httpRequest) {
+        // The client is only known from the body, so the tenant rate limit is applied here
+        TenantRateLimiter.Decision admission = tenantRateLimiter.admit(httpRequest,
+            TenantRateLimiter.tenant(TenantRateLimiter.CLIENT, request.getClientId()));
+        if (!admission.isAllowed()) {
+            return tenantRateLimiter.rejection(admission);
+        }
+        if (idempotencyKey == null) {
+            return bookTripOnce(request);
+        }
         try {
-
-            User client = userRepository.findById(request.getClientId())
-                .orElseThrow(() -> new RuntimeException("Client not found"));
-            
-            if (client.getRole() != UserRole.CLIENT) {
-                return ResponseEntity.badRequest().body(Map.of("error", "User is not a client"));
+            // A retry with the same key gets the original response without booking again. A directly stored
+            // trip commits together with that response; a write-behind trip is stored later, so its key is
+            // only released when the booking was refused
+            if (tripIngestionBuffer.isAccepting()) {
+                return idempotencyService.execute("trip-booking:" + request.getClientId(), idempotencyKey,
+                    () -> idempotencyService.fingerprint(request), () -> bookTripOnce(request));
             }
-            
+            return idempotencyService.executeAtomically("trip-booking:" + request.getClientId(), idempotencyKey,
+                () -> idempotencyService.fingerprint(request), () -> bookTripOnce(request));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
 
-            if (!clientEmployeeRepository.existsByClientIdAndEmployeeId(request.getClientId(), request.getEmployeeId())) {
-                return ResponseEntity.badRequest().body(Map.of("error", "Employee is not associated with this client"));
-            }
-            
-            // Find client-vendor relationship
-            ClientVendor clientVendor = clientVendorRepository.findByClientIdAndVendorId(request.getClientId(), request.getVendorId())
-                .orElseThrow(() -> new RuntimeException("No agreement exists between client and vendor"));
-            
+    private ResponseEntity<?> bookTripOnce(BookTripRequest request) {
+        try {
 
-            User employee = userRepository.findById(request.getEmployeeId())
-                .orElseThrow(() -> new RuntimeException("Employee not found"));
+            // Client role, employee membership, agreement and employee in one query
+            TripService.BookingContext context = tripService.resolveBookingContext(
+                request.getClientId(), request.getEmployeeId(), request.getVendorId());
+            ClientVendor clientVendor = context.getClientVendor();
+            
+            // Closed periods are frozen, so trips can no longer be added to them
+            if (periodCloseService.isClosed(clientVendor.getId(), request.getTripDate())) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Billing period is closed for this trip date"));
+            }
             
 
             Trip trip = new Trip();
             trip.setClientVendor(clientVendor);
-            trip.setEmployee(employee);
+            trip.setEmployee(context.getEmployee());
             trip.setDistance(request.getDistance());
             trip.setDuration(request.getDuration());
             trip.setTripDate(request.getTripDate());
@@ -394,7 +499,10 @@ public class ClientController {
             // Calculate billing costs
             calculateTripCosts(trip, clientVendor);
             
-            Trip savedTrip = tripRepository.save(trip);
+            // In write-behind mode the trip is acknowledged once it is in the local log
+            Trip savedTrip = tripIngestionBuffer.isAccepting()
+                ? tripIngestionBuffer.submit(trip, context.getClient().getId())
+                : tripService.saveTrip(trip);
             
 
             Map<String, Object> response = new HashMap<>();
@@ -418,6 +526,41 @@ public class ClientController {
             
             return ResponseEntity.ok(response);
             
+        } catch (TripIngestionBuffer.UnconfirmedTripException e) {
+            // Logged but not confirmed: the trip may still be stored, so this is not a refusal
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    // Bulk import of completed trips as NDJSON (one object per line) or CSV with a header line;
+    // rejected rows are listed in the response and do not stop the rest of the upload.
+    // With an Idempotency-Key header a retried upload returns the first result instead of importing again
+    @PostMapping(value = "/trips/import", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<?> importTrips(@RequestParam Long clientId,
+                                         @RequestHeader("Content-Type") String contentType,
+                                         @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                         InputStream body) {
+        try {
+            String format = contentType.startsWith("text/csv")
+                ? TripImportService.FORMAT_CSV : TripImportService.FORMAT_NDJSON;
+            if (idempotencyKey == null) {
+                return importTripsOnce(clientId, format, body);
+            }
+            // The upload is hashed as it is read, so a key reused for a different file is refused
+            DigestInputStream digestingBody = idempotencyService.digesting(body);
+            return idempotencyService.execute("trip-import:" + clientId, idempotencyKey,
+                () -> idempotencyService.fingerprint(digestingBody),
+                () -> importTripsOnce(clientId, format, digestingBody));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<?> importTripsOnce(Long clientId, String format, InputStream body) {
+        try {
+            return ResponseEntity.ok(tripImportService.importTrips(clientId, format, body));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
@@ -481,81 +624,16 @@ public class ClientController {
   
     
     private void calculateTripCosts(Trip trip, ClientVendor clientVendor) {
-        BillingModel billingModel = clientVendor.getBillingModel();
-        
-        
-        BigDecimal baseCost = BigDecimal.ZERO;
-        if (billingModel == BillingModel.TRIP || billingModel == BillingModel.HYBRID) {
-            baseCost = clientVendor.getTripRate() != null ? clientVendor.getTripRate() : BigDecimal.ZERO;
-        }
-        
-        if (billingModel == BillingModel.PACKAGE || billingModel == BillingModel.HYBRID) {
-        
-            BigDecimal packageContribution = clientVendor.getPackageRate() != null ? 
-                clientVendor.getPackageRate().divide(BigDecimal.valueOf(100), 2, BigDecimal.ROUND_HALF_UP) : BigDecimal.ZERO;
-            baseCost = baseCost.add(packageContribution);
-        }
-        
-        // Calculate extra distance and time amounts
-        BigDecimal extraDistance = BigDecimal.ZERO;
-        BigDecimal extraTime = BigDecimal.ZERO;
-        
-        if (clientVendor.getStandardDistanceLimit() != null && 
-            trip.getDistance().compareTo(clientVendor.getStandardDistanceLimit()) > 0) {
-            extraDistance = trip.getDistance().subtract(clientVendor.getStandardDistanceLimit());
-        }
-        
-        if (clientVendor.getStandardTimeLimit() != null && 
-            trip.getDuration().compareTo(clientVendor.getStandardTimeLimit()) > 0) {
-            extraTime = trip.getDuration().subtract(clientVendor.getStandardTimeLimit());
-        }
-        
-        // Calculate VENDOR costs 
-        BigDecimal vendorExtraDistanceCost = BigDecimal.ZERO;
-        BigDecimal vendorExtraTimeCost = BigDecimal.ZERO;
-        
-        if (extraDistance.compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal vendorExtraDistanceRate = clientVendor.getVendorExtraDistanceRate() != null ? 
-                clientVendor.getVendorExtraDistanceRate() : BigDecimal.ZERO;
-            vendorExtraDistanceCost = extraDistance.multiply(vendorExtraDistanceRate);
-        }
-        
-        if (extraTime.compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal vendorExtraTimeRate = clientVendor.getVendorExtraTimeRate() != null ? 
-                clientVendor.getVendorExtraTimeRate() : BigDecimal.ZERO;
-            vendorExtraTimeCost = extraTime.multiply(vendorExtraTimeRate);
-        }
-        
-   
-        BigDecimal employeeExtraDistanceCost = BigDecimal.ZERO;
-        BigDecimal employeeExtraTimeCost = BigDecimal.ZERO;
-        
-        if (extraDistance.compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal employeeExtraDistanceRate = clientVendor.getEmployeeExtraDistanceRate() != null ? 
-                clientVendor.getEmployeeExtraDistanceRate() : BigDecimal.ZERO;
-            employeeExtraDistanceCost = extraDistance.multiply(employeeExtraDistanceRate);
-        }
-        
-        if (extraTime.compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal employeeExtraTimeRate = clientVendor.getEmployeeExtraTimeRate() != null ? 
-                clientVendor.getEmployeeExtraTimeRate() : BigDecimal.ZERO;
-            employeeExtraTimeCost = extraTime.multiply(employeeExtraTimeRate);
-        }
-        
-        
-        BigDecimal halfBaseCost = baseCost.divide(BigDecimal.valueOf(2), 2, BigDecimal.ROUND_HALF_UP);
-        
-   
-        BigDecimal vendorTotalCost = halfBaseCost.add(vendorExtraDistanceCost).add(vendorExtraTimeCost);
-        BigDecimal employeeTotalCost = halfBaseCost.add(employeeExtraDistanceCost).add(employeeExtraTimeCost);
+        TripCharges charges = PricingEngine.priceTrip(rateCardService.getRateCard(clientVendor),
+                                                      trip.getDistance(), trip.getDuration());
         
         // Set trip costs
-        trip.setVendorCost(vendorTotalCost);
-        trip.setEmployeeCost(employeeTotalCost);
-        trip.setTotalCost(vendorTotalCost.add(employeeTotalCost));
+        trip.setVendorCost(charges.getVendorCost());
+        trip.setEmployeeCost(charges.getEmployeeCost());
+        trip.setTotalCost(charges.getTotalCost());
         
         // Store extra costs
-        trip.setExtraDistanceCost(employeeExtraDistanceCost);
-        trip.setExtraTimeCost(employeeExtraTimeCost);
+        trip.setExtraDistanceCost(charges.getExtraDistanceCost());
+        trip.setExtraTimeCost(charges.getExtraTimeCost());
     }
 }
\ No newline at end of file
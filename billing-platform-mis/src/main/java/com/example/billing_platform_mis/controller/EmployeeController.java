@@ -2,6 +2,8 @@ package com.example.billing_platform_mis.controller;
 
 import com.example.billing_platform_mis.entity.*;
 import com.example.billing_platform_mis.repository.*;
+import com.example.billing_platform_mis.service.KeysetPageService;
+import com.example.billing_platform_mis.service.TripHistoryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -13,7 +15,7 @@ import java.math.BigDecimal;
 
 @RestController
 @RequestMapping("/api/employee")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = KeysetPageService.NEXT_CURSOR_HEADER)
 public class EmployeeController {
 
     @Autowired
@@ -23,11 +25,14 @@ public class EmployeeController {
     private ClientEmployeeRepository clientEmployeeRepository;
 
     @Autowired
-    private TripRepository tripRepository;
+    private TripHistoryService tripHistoryService;
 
     @Autowired
     private IncentiveRepository incentiveRepository;
 
+    @Autowired
+    private KeysetPageService keysetPageService;
+
     
     @GetMapping("/profile")
     public ResponseEntity<?> getEmployeeProfile(@RequestParam Long employeeId) {
@@ -72,27 +77,23 @@ public class EmployeeController {
     public ResponseEntity<?> getEmployeeTrips(@RequestParam Long employeeId,
                                             @RequestParam(required = false) String startDate,
                                             @RequestParam(required = false) String endDate,
-                                            @RequestParam(required = false) Long clientId) {
+                                            @RequestParam(required = false) Long clientId,
+                                            @RequestParam(required = false) String cursor,
+                                            @RequestParam(required = false) Integer limit) {
         try {
             User employee = userRepository.findById(employeeId)
                 .orElseThrow(() -> new RuntimeException("Employee not found"));
 
-            List<Trip> trips;
-            
-            if (clientId != null) {
-                // Filter by specific client
-                trips = tripRepository.findByEmployeeIdAndClientId(employeeId, clientId);
-            } else if (startDate != null && endDate != null) {
+            if (clientId == null && startDate != null && endDate != null) {
                 // Filter by date range
                 LocalDate start = LocalDate.parse(startDate);
                 LocalDate end = LocalDate.parse(endDate);
-                trips = tripRepository.findByEmployeeIdAndDateRange(employeeId, start, end);
-            } else {
-                // All trips
-                trips = tripRepository.findByEmployeeId(employeeId);
+                return ResponseEntity.ok(tripHistoryService.findByEmployeeIdAndDateRange(employeeId, start, end));
             }
 
-            return ResponseEntity.ok(trips);
+            // A page of all trips, or of the trips with one client; X-Next-Cursor holds the next page's cursor
+            KeysetPageService.Page<Trip> page = keysetPageService.findEmployeeTrips(employeeId, clientId, cursor, limit);
+            return keysetPageService.respond(page, page.getItems());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
@@ -102,7 +103,7 @@ public class EmployeeController {
     @GetMapping("/trips/summary")
     public ResponseEntity<?> getTripSummary(@RequestParam Long employeeId) {
         try {
-            List<Trip> allTrips = tripRepository.findByEmployeeId(employeeId);
+            List<Trip> allTrips = tripHistoryService.findByEmployeeId(employeeId);
             
             Map<String, Object> summary = new HashMap<>();
             summary.put("totalTrips", allTrips.size());
@@ -117,7 +118,7 @@ public class EmployeeController {
 
             // Recent trips (last 30 days)
             LocalDate thirtyDaysAgo = LocalDate.now().minusDays(30);
-            List<Trip> recentTrips = tripRepository.findByEmployeeIdAndDateRange(employeeId, thirtyDaysAgo, LocalDate.now());
+            List<Trip> recentTrips = tripHistoryService.findByEmployeeIdAndDateRange(employeeId, thirtyDaysAgo, LocalDate.now());
             summary.put("recentTrips", recentTrips.size());
 
             // Group by client
@@ -229,7 +230,7 @@ public class EmployeeController {
                 endDate = now.withDayOfMonth(now.lengthOfMonth());
             }
 
-            List<Trip> monthlyTrips = tripRepository.findByEmployeeIdAndDateRange(employeeId, startDate, endDate);
+            List<Trip> monthlyTrips = tripHistoryService.findByEmployeeIdAndDateRange(employeeId, startDate, endDate);
             List<Incentive> monthlyIncentives = incentiveRepository.findByEmployeeIdAndDateRange(employeeId, startDate, endDate);
             
             Map<String, Object> monthlyReport = new HashMap<>();
@@ -2,6 +2,9 @@ package com.example.billing_platform_mis.controller;
 
 import com.example.billing_platform_mis.entity.*;
 import com.example.billing_platform_mis.repository.*;
+import com.example.billing_platform_mis.service.KeysetPageService;
+import com.example.billing_platform_mis.service.RateCardService;
+import com.example.billing_platform_mis.service.TripHistoryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -13,7 +16,7 @@ import java.math.BigDecimal;
 
 @RestController
 @RequestMapping("/api/vendor")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = KeysetPageService.NEXT_CURSOR_HEADER)
 public class VendorController {
 
     @Autowired
@@ -23,7 +26,7 @@ public class VendorController {
     private ClientVendorRepository clientVendorRepository;
 
     @Autowired
-    private TripRepository tripRepository;
+    private TripHistoryService tripHistoryService;
 
     @Autowired
     private PayoutRepository payoutRepository;
@@ -31,6 +34,12 @@ public class VendorController {
     @Autowired
     private VendorProfileRepository vendorProfileRepository;
 
+    @Autowired
+    private RateCardService rateCardService;
+
+    @Autowired
+    private KeysetPageService keysetPageService;
+
     
 
     // Get vendor profile
@@ -99,19 +108,24 @@ public class VendorController {
     }
 
     
+    // Trips of a date range, or without one a page of all trips (X-Next-Cursor holds the next page's cursor)
     @GetMapping("/trips")
     public ResponseEntity<?> getVendorTrips(@RequestParam Long vendorId,
                                           @RequestParam(required = false) String startDate,
-                                          @RequestParam(required = false) String endDate) {
+                                          @RequestParam(required = false) String endDate,
+                                          @RequestParam(required = false) String cursor,
+                                          @RequestParam(required = false) Integer limit) {
         try {
             List<Trip> trips;
+            KeysetPageService.Page<Trip> page = null;
             
             if (startDate != null && endDate != null) {
                 LocalDate start = LocalDate.parse(startDate);
                 LocalDate end = LocalDate.parse(endDate);
-                trips = tripRepository.findByVendorIdAndDateRange(vendorId, start, end);
+                trips = tripHistoryService.findByVendorIdAndDateRange(vendorId, start, end);
             } else {
-                trips = tripRepository.findByVendorId(vendorId);
+                page = keysetPageService.findVendorTrips(vendorId, cursor, limit);
+                trips = page.getItems();
             }
 
             // Format trips for frontend consumption
@@ -142,7 +156,7 @@ public class VendorController {
                 })
                 .collect(Collectors.toList());
 
-            return ResponseEntity.ok(formattedTrips);
+            return page != null ? keysetPageService.respond(page, formattedTrips) : ResponseEntity.ok(formattedTrips);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
@@ -152,7 +166,7 @@ public class VendorController {
     @GetMapping("/trips/client/{clientId}")
     public ResponseEntity<?> getTripsForClient(@PathVariable Long clientId, @RequestParam Long vendorId) {
         try {
-            List<Trip> trips = tripRepository.findByVendorIdAndClientId(vendorId, clientId);
+            List<Trip> trips = tripHistoryService.findByVendorIdAndClientId(vendorId, clientId);
             return ResponseEntity.ok(trips);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -160,24 +174,26 @@ public class VendorController {
     }
 
     
+    // Payouts of a date range, or without one a page of all payouts, newest trip first
     @GetMapping("/payouts")
     public ResponseEntity<?> getPayoutHistory(@RequestParam Long vendorId,
                                             @RequestParam(required = false) String startDate,
-                                            @RequestParam(required = false) String endDate) {
+                                            @RequestParam(required = false) String endDate,
+                                            @RequestParam(required = false) String cursor,
+                                            @RequestParam(required = false) Integer limit) {
         try {
+            if (startDate == null || endDate == null) {
+                KeysetPageService.Page<Payout> page = keysetPageService.findVendorPayouts(vendorId, cursor, limit);
+                return keysetPageService.respond(page, page.getItems());
+            }
+
+            LocalDate start = LocalDate.parse(startDate);
+            LocalDate end = LocalDate.parse(endDate);
             List<ClientVendor> assignments = clientVendorRepository.findByVendorId(vendorId);
             List<Payout> allPayouts = new ArrayList<>();
 
             for (ClientVendor cv : assignments) {
-                List<Payout> payouts;
-                if (startDate != null && endDate != null) {
-                    LocalDate start = LocalDate.parse(startDate);
-                    LocalDate end = LocalDate.parse(endDate);
-                    payouts = payoutRepository.findByClientVendorAndDateRange(cv.getId(), start, end);
-                } else {
-                    payouts = payoutRepository.findByClientVendor(cv);
-                }
-                allPayouts.addAll(payouts);
+                allPayouts.addAll(payoutRepository.findByClientVendorAndDateRange(cv.getId(), start, end));
             }
 
             return ResponseEntity.ok(allPayouts);
@@ -230,7 +246,7 @@ public class VendorController {
     @GetMapping("/reports/performance")
     public ResponseEntity<?> getPerformanceSummary(@RequestParam Long vendorId) {
         try {
-            List<Trip> allTrips = tripRepository.findByVendorId(vendorId);
+            List<Trip> allTrips = tripHistoryService.findByVendorId(vendorId);
             List<ClientVendor> assignments = clientVendorRepository.findByVendorId(vendorId);
             
             Map<String, Object> performance = new HashMap<>();
@@ -257,7 +273,7 @@ public class VendorController {
             // Monthly earnings (current month)
             LocalDate monthStart = LocalDate.now().withDayOfMonth(1);
             LocalDate monthEnd = LocalDate.now();
-            List<Trip> monthlyTrips = tripRepository.findByVendorIdAndDateRange(vendorId, monthStart, monthEnd);
+            List<Trip> monthlyTrips = tripHistoryService.findByVendorIdAndDateRange(vendorId, monthStart, monthEnd);
             BigDecimal monthlyEarnings = monthlyTrips.stream()
                 .map(t -> t.getVendorCost() != null ? t.getVendorCost() : BigDecimal.ZERO)
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
@@ -279,7 +295,7 @@ public class VendorController {
 
             // Recent activity (last 30 days)
             LocalDate thirtyDaysAgo = LocalDate.now().minusDays(30);
-            List<Trip> recentTrips = tripRepository.findByVendorIdAndDateRange(vendorId, thirtyDaysAgo, LocalDate.now());
+            List<Trip> recentTrips = tripHistoryService.findByVendorIdAndDateRange(vendorId, thirtyDaysAgo, LocalDate.now());
             performance.put("recentTrips", recentTrips.size());
 
             return ResponseEntity.ok(performance);
@@ -309,7 +325,7 @@ public class VendorController {
                 endDate = now.withDayOfMonth(now.lengthOfMonth());
             }
 
-            List<Trip> monthlyTrips = tripRepository.findByVendorIdAndDateRange(vendorId, startDate, endDate);
+            List<Trip> monthlyTrips = tripHistoryService.findByVendorIdAndDateRange(vendorId, startDate, endDate);
             List<ClientVendor> assignments = clientVendorRepository.findByVendorId(vendorId);
             
             Map<String, Object> monthlySummary = new HashMap<>();
@@ -365,7 +381,10 @@ public class VendorController {
             profile.setDefaultExtraDistanceRate(request.getExtraDistanceRate());
             profile.setDefaultExtraTimeRate(request.getExtraTimeRate());
 
+            // Defaults only seed new assignments; each existing relationship is priced from its own rates,
+            // so none of its trips need repricing
             vendorProfileRepository.save(profile);
+            rateCardService.evictVendor(vendor.getId());
 
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Vendor rates updated successfully");
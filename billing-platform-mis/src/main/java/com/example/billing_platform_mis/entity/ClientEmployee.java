@@ -10,14 +10,16 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "client_employees",
-       uniqueConstraints = @UniqueConstraint(columnNames = {"client_id", "employee_id"}))
+       uniqueConstraints = @UniqueConstraint(columnNames = {"client_id", "employee_id"}),
+       indexes = @Index(name = "client_employees_employee_idx", columnList = "employee_id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class ClientEmployee {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "client_employees_seq")
+    @SequenceGenerator(name = "client_employees_seq", sequenceName = "client_employees_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -18,7 +18,8 @@ import java.time.LocalDateTime;
 public class ClientProfile {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "client_profiles_seq")
+    @SequenceGenerator(name = "client_profiles_seq", sequenceName = "client_profiles_seq", allocationSize = 50)
     private Long id;
     
     @OneToOne
@@ -12,14 +12,16 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "client_vendors", 
-       uniqueConstraints = @UniqueConstraint(columnNames = {"client_id", "vendor_id"}))
+       uniqueConstraints = @UniqueConstraint(columnNames = {"client_id", "vendor_id"}),
+       indexes = @Index(name = "client_vendors_vendor_idx", columnList = "vendor_id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class ClientVendor {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "client_vendors_seq")
+    @SequenceGenerator(name = "client_vendors_seq", sequenceName = "client_vendors_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
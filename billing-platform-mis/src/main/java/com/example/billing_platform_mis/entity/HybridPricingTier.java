@@ -0,0 +1,48 @@
+package com.example.billing_platform_mis.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+//Trip pricing tier of a hybrid relationship, applied in tier order to the period's trip count
+@Entity
+@Table(name = "hybrid_pricing_tiers",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"client_vendor_id", "tier_order"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HybridPricingTier {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "hybrid_pricing_tiers_seq")
+    @SequenceGenerator(name = "hybrid_pricing_tiers_seq", sequenceName = "hybrid_pricing_tiers_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "client_vendor_id", nullable = false)
+    private ClientVendor clientVendor;
+
+    @Column(name = "tier_order", nullable = false)
+    private Integer tierOrder;
+
+    // Number of trips priced by this tier (null = all remaining trips)
+    @Column(name = "trip_limit")
+    private Integer tripLimit;
+
+    @Column(name = "trip_rate", nullable = false, precision = 10, scale = 2)
+    private BigDecimal tripRate = BigDecimal.ZERO;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
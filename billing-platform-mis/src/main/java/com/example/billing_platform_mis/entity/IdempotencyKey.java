@@ -0,0 +1,60 @@
+package com.example.billing_platform_mis.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+//Idempotency-Key sent with a write request and the response it produced; the response is empty while the
+//first request is still running. Rows are purged once they expire.
+@Entity
+@Table(name = "idempotency_keys",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"scope", "idempotency_key"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "idempotency_keys_seq")
+    @SequenceGenerator(name = "idempotency_keys_seq", sequenceName = "idempotency_keys_seq", allocationSize = 50)
+    private Long id;
+
+    //Operation and caller the key belongs to, e.g. trip-booking:42
+    @Column(nullable = false, length = 100)
+    private String scope;
+
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;
+
+    //SHA-256 of the request body, so a key reused for a different request is refused
+    @Column(name = "request_hash", length = 64)
+    private String requestHash;
+
+    @Column(name = "response_status")
+    private Integer responseStatus;
+
+    @Column(name = "response_body", columnDefinition = "TEXT")
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    //Token of the request holding the claim; only that request may complete or release it
+    @Column(length = 36)
+    private String owner;
+
+    //Refreshed by the owning request while it runs; a claim not refreshed for the claim timeout is abandoned
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    //True when the request's changes commit together with its stored response, so an abandoned claim can be
+    //taken over and run again; otherwise an abandoned claim's outcome is unknown and it is never run again
+    @Column(name = "retry_safe")
+    private Boolean retrySafe;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -5,29 +5,55 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.NotFound;
+import org.hibernate.annotations.NotFoundAction;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "incentives")
+@Table(name = "incentives",
+       indexes = {
+           @Index(name = "incentives_client_employee_date_idx", columnList = "client_employee_id, trip_date"),
+           @Index(name = "incentives_client_vendor_date_idx", columnList = "client_vendor_id, trip_date"),
+           @Index(name = "incentives_trip_idx", columnList = "trip_id"),
+           @Index(name = "incentives_trip_date_idx", columnList = "trip_date"),
+           @Index(name = "incentives_created_at_idx", columnList = "created_at")
+       })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Incentive {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "incentives_seq")
+    @SequenceGenerator(name = "incentives_seq", sequenceName = "incentives_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne
     @JoinColumn(name = "client_employee_id", nullable = false)
     private ClientEmployee clientEmployee;
     
+    //Relationship of the trip, so vendor totals do not need the trip row
     @ManyToOne
-    @JoinColumn(name = "trip_id", nullable = false)
+    @JoinColumn(name = "client_vendor_id")
+    private ClientVendor clientVendor;
+    
+    //Null once the trip is archived (TripArchiveService); trip_id and trip_date are kept
+    @ManyToOne
+    @NotFound(action = NotFoundAction.IGNORE)
+    @JoinColumn(name = "trip_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Trip trip;
     
+    //Read-only trip_id, so joins to trips go straight to the column instead of through the association
+    @Column(name = "trip_id", insertable = false, updatable = false)
+    private Long tripId;
+    
+    //Copy of the trip's date, the partition key when trips are partitioned by month
+    @Column(name = "trip_date")
+    private LocalDate tripDate;
+    
     @Column(name = "distance_incentive", precision = 8, scale = 2)
     private BigDecimal distanceIncentive = BigDecimal.ZERO;
     
@@ -0,0 +1,61 @@
+package com.example.billing_platform_mis.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "invoices",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"client_vendor_id", "period_start", "period_end"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Invoice {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "invoices_seq")
+    @SequenceGenerator(name = "invoices_seq", sequenceName = "invoices_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "client_vendor_id", nullable = false)
+    private ClientVendor clientVendor;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "billing_model", nullable = false)
+    private BillingModel billingModel;
+
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    @Column(name = "period_end", nullable = false)
+    private LocalDate periodEnd;
+
+    @Column(name = "trip_count", nullable = false)
+    private Long tripCount = 0L;
+
+    // Invoice lines
+    @Column(name = "package_amount", precision = 10, scale = 2)
+    private BigDecimal packageAmount = BigDecimal.ZERO;
+
+    @Column(name = "trip_amount", precision = 10, scale = 2)
+    private BigDecimal tripAmount = BigDecimal.ZERO;
+
+    @Column(name = "total_amount", nullable = false, precision = 10, scale = 2)
+    private BigDecimal totalAmount;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,83 @@
+package com.example.billing_platform_mis.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+//Frozen invoice of a closed billing period; written once by period close and never updated
+@Entity
+@Immutable
+@Table(name = "invoice_snapshots",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"client_vendor_id", "period_start", "period_end"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "invoice_snapshots_seq")
+    @SequenceGenerator(name = "invoice_snapshots_seq", sequenceName = "invoice_snapshots_seq", allocationSize = 50)
+    private Long id;
+
+    // Relationship details as they were when the period closed
+    @Column(name = "client_vendor_id", nullable = false)
+    private Long clientVendorId;
+
+    @Column(name = "client_id", nullable = false)
+    private Long clientId;
+
+    @Column(name = "vendor_id", nullable = false)
+    private Long vendorId;
+
+    @Column(name = "client_name")
+    private String clientName;
+
+    @Column(name = "vendor_name")
+    private String vendorName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "billing_model", nullable = false)
+    private BillingModel billingModel;
+
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    @Column(name = "period_end", nullable = false)
+    private LocalDate periodEnd;
+
+    @Column(name = "trip_count", nullable = false)
+    private Long tripCount = 0L;
+
+    // Rates the period was priced with
+    @Column(name = "package_rate", precision = 10, scale = 2)
+    private BigDecimal packageRate = BigDecimal.ZERO;
+
+    @Column(name = "trip_rate", precision = 10, scale = 2)
+    private BigDecimal tripRate = BigDecimal.ZERO;
+
+    // Invoice lines
+    @Column(name = "package_amount", nullable = false, precision = 10, scale = 2)
+    private BigDecimal packageAmount = BigDecimal.ZERO;
+
+    @Column(name = "trip_amount", nullable = false, precision = 10, scale = 2)
+    private BigDecimal tripAmount = BigDecimal.ZERO;
+
+    @Column(name = "total_amount", nullable = false, precision = 10, scale = 2)
+    private BigDecimal totalAmount;
+
+    @CreationTimestamp
+    @Column(name = "closed_at", nullable = false, updatable = false)
+    private LocalDateTime closedAt;
+
+    //True if the trip date falls inside this closed period
+    public boolean covers(LocalDate date) {
+        return !date.isBefore(periodStart) && !date.isAfter(periodEnd);
+    }
+}
@@ -5,29 +5,49 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.NotFound;
+import org.hibernate.annotations.NotFoundAction;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "payouts")
+@Table(name = "payouts",
+       indexes = {
+           @Index(name = "payouts_client_vendor_date_idx", columnList = "client_vendor_id, trip_date"),
+           @Index(name = "payouts_trip_idx", columnList = "trip_id"),
+           @Index(name = "payouts_trip_date_idx", columnList = "trip_date"),
+           @Index(name = "payouts_created_at_idx", columnList = "created_at")
+       })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Payout {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payouts_seq")
+    @SequenceGenerator(name = "payouts_seq", sequenceName = "payouts_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne
     @JoinColumn(name = "client_vendor_id", nullable = false)
     private ClientVendor clientVendor;
     
+    //Null once the trip is archived (TripArchiveService); trip_id and trip_date are kept
     @ManyToOne
-    @JoinColumn(name = "trip_id", nullable = false)
+    @NotFound(action = NotFoundAction.IGNORE)
+    @JoinColumn(name = "trip_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Trip trip;
     
+    //Read-only trip_id, so joins to trips go straight to the column instead of through the association
+    @Column(name = "trip_id", insertable = false, updatable = false)
+    private Long tripId;
+    
+    //Copy of the trip's date, the partition key when trips are partitioned by month
+    @Column(name = "trip_date")
+    private LocalDate tripDate;
+    
     @Column(name = "base_amount", precision = 10, scale = 2)
     private BigDecimal baseAmount = BigDecimal.ZERO;
     
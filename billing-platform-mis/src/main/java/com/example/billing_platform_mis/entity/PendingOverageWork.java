@@ -0,0 +1,36 @@
+package com.example.billing_platform_mis.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+//Durable record of a trip waiting for overage/payout processing; removed once the trip is processed
+@Entity
+@Table(name = "pending_overage_work")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PendingOverageWork {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pending_overage_work_seq")
+    @SequenceGenerator(name = "pending_overage_work_seq", sequenceName = "pending_overage_work_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "trip_id", nullable = false, unique = true)
+    private Long tripId;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(name = "enqueued_at", nullable = false, updatable = false)
+    private LocalDateTime enqueuedAt;
+}
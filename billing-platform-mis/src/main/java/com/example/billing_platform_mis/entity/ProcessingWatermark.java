@@ -0,0 +1,33 @@
+package com.example.billing_platform_mis.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+//High-water mark of a background pipeline: the last source row ID it has fully processed
+@Entity
+@Table(name = "processing_watermarks")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProcessingWatermark {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "processing_watermarks_seq")
+    @SequenceGenerator(name = "processing_watermarks_seq", sequenceName = "processing_watermarks_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "process_name", nullable = false, unique = true, length = 64)
+    private String processName;
+
+    @Column(name = "last_processed_id", nullable = false)
+    private Long lastProcessedId = 0L;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,67 @@
+package com.example.billing_platform_mis.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+//Trip repricing of one client-vendor relationship; the last repriced trip ID is the resume checkpoint
+@Entity
+@Table(name = "repricing_jobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RepricingJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "repricing_jobs_seq")
+    @SequenceGenerator(name = "repricing_jobs_seq", sequenceName = "repricing_jobs_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "client_vendor_id", nullable = false, unique = true)
+    private Long clientVendorId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private RepricingStatus status = RepricingStatus.PENDING;
+
+    // What changed the rates (vendor-rates, fix-vendor-rates, ...)
+    @Column(length = 64)
+    private String reason;
+
+    @Column(name = "last_trip_id", nullable = false)
+    private Long lastTripId = 0L;
+
+    @Column(name = "trips_scanned", nullable = false)
+    private Long tripsScanned = 0L;
+
+    @Column(name = "trips_updated", nullable = false)
+    private Long tripsUpdated = 0L;
+
+    // Trips of closed billing periods keep their frozen costs
+    @Column(name = "trips_skipped", nullable = false)
+    private Long tripsSkipped = 0L;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "requested_at", nullable = false)
+    private LocalDateTime requestedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // A new rate change restarting the job makes an in-flight chunk fail instead of overwriting the restart
+    @Version
+    private Long version;
+}
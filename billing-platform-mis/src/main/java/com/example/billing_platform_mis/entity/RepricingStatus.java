@@ -0,0 +1,8 @@
+package com.example.billing_platform_mis.entity;
+
+public enum RepricingStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
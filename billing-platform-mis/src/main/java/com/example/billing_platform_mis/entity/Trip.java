@@ -11,14 +11,20 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "trips")
+@Table(name = "trips",
+       indexes = {
+           @Index(name = "trips_client_vendor_date_idx", columnList = "client_vendor_id, trip_date"),
+           @Index(name = "trips_employee_date_idx", columnList = "employee_id, trip_date"),
+           @Index(name = "trips_trip_date_idx", columnList = "trip_date")
+       })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Trip {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trips_seq")
+    @SequenceGenerator(name = "trips_seq", sequenceName = "trips_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,53 @@
+package com.example.billing_platform_mis.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+//Per relationship, per day trip accumulator maintained on trip insert/update
+@Entity
+@Table(name = "trip_daily_totals",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"client_vendor_id", "trip_date"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripDailyTotal {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trip_daily_totals_seq")
+    @SequenceGenerator(name = "trip_daily_totals_seq", sequenceName = "trip_daily_totals_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "client_vendor_id", nullable = false)
+    private ClientVendor clientVendor;
+
+    @Column(name = "trip_date", nullable = false)
+    private LocalDate tripDate;
+
+    @Column(name = "trip_count", nullable = false)
+    private Long tripCount = 0L;
+
+    @Column(name = "total_distance", nullable = false, precision = 12, scale = 2)
+    private BigDecimal totalDistance = BigDecimal.ZERO;
+
+    @Column(name = "total_duration", nullable = false, precision = 10, scale = 2)
+    private BigDecimal totalDuration = BigDecimal.ZERO;
+
+    // Overage sums (distance/hours beyond the standard limits, not money)
+    @Column(name = "distance_overage", nullable = false, precision = 12, scale = 2)
+    private BigDecimal distanceOverage = BigDecimal.ZERO;
+
+    @Column(name = "time_overage", nullable = false, precision = 10, scale = 2)
+    private BigDecimal timeOverage = BigDecimal.ZERO;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
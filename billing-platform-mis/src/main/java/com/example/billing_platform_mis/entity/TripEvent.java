@@ -0,0 +1,52 @@
+package com.example.billing_platform_mis.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+//Outbox entry for a trip change, written in the transaction that changed the trip and removed once it has
+//been delivered to every subscriber. The payload is the trip as JSON (plus its previous values for updates).
+@Entity
+@Table(name = "trip_outbox",
+       indexes = @Index(name = "idx_trip_outbox_trip_seq", columnList = "trip_id, trip_seq"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trip_outbox_seq")
+    @SequenceGenerator(name = "trip_outbox_seq", sequenceName = "trip_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "trip_id", nullable = false)
+    private Long tripId;
+
+    @Column(name = "client_vendor_id", nullable = false)
+    private Long clientVendorId;
+
+    //One past the trip's highest event still in the outbox, so pending events of a trip sort in commit order
+    //(ids come from pooled blocks and do not follow it)
+    @Column(name = "trip_seq")
+    private Integer tripSeq;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 20)
+    private TripEventType eventType;
+
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    //Failed deliveries; events that keep failing are parked and no longer delivered
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
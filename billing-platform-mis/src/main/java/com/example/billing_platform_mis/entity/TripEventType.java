@@ -0,0 +1,7 @@
+package com.example.billing_platform_mis.entity;
+
+public enum TripEventType {
+    CREATED,
+    UPDATED,
+    REPRICED
+}
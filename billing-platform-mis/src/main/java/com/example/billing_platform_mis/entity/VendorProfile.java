@@ -18,7 +18,8 @@ import java.time.LocalDateTime;
 public class VendorProfile {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "vendor_profiles_seq")
+    @SequenceGenerator(name = "vendor_profiles_seq", sequenceName = "vendor_profiles_seq", allocationSize = 50)
     private Long id;
     
     @OneToOne
@@ -0,0 +1,18 @@
+package com.example.billing_platform_mis.pricing;
+
+import com.example.billing_platform_mis.entity.BillingModel;
+
+//Model-specific part of pricing. Rates are hundredths and returned amounts ten-thousandths (see Money).
+public interface BillingStrategy {
+
+    BillingModel getBillingModel();
+
+    //Base cost carried by a single trip, in hundredths
+    long perTripBaseCost(long packageRate, long tripRate);
+
+    //Fixed component of a period bill
+    long packageComponent(RateCard rateCard);
+
+    //Usage component of a period bill
+    long tripComponent(RateCard rateCard, long tripCount);
+}
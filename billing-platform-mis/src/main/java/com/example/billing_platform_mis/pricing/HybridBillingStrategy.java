@@ -0,0 +1,30 @@
+package com.example.billing_platform_mis.pricing;
+
+import com.example.billing_platform_mis.entity.BillingModel;
+
+//Hybrid model: base package rate plus per-trip charges, tiered when the relationship has pricing tiers
+public final class HybridBillingStrategy implements BillingStrategy {
+
+    @Override
+    public BillingModel getBillingModel() {
+        return BillingModel.HYBRID;
+    }
+
+    @Override
+    public long perTripBaseCost(long packageRate, long tripRate) {
+        return Math.addExact(tripRate, Money.divideHalfUp(packageRate, 100));
+    }
+
+    @Override
+    public long packageComponent(RateCard rateCard) {
+        return Money.hundredthsToAmount(rateCard.getPackageRate());
+    }
+
+    @Override
+    public long tripComponent(RateCard rateCard, long tripCount) {
+        if (rateCard.hasTiers()) {
+            return PricingEngine.tieredTripAmount(rateCard.getTiers(), rateCard.getTripRate(), tripCount);
+        }
+        return Money.hundredthsToAmount(Math.multiplyExact(rateCard.getTripRate(), tripCount));
+    }
+}
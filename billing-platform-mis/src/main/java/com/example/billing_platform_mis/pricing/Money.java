@@ -0,0 +1,52 @@
+package com.example.billing_platform_mis.pricing;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+//Fixed-point arithmetic on plain longs for the pricing engine.
+//Rates, limits and trip quantities are held in hundredths (scale 2, the scale of every column they come from);
+//priced amounts are held in ten-thousandths (scale 4) so that quantity x rate products are exact.
+public final class Money {
+
+    //Ten-thousandths per hundredth
+    public static final long AMOUNT_PER_HUNDREDTH = 100;
+
+    private Money() {
+    }
+
+    //Scale-2 fixed-point value of a decimal input (null counts as zero)
+    public static long toHundredths(BigDecimal value) {
+        if (value == null) return 0;
+        return value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    //Widen a scale-2 value to a scale-4 amount
+    public static long hundredthsToAmount(long hundredths) {
+        return Math.multiplyExact(hundredths, AMOUNT_PER_HUNDREDTH);
+    }
+
+    //Exact scale-4 product of a scale-2 quantity and a scale-2 rate
+    public static long multiply(long quantityHundredths, long rateHundredths) {
+        return Math.multiplyExact(quantityHundredths, rateHundredths);
+    }
+
+    //Integer division rounding half away from zero, matching RoundingMode.HALF_UP
+    public static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder != 0 && Math.abs(remainder) * 2 >= Math.abs(divisor)) {
+            quotient += (dividend < 0) == (divisor < 0) ? 1 : -1;
+        }
+        return quotient;
+    }
+
+    //Round a scale-4 amount to hundredths (HALF_UP)
+    public static long roundToHundredths(long amount) {
+        return divideHalfUp(amount, AMOUNT_PER_HUNDREDTH);
+    }
+
+    //Boundary conversion of a scale-4 amount to a scale-2 BigDecimal (HALF_UP), as persisted and serialized
+    public static BigDecimal toBigDecimal(long amount) {
+        return BigDecimal.valueOf(roundToHundredths(amount), 2);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.billing_platform_mis.pricing;
+
+import java.math.BigDecimal;
+
+//Overage quantities of a single trip with the employee incentive and vendor payout they produce.
+//Quantities are hundredths and amounts ten-thousandths, converted to BigDecimal on read.
+public final class OverageCharges {
+
+    private final long distanceOverage;
+    private final long timeOverage;
+    private final long distanceIncentive;
+    private final long timeIncentive;
+    private final long payoutBase;
+    private final long distancePayout;
+    private final long timePayout;
+
+    public OverageCharges(long distanceOverage, long timeOverage, long distanceIncentive, long timeIncentive,
+                          long payoutBase, long distancePayout, long timePayout) {
+        this.distanceOverage = distanceOverage;
+        this.timeOverage = timeOverage;
+        this.distanceIncentive = distanceIncentive;
+        this.timeIncentive = timeIncentive;
+        this.payoutBase = payoutBase;
+        this.distancePayout = distancePayout;
+        this.timePayout = timePayout;
+    }
+
+    //Incentives are only granted when the trip ran over a limit
+    public boolean hasOverage() {
+        return distanceOverage > 0 || timeOverage > 0;
+    }
+
+    //Fixed-point amounts
+    public long getTotalIncentiveValue() { return Math.addExact(distanceIncentive, timeIncentive); }
+    public long getTotalPayoutValue() { return Math.addExact(Math.addExact(payoutBase, distancePayout), timePayout); }
+
+    // Getters
+    public BigDecimal getDistanceOverage() { return BigDecimal.valueOf(distanceOverage, 2); }
+    public BigDecimal getTimeOverage() { return BigDecimal.valueOf(timeOverage, 2); }
+    public BigDecimal getDistanceIncentive() { return Money.toBigDecimal(distanceIncentive); }
+    public BigDecimal getTimeIncentive() { return Money.toBigDecimal(timeIncentive); }
+    public BigDecimal getTotalIncentive() { return Money.toBigDecimal(getTotalIncentiveValue()); }
+    public BigDecimal getPayoutBase() { return Money.toBigDecimal(payoutBase); }
+    public BigDecimal getDistancePayout() { return Money.toBigDecimal(distancePayout); }
+    public BigDecimal getTimePayout() { return Money.toBigDecimal(timePayout); }
+    public BigDecimal getTotalPayout() { return Money.toBigDecimal(getTotalPayoutValue()); }
+}
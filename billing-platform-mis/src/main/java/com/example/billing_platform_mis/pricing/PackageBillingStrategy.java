@@ -0,0 +1,27 @@
+package com.example.billing_platform_mis.pricing;
+
+import com.example.billing_platform_mis.entity.BillingModel;
+
+//Package model: fixed period rate regardless of trip count, each trip carries 1% of it
+public final class PackageBillingStrategy implements BillingStrategy {
+
+    @Override
+    public BillingModel getBillingModel() {
+        return BillingModel.PACKAGE;
+    }
+
+    @Override
+    public long perTripBaseCost(long packageRate, long tripRate) {
+        return Money.divideHalfUp(packageRate, 100);
+    }
+
+    @Override
+    public long packageComponent(RateCard rateCard) {
+        return Money.hundredthsToAmount(rateCard.getPackageRate());
+    }
+
+    @Override
+    public long tripComponent(RateCard rateCard, long tripCount) {
+        return 0;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.billing_platform_mis.pricing;
+
+import java.math.BigDecimal;
+
+//Period bill of a single relationship; amounts are ten-thousandths, converted to BigDecimal on read
+public final class PeriodCharges {
+
+    private final long tripCount;
+    private final long packageAmount;
+    private final long tripAmount;
+
+    public PeriodCharges(long tripCount, long packageAmount, long tripAmount) {
+        this.tripCount = tripCount;
+        this.packageAmount = packageAmount;
+        this.tripAmount = tripAmount;
+    }
+
+    //Fixed-point amounts
+    public long getPackageAmountValue() { return packageAmount; }
+    public long getTripAmountValue() { return tripAmount; }
+    public long getTotalAmountValue() { return Math.addExact(packageAmount, tripAmount); }
+
+    // Getters
+    public long getTripCount() { return tripCount; }
+    public BigDecimal getPackageAmount() { return Money.toBigDecimal(packageAmount); }
+    public BigDecimal getTripAmount() { return Money.toBigDecimal(tripAmount); }
+    public BigDecimal getTotalAmount() { return Money.toBigDecimal(getTotalAmountValue()); }
+}
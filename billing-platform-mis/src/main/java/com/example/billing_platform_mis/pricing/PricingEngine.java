@@ -0,0 +1,120 @@
+package com.example.billing_platform_mis.pricing;
+
+import com.example.billing_platform_mis.entity.BillingModel;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+//Single pricing engine for trips and periods over rate card snapshots (no entity or database access).
+//Model-specific rules come from the BillingStrategy of the card's billing model; all arithmetic is
+//fixed-point on longs and BigDecimal only appears at the boundary overloads.
+public final class PricingEngine {
+
+    private static final Map<BillingModel, BillingStrategy> STRATEGIES = new EnumMap<>(BillingModel.class);
+
+    static {
+        register(new PackageBillingStrategy());
+        register(new TripBillingStrategy());
+        register(new HybridBillingStrategy());
+    }
+
+    private PricingEngine() {
+    }
+
+    private static void register(BillingStrategy strategy) {
+        STRATEGIES.put(strategy.getBillingModel(), strategy);
+    }
+
+    //Strategy for a billing model
+    public static BillingStrategy strategyFor(BillingModel billingModel) {
+        BillingStrategy strategy = billingModel != null ? STRATEGIES.get(billingModel) : null;
+        if (strategy == null) {
+            throw new IllegalArgumentException("Unknown billing model");
+        }
+        return strategy;
+    }
+
+    //Booking cost split for decimal trip quantities (normalized to hundredths)
+    public static TripCharges priceTrip(RateCard rateCard, BigDecimal distance, BigDecimal duration) {
+        return priceTrip(rateCard, Money.toHundredths(distance), Money.toHundredths(duration));
+    }
+
+    //Booking cost split: half of the per-trip base to each side plus that side's extra charges
+    public static TripCharges priceTrip(RateCard rateCard, long distance, long duration) {
+        long extraDistance = bookingExcess(distance, rateCard.getDistanceLimit());
+        long extraTime = bookingExcess(duration, rateCard.getTimeLimit());
+
+        long employeeExtraDistanceCost = Money.multiply(extraDistance, rateCard.getEmployeeExtraDistanceRate());
+        long employeeExtraTimeCost = Money.multiply(extraTime, rateCard.getEmployeeExtraTimeRate());
+        long vendorExtraCost = Math.addExact(Money.multiply(extraDistance, rateCard.getVendorExtraDistanceRate()),
+                                             Money.multiply(extraTime, rateCard.getVendorExtraTimeRate()));
+
+        long halfBaseCost = rateCard.getHalfBaseCost();
+        return new TripCharges(
+            Math.addExact(halfBaseCost, vendorExtraCost),
+            Math.addExact(halfBaseCost, Math.addExact(employeeExtraDistanceCost, employeeExtraTimeCost)),
+            employeeExtraDistanceCost, employeeExtraTimeCost);
+    }
+
+    //Overage incentive and payout amounts for decimal trip quantities (normalized to hundredths)
+    public static OverageCharges priceOverages(RateCard rateCard, BigDecimal distance, BigDecimal duration) {
+        return priceOverages(rateCard, Money.toHundredths(distance), Money.toHundredths(duration));
+    }
+
+    //Overage incentive and payout amounts for a completed trip
+    public static OverageCharges priceOverages(RateCard rateCard, long distance, long duration) {
+        long distanceOverage = overageExcess(distance, rateCard.getDistanceLimit());
+        long timeOverage = overageExcess(duration, rateCard.getTimeLimit());
+
+        //Vendor payout base is the trip rate for every model
+        return new OverageCharges(distanceOverage, timeOverage,
+            Money.multiply(distanceOverage, rateCard.getEmployeeExtraDistanceRate()),
+            Money.multiply(timeOverage, rateCard.getEmployeeExtraTimeRate()),
+            Money.hundredthsToAmount(rateCard.getTripRate()),
+            Money.multiply(distanceOverage, rateCard.getVendorExtraDistanceRate()),
+            Money.multiply(timeOverage, rateCard.getVendorExtraTimeRate()));
+    }
+
+    //Period bill for a relationship's trip count
+    public static PeriodCharges pricePeriod(RateCard rateCard, long tripCount) {
+        return pricePeriod(rateCard, rateCard.getStrategy(), tripCount);
+    }
+
+    //Period bill using an explicit strategy instead of the card's own billing model
+    public static PeriodCharges pricePeriod(RateCard rateCard, BillingStrategy strategy, long tripCount) {
+        return new PeriodCharges(tripCount, strategy.packageComponent(rateCard),
+                                 strategy.tripComponent(rateCard, tripCount));
+    }
+
+    //Hybrid period bill under an explicit tier schedule instead of the card's own tiers
+    public static PeriodCharges priceTieredPeriod(RateCard rateCard, List<PricingTier> tiers, long tripCount) {
+        return new PeriodCharges(tripCount, Money.hundredthsToAmount(rateCard.getPackageRate()),
+                                 tieredTripAmount(tiers, rateCard.getTripRate(), tripCount));
+    }
+
+    //Trip charges for a trip count walked through tiers in order; trips beyond bounded tiers pay the fallback rate
+    public static long tieredTripAmount(List<PricingTier> tiers, long fallbackRate, long tripCount) {
+        long remaining = tripCount;
+        long amount = 0;
+        for (int i = 0; i < tiers.size() && remaining > 0; i++) {
+            PricingTier tier = tiers.get(i);
+            long trips = Math.min(remaining, tier.getTripLimit());
+            amount = Math.addExact(amount, Math.multiplyExact(trips, tier.getTripRate()));
+            remaining -= trips;
+        }
+        amount = Math.addExact(amount, Math.multiplyExact(remaining, fallbackRate));
+        return Money.hundredthsToAmount(amount);
+    }
+
+    //Quantity charged as extra at booking: only a missing limit means no limit, so a zero limit charges it all
+    private static long bookingExcess(long value, long limit) {
+        return limit != RateCard.NO_LIMIT && value > limit ? value - limit : 0;
+    }
+
+    //Quantity paid as overage incentive and payout: a zero or missing limit means no overage
+    private static long overageExcess(long value, long limit) {
+        return limit > 0 && value > limit ? value - limit : 0;
+    }
+}
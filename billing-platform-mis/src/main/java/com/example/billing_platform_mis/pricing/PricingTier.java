@@ -0,0 +1,30 @@
+package com.example.billing_platform_mis.pricing;
+
+import java.math.BigDecimal;
+
+//Compiled hybrid pricing tier: a number of trips priced at a per-trip rate (hundredths)
+public final class PricingTier {
+
+    public static final long UNBOUNDED = Long.MAX_VALUE;
+
+    private final long tripLimit;
+    private final long tripRate;
+
+    public PricingTier(long tripLimit, long tripRate) {
+        this.tripLimit = tripLimit;
+        this.tripRate = tripRate;
+    }
+
+    //Compile a tier from its stored form (a null trip limit covers all remaining trips)
+    public static PricingTier of(Integer tripLimit, BigDecimal tripRate) {
+        return new PricingTier(tripLimit != null ? tripLimit : UNBOUNDED, Money.toHundredths(tripRate));
+    }
+
+    public boolean isUnbounded() {
+        return tripLimit == UNBOUNDED;
+    }
+
+    // Getters
+    public long getTripLimit() { return tripLimit; }
+    public long getTripRate() { return tripRate; }
+}
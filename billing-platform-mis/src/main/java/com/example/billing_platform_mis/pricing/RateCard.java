@@ -0,0 +1,107 @@
+package com.example.billing_platform_mis.pricing;
+
+import com.example.billing_platform_mis.entity.BillingModel;
+import com.example.billing_platform_mis.entity.ClientVendor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+//Immutable, compiled snapshot of a client-vendor relationship's rates used by the pricing hot path.
+//Rates and limits are fixed-point hundredths, derived costs are ten-thousandths (see Money).
+public final class RateCard {
+
+    //Standard limit of a relationship that has none (a null limit, unlike a zero one)
+    public static final long NO_LIMIT = Long.MIN_VALUE;
+
+    private final Long clientVendorId;
+    private final Long clientId;
+    private final Long vendorId;
+    private final BillingModel billingModel;
+    private final BillingStrategy strategy;
+    private final LocalDateTime ratesUpdatedAt;
+
+    private final long packageRate;
+    private final long tripRate;
+
+    private final long distanceLimit;
+    private final long timeLimit;
+
+    private final long employeeExtraDistanceRate;
+    private final long employeeExtraTimeRate;
+    private final long vendorExtraDistanceRate;
+    private final long vendorExtraTimeRate;
+
+    //Hybrid trip tiers in application order (empty = flat trip rate)
+    private final List<PricingTier> tiers;
+
+    //Derived once per snapshot instead of once per trip
+    private final long perTripBaseCost;
+    private final long halfBaseCost;
+
+    private RateCard(ClientVendor relationship, List<PricingTier> tiers) {
+        this.clientVendorId = relationship.getId();
+        this.clientId = relationship.getClient() != null ? relationship.getClient().getId() : null;
+        this.vendorId = relationship.getVendor() != null ? relationship.getVendor().getId() : null;
+        this.billingModel = relationship.getBillingModel();
+        this.strategy = PricingEngine.strategyFor(billingModel);
+        this.ratesUpdatedAt = relationship.getUpdatedAt();
+
+        this.packageRate = Money.toHundredths(relationship.getPackageRate());
+        this.tripRate = Money.toHundredths(relationship.getTripRate());
+
+        this.distanceLimit = limit(relationship.getStandardDistanceLimit());
+        this.timeLimit = limit(relationship.getStandardTimeLimit());
+
+        this.employeeExtraDistanceRate = Money.toHundredths(relationship.getEmployeeExtraDistanceRate());
+        this.employeeExtraTimeRate = Money.toHundredths(relationship.getEmployeeExtraTimeRate());
+        this.vendorExtraDistanceRate = Money.toHundredths(relationship.getVendorExtraDistanceRate());
+        this.vendorExtraTimeRate = Money.toHundredths(relationship.getVendorExtraTimeRate());
+
+        this.tiers = List.copyOf(tiers);
+
+        long baseCost = strategy.perTripBaseCost(packageRate, tripRate);
+        this.perTripBaseCost = Money.hundredthsToAmount(baseCost);
+        this.halfBaseCost = Money.hundredthsToAmount(Money.divideHalfUp(baseCost, 2));
+    }
+
+    //Compile a snapshot from a loaded relationship
+    public static RateCard from(ClientVendor relationship) {
+        return new RateCard(relationship, List.of());
+    }
+
+    //Compile a snapshot including the relationship's hybrid pricing tiers
+    public static RateCard from(ClientVendor relationship, List<PricingTier> tiers) {
+        return new RateCard(relationship, tiers);
+    }
+
+    //True if this snapshot is at least as recent as the given relationship's rates
+    public boolean isCurrentFor(ClientVendor relationship) {
+        LocalDateTime updatedAt = relationship.getUpdatedAt();
+        return updatedAt == null || (ratesUpdatedAt != null && !ratesUpdatedAt.isBefore(updatedAt));
+    }
+
+    private static long limit(BigDecimal standardLimit) {
+        return standardLimit != null ? Money.toHundredths(standardLimit) : NO_LIMIT;
+    }
+
+    // Getters
+    public Long getClientVendorId() { return clientVendorId; }
+    public Long getClientId() { return clientId; }
+    public Long getVendorId() { return vendorId; }
+    public BillingModel getBillingModel() { return billingModel; }
+    public BillingStrategy getStrategy() { return strategy; }
+    public LocalDateTime getRatesUpdatedAt() { return ratesUpdatedAt; }
+    public long getPackageRate() { return packageRate; }
+    public long getTripRate() { return tripRate; }
+    public long getDistanceLimit() { return distanceLimit; }
+    public long getTimeLimit() { return timeLimit; }
+    public long getEmployeeExtraDistanceRate() { return employeeExtraDistanceRate; }
+    public long getEmployeeExtraTimeRate() { return employeeExtraTimeRate; }
+    public long getVendorExtraDistanceRate() { return vendorExtraDistanceRate; }
+    public long getVendorExtraTimeRate() { return vendorExtraTimeRate; }
+    public List<PricingTier> getTiers() { return tiers; }
+    public boolean hasTiers() { return !tiers.isEmpty(); }
+    public long getPerTripBaseCost() { return perTripBaseCost; }
+    public long getHalfBaseCost() { return halfBaseCost; }
+}
@@ -0,0 +1,58 @@
+package com.example.billing_platform_mis.pricing;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+//Re-prices a trip snapshot under a rate card without touching any stored trip or invoice
+public final class RateCardSimulator {
+
+    private RateCardSimulator() {
+    }
+
+    //Monthly bills for every calendar month of the range plus per-trip booking costs, payouts and incentives,
+    //each trip amount rounded to hundredths as it would be when persisted
+    public static SimulationTotals simulate(String name, RateCard rateCard, TripSnapshot snapshot,
+                                            LocalDate startDate, LocalDate endDate) {
+        long bookingCost = 0;
+        long vendorPayouts = 0;
+        long employeeIncentives = 0;
+        int overageTrips = 0;
+
+        for (int i = 0; i < snapshot.size(); i++) {
+            long distance = snapshot.distanceAt(i);
+            long duration = snapshot.durationAt(i);
+
+            TripCharges tripCharges = PricingEngine.priceTrip(rateCard, distance, duration);
+            bookingCost += Money.roundToHundredths(tripCharges.getVendorCostValue())
+                + Money.roundToHundredths(tripCharges.getEmployeeCostValue());
+
+            OverageCharges overageCharges = PricingEngine.priceOverages(rateCard, distance, duration);
+            vendorPayouts += Money.roundToHundredths(overageCharges.getTotalPayoutValue());
+            if (overageCharges.hasOverage()) {
+                overageTrips++;
+                employeeIncentives += Money.roundToHundredths(overageCharges.getTotalIncentiveValue());
+            }
+        }
+
+        //Package and trip components are billed per calendar month; the snapshot is sorted by date
+        long packageAmount = 0;
+        long tripAmount = 0;
+        int months = 0;
+        int index = 0;
+        for (YearMonth month = YearMonth.from(startDate); !month.isAfter(YearMonth.from(endDate)); month = month.plusMonths(1)) {
+            long monthEnd = month.atEndOfMonth().toEpochDay();
+            long tripCount = 0;
+            while (index < snapshot.size() && snapshot.epochDayAt(index) <= monthEnd) {
+                tripCount++;
+                index++;
+            }
+            PeriodCharges periodCharges = PricingEngine.pricePeriod(rateCard, tripCount);
+            packageAmount += Money.roundToHundredths(periodCharges.getPackageAmountValue());
+            tripAmount += Money.roundToHundredths(periodCharges.getTripAmountValue());
+            months++;
+        }
+
+        return new SimulationTotals(name, snapshot.size(), months, overageTrips, packageAmount, tripAmount,
+                                    bookingCost, vendorPayouts, employeeIncentives);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.billing_platform_mis.pricing;
+
+import java.math.BigDecimal;
+
+//Totals of a trip snapshot re-priced under one rate card; money is held in hundredths
+public final class SimulationTotals {
+
+    private final String name;
+    private final int tripCount;
+    private final int months;
+    private final int overageTrips;
+    private final long packageAmount;
+    private final long tripAmount;
+    private final long bookingCost;
+    private final long vendorPayouts;
+    private final long employeeIncentives;
+
+    public SimulationTotals(String name, int tripCount, int months, int overageTrips, long packageAmount,
+                            long tripAmount, long bookingCost, long vendorPayouts, long employeeIncentives) {
+        this.name = name;
+        this.tripCount = tripCount;
+        this.months = months;
+        this.overageTrips = overageTrips;
+        this.packageAmount = packageAmount;
+        this.tripAmount = tripAmount;
+        this.bookingCost = bookingCost;
+        this.vendorPayouts = vendorPayouts;
+        this.employeeIncentives = employeeIncentives;
+    }
+
+    // Getters
+    public String getName() { return name; }
+    public int getTripCount() { return tripCount; }
+    public int getMonths() { return months; }
+    public int getOverageTrips() { return overageTrips; }
+    public BigDecimal getPackageAmount() { return BigDecimal.valueOf(packageAmount, 2); }
+    public BigDecimal getTripAmount() { return BigDecimal.valueOf(tripAmount, 2); }
+    public BigDecimal getTotalBilled() { return BigDecimal.valueOf(packageAmount + tripAmount, 2); }
+    public BigDecimal getBookingCost() { return BigDecimal.valueOf(bookingCost, 2); }
+    public BigDecimal getVendorPayouts() { return BigDecimal.valueOf(vendorPayouts, 2); }
+    public BigDecimal getEmployeeIncentives() { return BigDecimal.valueOf(employeeIncentives, 2); }
+}
@@ -0,0 +1,27 @@
+package com.example.billing_platform_mis.pricing;
+
+import com.example.billing_platform_mis.entity.BillingModel;
+
+//Trip model: rate per trip, no fixed component
+public final class TripBillingStrategy implements BillingStrategy {
+
+    @Override
+    public BillingModel getBillingModel() {
+        return BillingModel.TRIP;
+    }
+
+    @Override
+    public long perTripBaseCost(long packageRate, long tripRate) {
+        return tripRate;
+    }
+
+    @Override
+    public long packageComponent(RateCard rateCard) {
+        return 0;
+    }
+
+    @Override
+    public long tripComponent(RateCard rateCard, long tripCount) {
+        return Money.hundredthsToAmount(Math.multiplyExact(rateCard.getTripRate(), tripCount));
+    }
+}
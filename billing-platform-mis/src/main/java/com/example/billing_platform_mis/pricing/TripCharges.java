@@ -0,0 +1,31 @@
+package com.example.billing_platform_mis.pricing;
+
+import java.math.BigDecimal;
+
+//Booking-time cost split of a single trip; amounts are ten-thousandths, converted to BigDecimal on read
+public final class TripCharges {
+
+    private final long vendorCost;
+    private final long employeeCost;
+    private final long extraDistanceCost;
+    private final long extraTimeCost;
+
+    public TripCharges(long vendorCost, long employeeCost, long extraDistanceCost, long extraTimeCost) {
+        this.vendorCost = vendorCost;
+        this.employeeCost = employeeCost;
+        this.extraDistanceCost = extraDistanceCost;
+        this.extraTimeCost = extraTimeCost;
+    }
+
+    //Fixed-point amounts
+    public long getVendorCostValue() { return vendorCost; }
+    public long getEmployeeCostValue() { return employeeCost; }
+    public long getTotalCostValue() { return Math.addExact(vendorCost, employeeCost); }
+
+    // Getters
+    public BigDecimal getVendorCost() { return Money.toBigDecimal(vendorCost); }
+    public BigDecimal getEmployeeCost() { return Money.toBigDecimal(employeeCost); }
+    public BigDecimal getTotalCost() { return Money.toBigDecimal(getTotalCostValue()); }
+    public BigDecimal getExtraDistanceCost() { return Money.toBigDecimal(extraDistanceCost); }
+    public BigDecimal getExtraTimeCost() { return Money.toBigDecimal(extraTimeCost); }
+}
@@ -0,0 +1,33 @@
+package com.example.billing_platform_mis.pricing;
+
+import java.time.LocalDate;
+
+//Compact columnar copy of a relationship's trips: hundredths of distance and duration plus epoch days,
+//sorted by trip date
+public final class TripSnapshot {
+
+    private final long[] distances;
+    private final long[] durations;
+    private final long[] epochDays;
+
+    public TripSnapshot(long[] distances, long[] durations, long[] epochDays) {
+        if (distances.length != durations.length || distances.length != epochDays.length) {
+            throw new IllegalArgumentException("Snapshot columns must have the same length");
+        }
+        this.distances = distances;
+        this.durations = durations;
+        this.epochDays = epochDays;
+    }
+
+    public int size() {
+        return distances.length;
+    }
+
+    public long distanceAt(int index) { return distances[index]; }
+    public long durationAt(int index) { return durations[index]; }
+    public long epochDayAt(int index) { return epochDays[index]; }
+
+    public LocalDate dateAt(int index) {
+        return LocalDate.ofEpochDay(epochDays[index]);
+    }
+}
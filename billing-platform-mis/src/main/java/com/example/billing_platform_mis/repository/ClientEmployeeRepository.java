@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,6 +20,13 @@ public interface ClientEmployeeRepository extends JpaRepository<ClientEmployee,
     //Find all employees for a specific client
     List<ClientEmployee> findByClientId(Long clientId);
     
+    //Find client-employee relationships for a set of clients and employees (chunked overage processing)
+    List<ClientEmployee> findByClientIdInAndEmployeeIdIn(Collection<Long> clientIds, Collection<Long> employeeIds);
+    
+    //Every client-employee pair ordered by client, then employee (membership index load)
+    @Query("SELECT ce.client.id, ce.employee.id FROM ClientEmployee ce ORDER BY ce.client.id, ce.employee.id")
+    List<Object[]> findAllMemberships();
+    
     //Find all client relationships for a specific employee
     List<ClientEmployee> findByEmployeeId(Long employeeId);
     
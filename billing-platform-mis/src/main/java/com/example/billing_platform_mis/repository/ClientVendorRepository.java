@@ -3,11 +3,16 @@ package com.example.billing_platform_mis.repository;
 import com.example.billing_platform_mis.entity.ClientVendor;
 import com.example.billing_platform_mis.entity.BillingModel;
 import com.example.billing_platform_mis.entity.User;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +23,26 @@ public interface ClientVendorRepository extends JpaRepository<ClientVendor, Long
     //Find client-vendor relationship by client and vendor IDs
     Optional<ClientVendor> findByClientIdAndVendorId(Long clientId, Long vendorId);
     
+    //Everything a booking loads, in one round trip: [client, agreement, vendor, employee].
+    //A missing agreement or employee comes back as null; no row means the client does not exist
+    @Query("SELECT c, cv, v, e FROM User c " +
+           "LEFT JOIN ClientVendor cv ON cv.client = c AND cv.vendor.id = :vendorId " +
+           "LEFT JOIN cv.vendor v " +
+           "LEFT JOIN User e ON e.id = :employeeId " +
+           "WHERE c.id = :clientId")
+    List<Object[]> findBookingContext(@Param("clientId") Long clientId,
+                                      @Param("vendorId") Long vendorId,
+                                      @Param("employeeId") Long employeeId);
+    
+    //Booking context for a known relationship: [agreement, client, vendor, employee]
+    @Query("SELECT cv, c, v, e FROM ClientVendor cv " +
+           "JOIN cv.client c " +
+           "JOIN cv.vendor v " +
+           "LEFT JOIN User e ON e.id = :employeeId " +
+           "WHERE cv.id = :clientVendorId")
+    List<Object[]> findBookingContextByClientVendor(@Param("clientVendorId") Long clientVendorId,
+                                                    @Param("employeeId") Long employeeId);
+    
     //Find all vendor relationships for a specific client
     List<ClientVendor> findByClientId(Long clientId);
     
@@ -78,6 +103,25 @@ public interface ClientVendorRepository extends JpaRepository<ClientVendor, Long
            "ORDER BY cv.client.name ASC")
     List<ClientVendor> findByVendorIdWithClientDetails(@Param("vendorId") Long vendorId);
     
+    //All client-vendor relationships with client and vendor details (period close)
+    @Query("SELECT cv FROM ClientVendor cv " +
+           "JOIN FETCH cv.client " +
+           "JOIN FETCH cv.vendor " +
+           "ORDER BY cv.id ASC")
+    List<ClientVendor> findAllWithDetails();
+    
+    //Given client-vendor relationships with client and vendor details (archived trips)
+    @Query("SELECT cv FROM ClientVendor cv " +
+           "JOIN FETCH cv.client " +
+           "JOIN FETCH cv.vendor " +
+           "WHERE cv.id IN :ids")
+    List<ClientVendor> findAllWithDetailsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    //Row-lock the given relationships in id order until the transaction ends (period close)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT cv FROM ClientVendor cv WHERE cv.id IN :ids ORDER BY cv.id ASC")
+    List<ClientVendor> lockAllByIdIn(@Param("ids") Collection<Long> ids);
+    
     //Check if client-vendor relationship exists
     boolean existsByClientIdAndVendorId(Long clientId, Long vendorId);
     
@@ -90,4 +134,14 @@ public interface ClientVendorRepository extends JpaRepository<ClientVendor, Long
     
     //Count vendors for a specific client
     long countByClientId(Long clientId);
-}
\ No newline at end of file
+    
+    //Keyset page of all relationships, newest first, after the (createdAt, id) of the previous page's last one
+    @Query("SELECT cv FROM ClientVendor cv " +
+           "JOIN FETCH cv.client " +
+           "JOIN FETCH cv.vendor " +
+           "WHERE cv.createdAt <= :beforeCreatedAt AND (cv.createdAt < :beforeCreatedAt OR cv.id < :beforeId) " +
+           "ORDER BY cv.createdAt DESC, cv.id DESC")
+    List<ClientVendor> findPage(@Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+                                @Param("beforeId") Long beforeId,
+                                Pageable pageable);
+}
@@ -0,0 +1,27 @@
+package com.example.billing_platform_mis.repository;
+
+import com.example.billing_platform_mis.entity.HybridPricingTier;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+//Repository for HybridPricingTier entity
+@Repository
+public interface HybridPricingTierRepository extends JpaRepository<HybridPricingTier, Long> {
+
+    //Tiers of a relationship in application order
+    List<HybridPricingTier> findByClientVendorIdOrderByTierOrderAsc(Long clientVendorId);
+
+    //All tiers grouped by relationship (rate card preloading for billing runs)
+    @Query("SELECT t FROM HybridPricingTier t ORDER BY t.clientVendor.id, t.tierOrder")
+    List<HybridPricingTier> findAllOrderByClientVendorAndTierOrder();
+
+    //Remove a relationship's tiers immediately so replacements can reuse tier orders
+    @Modifying
+    @Query("DELETE FROM HybridPricingTier t WHERE t.clientVendor.id = :clientVendorId")
+    int deleteByClientVendorId(@Param("clientVendorId") Long clientVendorId);
+}
@@ -0,0 +1,55 @@
+package com.example.billing_platform_mis.repository;
+
+import com.example.billing_platform_mis.entity.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+//Repository for IdempotencyKey entity (responses of requests sent with an Idempotency-Key)
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, Long> {
+
+    //Find the stored request for a key
+    Optional<IdempotencyKey> findByScopeAndIdempotencyKey(String scope, String idempotencyKey);
+
+    //Keep a running request's claim alive; 0 when the claim was taken over
+    @Modifying
+    @Query("UPDATE IdempotencyKey k SET k.heartbeatAt = :now WHERE k.id = :id AND k.owner = :owner")
+    int heartbeat(@Param("id") Long id, @Param("owner") String owner, @Param("now") LocalDateTime now);
+
+    //Store the response of the claim's owner; 0 when the claim was taken over in the meantime
+    @Modifying
+    @Query("UPDATE IdempotencyKey k SET k.requestHash = :requestHash, k.responseStatus = :responseStatus, " +
+           "k.responseBody = :responseBody WHERE k.id = :id AND k.owner = :owner")
+    int complete(@Param("id") Long id, @Param("owner") String owner, @Param("requestHash") String requestHash,
+                 @Param("responseStatus") Integer responseStatus, @Param("responseBody") String responseBody);
+
+    //Give up a claim held by owner
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.id = :id AND k.owner = :owner")
+    int release(@Param("id") Long id, @Param("owner") String owner);
+
+    //Remove an unfinished claim whose owner stopped refreshing it before staleBefore; 0 when the owner is
+    //still alive or another request took it over first
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.id = :id AND k.responseStatus IS NULL " +
+           "AND COALESCE(k.heartbeatAt, k.createdAt) < :staleBefore")
+    int deleteAbandoned(@Param("id") Long id, @Param("staleBefore") LocalDateTime staleBefore);
+
+    //Record that an abandoned claim's outcome is unknown, unless its owner refreshed or completed it meanwhile
+    @Modifying
+    @Query("UPDATE IdempotencyKey k SET k.responseStatus = :responseStatus, k.responseBody = :responseBody " +
+           "WHERE k.id = :id AND k.responseStatus IS NULL AND COALESCE(k.heartbeatAt, k.createdAt) < :staleBefore")
+    int markAbandonedUnknown(@Param("id") Long id, @Param("staleBefore") LocalDateTime staleBefore,
+                             @Param("responseStatus") Integer responseStatus, @Param("responseBody") String responseBody);
+
+    //Purge keys past their expiry
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
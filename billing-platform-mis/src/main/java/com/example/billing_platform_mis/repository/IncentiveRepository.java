@@ -1,7 +1,9 @@
 package com.example.billing_platform_mis.repository;
 
 import com.example.billing_platform_mis.entity.Incentive;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -9,10 +11,12 @@ import org.springframework.stereotype.Repository;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 //Repository for Incentive entity for financial data access
+//Date-range finders filter on the row's own trip_date so month partitions of incentives are pruned
 @Repository
 public interface IncentiveRepository extends JpaRepository<Incentive, Long> {
     
@@ -29,9 +33,8 @@ public interface IncentiveRepository extends JpaRepository<Incentive, Long> {
     //Find incentives by employee ID within date range
     @Query("SELECT i FROM Incentive i " +
            "JOIN i.clientEmployee ce " +
-           "JOIN i.trip t " +
            "WHERE ce.employee.id = :employeeId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate " +
+           "AND i.tripDate BETWEEN :startDate AND :endDate " +
            "ORDER BY i.createdAt DESC")
     List<Incentive> findByEmployeeIdAndDateRange(@Param("employeeId") Long employeeId,
                                                @Param("startDate") LocalDate startDate,
@@ -47,9 +50,8 @@ public interface IncentiveRepository extends JpaRepository<Incentive, Long> {
     //Find incentives by client ID within date range
     @Query("SELECT i FROM Incentive i " +
            "JOIN i.clientEmployee ce " +
-           "JOIN i.trip t " +
            "WHERE ce.client.id = :clientId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate " +
+           "AND i.tripDate BETWEEN :startDate AND :endDate " +
            "ORDER BY i.createdAt DESC")
     List<Incentive> findByClientIdAndDateRange(@Param("clientId") Long clientId,
                                              @Param("startDate") LocalDate startDate,
@@ -60,9 +62,8 @@ public interface IncentiveRepository extends JpaRepository<Incentive, Long> {
     
     //Find incentives by client-employee relationship within date range
     @Query("SELECT i FROM Incentive i " +
-           "JOIN i.trip t " +
            "WHERE i.clientEmployee.id = :clientEmployeeId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate " +
+           "AND i.tripDate BETWEEN :startDate AND :endDate " +
            "ORDER BY i.createdAt DESC")
     List<Incentive> findByClientEmployeeIdAndDateRange(@Param("clientEmployeeId") Long clientEmployeeId,
                                                      @Param("startDate") LocalDate startDate,
@@ -71,9 +72,8 @@ public interface IncentiveRepository extends JpaRepository<Incentive, Long> {
     //Calculate total incentive amount by employee within date range
     @Query("SELECT COALESCE(SUM(i.totalAmount), 0) FROM Incentive i " +
            "JOIN i.clientEmployee ce " +
-           "JOIN i.trip t " +
            "WHERE ce.employee.id = :employeeId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate")
+           "AND i.tripDate BETWEEN :startDate AND :endDate")
     BigDecimal calculateTotalIncentiveByEmployeeAndDateRange(@Param("employeeId") Long employeeId,
                                                            @Param("startDate") LocalDate startDate,
                                                            @Param("endDate") LocalDate endDate);
@@ -81,9 +81,8 @@ public interface IncentiveRepository extends JpaRepository<Incentive, Long> {
     //Calculate total incentive amount by client within date range
     @Query("SELECT COALESCE(SUM(i.totalAmount), 0) FROM Incentive i " +
            "JOIN i.clientEmployee ce " +
-           "JOIN i.trip t " +
            "WHERE ce.client.id = :clientId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate")
+           "AND i.tripDate BETWEEN :startDate AND :endDate")
     BigDecimal calculateTotalIncentiveByClientAndDateRange(@Param("clientId") Long clientId,
                                                          @Param("startDate") LocalDate startDate,
                                                          @Param("endDate") LocalDate endDate);
@@ -91,9 +90,8 @@ public interface IncentiveRepository extends JpaRepository<Incentive, Long> {
     //Calculate total distance incentives by employee within date range
     @Query("SELECT COALESCE(SUM(i.distanceIncentive), 0) FROM Incentive i " +
            "JOIN i.clientEmployee ce " +
-           "JOIN i.trip t " +
            "WHERE ce.employee.id = :employeeId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate")
+           "AND i.tripDate BETWEEN :startDate AND :endDate")
     BigDecimal calculateTotalDistanceIncentiveByEmployeeAndDateRange(@Param("employeeId") Long employeeId,
                                                                    @Param("startDate") LocalDate startDate,
                                                                    @Param("endDate") LocalDate endDate);
@@ -101,9 +99,8 @@ public interface IncentiveRepository extends JpaRepository<Incentive, Long> {
     //Calculate total time incentives by employee within date range
     @Query("SELECT COALESCE(SUM(i.timeIncentive), 0) FROM Incentive i " +
            "JOIN i.clientEmployee ce " +
-           "JOIN i.trip t " +
            "WHERE ce.employee.id = :employeeId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate")
+           "AND i.tripDate BETWEEN :startDate AND :endDate")
     BigDecimal calculateTotalTimeIncentiveByEmployeeAndDateRange(@Param("employeeId") Long employeeId,
                                                                @Param("startDate") LocalDate startDate,
                                                                @Param("endDate") LocalDate endDate);
@@ -111,9 +108,8 @@ public interface IncentiveRepository extends JpaRepository<Incentive, Long> {
     //Count incentives by employee within date range
     @Query("SELECT COUNT(i) FROM Incentive i " +
            "JOIN i.clientEmployee ce " +
-           "JOIN i.trip t " +
            "WHERE ce.employee.id = :employeeId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate")
+           "AND i.tripDate BETWEEN :startDate AND :endDate")
     long countByEmployeeIdAndDateRange(@Param("employeeId") Long employeeId,
                                      @Param("startDate") LocalDate startDate,
                                      @Param("endDate") LocalDate endDate);
@@ -121,9 +117,8 @@ public interface IncentiveRepository extends JpaRepository<Incentive, Long> {
     //Count incentives by client within date range
     @Query("SELECT COUNT(i) FROM Incentive i " +
            "JOIN i.clientEmployee ce " +
-           "JOIN i.trip t " +
            "WHERE ce.client.id = :clientId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate")
+           "AND i.tripDate BETWEEN :startDate AND :endDate")
     long countByClientIdAndDateRange(@Param("clientId") Long clientId,
                                    @Param("startDate") LocalDate startDate,
                                    @Param("endDate") LocalDate endDate);
@@ -132,9 +127,9 @@ public interface IncentiveRepository extends JpaRepository<Incentive, Long> {
     @Query("SELECT i FROM Incentive i " +
            "JOIN FETCH i.clientEmployee ce " +
            "JOIN FETCH ce.employee " +
-           "JOIN FETCH i.trip t " +
+           "LEFT JOIN FETCH i.trip " +
            "WHERE ce.client.id = :clientId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate " +
+           "AND i.tripDate BETWEEN :startDate AND :endDate " +
            "ORDER BY i.createdAt DESC")
     List<Incentive> findByClientIdWithDetailsAndDateRange(@Param("clientId") Long clientId,
                                                         @Param("startDate") LocalDate startDate,
@@ -142,10 +137,10 @@ public interface IncentiveRepository extends JpaRepository<Incentive, Long> {
     
     //Find incentives with trip details for employee self-service
     @Query("SELECT i FROM Incentive i " +
-           "JOIN FETCH i.trip t " +
+           "LEFT JOIN FETCH i.trip " +
            "JOIN i.clientEmployee ce " +
            "WHERE ce.employee.id = :employeeId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate " +
+           "AND i.tripDate BETWEEN :startDate AND :endDate " +
            "ORDER BY i.createdAt DESC")
     List<Incentive> findByEmployeeIdWithTripDetailsAndDateRange(@Param("employeeId") Long employeeId,
                                                               @Param("startDate") LocalDate startDate,
@@ -170,8 +165,7 @@ public interface IncentiveRepository extends JpaRepository<Incentive, Long> {
     //Find top employees by incentive amount within date range
     @Query("SELECT ce.employee, SUM(i.totalAmount) as totalIncentive FROM Incentive i " +
            "JOIN i.clientEmployee ce " +
-           "JOIN i.trip t " +
-           "WHERE t.tripDate BETWEEN :startDate AND :endDate " +
+           "WHERE i.tripDate BETWEEN :startDate AND :endDate " +
            "GROUP BY ce.employee " +
            "ORDER BY totalIncentive DESC")
     List<Object[]> findTopEmployeesByIncentiveAmount(@Param("startDate") LocalDate startDate,
@@ -179,4 +173,39 @@ public interface IncentiveRepository extends JpaRepository<Incentive, Long> {
     
     //Check if incentive exists for a trip (to prevent duplicates)
     boolean existsByTripId(Long tripId);
-}
\ No newline at end of file
+    
+    //IDs of the given trips that already have an incentive (batch duplicate check)
+    @Query("SELECT i.tripId FROM Incentive i WHERE i.tripId IN :tripIds")
+    List<Long> findTripIdsWithIncentives(@Param("tripIds") Collection<Long> tripIds);
+    
+    //Trip ID, distance, time and total incentive of the given trips (explanations of archived trips)
+    @Query("SELECT i.tripId, i.distanceIncentive, i.timeIncentive, i.totalAmount FROM Incentive i WHERE i.tripId IN :tripIds")
+    List<Object[]> findAmountsByTripIdIn(@Param("tripIds") Collection<Long> tripIds);
+    
+    //Incentive total and count per vendor of the incentivised trips, for a partition of vendors (parallel billing aggregation)
+    @Query("SELECT i.clientVendor.vendor.id, SUM(i.totalAmount), COUNT(i) FROM Incentive i " +
+           "WHERE i.clientVendor.vendor.id IN :vendorIds " +
+           "AND i.tripDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY i.clientVendor.vendor.id")
+    List<Object[]> sumIncentivesByVendorInAndDateRange(@Param("vendorIds") Collection<Long> vendorIds,
+                                                       @Param("startDate") LocalDate startDate,
+                                                       @Param("endDate") LocalDate endDate);
+    
+    //Keep the copied trip date in step when a trip is moved to another day
+    @Modifying
+    @Query("UPDATE Incentive i SET i.tripDate = :tripDate WHERE i.tripId = :tripId")
+    int updateTripDate(@Param("tripId") Long tripId, @Param("tripDate") LocalDate tripDate);
+    
+    //Keyset page of the incentives on a relationship's trips, newest trip first, after the (tripDate, id) of the previous page's last incentive
+    @Query("SELECT i FROM Incentive i " +
+           "JOIN FETCH i.clientEmployee ce " +
+           "JOIN FETCH ce.employee " +
+           "LEFT JOIN FETCH i.trip " +
+           "WHERE i.clientVendor.id = :clientVendorId " +
+           "AND i.tripDate <= :beforeDate AND (i.tripDate < :beforeDate OR i.id < :beforeId) " +
+           "ORDER BY i.tripDate DESC, i.id DESC")
+    List<Incentive> findPageByClientVendorId(@Param("clientVendorId") Long clientVendorId,
+                                             @Param("beforeDate") LocalDate beforeDate,
+                                             @Param("beforeId") Long beforeId,
+                                             Pageable pageable);
+}
@@ -0,0 +1,35 @@
+package com.example.billing_platform_mis.repository;
+
+import com.example.billing_platform_mis.entity.Invoice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+//Repository for Invoice entity produced by billing runs
+@Repository
+public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
+
+    //Find the invoice of a client-vendor relationship for an exact billing period
+    Optional<Invoice> findByClientVendorIdAndPeriodStartAndPeriodEnd(Long clientVendorId, LocalDate periodStart, LocalDate periodEnd);
+
+    //Find all invoices for an exact billing period (billing run reruns)
+    List<Invoice> findByPeriodStartAndPeriodEnd(LocalDate periodStart, LocalDate periodEnd);
+
+    //Find invoices for a billing period with relationship details for listing
+    @Query("SELECT i FROM Invoice i " +
+           "JOIN FETCH i.clientVendor cv " +
+           "JOIN FETCH cv.client " +
+           "JOIN FETCH cv.vendor " +
+           "WHERE i.periodStart = :periodStart AND i.periodEnd = :periodEnd " +
+           "ORDER BY i.totalAmount DESC")
+    List<Invoice> findByPeriodWithDetails(@Param("periodStart") LocalDate periodStart,
+                                          @Param("periodEnd") LocalDate periodEnd);
+
+    //Find invoice history for a client-vendor relationship
+    List<Invoice> findByClientVendorIdOrderByPeriodStartDesc(Long clientVendorId);
+}
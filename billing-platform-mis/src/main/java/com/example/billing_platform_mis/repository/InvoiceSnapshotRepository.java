@@ -0,0 +1,31 @@
+package com.example.billing_platform_mis.repository;
+
+import com.example.billing_platform_mis.entity.InvoiceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+//Repository for InvoiceSnapshot entity produced by period close
+@Repository
+public interface InvoiceSnapshotRepository extends JpaRepository<InvoiceSnapshot, Long> {
+
+    //All closed periods of a relationship (loaded once into the snapshot cache)
+    List<InvoiceSnapshot> findByClientVendorIdOrderByPeriodStartAsc(Long clientVendorId);
+
+    //All relationships closed for an exact billing period
+    List<InvoiceSnapshot> findByPeriodStartAndPeriodEndOrderByClientVendorIdAsc(LocalDate periodStart, LocalDate periodEnd);
+
+    //Closed periods of the given relationships that share at least one day with the period
+    @Query("SELECT s FROM InvoiceSnapshot s " +
+           "WHERE s.clientVendorId IN :clientVendorIds " +
+           "AND s.periodStart <= :periodEnd AND s.periodEnd >= :periodStart " +
+           "ORDER BY s.clientVendorId ASC, s.periodStart ASC")
+    List<InvoiceSnapshot> findOverlapping(@Param("clientVendorIds") Collection<Long> clientVendorIds,
+                                          @Param("periodStart") LocalDate periodStart,
+                                          @Param("periodEnd") LocalDate periodEnd);
+}
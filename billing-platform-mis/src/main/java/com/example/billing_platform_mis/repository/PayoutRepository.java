@@ -1,7 +1,9 @@
 package com.example.billing_platform_mis.repository;
 
 import com.example.billing_platform_mis.entity.Payout;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -9,10 +11,12 @@ import org.springframework.stereotype.Repository;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 //Repository for Payout entity for financial data access
+//Date-range finders filter on the row's own trip_date so month partitions of payouts are pruned
 @Repository
 public interface PayoutRepository extends JpaRepository<Payout, Long> {
     
@@ -27,9 +31,8 @@ public interface PayoutRepository extends JpaRepository<Payout, Long> {
     
     //Find payouts by ClientVendor and date range
     @Query("SELECT p FROM Payout p " +
-           "JOIN p.trip t " +
            "WHERE p.clientVendor.id = :clientVendorId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate " +
+           "AND p.tripDate BETWEEN :startDate AND :endDate " +
            "ORDER BY p.createdAt DESC")
     List<Payout> findByClientVendorAndDateRange(@Param("clientVendorId") Long clientVendorId,
                                               @Param("startDate") LocalDate startDate,
@@ -37,9 +40,8 @@ public interface PayoutRepository extends JpaRepository<Payout, Long> {
     
     //Find payouts by client-vendor relationship within date range
     @Query("SELECT p FROM Payout p " +
-           "JOIN p.trip t " +
            "WHERE p.clientVendor.id = :clientVendorId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate " +
+           "AND p.tripDate BETWEEN :startDate AND :endDate " +
            "ORDER BY p.createdAt DESC")
     List<Payout> findByClientVendorIdAndDateRange(@Param("clientVendorId") Long clientVendorId,
                                                 @Param("startDate") LocalDate startDate,
@@ -53,9 +55,8 @@ public interface PayoutRepository extends JpaRepository<Payout, Long> {
     
     //Find payouts by vendor ID within date range
     @Query("SELECT p FROM Payout p " +
-           "JOIN p.trip t " +
            "WHERE p.clientVendor.vendor.id = :vendorId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate " +
+           "AND p.tripDate BETWEEN :startDate AND :endDate " +
            "ORDER BY p.createdAt DESC")
     List<Payout> findByVendorIdAndDateRange(@Param("vendorId") Long vendorId,
                                           @Param("startDate") LocalDate startDate,
@@ -69,9 +70,8 @@ public interface PayoutRepository extends JpaRepository<Payout, Long> {
     
     //Find payouts by client ID within date range
     @Query("SELECT p FROM Payout p " +
-           "JOIN p.trip t " +
            "WHERE p.clientVendor.client.id = :clientId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate " +
+           "AND p.tripDate BETWEEN :startDate AND :endDate " +
            "ORDER BY p.createdAt DESC")
     List<Payout> findByClientIdAndDateRange(@Param("clientId") Long clientId,
                                           @Param("startDate") LocalDate startDate,
@@ -79,10 +79,9 @@ public interface PayoutRepository extends JpaRepository<Payout, Long> {
     
     //Find payouts by vendor and client within date range
     @Query("SELECT p FROM Payout p " +
-           "JOIN p.trip t " +
            "WHERE p.clientVendor.vendor.id = :vendorId " +
            "AND p.clientVendor.client.id = :clientId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate " +
+           "AND p.tripDate BETWEEN :startDate AND :endDate " +
            "ORDER BY p.createdAt DESC")
     List<Payout> findByVendorIdAndClientIdAndDateRange(@Param("vendorId") Long vendorId,
                                                      @Param("clientId") Long clientId,
@@ -91,63 +90,56 @@ public interface PayoutRepository extends JpaRepository<Payout, Long> {
     
     //Calculate total payout amount by vendor within date range
     @Query("SELECT COALESCE(SUM(p.totalAmount), 0) FROM Payout p " +
-           "JOIN p.trip t " +
            "WHERE p.clientVendor.vendor.id = :vendorId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate")
+           "AND p.tripDate BETWEEN :startDate AND :endDate")
     BigDecimal calculateTotalPayoutByVendorAndDateRange(@Param("vendorId") Long vendorId,
                                                       @Param("startDate") LocalDate startDate,
                                                       @Param("endDate") LocalDate endDate);
     
     //Calculate total payout amount by client within date range
     @Query("SELECT COALESCE(SUM(p.totalAmount), 0) FROM Payout p " +
-           "JOIN p.trip t " +
            "WHERE p.clientVendor.client.id = :clientId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate")
+           "AND p.tripDate BETWEEN :startDate AND :endDate")
     BigDecimal calculateTotalPayoutByClientAndDateRange(@Param("clientId") Long clientId,
                                                       @Param("startDate") LocalDate startDate,
                                                       @Param("endDate") LocalDate endDate);
     
     //Calculate total payout amount by client-vendor relationship within date range
     @Query("SELECT COALESCE(SUM(p.totalAmount), 0) FROM Payout p " +
-           "JOIN p.trip t " +
            "WHERE p.clientVendor.id = :clientVendorId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate")
+           "AND p.tripDate BETWEEN :startDate AND :endDate")
     BigDecimal calculateTotalPayoutByClientVendorAndDateRange(@Param("clientVendorId") Long clientVendorId,
                                                             @Param("startDate") LocalDate startDate,
                                                             @Param("endDate") LocalDate endDate);
     
     //Calculate total base amount by vendor within date range
     @Query("SELECT COALESCE(SUM(p.baseAmount), 0) FROM Payout p " +
-           "JOIN p.trip t " +
            "WHERE p.clientVendor.vendor.id = :vendorId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate")
+           "AND p.tripDate BETWEEN :startDate AND :endDate")
     BigDecimal calculateTotalBaseAmountByVendorAndDateRange(@Param("vendorId") Long vendorId,
                                                           @Param("startDate") LocalDate startDate,
                                                           @Param("endDate") LocalDate endDate);
     
     //Calculate total overage amount by vendor within date range
     @Query("SELECT COALESCE(SUM(p.distanceOverage + p.timeOverage), 0) FROM Payout p " +
-           "JOIN p.trip t " +
            "WHERE p.clientVendor.vendor.id = :vendorId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate")
+           "AND p.tripDate BETWEEN :startDate AND :endDate")
     BigDecimal calculateTotalOverageByVendorAndDateRange(@Param("vendorId") Long vendorId,
                                                        @Param("startDate") LocalDate startDate,
                                                        @Param("endDate") LocalDate endDate);
     
     //Count payouts by vendor within date range
     @Query("SELECT COUNT(p) FROM Payout p " +
-           "JOIN p.trip t " +
            "WHERE p.clientVendor.vendor.id = :vendorId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate")
+           "AND p.tripDate BETWEEN :startDate AND :endDate")
     long countByVendorIdAndDateRange(@Param("vendorId") Long vendorId,
                                    @Param("startDate") LocalDate startDate,
                                    @Param("endDate") LocalDate endDate);
     
     //Count payouts by client within date range
     @Query("SELECT COUNT(p) FROM Payout p " +
-           "JOIN p.trip t " +
            "WHERE p.clientVendor.client.id = :clientId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate")
+           "AND p.tripDate BETWEEN :startDate AND :endDate")
     long countByClientIdAndDateRange(@Param("clientId") Long clientId,
                                    @Param("startDate") LocalDate startDate,
                                    @Param("endDate") LocalDate endDate);
@@ -156,9 +148,9 @@ public interface PayoutRepository extends JpaRepository<Payout, Long> {
     @Query("SELECT p FROM Payout p " +
            "JOIN FETCH p.clientVendor cv " +
            "JOIN FETCH cv.client " +
-           "JOIN FETCH p.trip t " +
+           "LEFT JOIN FETCH p.trip " +
            "WHERE p.clientVendor.vendor.id = :vendorId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate " +
+           "AND p.tripDate BETWEEN :startDate AND :endDate " +
            "ORDER BY p.createdAt DESC")
     List<Payout> findByVendorIdWithDetailsAndDateRange(@Param("vendorId") Long vendorId,
                                                       @Param("startDate") LocalDate startDate,
@@ -168,9 +160,9 @@ public interface PayoutRepository extends JpaRepository<Payout, Long> {
     @Query("SELECT p FROM Payout p " +
            "JOIN FETCH p.clientVendor cv " +
            "JOIN FETCH cv.vendor " +
-           "JOIN FETCH p.trip t " +
+           "LEFT JOIN FETCH p.trip " +
            "WHERE p.clientVendor.client.id = :clientId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate " +
+           "AND p.tripDate BETWEEN :startDate AND :endDate " +
            "ORDER BY p.createdAt DESC")
     List<Payout> findByClientIdWithDetailsAndDateRange(@Param("clientId") Long clientId,
                                                       @Param("startDate") LocalDate startDate,
@@ -195,8 +187,7 @@ public interface PayoutRepository extends JpaRepository<Payout, Long> {
     //Find top vendors by payout amount within date range
     @Query("SELECT cv.vendor, SUM(p.totalAmount) as totalPayout FROM Payout p " +
            "JOIN p.clientVendor cv " +
-           "JOIN p.trip t " +
-           "WHERE t.tripDate BETWEEN :startDate AND :endDate " +
+           "WHERE p.tripDate BETWEEN :startDate AND :endDate " +
            "GROUP BY cv.vendor " +
            "ORDER BY totalPayout DESC")
     List<Object[]> findTopVendorsByPayoutAmount(@Param("startDate") LocalDate startDate,
@@ -205,9 +196,8 @@ public interface PayoutRepository extends JpaRepository<Payout, Long> {
     //Find vendor payout summary by client within date range
     @Query("SELECT cv.vendor, COUNT(p), SUM(p.totalAmount) FROM Payout p " +
            "JOIN p.clientVendor cv " +
-           "JOIN p.trip t " +
            "WHERE cv.client.id = :clientId " +
-           "AND t.tripDate BETWEEN :startDate AND :endDate " +
+           "AND p.tripDate BETWEEN :startDate AND :endDate " +
            "GROUP BY cv.vendor " +
            "ORDER BY SUM(p.totalAmount) DESC")
     List<Object[]> findVendorPayoutSummaryByClientAndDateRange(@Param("clientId") Long clientId,
@@ -216,4 +206,38 @@ public interface PayoutRepository extends JpaRepository<Payout, Long> {
     
     //Check if payout exists for a trip (to prevent duplicates)
     boolean existsByTripId(Long tripId);
-}
\ No newline at end of file
+    
+    //IDs of the given trips that already have a payout (batch duplicate check)
+    @Query("SELECT p.tripId FROM Payout p WHERE p.tripId IN :tripIds")
+    List<Long> findTripIdsWithPayouts(@Param("tripIds") Collection<Long> tripIds);
+    
+    //Trip ID, base, distance, time and total payout of the given trips (explanations of archived trips)
+    @Query("SELECT p.tripId, p.baseAmount, p.distanceOverage, p.timeOverage, p.totalAmount FROM Payout p WHERE p.tripId IN :tripIds")
+    List<Object[]> findAmountsByTripIdIn(@Param("tripIds") Collection<Long> tripIds);
+    
+    //Payout total and count per vendor for a partition of vendors (parallel billing aggregation)
+    @Query("SELECT p.clientVendor.vendor.id, SUM(p.totalAmount), COUNT(p) FROM Payout p " +
+           "WHERE p.clientVendor.vendor.id IN :vendorIds " +
+           "AND p.tripDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY p.clientVendor.vendor.id")
+    List<Object[]> sumPayoutsByVendorInAndDateRange(@Param("vendorIds") Collection<Long> vendorIds,
+                                                    @Param("startDate") LocalDate startDate,
+                                                    @Param("endDate") LocalDate endDate);
+    
+    //Keep the copied trip date in step when a trip is moved to another day
+    @Modifying
+    @Query("UPDATE Payout p SET p.tripDate = :tripDate WHERE p.tripId = :tripId")
+    int updateTripDate(@Param("tripId") Long tripId, @Param("tripDate") LocalDate tripDate);
+    
+    //Keyset page of a relationship's payouts, newest trip first, after the (tripDate, id) of the previous page's last payout
+    @Query("SELECT p FROM Payout p " +
+           "JOIN FETCH p.clientVendor " +
+           "LEFT JOIN FETCH p.trip " +
+           "WHERE p.clientVendor.id = :clientVendorId " +
+           "AND p.tripDate <= :beforeDate AND (p.tripDate < :beforeDate OR p.id < :beforeId) " +
+           "ORDER BY p.tripDate DESC, p.id DESC")
+    List<Payout> findPageByClientVendorId(@Param("clientVendorId") Long clientVendorId,
+                                          @Param("beforeDate") LocalDate beforeDate,
+                                          @Param("beforeId") Long beforeId,
+                                          Pageable pageable);
+}
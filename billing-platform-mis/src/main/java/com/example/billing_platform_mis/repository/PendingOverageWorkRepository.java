@@ -0,0 +1,35 @@
+package com.example.billing_platform_mis.repository;
+
+import com.example.billing_platform_mis.entity.PendingOverageWork;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+//Repository for PendingOverageWork entity (durable backlog of the overage work queue)
+@Repository
+public interface PendingOverageWorkRepository extends JpaRepository<PendingOverageWork, Long> {
+
+    //Find pending work for a trip
+    Optional<PendingOverageWork> findByTripId(Long tripId);
+
+    //Trip IDs still to be processed, oldest first, skipping work that keeps failing
+    @Query("SELECT w.tripId FROM PendingOverageWork w WHERE w.attempts < :maxAttempts ORDER BY w.id")
+    List<Long> findRetryableTripIds(@Param("maxAttempts") int maxAttempts, Pageable pageable);
+
+    //Enqueue time of the oldest pending work (null if there is none)
+    @Query("SELECT MIN(w.enqueuedAt) FROM PendingOverageWork w")
+    LocalDateTime findOldestEnqueuedAt();
+
+    //Remove the work of processed trips
+    @Modifying
+    @Query("DELETE FROM PendingOverageWork w WHERE w.tripId IN :tripIds")
+    int deleteByTripIdIn(@Param("tripIds") Collection<Long> tripIds);
+}
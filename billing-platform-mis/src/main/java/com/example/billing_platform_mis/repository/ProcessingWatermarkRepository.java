@@ -0,0 +1,15 @@
+package com.example.billing_platform_mis.repository;
+
+import com.example.billing_platform_mis.entity.ProcessingWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+//Repository for ProcessingWatermark entity
+@Repository
+public interface ProcessingWatermarkRepository extends JpaRepository<ProcessingWatermark, Long> {
+
+    //Find the watermark of a pipeline by name
+    Optional<ProcessingWatermark> findByProcessName(String processName);
+}
@@ -0,0 +1,24 @@
+package com.example.billing_platform_mis.repository;
+
+import com.example.billing_platform_mis.entity.RepricingJob;
+import com.example.billing_platform_mis.entity.RepricingStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+//Repository for RepricingJob entity
+@Repository
+public interface RepricingJobRepository extends JpaRepository<RepricingJob, Long> {
+
+    //Repricing job of a relationship (one per relationship, reused on every rate change)
+    Optional<RepricingJob> findByClientVendorId(Long clientVendorId);
+
+    //Unfinished jobs, oldest request first (startup resume and worker loop)
+    List<RepricingJob> findByStatusInOrderByRequestedAtAsc(Collection<RepricingStatus> statuses);
+
+    //Latest jobs for monitoring
+    List<RepricingJob> findAllByOrderByRequestedAtDesc();
+}
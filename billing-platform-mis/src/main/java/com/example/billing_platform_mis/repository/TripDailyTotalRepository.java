@@ -0,0 +1,63 @@
+package com.example.billing_platform_mis.repository;
+
+import com.example.billing_platform_mis.entity.TripDailyTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+//Repository for per-day trip accumulators used by billing instead of scanning trips
+@Repository
+public interface TripDailyTotalRepository extends JpaRepository<TripDailyTotal, Long> {
+
+    //Apply a trip delta to an existing day row (returns 0 if the day row does not exist yet)
+    @Modifying
+    @Query("UPDATE TripDailyTotal d SET d.tripCount = d.tripCount + :tripCount, " +
+           "d.totalDistance = d.totalDistance + :distance, " +
+           "d.totalDuration = d.totalDuration + :duration, " +
+           "d.distanceOverage = d.distanceOverage + :distanceOverage, " +
+           "d.timeOverage = d.timeOverage + :timeOverage " +
+           "WHERE d.clientVendor.id = :clientVendorId AND d.tripDate = :tripDate")
+    int applyDelta(@Param("clientVendorId") Long clientVendorId,
+                   @Param("tripDate") LocalDate tripDate,
+                   @Param("tripCount") long tripCount,
+                   @Param("distance") BigDecimal distance,
+                   @Param("duration") BigDecimal duration,
+                   @Param("distanceOverage") BigDecimal distanceOverage,
+                   @Param("timeOverage") BigDecimal timeOverage);
+
+    //Count trips for a client-vendor relationship within date range from the day rows
+    @Query("SELECT COALESCE(SUM(d.tripCount), 0) FROM TripDailyTotal d " +
+           "WHERE d.clientVendor.id = :clientVendorId " +
+           "AND d.tripDate BETWEEN :startDate AND :endDate")
+    long sumTripCountByClientVendorAndDateRange(@Param("clientVendorId") Long clientVendorId,
+                                                @Param("startDate") LocalDate startDate,
+                                                @Param("endDate") LocalDate endDate);
+
+    //Trip count, distance, duration and overage sums for a relationship within date range
+    @Query("SELECT COALESCE(SUM(d.tripCount), 0), COALESCE(SUM(d.totalDistance), 0), " +
+           "COALESCE(SUM(d.totalDuration), 0), COALESCE(SUM(d.distanceOverage), 0), " +
+           "COALESCE(SUM(d.timeOverage), 0) FROM TripDailyTotal d " +
+           "WHERE d.clientVendor.id = :clientVendorId " +
+           "AND d.tripDate BETWEEN :startDate AND :endDate")
+    List<Object[]> sumTotalsByClientVendorAndDateRange(@Param("clientVendorId") Long clientVendorId,
+                                                      @Param("startDate") LocalDate startDate,
+                                                      @Param("endDate") LocalDate endDate);
+
+    //Trip counts per client-vendor relationship within date range (bulk billing runs)
+    @Query("SELECT d.clientVendor.id, SUM(d.tripCount) FROM TripDailyTotal d " +
+           "WHERE d.tripDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY d.clientVendor.id")
+    List<Object[]> sumTripCountsGroupedByClientVendorAndDateRange(@Param("startDate") LocalDate startDate,
+                                                                 @Param("endDate") LocalDate endDate);
+
+    //Remove all day rows before a rebuild
+    @Modifying
+    @Query("DELETE FROM TripDailyTotal d")
+    int deleteAllRows();
+}
@@ -0,0 +1,40 @@
+package com.example.billing_platform_mis.repository;
+
+import com.example.billing_platform_mis.entity.TripEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+//Repository for TripEvent entity (transactional outbox of trip changes)
+@Repository
+public interface TripEventRepository extends JpaRepository<TripEvent, Long> {
+
+    //Events still to be delivered, each trip's in commit order, skipping parked ones
+    @Query("SELECT e FROM TripEvent e WHERE e.attempts < :maxAttempts ORDER BY e.tripId, e.tripSeq, e.id")
+    List<TripEvent> findDeliverable(@Param("maxAttempts") int maxAttempts, Pageable pageable);
+
+    long countByAttemptsLessThan(int maxAttempts);
+
+    long countByAttemptsGreaterThanEqual(int maxAttempts);
+
+    //Creation time of the oldest event still to be delivered (null if there is none)
+    @Query("SELECT MIN(e.createdAt) FROM TripEvent e WHERE e.attempts < :maxAttempts")
+    LocalDateTime findOldestDeliverableCreatedAt(@Param("maxAttempts") int maxAttempts);
+
+    //Remove delivered events
+    @Modifying
+    @Query("DELETE FROM TripEvent e WHERE e.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    //Record a failed delivery
+    @Modifying
+    @Query("UPDATE TripEvent e SET e.attempts = e.attempts + 1, e.lastError = :error WHERE e.id = :id")
+    int recordFailure(@Param("id") Long id, @Param("error") String error);
+}
@@ -1,14 +1,21 @@
 package com.example.billing_platform_mis.repository;
 
 import com.example.billing_platform_mis.entity.Trip;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 //Repository for Trip entity with date range and tenant filtering capabilities
 @Repository
@@ -131,6 +138,82 @@ public interface TripRepository extends JpaRepository<Trip, Long> {
                                          @Param("startDate") LocalDate startDate,
                                          @Param("endDate") LocalDate endDate);
     
+    //Count trips per client-vendor relationship within date range in one grouped query (bulk billing runs)
+    @Query("SELECT t.clientVendor.id, COUNT(t) FROM Trip t " +
+           "WHERE t.tripDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY t.clientVendor.id")
+    List<Object[]> countTripsGroupedByClientVendorAndDateRange(@Param("startDate") LocalDate startDate,
+                                                              @Param("endDate") LocalDate endDate);
+
+    //Aggregate trips per client-vendor relationship and day (rebuilding daily billing accumulators)
+    @Query("SELECT t.clientVendor.id, t.tripDate, COUNT(t), SUM(t.distance), SUM(t.duration), " +
+           "SUM(CASE WHEN cv.standardDistanceLimit > 0 AND t.distance > cv.standardDistanceLimit " +
+           "THEN t.distance - cv.standardDistanceLimit ELSE 0 END), " +
+           "SUM(CASE WHEN cv.standardTimeLimit > 0 AND t.duration > cv.standardTimeLimit " +
+           "THEN t.duration - cv.standardTimeLimit ELSE 0 END) " +
+           "FROM Trip t JOIN t.clientVendor cv " +
+           "GROUP BY t.clientVendor.id, t.tripDate")
+    List<Object[]> aggregateTripsByClientVendorAndDay();
+
+    //Next chunk of over-limit trips with neither an incentive nor a payout, after a trip ID watermark
+    //(trips created after the cutoff are left for a later run so late-committing inserts are not skipped,
+    //trips with pending work belong to the overage work queue)
+    @Query("SELECT t FROM Trip t " +
+           "JOIN FETCH t.clientVendor cv " +
+           "JOIN FETCH t.employee " +
+           "LEFT JOIN Incentive i ON i.tripId = t.id " +
+           "LEFT JOIN Payout p ON p.tripId = t.id " +
+           "LEFT JOIN PendingOverageWork w ON w.tripId = t.id " +
+           "WHERE t.id > :afterId AND t.createdAt < :createdBefore " +
+           "AND ((cv.standardDistanceLimit > 0 AND t.distance > cv.standardDistanceLimit) " +
+           "OR (cv.standardTimeLimit > 0 AND t.duration > cv.standardTimeLimit)) " +
+           "AND i.id IS NULL AND p.id IS NULL AND w.id IS NULL " +
+           "ORDER BY t.id")
+    List<Trip> findUnprocessedOverageTripsAfter(@Param("afterId") Long afterId,
+                                                @Param("createdBefore") LocalDateTime createdBefore,
+                                                Pageable pageable);
+
+    //Trips with relationship and employee loaded (overage work queue batches)
+    @Query("SELECT t FROM Trip t " +
+           "JOIN FETCH t.clientVendor " +
+           "JOIN FETCH t.employee " +
+           "WHERE t.id IN :tripIds")
+    List<Trip> findByIdInWithRelationships(@Param("tripIds") Collection<Long> tripIds);
+
+    //Next keyset chunk of a relationship's trips with their stored costs (trip repricing)
+    @Query("SELECT t.id, t.distance, t.duration, t.tripDate, t.vendorCost, t.employeeCost, t.totalCost, " +
+           "t.extraDistanceCost, t.extraTimeCost FROM Trip t " +
+           "WHERE t.clientVendor.id = :clientVendorId AND t.id > :afterId " +
+           "ORDER BY t.id")
+    List<Object[]> findTripCostsAfter(@Param("clientVendorId") Long clientVendorId,
+                                      @Param("afterId") Long afterId,
+                                      Pageable pageable);
+
+    //Trips of a relationship in a period with their recorded incentive and payout, read through a cursor (billing explanations)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT t.id, t.tripDate, t.employee.id, t.distance, t.duration, " +
+           "t.vendorCost, t.employeeCost, t.totalCost, " +
+           "i.distanceIncentive, i.timeIncentive, i.totalAmount, " +
+           "p.baseAmount, p.distanceOverage, p.timeOverage, p.totalAmount " +
+           "FROM Trip t " +
+           "LEFT JOIN Incentive i ON i.tripId = t.id " +
+           "LEFT JOIN Payout p ON p.tripId = t.id " +
+           "WHERE t.clientVendor.id = :clientVendorId " +
+           "AND t.tripDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY t.tripDate, t.id")
+    Stream<Object[]> streamTripChargesByClientVendorAndDateRange(@Param("clientVendorId") Long clientVendorId,
+                                                                 @Param("startDate") LocalDate startDate,
+                                                                 @Param("endDate") LocalDate endDate);
+
+    //Distance, duration and date of a relationship's trips in date order (columnar what-if snapshots)
+    @Query("SELECT t.distance, t.duration, t.tripDate FROM Trip t " +
+           "WHERE t.clientVendor.id = :clientVendorId " +
+           "AND t.tripDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY t.tripDate")
+    List<Object[]> findTripMeasuresByClientVendorAndDateRange(@Param("clientVendorId") Long clientVendorId,
+                                                             @Param("startDate") LocalDate startDate,
+                                                             @Param("endDate") LocalDate endDate);
+
     //Count trips by employee within date range
     @Query("SELECT COUNT(t) FROM Trip t WHERE t.employee.id = :employeeId " +
            "AND t.tripDate BETWEEN :startDate AND :endDate")
@@ -170,4 +253,51 @@ public interface TripRepository extends JpaRepository<Trip, Long> {
     //Count trips within date range for analytics
     @Query("SELECT COUNT(t) FROM Trip t WHERE t.tripDate BETWEEN :startDate AND :endDate")
     long countTripsByDateRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
-}
\ No newline at end of file
+    
+    //IDs among the given ones that already have a trip row (write-behind log replay)
+    @Query("SELECT t.id FROM Trip t WHERE t.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+    
+    //Keyset page of a relationship's trips, newest first, after the (tripDate, id) of the previous page's last trip
+    @Query("SELECT t FROM Trip t " +
+           "JOIN FETCH t.employee " +
+           "JOIN FETCH t.clientVendor cv " +
+           "JOIN FETCH cv.client " +
+           "JOIN FETCH cv.vendor " +
+           "WHERE t.clientVendor.id = :clientVendorId " +
+           "AND t.tripDate <= :beforeDate AND (t.tripDate < :beforeDate OR t.id < :beforeId) " +
+           "ORDER BY t.tripDate DESC, t.id DESC")
+    List<Trip> findPageByClientVendorId(@Param("clientVendorId") Long clientVendorId,
+                                        @Param("beforeDate") LocalDate beforeDate,
+                                        @Param("beforeId") Long beforeId,
+                                        Pageable pageable);
+    
+    //Keyset page of an employee's trips, newest first, after the (tripDate, id) of the previous page's last trip
+    @Query("SELECT t FROM Trip t " +
+           "JOIN FETCH t.employee " +
+           "JOIN FETCH t.clientVendor cv " +
+           "JOIN FETCH cv.client " +
+           "JOIN FETCH cv.vendor " +
+           "WHERE t.employee.id = :employeeId " +
+           "AND t.tripDate <= :beforeDate AND (t.tripDate < :beforeDate OR t.id < :beforeId) " +
+           "ORDER BY t.tripDate DESC, t.id DESC")
+    List<Trip> findPageByEmployeeId(@Param("employeeId") Long employeeId,
+                                    @Param("beforeDate") LocalDate beforeDate,
+                                    @Param("beforeId") Long beforeId,
+                                    Pageable pageable);
+    
+    //Keyset page of an employee's trips with one client, newest first
+    @Query("SELECT t FROM Trip t " +
+           "JOIN FETCH t.employee " +
+           "JOIN FETCH t.clientVendor cv " +
+           "JOIN FETCH cv.client " +
+           "JOIN FETCH cv.vendor " +
+           "WHERE t.employee.id = :employeeId AND cv.client.id = :clientId " +
+           "AND t.tripDate <= :beforeDate AND (t.tripDate < :beforeDate OR t.id < :beforeId) " +
+           "ORDER BY t.tripDate DESC, t.id DESC")
+    List<Trip> findPageByEmployeeIdAndClientId(@Param("employeeId") Long employeeId,
+                                               @Param("clientId") Long clientId,
+                                               @Param("beforeDate") LocalDate beforeDate,
+                                               @Param("beforeId") Long beforeId,
+                                               Pageable pageable);
+}
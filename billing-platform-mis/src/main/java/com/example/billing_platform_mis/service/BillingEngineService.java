@@ -1,6 +1,8 @@
 package com.example.billing_platform_mis.service;
 
 import com.example.billing_platform_mis.entity.*;
+import com.example.billing_platform_mis.pricing.PeriodCharges;
+import com.example.billing_platform_mis.pricing.PricingEngine;
 import com.example.billing_platform_mis.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -8,81 +10,104 @@ import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 //Core billing engine for all billing model calculations
 @Service
 public class BillingEngineService {
-    
+
     @Autowired
     private TripRepository tripRepository;
-    
+
     @Autowired
     private ClientVendorRepository clientVendorRepository;
-    
+
     @Autowired
     private PayoutRepository payoutRepository;
-    
+
     @Autowired
     private IncentiveRepository incentiveRepository;
-    
+
+    @Autowired
+    private TripAccumulatorService tripAccumulatorService;
+
+    @Autowired
+    private RateCardService rateCardService;
+
+    @Autowired
+    private PeriodCloseService periodCloseService;
+
     //Calculate package model billing for a client-vendor relationship
     public BigDecimal calculatePackageBilling(Long clientVendorId, LocalDate startDate, LocalDate endDate) {
-        ClientVendor relationship = clientVendorRepository.findById(clientVendorId)
-            .orElseThrow(() -> new IllegalArgumentException("Client-vendor relationship not found"));
-        
+        ClientVendor relationship = findRelationship(clientVendorId);
+
         if (relationship.getBillingModel() != BillingModel.PACKAGE) {
             throw new IllegalArgumentException("Not a package billing model");
         }
-        
+
         //Package model: fixed monthly rate regardless of trip count
-        return relationship.getPackageRate();
+        return closedTotal(relationship, startDate, endDate)
+            .orElseGet(() -> calculateBilling(relationship, 0));
     }
-    
+
     //Calculate trip model billing
     public BigDecimal calculateTripBilling(Long clientVendorId, LocalDate startDate, LocalDate endDate) {
-        ClientVendor relationship = clientVendorRepository.findById(clientVendorId)
-            .orElseThrow(() -> new IllegalArgumentException("Client-vendor relationship not found"));
-        
+        ClientVendor relationship = findRelationship(clientVendorId);
+
         if (relationship.getBillingModel() != BillingModel.TRIP) {
             throw new IllegalArgumentException("Not a trip billing model");
         }
-        
+
         //Trip model: rate per trip
-        long tripCount = tripRepository.countByClientVendorIdAndDateRange(clientVendorId, startDate, endDate);
-        return relationship.getTripRate().multiply(BigDecimal.valueOf(tripCount));
+        return closedTotal(relationship, startDate, endDate)
+            .orElseGet(() -> calculateBilling(relationship,
+                tripAccumulatorService.countTrips(clientVendorId, startDate, endDate)));
     }
-    
+
     //Calculate hybrid model billing
     public BigDecimal calculateHybridBilling(Long clientVendorId, LocalDate startDate, LocalDate endDate) {
-        ClientVendor relationship = clientVendorRepository.findById(clientVendorId)
-            .orElseThrow(() -> new IllegalArgumentException("Client-vendor relationship not found"));
-        
+        ClientVendor relationship = findRelationship(clientVendorId);
+
         if (relationship.getBillingModel() != BillingModel.HYBRID) {
             throw new IllegalArgumentException("Not a hybrid billing model");
         }
-        
+
         //Hybrid model: base package rate + per-trip charges
-        BigDecimal baseAmount = relationship.getPackageRate();
-        long tripCount = tripRepository.countByClientVendorIdAndDateRange(clientVendorId, startDate, endDate);
-        BigDecimal tripCharges = relationship.getTripRate().multiply(BigDecimal.valueOf(tripCount));
-        
-        return baseAmount.add(tripCharges);
+        return closedTotal(relationship, startDate, endDate)
+            .orElseGet(() -> calculateBilling(relationship,
+                tripAccumulatorService.countTrips(clientVendorId, startDate, endDate)));
     }
-    
-    //Main billing calculation method - routes to appropriate model
+
+    //Main billing calculation method - closed periods come from their snapshot, the open period is priced live
     public BigDecimal calculateBilling(Long clientVendorId, LocalDate startDate, LocalDate endDate) {
-        ClientVendor relationship = clientVendorRepository.findById(clientVendorId)
-            .orElseThrow(() -> new IllegalArgumentException("Client-vendor relationship not found"));
-        
-        switch (relationship.getBillingModel()) {
-            case PACKAGE:
-                return calculatePackageBilling(clientVendorId, startDate, endDate);
-            case TRIP:
-                return calculateTripBilling(clientVendorId, startDate, endDate);
-            case HYBRID:
-                return calculateHybridBilling(clientVendorId, startDate, endDate);
-            default:
-                throw new IllegalArgumentException("Unknown billing model");
+        Optional<InvoiceSnapshot> closed = periodCloseService.findClosedPeriod(clientVendorId, startDate, endDate);
+        if (closed.isPresent()) {
+            return closed.get().getTotalAmount();
         }
+        ClientVendor relationship = findRelationship(clientVendorId);
+
+        long tripCount = relationship.getBillingModel() == BillingModel.PACKAGE ? 0
+            : tripAccumulatorService.countTrips(clientVendorId, startDate, endDate);
+        return calculateBilling(relationship, tripCount);
+    }
+
+    //Billing for an already loaded relationship and trip count (no database access, safe to run in parallel)
+    public BigDecimal calculateBilling(ClientVendor relationship, long tripCount) {
+        return calculatePeriodCharges(relationship, tripCount).getTotalAmount();
+    }
+
+    //Package and trip components of a period bill, priced by the relationship's billing strategy
+    public PeriodCharges calculatePeriodCharges(ClientVendor relationship, long tripCount) {
+        return PricingEngine.pricePeriod(rateCardService.getRateCard(relationship), tripCount);
+    }
+
+    private Optional<BigDecimal> closedTotal(ClientVendor relationship, LocalDate startDate, LocalDate endDate) {
+        return periodCloseService.findClosedPeriod(relationship.getId(), startDate, endDate)
+            .map(InvoiceSnapshot::getTotalAmount);
+    }
+
+    private ClientVendor findRelationship(Long clientVendorId) {
+        return clientVendorRepository.findById(clientVendorId)
+            .orElseThrow(() -> new IllegalArgumentException("Client-vendor relationship not found"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,203 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.ClientVendor;
+import com.example.billing_platform_mis.entity.Invoice;
+import com.example.billing_platform_mis.entity.InvoiceSnapshot;
+import com.example.billing_platform_mis.pricing.PeriodCharges;
+import com.example.billing_platform_mis.pricing.PricingEngine;
+import com.example.billing_platform_mis.pricing.RateCard;
+import com.example.billing_platform_mis.repository.ClientVendorRepository;
+import com.example.billing_platform_mis.repository.InvoiceRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+//Bulk period billing across all client-vendor relationships
+@Service
+public class BillingRunService {
+
+    private static final int SAVE_CHUNK_SIZE = 500;
+
+    @Autowired
+    private ClientVendorRepository clientVendorRepository;
+
+    @Autowired
+    private TripAccumulatorService tripAccumulatorService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private RateCardService rateCardService;
+
+    @Autowired
+    private PeriodCloseService periodCloseService;
+
+    private final AtomicReference<BillingRunProgress> currentRun = new AtomicReference<>();
+
+    //Bill every relationship for a period: one grouped trip-count query, parallel pricing, chunked invoice writes
+    public BillingRunProgress runBilling(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("Invalid billing period");
+        }
+
+        BillingRunProgress progress = new BillingRunProgress(startDate, endDate);
+        BillingRunProgress previous = currentRun.get();
+        if ((previous != null && previous.isRunning()) || !currentRun.compareAndSet(previous, progress)) {
+            throw new IllegalStateException("A billing run is already in progress");
+        }
+
+        try {
+            List<ClientVendor> relationships = clientVendorRepository.findAll();
+            progress.totalRelationships = relationships.size();
+
+            //Single round trip for all trip counts in the period, read from the daily accumulators
+            Map<Long, Long> tripCounts = tripAccumulatorService.countTripsByClientVendor(startDate, endDate);
+
+            //Reruns update the invoices of the period instead of duplicating them
+            Map<Long, Invoice> existingInvoices = new HashMap<>();
+            for (Invoice invoice : invoiceRepository.findByPeriodStartAndPeriodEnd(startDate, endDate)) {
+                existingInvoices.put(invoice.getClientVendor().getId(), invoice);
+            }
+
+            //Closed relationships are invoiced from their frozen snapshot instead of being repriced
+            Map<Long, InvoiceSnapshot> closedPeriods = new HashMap<>();
+            for (InvoiceSnapshot snapshot : periodCloseService.getClosedPeriods(startDate, endDate)) {
+                closedPeriods.put(snapshot.getClientVendorId(), snapshot);
+            }
+
+            //Rate cards (with hybrid tiers) are compiled up front so pricing needs no database access
+            Map<Long, RateCard> rateCards = rateCardService.getRateCards(relationships);
+
+            //Pricing is pure computation, so it is spread across all cores
+            List<Invoice> invoices = relationships.parallelStream()
+                .map(relationship -> {
+                    InvoiceSnapshot closed = closedPeriods.get(relationship.getId());
+                    Invoice invoice = closed != null
+                        ? buildInvoice(relationship, closed, existingInvoices.get(relationship.getId()))
+                        : buildInvoice(relationship, rateCards.get(relationship.getId()),
+                            tripCounts.getOrDefault(relationship.getId(), 0L),
+                            existingInvoices.get(relationship.getId()), startDate, endDate);
+                    progress.computedRelationships.incrementAndGet();
+                    return invoice;
+                })
+                .toList();
+
+            for (int from = 0; from < invoices.size(); from += SAVE_CHUNK_SIZE) {
+                List<Invoice> chunk = invoices.subList(from, Math.min(from + SAVE_CHUNK_SIZE, invoices.size()));
+                invoiceRepository.saveAll(chunk);
+                progress.savedInvoices.addAndGet(chunk.size());
+            }
+
+            progress.complete(invoices.stream()
+                .map(Invoice::getTotalAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add));
+        } catch (RuntimeException e) {
+            progress.fail(e.getMessage());
+            throw e;
+        }
+
+        return progress;
+    }
+
+    //Progress of the latest billing run (null if no run has been started)
+    public BillingRunProgress getCurrentRun() {
+        return currentRun.get();
+    }
+
+    private Invoice buildInvoice(ClientVendor relationship, RateCard rateCard, long tripCount, Invoice existing,
+                                 LocalDate startDate, LocalDate endDate) {
+        Invoice invoice = existing != null ? existing : new Invoice();
+        invoice.setClientVendor(relationship);
+        invoice.setBillingModel(relationship.getBillingModel());
+        invoice.setPeriodStart(startDate);
+        invoice.setPeriodEnd(endDate);
+        PeriodCharges charges = PricingEngine.pricePeriod(rateCard, tripCount);
+        invoice.setTripCount(tripCount);
+        invoice.setPackageAmount(charges.getPackageAmount());
+        invoice.setTripAmount(charges.getTripAmount());
+        invoice.setTotalAmount(charges.getTotalAmount());
+        return invoice;
+    }
+
+    private Invoice buildInvoice(ClientVendor relationship, InvoiceSnapshot closed, Invoice existing) {
+        Invoice invoice = existing != null ? existing : new Invoice();
+        invoice.setClientVendor(relationship);
+        invoice.setBillingModel(closed.getBillingModel());
+        invoice.setPeriodStart(closed.getPeriodStart());
+        invoice.setPeriodEnd(closed.getPeriodEnd());
+        invoice.setTripCount(closed.getTripCount());
+        invoice.setPackageAmount(closed.getPackageAmount());
+        invoice.setTripAmount(closed.getTripAmount());
+        invoice.setTotalAmount(closed.getTotalAmount());
+        return invoice;
+    }
+
+    public static class BillingRunProgress {
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final long startNanos = System.nanoTime();
+        private volatile String status = "RUNNING";
+        private volatile int totalRelationships;
+        private final AtomicInteger computedRelationships = new AtomicInteger();
+        private final AtomicInteger savedInvoices = new AtomicInteger();
+        private volatile long elapsedNanos = -1;
+        private volatile BigDecimal totalBilled;
+        private volatile String errorMessage;
+
+        public BillingRunProgress(LocalDate startDate, LocalDate endDate) {
+            this.startDate = startDate;
+            this.endDate = endDate;
+        }
+
+        private void complete(BigDecimal totalBilled) {
+            this.totalBilled = totalBilled;
+            this.elapsedNanos = System.nanoTime() - startNanos;
+            this.status = "COMPLETED";
+        }
+
+        private void fail(String errorMessage) {
+            this.errorMessage = errorMessage;
+            this.elapsedNanos = System.nanoTime() - startNanos;
+            this.status = "FAILED";
+        }
+
+        // Getters
+        public LocalDate getStartDate() { return startDate; }
+        public LocalDate getEndDate() { return endDate; }
+        public LocalDateTime getStartedAt() { return startedAt; }
+        public String getStatus() { return status; }
+        public boolean isRunning() { return "RUNNING".equals(status); }
+        public int getTotalRelationships() { return totalRelationships; }
+        public int getComputedRelationships() { return computedRelationships.get(); }
+        public int getSavedInvoices() { return savedInvoices.get(); }
+        public BigDecimal getTotalBilled() { return totalBilled; }
+        public String getErrorMessage() { return errorMessage; }
+
+        public long getElapsedMillis() {
+            long nanos = elapsedNanos >= 0 ? elapsedNanos : System.nanoTime() - startNanos;
+            return Duration.ofNanos(nanos).toMillis();
+        }
+
+        public double getPercentComplete() {
+            return totalRelationships == 0 ? (isRunning() ? 0 : 100)
+                : (double) savedInvoices.get() / totalRelationships * 100;
+        }
+
+        //Relationships billed and saved per second
+        public double getThroughputPerSecond() {
+            long millis = Math.max(1, getElapsedMillis());
+            return savedInvoices.get() * 1000.0 / millis;
+        }
+    }
+}
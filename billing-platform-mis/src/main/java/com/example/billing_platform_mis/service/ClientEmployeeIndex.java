@@ -0,0 +1,245 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.repository.ClientEmployeeRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//In-memory client-employee membership so bookings, imports and dashboards never query client_employees.
+//Each client holds an immutable membership set that is replaced on every change, so lookups take no locks.
+//The index is loaded at startup and updated after each committed assignment change made through this instance.
+//Every instance keeps its own copy, so a miss is confirmed against client_employees before it is reported (an
+//assignment made elsewhere is then added), and the whole index is reloaded periodically so removals made
+//elsewhere stop counting within reload-minutes.
+@Service
+public class ClientEmployeeIndex {
+
+    @Autowired
+    private ClientEmployeeRepository clientEmployeeRepository;
+
+    @Value("${billing.client-employees.reload-minutes:5}")
+    private long reloadMinutes;
+
+    private volatile Map<Long, Membership> memberships;
+
+    private ScheduledExecutorService scheduler;
+
+    //Load the index once the application is ready (lookups before then load it on demand)
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (memberships == null) {
+            reload();
+        }
+        if (reloadMinutes > 0 && scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "client-employee-index");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::reloadQuietly, reloadMinutes, reloadMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    //Rebuild the whole index from the database
+    public synchronized int reload() {
+        Map<Long, Membership> loaded = new ConcurrentHashMap<>();
+        Long clientId = null;
+        List<Long> employeeIds = new ArrayList<>();
+        //Rows come ordered by client, then employee
+        for (Object[] row : clientEmployeeRepository.findAllMemberships()) {
+            if (!row[0].equals(clientId)) {
+                putMembership(loaded, clientId, employeeIds);
+                clientId = (Long) row[0];
+                employeeIds.clear();
+            }
+            employeeIds.add((Long) row[1]);
+        }
+        putMembership(loaded, clientId, employeeIds);
+        memberships = loaded;
+        return loaded.size();
+    }
+
+    //Hits are answered from memory; misses are confirmed in the database, which is the rejection path only
+    public boolean isMember(Long clientId, Long employeeId) {
+        if (clientId == null || employeeId == null) {
+            return false;
+        }
+        Membership membership = memberships().get(clientId);
+        if (membership != null && membership.contains(employeeId)) {
+            return true;
+        }
+        if (!clientEmployeeRepository.existsByClientIdAndEmployeeId(clientId, employeeId)) {
+            return false;
+        }
+        //Assigned through another instance since this copy was loaded
+        update(clientId, employeeId, true);
+        return true;
+    }
+
+    public long countEmployees(Long clientId) {
+        Membership membership = memberships().get(clientId);
+        return membership != null ? membership.count : 0;
+    }
+
+    //Number of clients with at least one employee
+    public int getClientCount() {
+        return memberships().size();
+    }
+
+    //Add an assignment once the caller's transaction commits (immediately if there is none)
+    public void recordAssignment(Long clientId, Long employeeId) {
+        afterCommit(() -> update(clientId, employeeId, true));
+    }
+
+    //Remove an assignment once the caller's transaction commits (immediately if there is none)
+    public void recordRemoval(Long clientId, Long employeeId) {
+        afterCommit(() -> update(clientId, employeeId, false));
+    }
+
+    private Map<Long, Membership> memberships() {
+        Map<Long, Membership> current = memberships;
+        if (current == null) {
+            synchronized (this) {
+                if (memberships == null) {
+                    reload();
+                }
+                current = memberships;
+            }
+        }
+        return current;
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            //Keep the current copy; the next run retries
+        }
+    }
+
+    //Writers are serialized with reloads, so a change committed during a reload is applied on top of it
+    private synchronized void update(Long clientId, Long employeeId, boolean add) {
+        if (memberships == null) {
+            //Not loaded yet; the load will read the committed row
+            return;
+        }
+        memberships.compute(clientId, (id, membership) -> {
+            if (membership == null) {
+                return add ? Membership.of(new long[] {employeeId}) : null;
+            }
+            return add ? membership.with(employeeId) : membership.without(employeeId);
+        });
+    }
+
+    private void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+    private static void putMembership(Map<Long, Membership> target, Long clientId, List<Long> employeeIds) {
+        if (clientId == null || employeeIds.isEmpty()) {
+            return;
+        }
+        long[] ids = new long[employeeIds.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = employeeIds.get(i);
+        }
+        target.put(clientId, Membership.of(ids));
+    }
+
+    //Employee IDs of one client: a bitmap offset by the lowest ID while the IDs are dense enough for it to be
+    //smaller than a sorted array, otherwise a sorted array searched by bisection
+    private static final class Membership {
+        private final long base;
+        private final BitSet bits;
+        private final long[] ids;
+        private final int count;
+
+        private Membership(long base, BitSet bits, long[] ids, int count) {
+            this.base = base;
+            this.bits = bits;
+            this.ids = ids;
+            this.count = count;
+        }
+
+        //Built from sorted, distinct IDs; null when there are none
+        private static Membership of(long[] sortedIds) {
+            if (sortedIds.length == 0) {
+                return null;
+            }
+            long base = sortedIds[0];
+            long span = sortedIds[sortedIds.length - 1] - base + 1;
+            if (span <= Integer.MAX_VALUE && span <= 64L * sortedIds.length) {
+                BitSet bits = new BitSet((int) span);
+                for (long id : sortedIds) {
+                    bits.set((int) (id - base));
+                }
+                return new Membership(base, bits, null, sortedIds.length);
+            }
+            return new Membership(base, null, sortedIds, sortedIds.length);
+        }
+
+        private boolean contains(long employeeId) {
+            if (bits == null) {
+                return Arrays.binarySearch(ids, employeeId) >= 0;
+            }
+            long offset = employeeId - base;
+            return offset >= 0 && offset < bits.length() && bits.get((int) offset);
+        }
+
+        private Membership with(long employeeId) {
+            if (contains(employeeId)) {
+                return this;
+            }
+            long[] current = toArray();
+            long[] next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = employeeId;
+            Arrays.sort(next);
+            return of(next);
+        }
+
+        private Membership without(long employeeId) {
+            if (!contains(employeeId)) {
+                return this;
+            }
+            return of(Arrays.stream(toArray()).filter(id -> id != employeeId).toArray());
+        }
+
+        private long[] toArray() {
+            if (bits == null) {
+                return ids;
+            }
+            return bits.stream().mapToLong(offset -> base + offset).toArray();
+        }
+    }
+}
@@ -1,74 +1,136 @@
 package com.example.billing_platform_mis.service;
 
+import com.example.billing_platform_mis.entity.BillingModel;
 import com.example.billing_platform_mis.entity.ClientVendor;
+import com.example.billing_platform_mis.entity.HybridPricingTier;
+import com.example.billing_platform_mis.entity.InvoiceSnapshot;
+import com.example.billing_platform_mis.pricing.PeriodCharges;
+import com.example.billing_platform_mis.pricing.PricingEngine;
+import com.example.billing_platform_mis.pricing.PricingTier;
+import com.example.billing_platform_mis.pricing.RateCard;
 import com.example.billing_platform_mis.repository.ClientVendorRepository;
+import com.example.billing_platform_mis.repository.HybridPricingTierRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 //Service for hybrid billing model calculations
 @Service
 public class HybridBillingService {
     
+    @Autowired
+    private RateCardService rateCardService;
+    
+    @Autowired
+    private TripAccumulatorService tripAccumulatorService;
+    
     @Autowired
     private ClientVendorRepository clientVendorRepository;
     
     @Autowired
-    private TripBillingService tripBillingService;
+    private HybridPricingTierRepository hybridPricingTierRepository;
+    
+    @Autowired
+    private PeriodCloseService periodCloseService;
     
     //Calculate hybrid billing with detailed breakdown
     public Map<String, BigDecimal> calculateHybridBillingBreakdown(Long clientVendorId, LocalDate startDate, LocalDate endDate) {
-        ClientVendor relationship = clientVendorRepository.findById(clientVendorId)
-            .orElseThrow(() -> new IllegalArgumentException("Client-vendor relationship not found"));
-        
         Map<String, BigDecimal> breakdown = new HashMap<>();
         
+        //A closed hybrid period is read from its invoice snapshot
+        Optional<InvoiceSnapshot> closed = findClosedHybridPeriod(clientVendorId, startDate, endDate);
+        if (closed.isPresent()) {
+            breakdown.put("packageRate", closed.get().getPackageAmount());
+            breakdown.put("tripCharges", closed.get().getTripAmount());
+            breakdown.put("totalAmount", closed.get().getTotalAmount());
+            return breakdown;
+        }
+        
+        PeriodCharges charges = priceHybridPeriod(clientVendorId,
+            tripAccumulatorService.countTrips(clientVendorId, startDate, endDate));
+        
         //Base package component (fixed monthly fee)
-        BigDecimal packageComponent = relationship.getPackageRate();
-        breakdown.put("packageRate", packageComponent);
+        breakdown.put("packageRate", charges.getPackageAmount());
         
         //Trip component (variable based on usage)
-        BigDecimal tripComponent = tripBillingService.calculateTripFees(
-            clientVendorId, startDate, endDate, relationship.getTripRate());
-        breakdown.put("tripCharges", tripComponent);
+        breakdown.put("tripCharges", charges.getTripAmount());
         
         //Total hybrid billing (package + trip charges only)
-        BigDecimal total = packageComponent.add(tripComponent);
-        breakdown.put("totalAmount", total);
+        breakdown.put("totalAmount", charges.getTotalAmount());
         
         return breakdown;
     }
     
     //Simple hybrid calculation (package + trip charges only)
     public BigDecimal calculateSimpleHybridBilling(Long clientVendorId, LocalDate startDate, LocalDate endDate) {
-        ClientVendor relationship = clientVendorRepository.findById(clientVendorId)
-            .orElseThrow(() -> new IllegalArgumentException("Client-vendor relationship not found"));
-        
-        BigDecimal packageRate = relationship.getPackageRate();
-        BigDecimal tripCharges = tripBillingService.calculateTripFees(
-            clientVendorId, startDate, endDate, relationship.getTripRate());
-        
-        return packageRate.add(tripCharges);
+        Optional<InvoiceSnapshot> closed = findClosedHybridPeriod(clientVendorId, startDate, endDate);
+        if (closed.isPresent()) {
+            return closed.get().getTotalAmount();
+        }
+        return priceHybridPeriod(clientVendorId,
+            tripAccumulatorService.countTrips(clientVendorId, startDate, endDate)).getTotalAmount();
     }
     
     //Calculate hybrid billing with usage thresholds
     public BigDecimal calculateThresholdBasedHybridBilling(Long clientVendorId, LocalDate startDate, LocalDate endDate, int freeTripsThreshold) {
+        //Only charge for trips above the threshold: a free tier followed by the trip rate
+        long totalTrips = tripAccumulatorService.countTrips(clientVendorId, startDate, endDate);
+        RateCard rateCard = rateCardService.getRateCard(clientVendorId);
+        List<PricingTier> tiers = List.of(new PricingTier(Math.max(0, freeTripsThreshold), 0));
+        
+        return PricingEngine.priceTieredPeriod(rateCard, tiers, totalTrips).getTotalAmount();
+    }
+    
+    //Pricing tiers of a relationship in application order
+    @Transactional(readOnly = true)
+    public List<HybridPricingTier> getPricingTiers(Long clientVendorId) {
+        return hybridPricingTierRepository.findByClientVendorIdOrderByTierOrderAsc(clientVendorId);
+    }
+    
+    //Replace a hybrid relationship's pricing tiers (an empty list restores the flat trip rate)
+    @Transactional
+    public List<HybridPricingTier> replacePricingTiers(Long clientVendorId, List<HybridPricingTier> tiers) {
         ClientVendor relationship = clientVendorRepository.findById(clientVendorId)
             .orElseThrow(() -> new IllegalArgumentException("Client-vendor relationship not found"));
         
-        BigDecimal packageRate = relationship.getPackageRate();
+        if (relationship.getBillingModel() != BillingModel.HYBRID) {
+            throw new IllegalArgumentException("Pricing tiers are only supported for the hybrid billing model");
+        }
+        for (int i = 0; i < tiers.size(); i++) {
+            HybridPricingTier tier = tiers.get(i);
+            if (tier.getTripLimit() == null && i < tiers.size() - 1) {
+                throw new IllegalArgumentException("Only the last pricing tier can cover all remaining trips");
+            }
+            tier.setClientVendor(relationship);
+            tier.setTierOrder(i + 1);
+        }
         
-        //Only charge for trips above the threshold
-        long totalTrips = tripBillingService.getTripDetails(clientVendorId, startDate, endDate).size();
-        long chargeableTrips = Math.max(0, totalTrips - freeTripsThreshold);
-        
-        BigDecimal additionalTripCharges = relationship.getTripRate()
-            .multiply(BigDecimal.valueOf(chargeableTrips));
-        
-        return packageRate.add(additionalTripCharges);
+        hybridPricingTierRepository.deleteByClientVendorId(clientVendorId);
+        List<HybridPricingTier> saved = hybridPricingTierRepository.saveAll(tiers);
+        //Tiers are part of the relationship's rates: moving updated_at makes cards compiled from the old tiers stale
+        relationship.setUpdatedAt(LocalDateTime.now());
+        clientVendorRepository.save(relationship);
+        rateCardService.evictAfterCommit(clientVendorId);
+        return saved;
+    }
+    
+    //Snapshot of a closed period that was billed under the hybrid model
+    private Optional<InvoiceSnapshot> findClosedHybridPeriod(Long clientVendorId, LocalDate startDate, LocalDate endDate) {
+        return periodCloseService.findClosedPeriod(clientVendorId, startDate, endDate)
+            .filter(snapshot -> snapshot.getBillingModel() == BillingModel.HYBRID);
+    }
+    
+    //Package rate plus trip rate per trip, whatever the relationship's own billing model
+    private PeriodCharges priceHybridPeriod(Long clientVendorId, long tripCount) {
+        RateCard rateCard = rateCardService.getRateCard(clientVendorId);
+        return PricingEngine.pricePeriod(rateCard, PricingEngine.strategyFor(BillingModel.HYBRID), tripCount);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,423 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.IdempotencyKey;
+import com.example.billing_platform_mis.repository.IdempotencyKeyRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+//Idempotency-Key handling for write endpoints. The first request with a key claims it in idempotency_keys,
+//runs, and stores its response; a retry with the same key gets that response back without running again.
+//Completed responses are also kept in a bounded in-memory LRU cache, so most retries never reach the
+//database. A claim carries its request's owner token and a heartbeat the request refreshes while it runs, so
+//a long import is not mistaken for a crashed one.
+//A key is only released for another attempt when the first one certainly changed nothing: with
+//executeAtomically the action's changes and its response commit in one transaction, so any failure rolls
+//both back, and a claim abandoned by a crash is taken over. With execute the action commits on its own, so
+//only a 4xx response releases the key; an exception, a 5xx or an abandoned claim leaves the outcome
+//unknown, and the key then answers every retry with that instead of running the action again.
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private static final Map<String, String> UNKNOWN_OUTCOME = Map.of("error",
+        "The outcome of the first request with this " + HEADER + " is unknown; check its result before "
+            + "sending it again with a new key");
+
+    @Value("${billing.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    //Completed responses held in memory
+    @Value("${billing.idempotency.cache-size:10000}")
+    private int cacheSize;
+
+    //A claim whose heartbeat is older than this is treated as abandoned by a crashed request and may be
+    //taken over; running requests refresh theirs three times per timeout
+    @Value("${billing.idempotency.claim-timeout-seconds:60}")
+    private long claimTimeoutSeconds;
+
+    @Value("${billing.idempotency.purge-minutes:60}")
+    private long purgeMinutes;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private ScheduledExecutorService purger;
+    private ScheduledExecutorService heartbeats;
+
+    //Access-ordered, so the least recently replayed response is evicted first
+    private final Map<String, StoredResponse> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    //Purge expired keys periodically once the application is ready
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "idempotency-purger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        purger.scheduleWithFixedDelay(this::purgeExpired, purgeMinutes, purgeMinutes, TimeUnit.MINUTES);
+        heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "idempotency-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (purger != null) {
+            purger.shutdownNow();
+        }
+        if (heartbeats != null) {
+            heartbeats.shutdownNow();
+        }
+    }
+
+    //Run the action once per scope and key. A repeated key returns the stored response; a key still held by
+    //a running request gets 409, and a key reused with a different request body gets 400.
+    //The fingerprint is only evaluated once the request body is no longer needed by the action.
+    //The action commits its own changes, so a failure other than a 4xx response keeps the key as unknown.
+    public ResponseEntity<?> execute(String scope, String key, Supplier<String> fingerprint,
+                                     Supplier<ResponseEntity<?>> action) {
+        return execute(scope, key, fingerprint, action, false);
+    }
+
+    //Like execute, but the action runs in a transaction that also stores its response, so a failure or a crash
+    //before the commit leaves no trace and the key can be used again
+    public ResponseEntity<?> executeAtomically(String scope, String key, Supplier<String> fingerprint,
+                                               Supplier<ResponseEntity<?>> action) {
+        return execute(scope, key, fingerprint, action, true);
+    }
+
+    private ResponseEntity<?> execute(String scope, String key, Supplier<String> fingerprint,
+                                      Supplier<ResponseEntity<?>> action, boolean atomic) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+        String cacheKey = scope + "\n" + key;
+        LocalDateTime now = LocalDateTime.now();
+
+        StoredResponse cached = cached(cacheKey, now);
+        if (cached != null) {
+            return replay(cached, fingerprint);
+        }
+
+        Optional<IdempotencyKey> existing = idempotencyKeyRepository.findByScopeAndIdempotencyKey(scope, key);
+        if (existing.isPresent()) {
+            IdempotencyKey stored = existing.get();
+            if (stored.getExpiresAt().isBefore(now)) {
+                transactionTemplate.executeWithoutResult(status -> idempotencyKeyRepository.deleteById(stored.getId()));
+            } else if (stored.getResponseStatus() != null) {
+                StoredResponse response = StoredResponse.of(stored);
+                cache(cacheKey, response);
+                return replay(response, fingerprint);
+            } else if (!isAbandoned(stored, now)) {
+                return inProgress();
+            } else if (!Boolean.TRUE.equals(stored.getRetrySafe())) {
+                //Its request may have changed data before it stopped
+                return abandonedUnknown(stored.getId(), now, fingerprint);
+            } else if (!takeOver(stored.getId(), now)) {
+                //Its owner refreshed the claim, or another request took it over first
+                return inProgress();
+            }
+        }
+
+        String owner = UUID.randomUUID().toString();
+        Long claimId;
+        try {
+            claimId = claim(scope, key, owner, now, atomic);
+        } catch (DataIntegrityViolationException e) {
+            //Another request claimed the key first
+            return inProgress();
+        }
+
+        ScheduledFuture<?> heartbeat = startHeartbeat(claimId, owner);
+        try {
+            return atomic
+                ? runAtomically(cacheKey, claimId, owner, now, fingerprint, action)
+                : runSeparately(cacheKey, claimId, owner, now, fingerprint, action);
+        } finally {
+            if (heartbeat != null) {
+                heartbeat.cancel(false);
+            }
+        }
+    }
+
+    private ResponseEntity<?> runSeparately(String cacheKey, Long claimId, String owner, LocalDateTime now,
+                                            Supplier<String> fingerprint, Supplier<ResponseEntity<?>> action) {
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            recordUnknown(claimId, owner, fingerprint);
+            throw e;
+        }
+        if (response.getStatusCode().is4xxClientError()) {
+            //Refused before it changed anything
+            release(claimId, owner);
+            return response;
+        }
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            recordUnknown(claimId, owner, fingerprint);
+            return response;
+        }
+
+        StoredResponse completed = completed(response, now, fingerprint);
+        int stored = transactionTemplate.execute(status -> idempotencyKeyRepository.complete(claimId, owner,
+            completed.requestHash, completed.status, completed.body));
+        if (stored > 0) {
+            cache(cacheKey, completed);
+        }
+        //Otherwise the claim was lost: the action did run, so its response is still the right answer here,
+        //but the key now belongs to the request that took it over
+        return response;
+    }
+
+    private ResponseEntity<?> runAtomically(String cacheKey, Long claimId, String owner, LocalDateTime now,
+                                            Supplier<String> fingerprint, Supplier<ResponseEntity<?>> action) {
+        AtomicReference<StoredResponse> completed = new AtomicReference<>();
+        ResponseEntity<?> response;
+        try {
+            response = transactionTemplate.execute(status -> {
+                ResponseEntity<?> result = action.get();
+                if (!result.getStatusCode().is2xxSuccessful()) {
+                    status.setRollbackOnly();
+                    return result;
+                }
+                StoredResponse stored = completed(result, now, fingerprint);
+                if (idempotencyKeyRepository.complete(claimId, owner, stored.requestHash, stored.status, stored.body) == 0) {
+                    //Taken over while this request stalled: undo it, the request holding the key runs instead
+                    status.setRollbackOnly();
+                    return inProgress();
+                }
+                completed.set(stored);
+                return result;
+            });
+        } catch (RuntimeException e) {
+            //Rolled back, so nothing happened
+            release(claimId, owner);
+            throw e;
+        }
+        if (completed.get() == null) {
+            release(claimId, owner);
+            return response;
+        }
+        cache(cacheKey, completed.get());
+        return response;
+    }
+
+    //SHA-256 of a request object as JSON
+    public String fingerprint(Object request) {
+        return HexFormat.of().formatHex(sha256().digest(jsonMapper.writeValueAsBytes(request)));
+    }
+
+    //Wrap a request body so its hash is computed while it is read
+    public DigestInputStream digesting(InputStream body) {
+        return new DigestInputStream(body, sha256());
+    }
+
+    //SHA-256 of a body wrapped by digesting; reads whatever the action left unread
+    public String fingerprint(DigestInputStream body) {
+        try {
+            body.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            //Already read to the end and closed by the action
+        }
+        return HexFormat.of().formatHex(body.getMessageDigest().digest());
+    }
+
+    public int purgeExpired() {
+        int purged = transactionTemplate.execute(status -> idempotencyKeyRepository.deleteExpired(LocalDateTime.now()));
+        synchronized (cache) {
+            LocalDateTime now = LocalDateTime.now();
+            cache.values().removeIf(response -> response.expiresAt.isBefore(now));
+        }
+        return purged;
+    }
+
+    //The claim is committed on its own so a concurrent request with the same key sees it
+    private Long claim(String scope, String key, String owner, LocalDateTime now, boolean retrySafe) {
+        return transactionTemplate.execute(status -> {
+            IdempotencyKey claim = new IdempotencyKey();
+            claim.setScope(scope);
+            claim.setIdempotencyKey(key);
+            claim.setOwner(owner);
+            claim.setCreatedAt(now);
+            claim.setHeartbeatAt(now);
+            claim.setRetrySafe(retrySafe);
+            claim.setExpiresAt(now.plusHours(ttlHours));
+            return idempotencyKeyRepository.saveAndFlush(claim).getId();
+        });
+    }
+
+    private boolean isAbandoned(IdempotencyKey claim, LocalDateTime now) {
+        LocalDateTime heartbeatAt = claim.getHeartbeatAt() != null ? claim.getHeartbeatAt() : claim.getCreatedAt();
+        return heartbeatAt.isBefore(now.minusSeconds(claimTimeoutSeconds));
+    }
+
+    //Delete an abandoned claim unless its heartbeat moved on since it was read
+    private boolean takeOver(Long claimId, LocalDateTime now) {
+        LocalDateTime staleBefore = now.minusSeconds(claimTimeoutSeconds);
+        return transactionTemplate.execute(status -> idempotencyKeyRepository.deleteAbandoned(claimId, staleBefore)) > 0;
+    }
+
+    //Refresh the claim while the action runs; stops by itself once the claim is lost
+    private ScheduledFuture<?> startHeartbeat(Long claimId, String owner) {
+        if (heartbeats == null) {
+            return null;
+        }
+        long periodMillis = Math.max(1, TimeUnit.SECONDS.toMillis(claimTimeoutSeconds) / 3);
+        AtomicReference<ScheduledFuture<?>> self = new AtomicReference<>();
+        self.set(heartbeats.scheduleAtFixedRate(() -> {
+            try {
+                int refreshed = transactionTemplate.execute(status ->
+                    idempotencyKeyRepository.heartbeat(claimId, owner, LocalDateTime.now()));
+                if (refreshed == 0 && self.get() != null) {
+                    self.get().cancel(false);
+                }
+            } catch (RuntimeException e) {
+                //Try again at the next beat; the claim only goes stale after several missed ones
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS));
+        return self.get();
+    }
+
+    private StoredResponse completed(ResponseEntity<?> response, LocalDateTime now, Supplier<String> fingerprint) {
+        return new StoredResponse(fingerprint.get(), response.getStatusCode().value(),
+            jsonMapper.writeValueAsString(response.getBody()), now.plusHours(ttlHours));
+    }
+
+    //Keep the claim with a response saying its outcome is unknown, so a retry does not run the action again
+    private void recordUnknown(Long claimId, String owner, Supplier<String> fingerprint) {
+        String body = jsonMapper.writeValueAsString(UNKNOWN_OUTCOME);
+        transactionTemplate.execute(status -> idempotencyKeyRepository.complete(claimId, owner, fingerprint.get(),
+            HttpStatus.CONFLICT.value(), body));
+    }
+
+    //Turn an abandoned claim into an unknown outcome and answer with whatever the key holds afterwards
+    private ResponseEntity<?> abandonedUnknown(Long claimId, LocalDateTime now, Supplier<String> fingerprint) {
+        LocalDateTime staleBefore = now.minusSeconds(claimTimeoutSeconds);
+        String body = jsonMapper.writeValueAsString(UNKNOWN_OUTCOME);
+        transactionTemplate.execute(status -> idempotencyKeyRepository.markAbandonedUnknown(claimId, staleBefore,
+            HttpStatus.CONFLICT.value(), body));
+        Optional<IdempotencyKey> stored = idempotencyKeyRepository.findById(claimId)
+            .filter(claim -> claim.getResponseStatus() != null);
+        return stored.isPresent() ? replay(StoredResponse.of(stored.get()), fingerprint) : inProgress();
+    }
+
+    private void release(Long claimId, String owner) {
+        transactionTemplate.executeWithoutResult(status -> idempotencyKeyRepository.release(claimId, owner));
+    }
+
+    private StoredResponse cached(String cacheKey, LocalDateTime now) {
+        synchronized (cache) {
+            StoredResponse response = cache.get(cacheKey);
+            if (response != null && response.expiresAt.isBefore(now)) {
+                cache.remove(cacheKey);
+                return null;
+            }
+            return response;
+        }
+    }
+
+    private void cache(String cacheKey, StoredResponse response) {
+        synchronized (cache) {
+            cache.put(cacheKey, response);
+        }
+    }
+
+    private ResponseEntity<?> replay(StoredResponse response, Supplier<String> fingerprint) {
+        if (response.requestHash != null && !response.requestHash.equals(fingerprint.get())) {
+            return ResponseEntity.badRequest().body(Map.of("error",
+                HEADER + " was already used for a different request"));
+        }
+        return ResponseEntity.status(response.status)
+            .contentType(MediaType.APPLICATION_JSON)
+            .header(REPLAYED_HEADER, "true")
+            .body(response.body);
+    }
+
+    private static ResponseEntity<?> inProgress() {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error",
+            "A request with this " + HEADER + " is still in progress"));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class StoredResponse {
+        private final String requestHash;
+        private final int status;
+        private final String body;
+        private final LocalDateTime expiresAt;
+
+        private StoredResponse(String requestHash, int status, String body, LocalDateTime expiresAt) {
+            this.requestHash = requestHash;
+            this.status = status;
+            this.body = body;
+            this.expiresAt = expiresAt;
+        }
+
+        private static StoredResponse of(IdempotencyKey stored) {
+            return new StoredResponse(stored.getRequestHash(), stored.getResponseStatus(), stored.getResponseBody(),
+                stored.getExpiresAt());
+        }
+    }
+}
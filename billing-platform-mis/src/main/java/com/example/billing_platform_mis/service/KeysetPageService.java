@@ -0,0 +1,194 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.ClientVendor;
+import com.example.billing_platform_mis.entity.Incentive;
+import com.example.billing_platform_mis.entity.Payout;
+import com.example.billing_platform_mis.entity.Trip;
+import com.example.billing_platform_mis.repository.ClientVendorRepository;
+import com.example.billing_platform_mis.repository.IncentiveRepository;
+import com.example.billing_platform_mis.repository.PayoutRepository;
+import com.example.billing_platform_mis.repository.TripRepository;
+import com.example.billing_platform_mis.service.TripArchiveSegment.Column;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+//Keyset pagination of the list endpoints. Each page continues after the sort key and id of the previous page's
+//last row (see PageCursor), so it costs the same however much history lies before it. Listings of a client or
+//vendor read one page per client-vendor relationship through the (client_vendor_id, trip_date) indexes and merge
+//them, together with the archived trips that continue the page; the body stays a plain list and the token for
+//the next page comes back in the X-Next-Cursor header.
+@Service
+public class KeysetPageService {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final Comparator<Trip> TRIP_ORDER =
+        Comparator.comparing(Trip::getTripDate).thenComparing(Trip::getId).reversed();
+    private static final Comparator<Payout> PAYOUT_ORDER =
+        Comparator.comparing(Payout::getTripDate).thenComparing(Payout::getId).reversed();
+    private static final Comparator<Incentive> INCENTIVE_ORDER =
+        Comparator.comparing(Incentive::getTripDate).thenComparing(Incentive::getId).reversed();
+
+    @Value("${billing.pagination.default-limit:100}")
+    private int defaultLimit;
+
+    @Value("${billing.pagination.max-limit:500}")
+    private int maxLimit;
+
+    @Autowired
+    private TripRepository tripRepository;
+
+    @Autowired
+    private PayoutRepository payoutRepository;
+
+    @Autowired
+    private IncentiveRepository incentiveRepository;
+
+    @Autowired
+    private ClientVendorRepository clientVendorRepository;
+
+    @Autowired
+    private TripArchiveService tripArchiveService;
+
+    public Page<Trip> findClientTrips(Long clientId, String cursor, Integer limit) {
+        PageCursor after = PageCursor.decodeTripDate(cursor);
+        int size = size(limit);
+        List<Trip> trips = new ArrayList<>();
+        for (ClientVendor cv : clientVendorRepository.findByClientId(clientId)) {
+            trips.addAll(tripRepository.findPageByClientVendorId(cv.getId(), after.getTripDate(), after.getId(), probe(size)));
+        }
+        trips.addAll(archivedTrips(Column.CLIENT_ID, clientId, row -> true, after, size));
+        return merge(trips, TRIP_ORDER, size, trip -> PageCursor.tripDate(trip.getTripDate(), trip.getId()));
+    }
+
+    public Page<Trip> findVendorTrips(Long vendorId, String cursor, Integer limit) {
+        PageCursor after = PageCursor.decodeTripDate(cursor);
+        int size = size(limit);
+        List<Trip> trips = new ArrayList<>();
+        for (ClientVendor cv : clientVendorRepository.findByVendorId(vendorId)) {
+            trips.addAll(tripRepository.findPageByClientVendorId(cv.getId(), after.getTripDate(), after.getId(), probe(size)));
+        }
+        trips.addAll(archivedTrips(Column.VENDOR_ID, vendorId, row -> true, after, size));
+        return merge(trips, TRIP_ORDER, size, trip -> PageCursor.tripDate(trip.getTripDate(), trip.getId()));
+    }
+
+    //An employee's trips, optionally with one client only
+    public Page<Trip> findEmployeeTrips(Long employeeId, Long clientId, String cursor, Integer limit) {
+        PageCursor after = PageCursor.decodeTripDate(cursor);
+        int size = size(limit);
+        List<Trip> trips = new ArrayList<>(clientId == null
+            ? tripRepository.findPageByEmployeeId(employeeId, after.getTripDate(), after.getId(), probe(size))
+            : tripRepository.findPageByEmployeeIdAndClientId(employeeId, clientId, after.getTripDate(), after.getId(), probe(size)));
+        trips.addAll(archivedTrips(Column.EMPLOYEE_ID, employeeId,
+            row -> clientId == null || row.getClientId() == clientId, after, size));
+        return merge(trips, TRIP_ORDER, size, trip -> PageCursor.tripDate(trip.getTripDate(), trip.getId()));
+    }
+
+    public Page<Payout> findVendorPayouts(Long vendorId, String cursor, Integer limit) {
+        PageCursor after = PageCursor.decodeTripDate(cursor);
+        int size = size(limit);
+        List<Payout> payouts = new ArrayList<>();
+        for (ClientVendor cv : clientVendorRepository.findByVendorId(vendorId)) {
+            payouts.addAll(payoutRepository.findPageByClientVendorId(cv.getId(), after.getTripDate(), after.getId(), probe(size)));
+        }
+        return merge(payouts, PAYOUT_ORDER, size, payout -> PageCursor.tripDate(payout.getTripDate(), payout.getId()));
+    }
+
+    public Page<Incentive> findClientIncentives(Long clientId, String cursor, Integer limit) {
+        PageCursor after = PageCursor.decodeTripDate(cursor);
+        int size = size(limit);
+        List<Incentive> incentives = new ArrayList<>();
+        for (ClientVendor cv : clientVendorRepository.findByClientId(clientId)) {
+            incentives.addAll(incentiveRepository.findPageByClientVendorId(cv.getId(), after.getTripDate(), after.getId(), probe(size)));
+        }
+        return merge(incentives, INCENTIVE_ORDER, size, incentive -> PageCursor.tripDate(incentive.getTripDate(), incentive.getId()));
+    }
+
+    public Page<ClientVendor> findAssignments(String cursor, Integer limit) {
+        PageCursor after = PageCursor.decodeCreatedAt(cursor);
+        int size = size(limit);
+        List<ClientVendor> assignments = clientVendorRepository.findPage(after.getCreatedAt(), after.getId(), probe(size));
+        return page(assignments, size, cv -> PageCursor.createdAt(cv.getCreatedAt(), cv.getId()));
+    }
+
+    //200 with the page's rows, plus the next page's token unless this was the last page
+    public ResponseEntity<?> respond(Page<?> page, Object body) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(body);
+    }
+
+    private int size(Integer limit) {
+        if (limit == null) {
+            return defaultLimit;
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        return Math.min(limit, maxLimit);
+    }
+
+    //Archived trips of the key that continue the page, newest first; the archive stops at the first probe(size)
+    //of them, so a page reads only the segments around its cursor
+    private List<Trip> archivedTrips(Column keyColumn, Long key, Predicate<TripArchiveSegment.Row> filter,
+                                     PageCursor after, int size) {
+        Iterator<TripArchiveSegment.Row> rows = tripArchiveService.iterateArchivedRows(
+            keyColumn, key, LocalDate.MIN, after.getTripDate(), true);
+        List<TripArchiveSegment.Row> page = new ArrayList<>();
+        while (page.size() <= size && rows.hasNext()) {
+            TripArchiveSegment.Row row = rows.next();
+            boolean beforeCursor = row.getTripDate().isBefore(after.getTripDate()) || row.getId() < after.getId();
+            if (beforeCursor && filter.test(row)) {
+                page.add(row);
+            }
+        }
+        return page.isEmpty() ? List.of() : tripArchiveService.toTrips(page);
+    }
+
+    //One row beyond the page tells whether another page follows
+    private static Pageable probe(int size) {
+        return PageRequest.of(0, size + 1);
+    }
+
+    //Pages read per relationship: the first size rows across all of them in sort order
+    private static <T> Page<T> merge(List<T> rows, Comparator<T> order, int size, Function<T, PageCursor> cursorOf) {
+        rows.sort(order);
+        return page(rows, size, cursorOf);
+    }
+
+    private static <T> Page<T> page(List<T> rows, int size, Function<T, PageCursor> cursorOf) {
+        if (rows.size() <= size) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = new ArrayList<>(rows.subList(0, size));
+        return new Page<>(items, cursorOf.apply(items.get(size - 1)).encode());
+    }
+
+    public static class Page<T> {
+        private final List<T> items;
+        private final String nextCursor;
+
+        public Page(List<T> items, String nextCursor) {
+            this.items = items;
+            this.nextCursor = nextCursor;
+        }
+
+        // Getters
+        public List<T> getItems() { return items; }
+        public String getNextCursor() { return nextCursor; }
+    }
+}
@@ -1,25 +1,20 @@
 package com.example.billing_platform_mis.service;
 
 import com.example.billing_platform_mis.entity.*;
+import com.example.billing_platform_mis.pricing.OverageCharges;
+import com.example.billing_platform_mis.pricing.PricingEngine;
+import com.example.billing_platform_mis.pricing.RateCard;
 import com.example.billing_platform_mis.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
-import java.util.List;
 
 
 @Service
 @Transactional
 public class OverageCalculationService {
     
-    @Autowired
-    private TripRepository tripRepository;
-    
-    @Autowired
-    private ClientVendorRepository clientVendorRepository;
-    
     @Autowired
     private IncentiveRepository incentiveRepository;
     
@@ -29,101 +24,51 @@ public class OverageCalculationService {
     @Autowired
     private ClientEmployeeRepository clientEmployeeRepository;
     
+    @Autowired
+    private RateCardService rateCardService;
+    
     //Process trip for overages and create incentives/payouts
     public void processTrip(Trip trip) {
         ClientVendor relationship = trip.getClientVendor();
+        RateCard rateCard = rateCardService.getRateCard(relationship);
         
-        //Calculate distance overage
-        BigDecimal distanceOverage = calculateDistanceOverage(trip, relationship);
-        
-        //Calculate time overage
-        BigDecimal timeOverage = calculateTimeOverage(trip, relationship);
+        //Overage, incentive and payout amounts are priced from the rate card snapshot
+        OverageCharges charges = PricingEngine.priceOverages(rateCard, trip.getDistance(), trip.getDuration());
         
         //Create employee incentive if there are overages
-        if (distanceOverage.compareTo(BigDecimal.ZERO) > 0 || timeOverage.compareTo(BigDecimal.ZERO) > 0) {
-            createEmployeeIncentive(trip, distanceOverage, timeOverage, relationship);
+        if (charges.hasOverage()) {
+            clientEmployeeRepository
+                .findByClientIdAndEmployeeId(rateCard.getClientId(), trip.getEmployee().getId())
+                .ifPresent(clientEmployee -> incentiveRepository.save(buildIncentive(trip, charges, clientEmployee)));
         }
         
         //Create vendor payout
-        createVendorPayout(trip, distanceOverage, timeOverage, relationship);
-    }
-    
-    //Calculate distance overage amount
-    private BigDecimal calculateDistanceOverage(Trip trip, ClientVendor relationship) {
-        BigDecimal standardLimit = relationship.getStandardDistanceLimit();
-        if (standardLimit.compareTo(BigDecimal.ZERO) <= 0) return BigDecimal.ZERO;
-        
-        BigDecimal overage = trip.getDistance().subtract(standardLimit);
-        return overage.max(BigDecimal.ZERO);
-    }
-    
-    //Calculate time overage amount
-    private BigDecimal calculateTimeOverage(Trip trip, ClientVendor relationship) {
-        BigDecimal standardLimit = relationship.getStandardTimeLimit();
-        if (standardLimit.compareTo(BigDecimal.ZERO) <= 0) return BigDecimal.ZERO;
-        
-        BigDecimal overage = trip.getDuration().subtract(standardLimit);
-        return overage.max(BigDecimal.ZERO);
+        payoutRepository.save(buildPayout(trip, charges));
     }
     
-    //Create employee incentive for overages
-    private void createEmployeeIncentive(Trip trip, BigDecimal distanceOverage, BigDecimal timeOverage, ClientVendor relationship) {
-        //Find client-employee relationship
-        ClientEmployee clientEmployee = clientEmployeeRepository
-            .findByClientIdAndEmployeeId(relationship.getClient().getId(), trip.getEmployee().getId())
-            .orElse(null);
-        
-        if (clientEmployee == null) return;
-        
-        //Calculate incentive amounts
-        BigDecimal distanceIncentive = distanceOverage.multiply(relationship.getEmployeeExtraDistanceRate());
-        BigDecimal timeIncentive = timeOverage.multiply(relationship.getEmployeeExtraTimeRate());
-        BigDecimal totalIncentive = distanceIncentive.add(timeIncentive);
-        
-        //Create incentive record
+    //Incentive record for a trip's overages (not saved)
+    public Incentive buildIncentive(Trip trip, OverageCharges charges, ClientEmployee clientEmployee) {
         Incentive incentive = new Incentive();
         incentive.setClientEmployee(clientEmployee);
+        incentive.setClientVendor(trip.getClientVendor());
         incentive.setTrip(trip);
-        incentive.setDistanceIncentive(distanceIncentive);
-        incentive.setTimeIncentive(timeIncentive);
-        incentive.setTotalAmount(totalIncentive);
-        
-        incentiveRepository.save(incentive);
+        incentive.setTripDate(trip.getTripDate());
+        incentive.setDistanceIncentive(charges.getDistanceIncentive());
+        incentive.setTimeIncentive(charges.getTimeIncentive());
+        incentive.setTotalAmount(charges.getTotalIncentive());
+        return incentive;
     }
     
-    //Create vendor payout for trip
-    private void createVendorPayout(Trip trip, BigDecimal distanceOverage, BigDecimal timeOverage, ClientVendor relationship) {
-        //Calculate base payout (could be trip rate or package allocation)
-        BigDecimal baseAmount = relationship.getTripRate();
-        
-        //Calculate overage payouts
-        BigDecimal distanceOveragePayout = distanceOverage.multiply(relationship.getVendorExtraDistanceRate());
-        BigDecimal timeOveragePayout = timeOverage.multiply(relationship.getVendorExtraTimeRate());
-        BigDecimal totalAmount = baseAmount.add(distanceOveragePayout).add(timeOveragePayout);
-        
-        //Create payout record
+    //Vendor payout record for a trip (not saved)
+    public Payout buildPayout(Trip trip, OverageCharges charges) {
         Payout payout = new Payout();
-        payout.setClientVendor(relationship);
+        payout.setClientVendor(trip.getClientVendor());
         payout.setTrip(trip);
-        payout.setBaseAmount(baseAmount);
-        payout.setDistanceOverage(distanceOveragePayout);
-        payout.setTimeOverage(timeOveragePayout);
-        payout.setTotalAmount(totalAmount);
-        
-        payoutRepository.save(payout);
-    }
-    
-    //Process all unprocessed trips for overages
-    public void processUnprocessedTrips() {
-        List<Trip> tripsExceedingLimits = tripRepository.findTripsExceedingDistanceLimit();
-        tripsExceedingLimits.addAll(tripRepository.findTripsExceedingTimeLimit());
-        
-        for (Trip trip : tripsExceedingLimits) {
-            //Check if already processed
-            if (!incentiveRepository.existsByTripId(trip.getId()) && 
-                !payoutRepository.existsByTripId(trip.getId())) {
-                processTrip(trip);
-            }
-        }
+        payout.setTripDate(trip.getTripDate());
+        payout.setBaseAmount(charges.getPayoutBase());
+        payout.setDistanceOverage(charges.getDistancePayout());
+        payout.setTimeOverage(charges.getTimePayout());
+        payout.setTotalAmount(charges.getTotalPayout());
+        return payout;
     }
 }
\ No newline at end of file
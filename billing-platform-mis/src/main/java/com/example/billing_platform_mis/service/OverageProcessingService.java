@@ -0,0 +1,194 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.ClientEmployee;
+import com.example.billing_platform_mis.entity.Incentive;
+import com.example.billing_platform_mis.entity.Payout;
+import com.example.billing_platform_mis.entity.ProcessingWatermark;
+import com.example.billing_platform_mis.entity.Trip;
+import com.example.billing_platform_mis.pricing.OverageCharges;
+import com.example.billing_platform_mis.pricing.PricingEngine;
+import com.example.billing_platform_mis.pricing.RateCard;
+import com.example.billing_platform_mis.repository.ClientEmployeeRepository;
+import com.example.billing_platform_mis.repository.IncentiveRepository;
+import com.example.billing_platform_mis.repository.PayoutRepository;
+import com.example.billing_platform_mis.repository.ProcessingWatermarkRepository;
+import com.example.billing_platform_mis.repository.TripRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//Set-based overage pipeline: walks unprocessed over-limit trips in ID order, one committed chunk at a time
+@Service
+public class OverageProcessingService {
+
+    public static final String PROCESS_NAME = "overage-processing";
+
+    @Value("${billing.overage.chunk-size:500}")
+    private int chunkSize;
+
+    //Trips younger than this are left to the work queue. This does not keep late commits ahead of the watermark:
+    //IDs come from pooled sequence blocks (per instance, and 50 at a time in the ingestion buffer), so a trip can
+    //commit after higher IDs have been processed. Such trips are covered by the pending_overage_work row written
+    //in their own transaction, which OverageWorkQueue processes whatever the watermark.
+    @Value("${billing.overage.settle-seconds:30}")
+    private long settleSeconds;
+
+    @Autowired
+    private TripRepository tripRepository;
+
+    @Autowired
+    private ClientEmployeeRepository clientEmployeeRepository;
+
+    @Autowired
+    private IncentiveRepository incentiveRepository;
+
+    @Autowired
+    private PayoutRepository payoutRepository;
+
+    @Autowired
+    private ProcessingWatermarkRepository processingWatermarkRepository;
+
+    @Autowired
+    private OverageCalculationService overageCalculationService;
+
+    @Autowired
+    private RateCardService rateCardService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    //Process every over-limit trip past the watermark; each chunk and its watermark advance commit together
+    public OverageRunResult processUnprocessedTrips() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Overage processing is already running");
+        }
+        try {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            LocalDateTime createdBefore = LocalDateTime.now().minusSeconds(settleSeconds);
+            OverageRunResult result = new OverageRunResult();
+            ChunkResult chunk;
+            do {
+                chunk = transactionTemplate.execute(status -> processNextChunk(createdBefore));
+                result.add(chunk);
+            } while (chunk.tripCount == chunkSize);
+            return result;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    //Current watermark (0 if the pipeline never ran)
+    public long getWatermark() {
+        return processingWatermarkRepository.findByProcessName(PROCESS_NAME)
+            .map(ProcessingWatermark::getLastProcessedId)
+            .orElse(0L);
+    }
+
+    private ChunkResult processNextChunk(LocalDateTime createdBefore) {
+        ProcessingWatermark watermark = processingWatermarkRepository.findByProcessName(PROCESS_NAME)
+            .orElseGet(() -> {
+                ProcessingWatermark created = new ProcessingWatermark();
+                created.setProcessName(PROCESS_NAME);
+                return created;
+            });
+
+        List<Trip> trips = tripRepository.findUnprocessedOverageTripsAfter(
+            watermark.getLastProcessedId(), createdBefore, PageRequest.of(0, chunkSize));
+        if (trips.isEmpty()) {
+            return new ChunkResult(0, 0, 0, watermark.getLastProcessedId());
+        }
+
+        //One query for every client-employee relationship the chunk needs
+        Set<Long> clientIds = new HashSet<>();
+        Set<Long> employeeIds = new HashSet<>();
+        for (Trip trip : trips) {
+            clientIds.add(trip.getClientVendor().getClient().getId());
+            employeeIds.add(trip.getEmployee().getId());
+        }
+        Map<String, ClientEmployee> clientEmployees = new HashMap<>();
+        for (ClientEmployee clientEmployee : clientEmployeeRepository.findByClientIdInAndEmployeeIdIn(clientIds, employeeIds)) {
+            clientEmployees.put(key(clientEmployee.getClient().getId(), clientEmployee.getEmployee().getId()), clientEmployee);
+        }
+
+        List<Incentive> incentives = new ArrayList<>();
+        List<Payout> payouts = new ArrayList<>(trips.size());
+        for (Trip trip : trips) {
+            RateCard rateCard = rateCardService.getRateCard(trip.getClientVendor());
+            OverageCharges charges = PricingEngine.priceOverages(rateCard, trip.getDistance(), trip.getDuration());
+
+            if (charges.hasOverage()) {
+                ClientEmployee clientEmployee = clientEmployees.get(key(rateCard.getClientId(), trip.getEmployee().getId()));
+                if (clientEmployee != null) {
+                    incentives.add(overageCalculationService.buildIncentive(trip, charges, clientEmployee));
+                }
+            }
+            payouts.add(overageCalculationService.buildPayout(trip, charges));
+        }
+
+        incentiveRepository.saveAll(incentives);
+        payoutRepository.saveAll(payouts);
+
+        long lastTripId = trips.get(trips.size() - 1).getId();
+        watermark.setLastProcessedId(lastTripId);
+        processingWatermarkRepository.save(watermark);
+
+        return new ChunkResult(trips.size(), incentives.size(), payouts.size(), lastTripId);
+    }
+
+    private static String key(Long clientId, Long employeeId) {
+        return clientId + ":" + employeeId;
+    }
+
+    private static class ChunkResult {
+        private final int tripCount;
+        private final int incentiveCount;
+        private final int payoutCount;
+        private final long watermark;
+
+        private ChunkResult(int tripCount, int incentiveCount, int payoutCount, long watermark) {
+            this.tripCount = tripCount;
+            this.incentiveCount = incentiveCount;
+            this.payoutCount = payoutCount;
+            this.watermark = watermark;
+        }
+    }
+
+    public static class OverageRunResult {
+        private int chunks;
+        private int tripsProcessed;
+        private int incentivesCreated;
+        private int payoutsCreated;
+        private long watermark;
+
+        private void add(ChunkResult chunk) {
+            if (chunk.tripCount > 0) {
+                chunks++;
+            }
+            tripsProcessed += chunk.tripCount;
+            incentivesCreated += chunk.incentiveCount;
+            payoutsCreated += chunk.payoutCount;
+            watermark = chunk.watermark;
+        }
+
+        // Getters
+        public int getChunks() { return chunks; }
+        public int getTripsProcessed() { return tripsProcessed; }
+        public int getIncentivesCreated() { return incentivesCreated; }
+        public int getPayoutsCreated() { return payoutsCreated; }
+        public long getWatermark() { return watermark; }
+    }
+}
@@ -0,0 +1,366 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.PendingOverageWork;
+import com.example.billing_platform_mis.entity.Trip;
+import com.example.billing_platform_mis.repository.IncentiveRepository;
+import com.example.billing_platform_mis.repository.PayoutRepository;
+import com.example.billing_platform_mis.repository.PendingOverageWorkRepository;
+import com.example.billing_platform_mis.repository.TripRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Bounded in-process queue that creates payouts and incentives for new trips off the booking request path.
+//Every queued trip also has a pending_overage_work row written with the trip, so work dropped by a full
+//queue or lost in a restart is picked up again by the periodic sweep.
+@Service
+public class OverageWorkQueue {
+
+    private static final int ERROR_MESSAGE_LENGTH = 500;
+
+    private static final String INSERT_PENDING_WORK =
+        "INSERT INTO pending_overage_work (id, trip_id, attempts, enqueued_at) VALUES (?, ?, 0, ?)";
+
+    @Value("${billing.overage.queue.capacity:10000}")
+    private int capacity;
+
+    @Value("${billing.overage.queue.workers:2}")
+    private int workerCount;
+
+    @Value("${billing.overage.queue.batch-size:50}")
+    private int batchSize;
+
+    @Value("${billing.overage.queue.sweep-seconds:30}")
+    private long sweepSeconds;
+
+    @Value("${billing.overage.queue.max-attempts:5}")
+    private int maxAttempts;
+
+    @Autowired
+    private PendingOverageWorkRepository pendingOverageWorkRepository;
+
+    @Autowired
+    private TripRepository tripRepository;
+
+    @Autowired
+    private PayoutRepository payoutRepository;
+
+    @Autowired
+    private IncentiveRepository incentiveRepository;
+
+    @Autowired
+    private OverageCalculationService overageCalculationService;
+
+    @Autowired
+    private SequenceIdAllocator sequenceIdAllocator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private BlockingQueue<QueuedTrip> queue;
+    private TransactionTemplate transactionTemplate;
+    private ExecutorService workers;
+    private ScheduledExecutorService sweeper;
+    private volatile boolean running;
+
+    //Trips queued or being processed, so the sweep never hands the same trip to two workers
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private volatile long lastLagMillis;
+    private volatile String lastError;
+    private volatile long startedNanos;
+
+    //Record pending work for a new trip in the caller's transaction and queue the trip once that commits
+    public void submit(Long tripId) {
+        PendingOverageWork work = new PendingOverageWork();
+        work.setTripId(tripId);
+        pendingOverageWorkRepository.save(work);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            offer(tripId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                offer(tripId);
+            }
+        });
+    }
+
+    //Batch variant of submit for bulk imports: pending rows go in as one JDBC batch
+    public void submitAll(List<Long> tripIds) {
+        if (tripIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = sequenceIdAllocator.nextIds(PendingOverageWork.class, tripIds.size());
+        Timestamp enqueuedAt = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(tripIds.size());
+        for (int i = 0; i < tripIds.size(); i++) {
+            rows.add(new Object[] {ids.get(i), tripIds.get(i), enqueuedAt});
+        }
+        jdbcTemplate.batchUpdate(INSERT_PENDING_WORK, rows);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            tripIds.forEach(this::offer);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                tripIds.forEach(OverageWorkQueue.this::offer);
+            }
+        });
+    }
+
+    //Start the workers once the application is ready; the first sweep recovers work left by a previous run
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        queue = new ArrayBlockingQueue<>(capacity);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        startedNanos = System.nanoTime();
+        running = true;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "overage-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workerCount; i++) {
+            workers.submit(this::drain);
+        }
+
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "overage-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, 0, sweepSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    public QueueMetrics getMetrics() {
+        LocalDateTime oldestPending = pendingOverageWorkRepository.findOldestEnqueuedAt();
+        long elapsedMillis = running ? Math.max(1, Duration.ofNanos(System.nanoTime() - startedNanos).toMillis()) : 1;
+
+        QueueMetrics metrics = new QueueMetrics();
+        metrics.running = running;
+        metrics.depth = queue != null ? queue.size() : 0;
+        metrics.capacity = capacity;
+        metrics.inFlight = inFlight.size();
+        metrics.workers = workerCount;
+        metrics.pendingRows = pendingOverageWorkRepository.count();
+        metrics.oldestPendingAgeSeconds = oldestPending != null
+            ? Math.max(0, Duration.between(oldestPending, LocalDateTime.now()).getSeconds()) : 0;
+        metrics.lastLagMillis = lastLagMillis;
+        metrics.enqueued = enqueued.get();
+        metrics.processed = processed.get();
+        metrics.failed = failed.get();
+        metrics.dropped = dropped.get();
+        metrics.batches = batches.get();
+        metrics.throughputPerSecond = processed.get() * 1000.0 / elapsedMillis;
+        metrics.lastError = lastError;
+        return metrics;
+    }
+
+    private boolean offer(Long tripId) {
+        if (!running || !inFlight.add(tripId)) {
+            return false;
+        }
+        if (!queue.offer(new QueuedTrip(tripId, System.nanoTime()))) {
+            //Queue full: the pending row stays and the sweep will queue the trip later
+            inFlight.remove(tripId);
+            dropped.incrementAndGet();
+            return false;
+        }
+        enqueued.incrementAndGet();
+        return true;
+    }
+
+    //Worker loop: block for one trip, then micro-batch whatever else is already queued
+    private void drain() {
+        while (running && !Thread.currentThread().isInterrupted()) {
+            try {
+                QueuedTrip first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<QueuedTrip> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                processBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void processBatch(List<QueuedTrip> batch) {
+        List<Long> tripIds = new ArrayList<>(batch.size());
+        for (QueuedTrip queuedTrip : batch) {
+            tripIds.add(queuedTrip.tripId);
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> processTrips(tripIds));
+            processed.addAndGet(tripIds.size());
+        } catch (RuntimeException batchFailure) {
+            //Retry one by one so a single bad trip does not hold back the rest of the batch
+            for (Long tripId : tripIds) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> processTrips(List.of(tripId)));
+                    processed.incrementAndGet();
+                } catch (RuntimeException e) {
+                    recordFailure(tripId, e);
+                }
+            }
+        } finally {
+            inFlight.removeAll(tripIds);
+        }
+
+        batches.incrementAndGet();
+        long now = System.nanoTime();
+        long lag = 0;
+        for (QueuedTrip queuedTrip : batch) {
+            lag = Math.max(lag, now - queuedTrip.enqueuedNanos);
+        }
+        lastLagMillis = Duration.ofNanos(lag).toMillis();
+    }
+
+    //Create payouts/incentives for trips not yet processed and clear their pending work
+    private void processTrips(List<Long> tripIds) {
+        Set<Long> alreadyProcessed = new HashSet<>(payoutRepository.findTripIdsWithPayouts(tripIds));
+        alreadyProcessed.addAll(incentiveRepository.findTripIdsWithIncentives(tripIds));
+
+        for (Trip trip : tripRepository.findByIdInWithRelationships(tripIds)) {
+            if (!alreadyProcessed.contains(trip.getId())) {
+                overageCalculationService.processTrip(trip);
+            }
+        }
+        pendingOverageWorkRepository.deleteByTripIdIn(tripIds);
+    }
+
+    private void recordFailure(Long tripId, RuntimeException e) {
+        failed.incrementAndGet();
+        String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        lastError = message;
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                pendingOverageWorkRepository.findByTripId(tripId).ifPresent(work -> {
+                    work.setAttempts(work.getAttempts() + 1);
+                    work.setLastError(message.length() > ERROR_MESSAGE_LENGTH
+                        ? message.substring(0, ERROR_MESSAGE_LENGTH) : message);
+                    pendingOverageWorkRepository.save(work);
+                }));
+        } catch (RuntimeException ignored) {
+            //The attempt is not counted; the sweep retries the trip later
+        }
+    }
+
+    //Queue pending work that is not queued yet (recovery after restarts and overflow)
+    private void sweep() {
+        try {
+            int free = queue.remainingCapacity();
+            if (!running || free == 0) {
+                return;
+            }
+            for (Long tripId : pendingOverageWorkRepository.findRetryableTripIds(maxAttempts, PageRequest.of(0, free))) {
+                offer(tripId);
+            }
+        } catch (RuntimeException e) {
+            //Keep the schedule alive; the next sweep tries again
+            lastError = e.getMessage();
+        }
+    }
+
+    private static class QueuedTrip {
+        private final Long tripId;
+        private final long enqueuedNanos;
+
+        private QueuedTrip(Long tripId, long enqueuedNanos) {
+            this.tripId = tripId;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+
+    public static class QueueMetrics {
+        private boolean running;
+        private int depth;
+        private int capacity;
+        private int inFlight;
+        private int workers;
+        private long pendingRows;
+        private long oldestPendingAgeSeconds;
+        private long lastLagMillis;
+        private long enqueued;
+        private long processed;
+        private long failed;
+        private long dropped;
+        private long batches;
+        private double throughputPerSecond;
+        private String lastError;
+
+        // Getters
+        public boolean isRunning() { return running; }
+        public int getDepth() { return depth; }
+        public int getCapacity() { return capacity; }
+        public int getInFlight() { return inFlight; }
+        public int getWorkers() { return workers; }
+        public long getPendingRows() { return pendingRows; }
+        public long getOldestPendingAgeSeconds() { return oldestPendingAgeSeconds; }
+        public long getLastLagMillis() { return lastLagMillis; }
+        public long getEnqueued() { return enqueued; }
+        public long getProcessed() { return processed; }
+        public long getFailed() { return failed; }
+        public long getDropped() { return dropped; }
+        public long getBatches() { return batches; }
+        public double getThroughputPerSecond() { return throughputPerSecond; }
+        public String getLastError() { return lastError; }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.billing_platform_mis.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+//Continuation token of a keyset page: the sort key and id of the last row of the previous page. Clients pass it
+//back unchanged; the text inside is base64url-encoded and tagged with the kind of key, so a token from a listing
+//sorted by trip date is not accepted by one sorted by creation time.
+public final class PageCursor {
+
+    private static final String VERSION = "1";
+    private static final String TRIP_DATE = "d";
+    private static final String CREATED_AT = "c";
+
+    //Starting points of the first page: after every real row in descending order
+    private static final LocalDate FIRST_DATE = LocalDate.of(9999, 12, 31);
+    private static final LocalDateTime FIRST_CREATED_AT = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    private final String kind;
+    private final String key;
+    private final long id;
+
+    private PageCursor(String kind, String key, long id) {
+        this.kind = kind;
+        this.key = key;
+        this.id = id;
+    }
+
+    public static PageCursor tripDate(LocalDate tripDate, Long id) {
+        return new PageCursor(TRIP_DATE, tripDate.toString(), id);
+    }
+
+    public static PageCursor createdAt(LocalDateTime createdAt, Long id) {
+        return new PageCursor(CREATED_AT, createdAt.toString(), id);
+    }
+
+    //Cursor of a listing sorted by (tripDate, id); a null token starts at the newest row
+    public static PageCursor decodeTripDate(String token) {
+        return token == null ? tripDate(FIRST_DATE, Long.MAX_VALUE) : decode(token, TRIP_DATE);
+    }
+
+    //Cursor of a listing sorted by (createdAt, id); a null token starts at the newest row
+    public static PageCursor decodeCreatedAt(String token) {
+        return token == null ? createdAt(FIRST_CREATED_AT, Long.MAX_VALUE) : decode(token, CREATED_AT);
+    }
+
+    public String encode() {
+        String text = VERSION + "|" + kind + "|" + key + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static PageCursor decode(String token, String expectedKind) {
+        try {
+            String text = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = text.split("\\|");
+            if (parts.length != 4 || !VERSION.equals(parts[0]) || !expectedKind.equals(parts[1])) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            PageCursor cursor = new PageCursor(parts[1], parts[2], Long.parseLong(parts[3]));
+            //Parse once here so a malformed key is reported as a bad cursor, not a server error later
+            if (TRIP_DATE.equals(cursor.kind)) {
+                cursor.getTripDate();
+            } else {
+                cursor.getCreatedAt();
+            }
+            return cursor;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    // Getters
+    public LocalDate getTripDate() { return LocalDate.parse(key); }
+    public LocalDateTime getCreatedAt() { return LocalDateTime.parse(key); }
+    public long getId() { return id; }
+}
@@ -0,0 +1,170 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.ClientVendor;
+import com.example.billing_platform_mis.entity.InvoiceSnapshot;
+import com.example.billing_platform_mis.pricing.PeriodCharges;
+import com.example.billing_platform_mis.pricing.PricingEngine;
+import com.example.billing_platform_mis.pricing.RateCard;
+import com.example.billing_platform_mis.repository.ClientVendorRepository;
+import com.example.billing_platform_mis.repository.InvoiceSnapshotRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Closes billing periods into immutable invoice snapshots and serves closed periods from memory
+@Service
+public class PeriodCloseService {
+
+    @Autowired
+    private ClientVendorRepository clientVendorRepository;
+
+    @Autowired
+    private InvoiceSnapshotRepository invoiceSnapshotRepository;
+
+    @Autowired
+    private TripAccumulatorService tripAccumulatorService;
+
+    @Autowired
+    private RateCardService rateCardService;
+
+    //Closed periods per relationship; snapshots never change, so entries are only reloaded when a period closes
+    private final Map<Long, List<InvoiceSnapshot>> snapshots = new ConcurrentHashMap<>();
+
+    //Freeze the invoices of an ended period (all relationships when clientVendorId is null); already closed ones are skipped
+    @Transactional
+    public List<InvoiceSnapshot> closePeriod(Long clientVendorId, LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("Invalid billing period");
+        }
+        if (!endDate.isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("Only periods that have ended can be closed");
+        }
+
+        List<ClientVendor> relationships;
+        if (clientVendorId != null) {
+            relationships = List.of(clientVendorRepository.findById(clientVendorId)
+                .orElseThrow(() -> new IllegalArgumentException("Client-vendor relationship not found")));
+        } else {
+            relationships = clientVendorRepository.findAllWithDetails();
+        }
+        if (relationships.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Long> tripCounts = tripAccumulatorService.countTripsByClientVendor(startDate, endDate);
+        Map<Long, RateCard> rateCards = rateCardService.getRateCards(relationships);
+
+        //Concurrent closes of the same relationship queue on its row lock, so the overlap check below reads every
+        //period closed before this one committed; the cache may not have seen them yet, so it is not consulted
+        List<Long> ids = relationships.stream().map(ClientVendor::getId).toList();
+        clientVendorRepository.lockAllByIdIn(ids);
+        Map<Long, InvoiceSnapshot> overlaps = new HashMap<>();
+        for (InvoiceSnapshot snapshot : invoiceSnapshotRepository.findOverlapping(ids, startDate, endDate)) {
+            overlaps.putIfAbsent(snapshot.getClientVendorId(), snapshot);
+        }
+
+        List<InvoiceSnapshot> closed = new ArrayList<>();
+        for (ClientVendor relationship : relationships) {
+            Optional<InvoiceSnapshot> overlapping = Optional.ofNullable(overlaps.get(relationship.getId()));
+            if (overlapping.isPresent()) {
+                //Re-closing the same period is a no-op, a different overlapping period would double bill
+                if (clientVendorId != null && !isSamePeriod(overlapping.get(), startDate, endDate)) {
+                    throw new IllegalArgumentException("Period overlaps the closed period "
+                        + overlapping.get().getPeriodStart() + " to " + overlapping.get().getPeriodEnd());
+                }
+                continue;
+            }
+            closed.add(buildSnapshot(relationship, rateCards.get(relationship.getId()),
+                tripCounts.getOrDefault(relationship.getId(), 0L), startDate, endDate));
+        }
+
+        List<InvoiceSnapshot> saved = invoiceSnapshotRepository.saveAll(closed);
+        refreshAfterCommit(saved);
+        return saved;
+    }
+
+    //Snapshot of an exactly matching closed period, if any
+    public Optional<InvoiceSnapshot> findClosedPeriod(Long clientVendorId, LocalDate startDate, LocalDate endDate) {
+        return getClosedPeriods(clientVendorId).stream()
+            .filter(snapshot -> isSamePeriod(snapshot, startDate, endDate))
+            .findFirst();
+    }
+
+    //True if the date falls in one of the relationship's closed periods
+    public boolean isClosed(Long clientVendorId, LocalDate date) {
+        return getClosedPeriods(clientVendorId).stream().anyMatch(snapshot -> snapshot.covers(date));
+    }
+
+    //Snapshots of every relationship closed for an exact period
+    @Transactional(readOnly = true)
+    public List<InvoiceSnapshot> getClosedPeriods(LocalDate startDate, LocalDate endDate) {
+        return invoiceSnapshotRepository.findByPeriodStartAndPeriodEndOrderByClientVendorIdAsc(startDate, endDate);
+    }
+
+    //Closed periods of a relationship, loaded from the database once
+    public List<InvoiceSnapshot> getClosedPeriods(Long clientVendorId) {
+        return snapshots.computeIfAbsent(clientVendorId,
+            id -> List.copyOf(invoiceSnapshotRepository.findByClientVendorIdOrderByPeriodStartAsc(id)));
+    }
+
+    //Number of relationships with cached closed periods
+    public int getCachedCount() {
+        return snapshots.size();
+    }
+
+    private InvoiceSnapshot buildSnapshot(ClientVendor relationship, RateCard rateCard, long tripCount,
+                                          LocalDate startDate, LocalDate endDate) {
+        PeriodCharges charges = PricingEngine.pricePeriod(rateCard, tripCount);
+
+        InvoiceSnapshot snapshot = new InvoiceSnapshot();
+        snapshot.setClientVendorId(relationship.getId());
+        snapshot.setClientId(relationship.getClient().getId());
+        snapshot.setVendorId(relationship.getVendor().getId());
+        snapshot.setClientName(relationship.getClient().getName());
+        snapshot.setVendorName(relationship.getVendor().getName());
+        snapshot.setBillingModel(relationship.getBillingModel());
+        snapshot.setPeriodStart(startDate);
+        snapshot.setPeriodEnd(endDate);
+        snapshot.setTripCount(tripCount);
+        snapshot.setPackageRate(relationship.getPackageRate());
+        snapshot.setTripRate(relationship.getTripRate());
+        snapshot.setPackageAmount(charges.getPackageAmount());
+        snapshot.setTripAmount(charges.getTripAmount());
+        snapshot.setTotalAmount(charges.getTotalAmount());
+        return snapshot;
+    }
+
+    private boolean isSamePeriod(InvoiceSnapshot snapshot, LocalDate startDate, LocalDate endDate) {
+        return snapshot.getPeriodStart().equals(startDate) && snapshot.getPeriodEnd().equals(endDate);
+    }
+
+    //Reload the closed relationships once the new snapshots are visible to other transactions. compute holds the
+    //entry while it reloads, so a reader that started loading before the commit cannot overwrite the fresh list
+    private void refreshAfterCommit(List<InvoiceSnapshot> saved) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            saved.forEach(snapshot -> refresh(snapshot.getClientVendorId()));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                saved.forEach(snapshot -> refresh(snapshot.getClientVendorId()));
+            }
+        });
+    }
+
+    private void refresh(Long clientVendorId) {
+        snapshots.compute(clientVendorId,
+            (id, existing) -> List.copyOf(invoiceSnapshotRepository.findByClientVendorIdOrderByPeriodStartAsc(id)));
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.BillingModel;
+import com.example.billing_platform_mis.entity.ClientVendor;
+import com.example.billing_platform_mis.entity.HybridPricingTier;
+import com.example.billing_platform_mis.pricing.PricingTier;
+import com.example.billing_platform_mis.pricing.RateCard;
+import com.example.billing_platform_mis.repository.ClientVendorRepository;
+import com.example.billing_platform_mis.repository.HybridPricingTierRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+//In-memory cache of compiled rate cards, one per client-vendor relationship
+@Service
+public class RateCardService {
+
+    @Autowired
+    private ClientVendorRepository clientVendorRepository;
+
+    @Autowired
+    private HybridPricingTierRepository hybridPricingTierRepository;
+
+    private final Map<Long, RateCard> rateCards = new ConcurrentHashMap<>();
+
+    //Bumped by every eviction; a card compiled while one happened may have read the replaced rows and is not cached
+    private final AtomicLong evictions = new AtomicLong();
+
+    //Rate card for an already loaded relationship, recompiled if the relationship's rates are newer
+    public RateCard getRateCard(ClientVendor relationship) {
+        if (relationship.getId() == null) {
+            return RateCard.from(relationship);
+        }
+        RateCard cached = rateCards.get(relationship.getId());
+        if (cached != null && cached.isCurrentFor(relationship)) {
+            return cached;
+        }
+        long generation = evictions.get();
+        RateCard compiled = RateCard.from(relationship, loadTiers(relationship));
+        return store(relationship, compiled, generation);
+    }
+
+    //Rate cards for many relationships at once; tiers of uncached hybrid relationships come from one query
+    public Map<Long, RateCard> getRateCards(Collection<ClientVendor> relationships) {
+        Map<Long, RateCard> result = new HashMap<>();
+        List<ClientVendor> missing = new ArrayList<>();
+        for (ClientVendor relationship : relationships) {
+            RateCard cached = rateCards.get(relationship.getId());
+            if (cached != null && cached.isCurrentFor(relationship)) {
+                result.put(relationship.getId(), cached);
+            } else {
+                missing.add(relationship);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        long generation = evictions.get();
+        Map<Long, List<PricingTier>> tiersByRelationship = new HashMap<>();
+        if (missing.stream().anyMatch(relationship -> relationship.getBillingModel() == BillingModel.HYBRID)) {
+            for (HybridPricingTier tier : hybridPricingTierRepository.findAllOrderByClientVendorAndTierOrder()) {
+                tiersByRelationship.computeIfAbsent(tier.getClientVendor().getId(), id -> new ArrayList<>())
+                    .add(PricingTier.of(tier.getTripLimit(), tier.getTripRate()));
+            }
+        }
+        for (ClientVendor relationship : missing) {
+            RateCard compiled = RateCard.from(relationship,
+                tiersByRelationship.getOrDefault(relationship.getId(), List.of()));
+            result.put(relationship.getId(), store(relationship, compiled, generation));
+        }
+        return result;
+    }
+
+    //Rate card by relationship ID, loading the relationship only on a cache miss
+    public RateCard getRateCard(Long clientVendorId) {
+        RateCard cached = rateCards.get(clientVendorId);
+        if (cached != null) {
+            return cached;
+        }
+        ClientVendor relationship = clientVendorRepository.findById(clientVendorId)
+            .orElseThrow(() -> new IllegalArgumentException("Client-vendor relationship not found"));
+        return getRateCard(relationship);
+    }
+
+    //Compiled tiers of a relationship (only hybrid relationships are tiered)
+    private List<PricingTier> loadTiers(ClientVendor relationship) {
+        if (relationship.getBillingModel() != BillingModel.HYBRID) {
+            return List.of();
+        }
+        List<PricingTier> tiers = new ArrayList<>();
+        for (HybridPricingTier tier : hybridPricingTierRepository.findByClientVendorIdOrderByTierOrderAsc(relationship.getId())) {
+            tiers.add(PricingTier.of(tier.getTripLimit(), tier.getTripRate()));
+        }
+        return tiers;
+    }
+
+    //Never replace a card with one compiled from an older copy of the relationship, nor cache one compiled
+    //across an eviction
+    private RateCard store(ClientVendor relationship, RateCard compiled, long generation) {
+        RateCard stored = rateCards.compute(relationship.getId(), (id, existing) -> {
+            if (existing != null && existing.isCurrentFor(relationship)) {
+                return existing;
+            }
+            return evictions.get() == generation ? compiled : null;
+        });
+        return stored != null ? stored : compiled;
+    }
+
+    //Drop the rate card of a single relationship after its rates changed
+    public void evict(Long clientVendorId) {
+        if (clientVendorId != null) {
+            evictions.incrementAndGet();
+            rateCards.remove(clientVendorId);
+        }
+    }
+
+    //Drop a rate card once the surrounding transaction commits, so no reader recompiles it from uncommitted rows
+    public void evictAfterCommit(Long clientVendorId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(clientVendorId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(clientVendorId);
+            }
+        });
+    }
+
+    //Drop the rate cards of every relationship of a vendor
+    public void evictVendor(Long vendorId) {
+        evictions.incrementAndGet();
+        rateCards.values().removeIf(rateCard -> vendorId.equals(rateCard.getVendorId()));
+    }
+
+    public void evictAll() {
+        evictions.incrementAndGet();
+        rateCards.clear();
+    }
+
+    public int getCachedCount() {
+        return rateCards.size();
+    }
+}
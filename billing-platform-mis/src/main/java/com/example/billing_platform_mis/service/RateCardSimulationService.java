@@ -0,0 +1,287 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.BillingModel;
+import com.example.billing_platform_mis.entity.ClientVendor;
+import com.example.billing_platform_mis.pricing.Money;
+import com.example.billing_platform_mis.pricing.PricingTier;
+import com.example.billing_platform_mis.pricing.RateCard;
+import com.example.billing_platform_mis.pricing.RateCardSimulator;
+import com.example.billing_platform_mis.pricing.SimulationTotals;
+import com.example.billing_platform_mis.pricing.TripSnapshot;
+import com.example.billing_platform_mis.repository.ClientVendorRepository;
+import com.example.billing_platform_mis.repository.TripRepository;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+//What-if pricing: re-prices a relationship's historical trips under candidate rate cards, read-only
+@Service
+public class RateCardSimulationService {
+
+    public static final int MAX_CANDIDATES = 20;
+
+    @Autowired
+    private ClientVendorRepository clientVendorRepository;
+
+    @Autowired
+    private TripRepository tripRepository;
+
+    @Autowired
+    private RateCardService rateCardService;
+
+    @Autowired
+    private TripArchiveService tripArchiveService;
+
+    //Compare the current rate card with each candidate over the trips of a date range
+    @Transactional(readOnly = true)
+    public SimulationReport simulate(Long clientVendorId, LocalDate startDate, LocalDate endDate,
+                                     List<Candidate> candidates) {
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("Invalid simulation period");
+        }
+        if (candidates == null || candidates.isEmpty() || candidates.size() > MAX_CANDIDATES) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_CANDIDATES + " candidate rate cards are required");
+        }
+
+        ClientVendor relationship = clientVendorRepository.findById(clientVendorId)
+            .orElseThrow(() -> new IllegalArgumentException("Client-vendor relationship not found"));
+        RateCard current = rateCardService.getRateCard(relationship);
+
+        //Compile every candidate before going parallel, so workers only see immutable cards
+        List<RateCard> candidateCards = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            candidateCards.add(candidate.toRateCard(relationship, current));
+        }
+
+        long snapshotStart = System.nanoTime();
+        TripSnapshot snapshot = loadSnapshot(clientVendorId, startDate, endDate);
+        long snapshotNanos = System.nanoTime() - snapshotStart;
+
+        long simulationStart = System.nanoTime();
+        SimulationTotals baseline = RateCardSimulator.simulate("current", current, snapshot, startDate, endDate);
+        List<SimulationTotals> results = IntStream.range(0, candidates.size())
+            .parallel()
+            .mapToObj(i -> RateCardSimulator.simulate(candidates.get(i).getName(), candidateCards.get(i),
+                                                      snapshot, startDate, endDate))
+            .toList();
+        long simulationNanos = System.nanoTime() - simulationStart;
+
+        return new SimulationReport(clientVendorId, startDate, endDate, snapshot.size(),
+            Duration.ofNanos(snapshotNanos).toMillis(), Duration.ofNanos(simulationNanos).toMillis(),
+            baseline, results);
+    }
+
+    //Columnar copy of the trips, live and archived, in date order; the trip entities themselves are never loaded
+    private TripSnapshot loadSnapshot(Long clientVendorId, LocalDate startDate, LocalDate endDate) {
+        List<Object[]> rows = tripRepository.findTripMeasuresByClientVendorAndDateRange(clientVendorId, startDate, endDate);
+        Iterator<TripArchiveSegment.Row> archived = tripArchiveService.iterateArchivedRows(
+            TripArchiveSegment.Column.CLIENT_VENDOR_ID, clientVendorId, startDate, endDate, false);
+        int capacity = Math.max(rows.size(), 16);
+        long[] distances = new long[capacity];
+        long[] durations = new long[capacity];
+        long[] epochDays = new long[capacity];
+        int size = 0;
+        int nextLive = 0;
+        TripArchiveSegment.Row nextArchived = archived.hasNext() ? archived.next() : null;
+        while (nextLive < rows.size() || nextArchived != null) {
+            if (size == capacity) {
+                capacity *= 2;
+                distances = Arrays.copyOf(distances, capacity);
+                durations = Arrays.copyOf(durations, capacity);
+                epochDays = Arrays.copyOf(epochDays, capacity);
+            }
+            if (nextArchived == null || (nextLive < rows.size()
+                    && !((LocalDate) rows.get(nextLive)[2]).isAfter(nextArchived.getTripDate()))) {
+                Object[] row = rows.get(nextLive++);
+                distances[size] = Money.toHundredths((BigDecimal) row[0]);
+                durations[size] = Money.toHundredths((BigDecimal) row[1]);
+                epochDays[size] = ((LocalDate) row[2]).toEpochDay();
+            } else {
+                distances[size] = Money.toHundredths(nextArchived.getDistance());
+                durations[size] = Money.toHundredths(nextArchived.getDuration());
+                epochDays[size] = nextArchived.getTripDate().toEpochDay();
+                nextArchived = archived.hasNext() ? archived.next() : null;
+            }
+            size++;
+        }
+        if (size < capacity) {
+            distances = Arrays.copyOf(distances, size);
+            durations = Arrays.copyOf(durations, size);
+            epochDays = Arrays.copyOf(epochDays, size);
+        }
+        return new TripSnapshot(distances, durations, epochDays);
+    }
+
+    //Candidate rates; any field left out keeps the relationship's current value
+    public static class Candidate {
+        @NotBlank(message = "Candidate name is required")
+        private String name;
+
+        private String billingModel;
+
+        @DecimalMin(value = "0.0", message = "Package rate must be non-negative")
+        private BigDecimal packageRate;
+
+        @DecimalMin(value = "0.0", message = "Trip rate must be non-negative")
+        private BigDecimal tripRate;
+
+        @DecimalMin(value = "0.0", message = "Standard distance limit must be non-negative")
+        private BigDecimal standardDistanceLimit;
+
+        @DecimalMin(value = "0.0", message = "Standard time limit must be non-negative")
+        private BigDecimal standardTimeLimit;
+
+        @DecimalMin(value = "0.0", message = "Employee extra distance rate must be non-negative")
+        private BigDecimal employeeExtraDistanceRate;
+
+        @DecimalMin(value = "0.0", message = "Employee extra time rate must be non-negative")
+        private BigDecimal employeeExtraTimeRate;
+
+        @DecimalMin(value = "0.0", message = "Vendor extra distance rate must be non-negative")
+        private BigDecimal vendorExtraDistanceRate;
+
+        @DecimalMin(value = "0.0", message = "Vendor extra time rate must be non-negative")
+        private BigDecimal vendorExtraTimeRate;
+
+        //Hybrid tiers (omit to keep the current tiers, empty for a flat trip rate)
+        @Valid
+        private List<Tier> tiers;
+
+        //Compile the candidate over a detached copy of the relationship
+        private RateCard toRateCard(ClientVendor relationship, RateCard current) {
+            ClientVendor copy = new ClientVendor();
+            copy.setId(relationship.getId());
+            copy.setBillingModel(billingModel != null
+                ? BillingModel.valueOf(billingModel.toUpperCase()) : relationship.getBillingModel());
+            copy.setPackageRate(packageRate != null ? packageRate : relationship.getPackageRate());
+            copy.setTripRate(tripRate != null ? tripRate : relationship.getTripRate());
+            copy.setStandardDistanceLimit(standardDistanceLimit != null
+                ? standardDistanceLimit : relationship.getStandardDistanceLimit());
+            copy.setStandardTimeLimit(standardTimeLimit != null ? standardTimeLimit : relationship.getStandardTimeLimit());
+            copy.setEmployeeExtraDistanceRate(employeeExtraDistanceRate != null
+                ? employeeExtraDistanceRate : relationship.getEmployeeExtraDistanceRate());
+            copy.setEmployeeExtraTimeRate(employeeExtraTimeRate != null
+                ? employeeExtraTimeRate : relationship.getEmployeeExtraTimeRate());
+            copy.setVendorExtraDistanceRate(vendorExtraDistanceRate != null
+                ? vendorExtraDistanceRate : relationship.getVendorExtraDistanceRate());
+            copy.setVendorExtraTimeRate(vendorExtraTimeRate != null
+                ? vendorExtraTimeRate : relationship.getVendorExtraTimeRate());
+
+            List<PricingTier> candidateTiers = current.getTiers();
+            if (tiers != null) {
+                candidateTiers = new ArrayList<>();
+                for (Tier tier : tiers) {
+                    candidateTiers.add(PricingTier.of(tier.getTripLimit(), tier.getTripRate()));
+                }
+            }
+            return RateCard.from(copy, copy.getBillingModel() == BillingModel.HYBRID ? candidateTiers : List.of());
+        }
+
+        // Getters and setters
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        public String getBillingModel() { return billingModel; }
+        public void setBillingModel(String billingModel) { this.billingModel = billingModel; }
+        public BigDecimal getPackageRate() { return packageRate; }
+        public void setPackageRate(BigDecimal packageRate) { this.packageRate = packageRate; }
+        public BigDecimal getTripRate() { return tripRate; }
+        public void setTripRate(BigDecimal tripRate) { this.tripRate = tripRate; }
+        public BigDecimal getStandardDistanceLimit() { return standardDistanceLimit; }
+        public void setStandardDistanceLimit(BigDecimal standardDistanceLimit) { this.standardDistanceLimit = standardDistanceLimit; }
+        public BigDecimal getStandardTimeLimit() { return standardTimeLimit; }
+        public void setStandardTimeLimit(BigDecimal standardTimeLimit) { this.standardTimeLimit = standardTimeLimit; }
+        public BigDecimal getEmployeeExtraDistanceRate() { return employeeExtraDistanceRate; }
+        public void setEmployeeExtraDistanceRate(BigDecimal employeeExtraDistanceRate) { this.employeeExtraDistanceRate = employeeExtraDistanceRate; }
+        public BigDecimal getEmployeeExtraTimeRate() { return employeeExtraTimeRate; }
+        public void setEmployeeExtraTimeRate(BigDecimal employeeExtraTimeRate) { this.employeeExtraTimeRate = employeeExtraTimeRate; }
+        public BigDecimal getVendorExtraDistanceRate() { return vendorExtraDistanceRate; }
+        public void setVendorExtraDistanceRate(BigDecimal vendorExtraDistanceRate) { this.vendorExtraDistanceRate = vendorExtraDistanceRate; }
+        public BigDecimal getVendorExtraTimeRate() { return vendorExtraTimeRate; }
+        public void setVendorExtraTimeRate(BigDecimal vendorExtraTimeRate) { this.vendorExtraTimeRate = vendorExtraTimeRate; }
+        public List<Tier> getTiers() { return tiers; }
+        public void setTiers(List<Tier> tiers) { this.tiers = tiers; }
+    }
+
+    public static class Tier {
+        @Positive(message = "Tier trip limit must be positive")
+        private Integer tripLimit;
+
+        @NotNull(message = "Tier trip rate is required")
+        @DecimalMin(value = "0.0", message = "Tier trip rate must be non-negative")
+        private BigDecimal tripRate;
+
+        public Integer getTripLimit() { return tripLimit; }
+        public void setTripLimit(Integer tripLimit) { this.tripLimit = tripLimit; }
+        public BigDecimal getTripRate() { return tripRate; }
+        public void setTripRate(BigDecimal tripRate) { this.tripRate = tripRate; }
+    }
+
+    public static class SimulationReport {
+        private final Long clientVendorId;
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final int tripCount;
+        private final long snapshotMillis;
+        private final long simulationMillis;
+        private final SimulationTotals current;
+        private final List<CandidateResult> candidates = new ArrayList<>();
+
+        public SimulationReport(Long clientVendorId, LocalDate startDate, LocalDate endDate, int tripCount,
+                                long snapshotMillis, long simulationMillis, SimulationTotals current,
+                                List<SimulationTotals> candidateTotals) {
+            this.clientVendorId = clientVendorId;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.tripCount = tripCount;
+            this.snapshotMillis = snapshotMillis;
+            this.simulationMillis = simulationMillis;
+            this.current = current;
+            for (SimulationTotals totals : candidateTotals) {
+                candidates.add(new CandidateResult(totals, current));
+            }
+        }
+
+        // Getters
+        public Long getClientVendorId() { return clientVendorId; }
+        public LocalDate getStartDate() { return startDate; }
+        public LocalDate getEndDate() { return endDate; }
+        public int getTripCount() { return tripCount; }
+        public long getSnapshotMillis() { return snapshotMillis; }
+        public long getSimulationMillis() { return simulationMillis; }
+        public SimulationTotals getCurrent() { return current; }
+        public List<CandidateResult> getCandidates() { return candidates; }
+    }
+
+    public static class CandidateResult {
+        private final SimulationTotals totals;
+        private final SimulationTotals current;
+
+        public CandidateResult(SimulationTotals totals, SimulationTotals current) {
+            this.totals = totals;
+            this.current = current;
+        }
+
+        // Getters
+        public SimulationTotals getTotals() { return totals; }
+        public BigDecimal getTotalBilledChange() { return totals.getTotalBilled().subtract(current.getTotalBilled()); }
+        public BigDecimal getBookingCostChange() { return totals.getBookingCost().subtract(current.getBookingCost()); }
+        public BigDecimal getVendorPayoutsChange() { return totals.getVendorPayouts().subtract(current.getVendorPayouts()); }
+        public BigDecimal getEmployeeIncentivesChange() {
+            return totals.getEmployeeIncentives().subtract(current.getEmployeeIncentives());
+        }
+    }
+}
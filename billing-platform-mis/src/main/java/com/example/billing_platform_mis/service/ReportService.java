@@ -14,7 +14,7 @@ import java.util.List;
 public class ReportService {
     
     @Autowired
-    private TripRepository tripRepository;
+    private TripHistoryService tripHistoryService;
     
     @Autowired
     private IncentiveRepository incentiveRepository;
@@ -31,6 +31,9 @@ public class ReportService {
     @Autowired
     private BillingEngineService billingEngineService;
     
+    @Autowired
+    private VendorBillingAggregator vendorBillingAggregator;
+    
     //Generate employee report - trips and incentives (tenant isolated)
     public EmployeeReport generateEmployeeReport(Long employeeId, Long requestingUserId, 
                                                LocalDate startDate, LocalDate endDate) {
@@ -44,7 +47,7 @@ public class ReportService {
         }
         
         //Get employee trips (tenant isolated by repository)
-        List<Trip> trips = tripRepository.findByEmployeeIdAndDateRange(employeeId, startDate, endDate);
+        List<Trip> trips = tripHistoryService.findByEmployeeIdAndDateRange(employeeId, startDate, endDate);
         
         //Get employee incentives (tenant isolated by repository)
         List<Incentive> incentives = incentiveRepository.findByEmployeeIdWithTripDetailsAndDateRange(
@@ -73,7 +76,7 @@ public class ReportService {
         }
         
         //Get vendor trips 
-        List<Trip> trips = tripRepository.findByVendorIdWithClientDetailsAndDateRange(
+        List<Trip> trips = tripHistoryService.findByVendorIdWithClientDetailsAndDateRange(
             vendorId, startDate, endDate);
         
         //Get vendor payouts
@@ -103,7 +106,7 @@ public class ReportService {
         }
         
         //Get client trips (tenant isolated by repository)
-        List<Trip> trips = tripRepository.findByClientIdWithEmployeeDetailsAndDateRange(
+        List<Trip> trips = tripHistoryService.findByClientIdWithEmployeeDetailsAndDateRange(
             clientId, startDate, endDate);
         
         //Get client incentives (tenant isolated by repository)
@@ -138,8 +141,11 @@ public class ReportService {
             throw new SecurityException("Only admins can view cross-tenant reports");
         }
         
+        //Period revenue, payouts and incentives per vendor, aggregated in parallel
+        VendorBillingAggregator.PlatformTotals billing = vendorBillingAggregator.aggregate(startDate, endDate);
+        
         //Get system-wide data (no tenant filtering for admin)
-        long totalTrips = tripRepository.countTripsByDateRange(startDate, endDate);
+        long totalTrips = billing.getTripCount();
         BigDecimal totalIncentives = incentiveRepository.calculateTotalIncentiveAmount();
         BigDecimal totalPayouts = payoutRepository.calculateTotalPayoutAmount();
         
@@ -151,7 +157,7 @@ public class ReportService {
         createReportAudit(requestingUserId, "ADMIN_REPORT", null);
         
         return new AdminReport(totalTrips, totalIncentives, totalPayouts, 
-                             topEmployees, topVendors, startDate, endDate);
+                             topEmployees, topVendors, billing, startDate, endDate);
     }
     
     //Get user's report history (tenant isolated)
@@ -273,17 +279,20 @@ public class ReportService {
         private final BigDecimal totalPayouts;
         private final List<Object[]> topEmployees;
         private final List<Object[]> topVendors;
+        private final VendorBillingAggregator.PlatformTotals billing;
         private final LocalDate startDate;
         private final LocalDate endDate;
         
         public AdminReport(long totalTrips, BigDecimal totalIncentives, BigDecimal totalPayouts,
                          List<Object[]> topEmployees, List<Object[]> topVendors,
+                         VendorBillingAggregator.PlatformTotals billing,
                          LocalDate startDate, LocalDate endDate) {
             this.totalTrips = totalTrips;
             this.totalIncentives = totalIncentives;
             this.totalPayouts = totalPayouts;
             this.topEmployees = topEmployees;
             this.topVendors = topVendors;
+            this.billing = billing;
             this.startDate = startDate;
             this.endDate = endDate;
         }
@@ -294,6 +303,7 @@ public class ReportService {
         public BigDecimal getTotalPayouts() { return totalPayouts; }
         public List<Object[]> getTopEmployees() { return topEmployees; }
         public List<Object[]> getTopVendors() { return topVendors; }
+        public VendorBillingAggregator.PlatformTotals getBilling() { return billing; }
         public LocalDate getStartDate() { return startDate; }
         public LocalDate getEndDate() { return endDate; }
     }
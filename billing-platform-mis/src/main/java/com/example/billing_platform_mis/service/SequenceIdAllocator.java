@@ -0,0 +1,34 @@
+package com.example.billing_platform_mis.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//IDs for rows written with plain JDBC batches. They come from the entity's own pooled sequence generator,
+//so JDBC inserts and Hibernate inserts share one allocator and never collide; a database round trip is
+//only needed once per allocation block.
+@Service
+public class SequenceIdAllocator {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    //Next IDs for an entity; must run inside a transaction
+    public List<Long> nextIds(Class<?> entityClass, int count) {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        BeforeExecutionGenerator generator = (BeforeExecutionGenerator) session.getFactory().getMappingMetamodel()
+            .getEntityDescriptor(entityClass).getGenerator();
+
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(((Number) generator.generate(session, null, null, EventType.INSERT)).longValue());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.billing_platform_mis.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+//Per-tenant admission control for the client, vendor and employee APIs, so one tenant flooding requests
+//cannot take every request thread and database connection. Each tenant has a token bucket (refill rate
+//and burst per tenant type) and a cap on its requests in flight. A bucket is a single timestamp advanced
+//with compare-and-set (the time at which the bucket would be full again), so admission takes no locks.
+@Service
+public class TenantRateLimiter {
+
+    public static final String CLIENT = "client";
+    public static final String VENDOR = "vendor";
+    public static final String EMPLOYEE = "employee";
+
+    //Request attributes set once a request is admitted
+    private static final String TENANT_ATTRIBUTE = TenantRateLimiter.class.getName() + ".tenant";
+    private static final String STARTED_ATTRIBUTE = TenantRateLimiter.class.getName() + ".started";
+
+    @Value("${billing.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${billing.rate-limit.client.requests-per-second:50}")
+    private double clientRate;
+
+    @Value("${billing.rate-limit.client.burst:100}")
+    private int clientBurst;
+
+    @Value("${billing.rate-limit.vendor.requests-per-second:20}")
+    private double vendorRate;
+
+    @Value("${billing.rate-limit.vendor.burst:40}")
+    private int vendorBurst;
+
+    @Value("${billing.rate-limit.employee.requests-per-second:10}")
+    private double employeeRate;
+
+    @Value("${billing.rate-limit.employee.burst:20}")
+    private int employeeBurst;
+
+    //Requests of one tenant running at once; keep below the connection pool size
+    @Value("${billing.rate-limit.max-concurrent-per-tenant:8}")
+    private int maxConcurrent;
+
+    //Tenants tracked before idle ones (full bucket, nothing in flight) are dropped
+    @Value("${billing.rate-limit.max-tenants:100000}")
+    private int maxTenants;
+
+    private final Map<String, Tenant> tenants = new ConcurrentHashMap<>();
+
+    //Tenant key of a request, e.g. client:42
+    public static String tenant(String type, Long id) {
+        return type + ":" + id;
+    }
+
+    //Take a token and an in-flight slot for the tenant. A request is admitted at most once, so endpoints that
+    //only learn their tenant from the body can call this after the interceptor without charging twice.
+    public Decision admit(HttpServletRequest request, String tenantKey) {
+        if (!enabled || request.getAttribute(TENANT_ATTRIBUTE) != null) {
+            return Decision.ALLOWED;
+        }
+        Tenant tenant = tenant(tenantKey);
+        long now = System.nanoTime();
+        long waitNanos = tenant.takeToken(now);
+        if (waitNanos > 0) {
+            tenant.rejectedByRate.increment();
+            return new Decision(false, TimeUnit.NANOSECONDS.toMillis(waitNanos) + 1, tenant.limit,
+                "Too many requests for " + tenantKey);
+        }
+        if (tenant.inFlight.incrementAndGet() > maxConcurrent) {
+            tenant.inFlight.decrementAndGet();
+            tenant.rejectedByConcurrency.increment();
+            return new Decision(false, TimeUnit.NANOSECONDS.toMillis(tenant.intervalNanos) + 1, tenant.limit,
+                "Too many concurrent requests for " + tenantKey);
+        }
+        tenant.admitted.increment();
+        request.setAttribute(TENANT_ATTRIBUTE, tenant);
+        request.setAttribute(STARTED_ATTRIBUTE, now);
+        return new Decision(true, 0, tenant.limit, null);
+    }
+
+    //Release the in-flight slot of an admitted request and record its latency
+    public void complete(HttpServletRequest request) {
+        Object tenant = request.getAttribute(TENANT_ATTRIBUTE);
+        if (!(tenant instanceof Tenant admitted)) {
+            return;
+        }
+        request.removeAttribute(TENANT_ATTRIBUTE);
+        admitted.inFlight.decrementAndGet();
+        long latencyNanos = System.nanoTime() - (Long) request.getAttribute(STARTED_ATTRIBUTE);
+        admitted.completed.increment();
+        admitted.latencyNanos.add(latencyNanos);
+        admitted.maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+    }
+
+    //429 with a Retry-After hint for a request that was not admitted
+    public ResponseEntity<?> rejection(Decision decision) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header("Retry-After", String.valueOf(decision.getRetryAfterSeconds()))
+            .header("X-RateLimit-Limit", String.valueOf(decision.limit))
+            .body(Map.of("error", decision.message, "retryAfterMillis", decision.retryAfterMillis));
+    }
+
+    //Tenants ordered by rejections, then by requests admitted
+    public List<TenantMetrics> getMetrics(int limit) {
+        List<TenantMetrics> metrics = new ArrayList<>();
+        tenants.forEach((key, tenant) -> metrics.add(TenantMetrics.of(key, tenant)));
+        metrics.sort(Comparator.comparingLong((TenantMetrics m) -> m.rejectedByRate + m.rejectedByConcurrency)
+            .thenComparingLong(m -> m.admitted).reversed());
+        return metrics.size() > limit ? new ArrayList<>(metrics.subList(0, limit)) : metrics;
+    }
+
+    private Tenant tenant(String tenantKey) {
+        Tenant tenant = tenants.get(tenantKey);
+        if (tenant != null) {
+            return tenant;
+        }
+        if (tenants.size() >= maxTenants) {
+            long now = System.nanoTime();
+            tenants.values().removeIf(idle -> idle.inFlight.get() == 0 && idle.fullAt.get() - now <= 0);
+        }
+        return tenants.computeIfAbsent(tenantKey, key -> {
+            String type = key.substring(0, key.indexOf(':'));
+            if (VENDOR.equals(type)) {
+                return new Tenant(vendorRate, vendorBurst);
+            }
+            return EMPLOYEE.equals(type) ? new Tenant(employeeRate, employeeBurst) : new Tenant(clientRate, clientBurst);
+        });
+    }
+
+    //Token bucket held as the time the bucket is full again: each request moves it one refill interval later,
+    //and a request that would move it beyond a full burst from now is refused
+    private static class Tenant {
+        private final double ratePerSecond;
+        private final int limit;
+        private final long intervalNanos;
+        private final long burstNanos;
+        private final AtomicLong fullAt;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final LongAdder admitted = new LongAdder();
+        private final LongAdder rejectedByRate = new LongAdder();
+        private final LongAdder rejectedByConcurrency = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder latencyNanos = new LongAdder();
+        private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+        private Tenant(double ratePerSecond, int burst) {
+            this.ratePerSecond = ratePerSecond;
+            this.limit = burst;
+            this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+            this.burstNanos = intervalNanos * burst;
+            this.fullAt = new AtomicLong(System.nanoTime());
+        }
+
+        //0 when a token was taken, otherwise how long until one is available
+        private long takeToken(long now) {
+            while (true) {
+                long current = fullAt.get();
+                long next = Math.max(current, now) + intervalNanos;
+                long backlog = next - now;
+                if (backlog > burstNanos) {
+                    return backlog - burstNanos;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        //Tokens left in the bucket
+        private long available(long now) {
+            long backlog = Math.max(0, fullAt.get() - now);
+            return (burstNanos - backlog) / intervalNanos;
+        }
+    }
+
+    public static class Decision {
+        private static final Decision ALLOWED = new Decision(true, 0, 0, null);
+
+        private final boolean allowed;
+        private final long retryAfterMillis;
+        private final int limit;
+        private final String message;
+
+        private Decision(boolean allowed, long retryAfterMillis, int limit, String message) {
+            this.allowed = allowed;
+            this.retryAfterMillis = retryAfterMillis;
+            this.limit = limit;
+            this.message = message;
+        }
+
+        // Getters
+        public boolean isAllowed() { return allowed; }
+        public long getRetryAfterMillis() { return retryAfterMillis; }
+        public long getRetryAfterSeconds() { return Math.max(1, (retryAfterMillis + 999) / 1000); }
+        public int getLimit() { return limit; }
+        public String getMessage() { return message; }
+    }
+
+    public static class TenantMetrics {
+        private String tenant;
+        private double requestsPerSecond;
+        private int burst;
+        private long availableTokens;
+        private int inFlight;
+        private long admitted;
+        private long rejectedByRate;
+        private long rejectedByConcurrency;
+        private long completed;
+        private double averageLatencyMillis;
+        private double maxLatencyMillis;
+
+        private static TenantMetrics of(String key, Tenant tenant) {
+            TenantMetrics metrics = new TenantMetrics();
+            metrics.tenant = key;
+            metrics.requestsPerSecond = tenant.ratePerSecond;
+            metrics.burst = tenant.limit;
+            metrics.availableTokens = tenant.available(System.nanoTime());
+            metrics.inFlight = tenant.inFlight.get();
+            metrics.admitted = tenant.admitted.sum();
+            metrics.rejectedByRate = tenant.rejectedByRate.sum();
+            metrics.rejectedByConcurrency = tenant.rejectedByConcurrency.sum();
+            metrics.completed = tenant.completed.sum();
+            metrics.averageLatencyMillis = metrics.completed > 0 ? tenant.latencyNanos.sum() / 1e6 / metrics.completed : 0;
+            metrics.maxLatencyMillis = tenant.maxLatencyNanos.get() / 1e6;
+            return metrics;
+        }
+
+        // Getters
+        public String getTenant() { return tenant; }
+        public double getRequestsPerSecond() { return requestsPerSecond; }
+        public int getBurst() { return burst; }
+        public long getAvailableTokens() { return availableTokens; }
+        public int getInFlight() { return inFlight; }
+        public long getAdmitted() { return admitted; }
+        public long getRejectedByRate() { return rejectedByRate; }
+        public long getRejectedByConcurrency() { return rejectedByConcurrency; }
+        public long getCompleted() { return completed; }
+        public double getAverageLatencyMillis() { return averageLatencyMillis; }
+        public double getMaxLatencyMillis() { return maxLatencyMillis; }
+    }
+}
@@ -0,0 +1,298 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.ClientVendor;
+import com.example.billing_platform_mis.entity.Trip;
+import com.example.billing_platform_mis.entity.TripDailyTotal;
+import com.example.billing_platform_mis.repository.ClientVendorRepository;
+import com.example.billing_platform_mis.repository.TripDailyTotalRepository;
+import com.example.billing_platform_mis.repository.TripRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+//Maintains per-day trip accumulators so billing reads a few day rows instead of scanning trips
+@Service
+@Transactional
+public class TripAccumulatorService implements CommandLineRunner {
+
+    //Add a delta to a day row, creating the row for the first trip of the day, in one statement, so two
+    //transactions recording the first trip of the same day cannot both try to insert it. Parameters are
+    //(id, client_vendor_id, trip_date, trip_count, total_distance, total_duration, distance_overage,
+    //time_overage, updated_at); the id is only used when the row is created.
+    private static final String UPSERT_DAY_POSTGRESQL =
+        "INSERT INTO trip_daily_totals (id, client_vendor_id, trip_date, trip_count, total_distance, total_duration, " +
+        "distance_overage, time_overage, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+        "ON CONFLICT (client_vendor_id, trip_date) DO UPDATE SET " +
+        "trip_count = trip_daily_totals.trip_count + EXCLUDED.trip_count, " +
+        "total_distance = trip_daily_totals.total_distance + EXCLUDED.total_distance, " +
+        "total_duration = trip_daily_totals.total_duration + EXCLUDED.total_duration, " +
+        "distance_overage = trip_daily_totals.distance_overage + EXCLUDED.distance_overage, " +
+        "time_overage = trip_daily_totals.time_overage + EXCLUDED.time_overage, " +
+        "updated_at = EXCLUDED.updated_at";
+
+    //H2 has no ON CONFLICT; MERGE takes the same parameters. A concurrent first insert of the same day still
+    //surfaces as a duplicate key once the other transaction commits, and the MERGE is then repeated.
+    private static final String UPSERT_DAY_H2 =
+        "MERGE INTO trip_daily_totals d " +
+        "USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS DATE), CAST(? AS BIGINT), " +
+        "CAST(? AS NUMERIC(12, 2)), CAST(? AS NUMERIC(10, 2)), CAST(? AS NUMERIC(12, 2)), CAST(? AS NUMERIC(10, 2)), " +
+        "CAST(? AS TIMESTAMP))) " +
+        "s (id, client_vendor_id, trip_date, trip_count, total_distance, total_duration, distance_overage, time_overage, updated_at) " +
+        "ON d.client_vendor_id = s.client_vendor_id AND d.trip_date = s.trip_date " +
+        "WHEN MATCHED THEN UPDATE SET trip_count = d.trip_count + s.trip_count, " +
+        "total_distance = d.total_distance + s.total_distance, total_duration = d.total_duration + s.total_duration, " +
+        "distance_overage = d.distance_overage + s.distance_overage, time_overage = d.time_overage + s.time_overage, " +
+        "updated_at = s.updated_at " +
+        "WHEN NOT MATCHED THEN INSERT (id, client_vendor_id, trip_date, trip_count, total_distance, total_duration, " +
+        "distance_overage, time_overage, updated_at) VALUES (s.id, s.client_vendor_id, s.trip_date, s.trip_count, " +
+        "s.total_distance, s.total_duration, s.distance_overage, s.time_overage, s.updated_at)";
+
+    //Repeats of an H2 MERGE that lost the race for a day's first insert
+    private static final int UPSERT_ATTEMPTS = 3;
+
+    @Autowired
+    private TripDailyTotalRepository tripDailyTotalRepository;
+
+    @Autowired
+    private TripRepository tripRepository;
+
+    @Autowired
+    private ClientVendorRepository clientVendorRepository;
+
+    @Autowired
+    private SequenceIdAllocator sequenceIdAllocator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TripArchiveService tripArchiveService;
+
+    private volatile Boolean postgres;
+
+    //Add a newly recorded trip to its day row (joins the caller's transaction)
+    public void recordTrip(Trip trip) {
+        applyTrip(trip, 1);
+    }
+
+    //Remove a trip's previous contribution before it is updated
+    public void removeTrip(Trip trip) {
+        applyTrip(trip, -1);
+    }
+
+    //Add a batch of newly recorded trips with one delta per relationship and day, written as JDBC batches
+    //(bulk imports; the caller's transaction must not hold unflushed day rows)
+    public void recordTrips(List<Trip> trips) {
+        Map<Long, Map<LocalDate, Object[]>> byDay = new HashMap<>();
+        for (Trip trip : trips) {
+            ClientVendor relationship = trip.getClientVendor();
+            Object[] delta = byDay.computeIfAbsent(relationship.getId(), id -> new TreeMap<>())
+                .computeIfAbsent(trip.getTripDate(), day -> new Object[] {
+                    0L, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, relationship.getId(), day});
+            delta[0] = (Long) delta[0] + 1;
+            delta[1] = ((BigDecimal) delta[1]).add(trip.getDistance());
+            delta[2] = ((BigDecimal) delta[2]).add(trip.getDuration());
+            delta[3] = ((BigDecimal) delta[3]).add(overage(trip.getDistance(), relationship.getStandardDistanceLimit()));
+            delta[4] = ((BigDecimal) delta[4]).add(overage(trip.getDuration(), relationship.getStandardTimeLimit()));
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> upserts = new ArrayList<>();
+        for (Map<LocalDate, Object[]> days : byDay.values()) {
+            for (Object[] delta : days.values()) {
+                upserts.add(new Object[] {null, delta[5], Date.valueOf((LocalDate) delta[6]),
+                    delta[0], delta[1], delta[2], delta[3], delta[4], now});
+            }
+        }
+        //An ID per day row in case it is the day's first trip; unused IDs are simply skipped
+        List<Long> ids = sequenceIdAllocator.nextIds(TripDailyTotal.class, upserts.size());
+        for (int i = 0; i < upserts.size(); i++) {
+            upserts.get(i)[0] = ids.get(i);
+        }
+        if (isPostgres()) {
+            jdbcTemplate.batchUpdate(UPSERT_DAY_POSTGRESQL, upserts);
+        } else {
+            for (Object[] upsert : upserts) {
+                mergeDayH2(upsert);
+            }
+        }
+    }
+
+    //Trip count for a relationship within date range
+    @Transactional(readOnly = true)
+    public long countTrips(Long clientVendorId, LocalDate startDate, LocalDate endDate) {
+        return tripDailyTotalRepository.sumTripCountByClientVendorAndDateRange(clientVendorId, startDate, endDate);
+    }
+
+    //Trip counts per relationship within date range
+    @Transactional(readOnly = true)
+    public Map<Long, Long> countTripsByClientVendor(LocalDate startDate, LocalDate endDate) {
+        Map<Long, Long> tripCounts = new HashMap<>();
+        for (Object[] row : tripDailyTotalRepository.sumTripCountsGroupedByClientVendorAndDateRange(startDate, endDate)) {
+            tripCounts.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        return tripCounts;
+    }
+
+    //Count, distance, duration and overage sums for a relationship within date range
+    @Transactional(readOnly = true)
+    public PeriodTotals getPeriodTotals(Long clientVendorId, LocalDate startDate, LocalDate endDate) {
+        Object[] row = tripDailyTotalRepository.sumTotalsByClientVendorAndDateRange(clientVendorId, startDate, endDate).get(0);
+        return new PeriodTotals(((Number) row[0]).longValue(), toBigDecimal(row[1]), toBigDecimal(row[2]),
+                                toBigDecimal(row[3]), toBigDecimal(row[4]));
+    }
+
+    //Recompute every day row from the trips table and the trip archive
+    public int rebuildAll() {
+        tripDailyTotalRepository.deleteAllRows();
+
+        Map<String, TripDailyTotal> days = new HashMap<>();
+        List<TripDailyTotal> rows = new ArrayList<>();
+        for (Object[] row : tripRepository.aggregateTripsByClientVendorAndDay()) {
+            TripDailyTotal total = new TripDailyTotal();
+            total.setClientVendor(clientVendorRepository.getReferenceById((Long) row[0]));
+            total.setTripDate((LocalDate) row[1]);
+            total.setTripCount(((Number) row[2]).longValue());
+            total.setTotalDistance(toBigDecimal(row[3]));
+            total.setTotalDuration(toBigDecimal(row[4]));
+            total.setDistanceOverage(toBigDecimal(row[5]));
+            total.setTimeOverage(toBigDecimal(row[6]));
+            days.put(row[0] + ":" + row[1], total);
+            rows.add(total);
+        }
+
+        //Archived trips still count towards their day
+        Map<Long, ClientVendor> relationships = new HashMap<>();
+        tripArchiveService.forEachRow(trip -> {
+            ClientVendor relationship = relationships.computeIfAbsent(trip.getClientVendorId(),
+                id -> clientVendorRepository.findById(id).orElseThrow());
+            TripDailyTotal total = days.computeIfAbsent(trip.getClientVendorId() + ":" + trip.getTripDate(), key -> {
+                TripDailyTotal day = new TripDailyTotal();
+                day.setClientVendor(relationship);
+                day.setTripDate(trip.getTripDate());
+                day.setTripCount(0L);
+                day.setTotalDistance(BigDecimal.ZERO);
+                day.setTotalDuration(BigDecimal.ZERO);
+                day.setDistanceOverage(BigDecimal.ZERO);
+                day.setTimeOverage(BigDecimal.ZERO);
+                rows.add(day);
+                return day;
+            });
+            total.setTripCount(total.getTripCount() + 1);
+            total.setTotalDistance(total.getTotalDistance().add(trip.getDistance()));
+            total.setTotalDuration(total.getTotalDuration().add(trip.getDuration()));
+            total.setDistanceOverage(total.getDistanceOverage()
+                .add(overage(trip.getDistance(), relationship.getStandardDistanceLimit())));
+            total.setTimeOverage(total.getTimeOverage()
+                .add(overage(trip.getDuration(), relationship.getStandardTimeLimit())));
+        });
+        tripDailyTotalRepository.saveAll(rows);
+        return rows.size();
+    }
+
+    //Backfill accumulators for trips recorded before accumulators existed
+    @Override
+    public void run(String... args) {
+        if (tripDailyTotalRepository.count() == 0 && tripRepository.count() > 0) {
+            rebuildAll();
+        }
+    }
+
+    private void applyTrip(Trip trip, int sign) {
+        ClientVendor relationship = trip.getClientVendor();
+        BigDecimal multiplier = BigDecimal.valueOf(sign);
+
+        BigDecimal distanceOverage = overage(trip.getDistance(), relationship.getStandardDistanceLimit());
+        BigDecimal timeOverage = overage(trip.getDuration(), relationship.getStandardTimeLimit());
+
+        if (sign < 0) {
+            //A recorded trip always has its day row
+            tripDailyTotalRepository.applyDelta(relationship.getId(), trip.getTripDate(), sign,
+                trip.getDistance().multiply(multiplier), trip.getDuration().multiply(multiplier),
+                distanceOverage.multiply(multiplier), timeOverage.multiply(multiplier));
+            return;
+        }
+
+        Object[] upsert = {sequenceIdAllocator.nextIds(TripDailyTotal.class, 1).get(0), relationship.getId(),
+            Date.valueOf(trip.getTripDate()), 1L, trip.getDistance(), trip.getDuration(), distanceOverage, timeOverage,
+            Timestamp.valueOf(LocalDateTime.now())};
+        if (isPostgres()) {
+            jdbcTemplate.update(UPSERT_DAY_POSTGRESQL, upsert);
+        } else {
+            mergeDayH2(upsert);
+        }
+    }
+
+    //H2 reports a day row inserted by a concurrent transaction as a duplicate key once that transaction
+    //commits; the repeated MERGE then finds the row and adds to it
+    private void mergeDayH2(Object[] upsert) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                jdbcTemplate.update(UPSERT_DAY_H2, upsert);
+                return;
+            } catch (DuplicateKeyException e) {
+                if (attempt == UPSERT_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = jdbcTemplate.execute((Connection connection) ->
+                "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName()));
+        }
+        return postgres;
+    }
+
+    //Amount beyond a standard limit (a zero limit means no limit)
+    private BigDecimal overage(BigDecimal value, BigDecimal limit) {
+        if (limit == null || limit.compareTo(BigDecimal.ZERO) <= 0) return BigDecimal.ZERO;
+        return value.subtract(limit).max(BigDecimal.ZERO);
+    }
+
+    private BigDecimal toBigDecimal(Object value) {
+        if (value == null) return BigDecimal.ZERO;
+        return value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+    }
+
+    public static class PeriodTotals {
+        private final long tripCount;
+        private final BigDecimal totalDistance;
+        private final BigDecimal totalDuration;
+        private final BigDecimal distanceOverage;
+        private final BigDecimal timeOverage;
+
+        public PeriodTotals(long tripCount, BigDecimal totalDistance, BigDecimal totalDuration,
+                            BigDecimal distanceOverage, BigDecimal timeOverage) {
+            this.tripCount = tripCount;
+            this.totalDistance = totalDistance;
+            this.totalDuration = totalDuration;
+            this.distanceOverage = distanceOverage;
+            this.timeOverage = timeOverage;
+        }
+
+        // Getters
+        public long getTripCount() { return tripCount; }
+        public BigDecimal getTotalDistance() { return totalDistance; }
+        public BigDecimal getTotalDuration() { return totalDuration; }
+        public BigDecimal getDistanceOverage() { return distanceOverage; }
+        public BigDecimal getTimeOverage() { return timeOverage; }
+    }
+}
@@ -0,0 +1,413 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.TripStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+//One immutable archive file of trips, stored column by column. Rows are sorted by trip date then ID, and
+//each column is a fixed-width array (IDs and dates delta-encoded) compressed on its own with deflate, so a
+//read only inflates the columns it needs. The header carries the row count, the trip date range and the
+//offset, sizes and CRC32 of every column; files are memory-mapped for reading.
+//
+//Layout: magic, version, row count, min and max trip date (epoch days), column count, then per column
+//offset (long), compressed length, raw length and CRC32 of the raw bytes (ints), then the column blocks.
+public class TripArchiveSegment {
+
+    private static final int MAGIC = 0x54525053;
+    private static final short VERSION = 1;
+    private static final int HEADER_FIXED_BYTES = 4 + 2 + 4 + 8 + 8 + 2;
+    private static final int COLUMN_ENTRY_BYTES = 8 + 4 + 4 + 4;
+
+    //Stands for null in decimal and timestamp columns
+    private static final long NULL = Long.MIN_VALUE;
+
+    public enum Column {
+        ID, CLIENT_VENDOR_ID, CLIENT_ID, VENDOR_ID, EMPLOYEE_ID, TRIP_DATE, DISTANCE, DURATION, TOTAL_COST,
+        EMPLOYEE_COST, VENDOR_COST, EXTRA_DISTANCE_COST, EXTRA_TIME_COST, STATUS, CREATED_AT
+    }
+
+    private static final Column[] COLUMNS = Column.values();
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int rowCount;
+    private final LocalDate minDate;
+    private final LocalDate maxDate;
+    private final long fileBytes;
+    private final long[] offsets = new long[COLUMNS.length];
+    private final int[] compressedLengths = new int[COLUMNS.length];
+    private final int[] rawLengths = new int[COLUMNS.length];
+    private final int[] checksums = new int[COLUMNS.length];
+
+    private TripArchiveSegment(Path path, MappedByteBuffer buffer, long fileBytes) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        this.fileBytes = fileBytes;
+        if (fileBytes < HEADER_FIXED_BYTES || buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+            throw new IOException("Not a trip archive segment: " + path);
+        }
+        rowCount = buffer.getInt(6);
+        minDate = LocalDate.ofEpochDay(buffer.getLong(10));
+        maxDate = LocalDate.ofEpochDay(buffer.getLong(18));
+        int columnCount = buffer.getShort(26);
+        if (columnCount != COLUMNS.length || fileBytes < HEADER_FIXED_BYTES + (long) columnCount * COLUMN_ENTRY_BYTES) {
+            throw new IOException("Unexpected column layout in " + path);
+        }
+        for (int column = 0; column < columnCount; column++) {
+            int entry = HEADER_FIXED_BYTES + column * COLUMN_ENTRY_BYTES;
+            offsets[column] = buffer.getLong(entry);
+            compressedLengths[column] = buffer.getInt(entry + 8);
+            rawLengths[column] = buffer.getInt(entry + 12);
+            checksums[column] = buffer.getInt(entry + 16);
+            if (offsets[column] + compressedLengths[column] > fileBytes) {
+                throw new IOException("Truncated trip archive segment: " + path);
+            }
+        }
+    }
+
+    //Write rows (sorted by trip date, then ID) to a new file and force it to disk
+    public static void write(Path path, List<Row> rows) throws IOException {
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("A segment needs at least one row");
+        }
+        int count = rows.size();
+        byte[][] blocks = new byte[COLUMNS.length][];
+        int[] rawLengths = new int[COLUMNS.length];
+        int[] checksums = new int[COLUMNS.length];
+        for (Column column : COLUMNS) {
+            byte[] raw = encode(column, rows);
+            CRC32 crc = new CRC32();
+            crc.update(raw);
+            rawLengths[column.ordinal()] = raw.length;
+            checksums[column.ordinal()] = (int) crc.getValue();
+            blocks[column.ordinal()] = deflate(raw);
+        }
+
+        int headerBytes = HEADER_FIXED_BYTES + COLUMNS.length * COLUMN_ENTRY_BYTES;
+        ByteBuffer header = ByteBuffer.allocate(headerBytes);
+        header.putInt(MAGIC).putShort(VERSION).putInt(count)
+            .putLong(rows.get(0).tripDate.toEpochDay()).putLong(rows.get(count - 1).tripDate.toEpochDay())
+            .putShort((short) COLUMNS.length);
+        long offset = headerBytes;
+        for (Column column : COLUMNS) {
+            int index = column.ordinal();
+            header.putLong(offset).putInt(blocks[index].length).putInt(rawLengths[index]).putInt(checksums[index]);
+            offset += blocks[index].length;
+        }
+        header.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            writeFully(channel, header);
+            for (byte[] block : blocks) {
+                writeFully(channel, ByteBuffer.wrap(block));
+            }
+            channel.force(true);
+        }
+    }
+
+    //Map a segment file and read its header
+    public static TripArchiveSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            return new TripArchiveSegment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, size), size);
+        }
+    }
+
+    //Rows with a trip date in the range whose key column matches; a null key column matches every row
+    public List<Row> read(LocalDate startDate, LocalDate endDate, Column keyColumn, Long key) {
+        long[] dates = column(Column.TRIP_DATE);
+        int from = firstAtOrAfter(dates, startDate.toEpochDay());
+        int to = firstAtOrAfter(dates, endDate.toEpochDay() + 1);
+        if (from >= to) {
+            return List.of();
+        }
+        long[] keys = keyColumn == null ? null : column(keyColumn);
+        List<Integer> matches = new ArrayList<>();
+        for (int row = from; row < to; row++) {
+            if (keys == null || keys[row] == key) {
+                matches.add(row);
+            }
+        }
+        return matches.isEmpty() ? List.of() : rows(matches, dates);
+    }
+
+    //Every row of the segment, in file order
+    public List<Row> readAll() {
+        List<Integer> all = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            all.add(row);
+        }
+        return rows(all, column(Column.TRIP_DATE));
+    }
+
+    //IDs of the trips in the segment
+    public long[] ids() {
+        return column(Column.ID);
+    }
+
+    public boolean overlaps(LocalDate startDate, LocalDate endDate) {
+        return !maxDate.isBefore(startDate) && !minDate.isAfter(endDate);
+    }
+
+    // Getters
+    public Path getPath() { return path; }
+    public int getRowCount() { return rowCount; }
+    public LocalDate getMinDate() { return minDate; }
+    public LocalDate getMaxDate() { return maxDate; }
+    public long getFileBytes() { return fileBytes; }
+    public long getRawBytes() {
+        long raw = 0;
+        for (int length : rawLengths) {
+            raw += length;
+        }
+        return raw;
+    }
+
+    private List<Row> rows(List<Integer> selected, long[] dates) {
+        long[][] values = new long[COLUMNS.length][];
+        values[Column.TRIP_DATE.ordinal()] = dates;
+        for (Column column : COLUMNS) {
+            if (values[column.ordinal()] == null) {
+                values[column.ordinal()] = column(column);
+            }
+        }
+        List<Row> rows = new ArrayList<>(selected.size());
+        for (int row : selected) {
+            Row decoded = new Row();
+            decoded.id = values[Column.ID.ordinal()][row];
+            decoded.clientVendorId = values[Column.CLIENT_VENDOR_ID.ordinal()][row];
+            decoded.clientId = values[Column.CLIENT_ID.ordinal()][row];
+            decoded.vendorId = values[Column.VENDOR_ID.ordinal()][row];
+            decoded.employeeId = values[Column.EMPLOYEE_ID.ordinal()][row];
+            decoded.tripDate = LocalDate.ofEpochDay(dates[row]);
+            decoded.distance = decimal(values[Column.DISTANCE.ordinal()][row]);
+            decoded.duration = decimal(values[Column.DURATION.ordinal()][row]);
+            decoded.totalCost = decimal(values[Column.TOTAL_COST.ordinal()][row]);
+            decoded.employeeCost = decimal(values[Column.EMPLOYEE_COST.ordinal()][row]);
+            decoded.vendorCost = decimal(values[Column.VENDOR_COST.ordinal()][row]);
+            decoded.extraDistanceCost = decimal(values[Column.EXTRA_DISTANCE_COST.ordinal()][row]);
+            decoded.extraTimeCost = decimal(values[Column.EXTRA_TIME_COST.ordinal()][row]);
+            long status = values[Column.STATUS.ordinal()][row];
+            decoded.status = status < 0 ? null : TripStatus.values()[(int) status];
+            long createdAt = values[Column.CREATED_AT.ordinal()][row];
+            decoded.createdAt = createdAt == NULL ? null : LocalDateTime.ofEpochSecond(
+                Math.floorDiv(createdAt, 1_000_000L), (int) Math.floorMod(createdAt, 1_000_000L) * 1000, ZoneOffset.UTC);
+            rows.add(decoded);
+        }
+        return rows;
+    }
+
+    //Inflate one column from the mapped file and decode it to one long per row
+    private long[] column(Column column) {
+        int index = column.ordinal();
+        byte[] raw = new byte[rawLengths[index]];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(buffer.slice((int) offsets[index], compressedLengths[index]));
+            int inflated = 0;
+            while (inflated < raw.length && !inflater.finished()) {
+                int n = inflater.inflate(raw, inflated, raw.length - inflated);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += n;
+            }
+            if (inflated != raw.length) {
+                throw new IllegalStateException("Column " + column + " of " + path + " is truncated");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Column " + column + " of " + path + " is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(raw);
+        if ((int) crc.getValue() != checksums[index]) {
+            throw new IllegalStateException("Checksum mismatch in column " + column + " of " + path);
+        }
+
+        ByteBuffer values = ByteBuffer.wrap(raw);
+        long[] decoded = new long[rowCount];
+        if (column == Column.STATUS) {
+            for (int row = 0; row < rowCount; row++) {
+                decoded[row] = values.get();
+            }
+        } else {
+            long previous = 0;
+            for (int row = 0; row < rowCount; row++) {
+                long value = values.getLong();
+                decoded[row] = isDeltaEncoded(column) ? previous + value : value;
+                previous = decoded[row];
+            }
+        }
+        return decoded;
+    }
+
+    private static byte[] encode(Column column, List<Row> rows) {
+        if (column == Column.STATUS) {
+            byte[] raw = new byte[rows.size()];
+            for (int row = 0; row < rows.size(); row++) {
+                TripStatus status = rows.get(row).status;
+                raw[row] = (byte) (status == null ? -1 : status.ordinal());
+            }
+            return raw;
+        }
+        ByteBuffer raw = ByteBuffer.allocate(rows.size() * Long.BYTES);
+        long previous = 0;
+        for (Row row : rows) {
+            long value = value(column, row);
+            raw.putLong(isDeltaEncoded(column) ? value - previous : value);
+            previous = value;
+        }
+        return raw.array();
+    }
+
+    private static long value(Column column, Row row) {
+        return switch (column) {
+            case ID -> row.id;
+            case CLIENT_VENDOR_ID -> row.clientVendorId;
+            case CLIENT_ID -> row.clientId;
+            case VENDOR_ID -> row.vendorId;
+            case EMPLOYEE_ID -> row.employeeId;
+            case TRIP_DATE -> row.tripDate.toEpochDay();
+            case DISTANCE -> cents(row.distance);
+            case DURATION -> cents(row.duration);
+            case TOTAL_COST -> cents(row.totalCost);
+            case EMPLOYEE_COST -> cents(row.employeeCost);
+            case VENDOR_COST -> cents(row.vendorCost);
+            case EXTRA_DISTANCE_COST -> cents(row.extraDistanceCost);
+            case EXTRA_TIME_COST -> cents(row.extraTimeCost);
+            case CREATED_AT -> row.createdAt == null ? NULL
+                : row.createdAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + row.createdAt.getNano() / 1000;
+            case STATUS -> throw new IllegalArgumentException("STATUS is stored as bytes");
+        };
+    }
+
+    //IDs and dates grow along the sort order, so their deltas are small and compress well
+    private static boolean isDeltaEncoded(Column column) {
+        return column == Column.ID || column == Column.TRIP_DATE;
+    }
+
+    //Amounts are stored at the two decimal places of their database columns
+    private static long cents(BigDecimal value) {
+        return value == null ? NULL : value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static BigDecimal decimal(long cents) {
+        return cents == NULL ? null : BigDecimal.valueOf(cents, 2);
+    }
+
+    private static int firstAtOrAfter(long[] sorted, long value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] chunk = new byte[8192];
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                compressed.write(chunk, 0, n);
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    //One archived trip with the client and vendor of its relationship denormalised for filtering
+    public static class Row {
+        private long id;
+        private long clientVendorId;
+        private long clientId;
+        private long vendorId;
+        private long employeeId;
+        private LocalDate tripDate;
+        private BigDecimal distance;
+        private BigDecimal duration;
+        private BigDecimal totalCost;
+        private BigDecimal employeeCost;
+        private BigDecimal vendorCost;
+        private BigDecimal extraDistanceCost;
+        private BigDecimal extraTimeCost;
+        private TripStatus status;
+        private LocalDateTime createdAt;
+
+        public Row() {
+        }
+
+        public Row(long id, long clientVendorId, long clientId, long vendorId, long employeeId, LocalDate tripDate,
+                   BigDecimal distance, BigDecimal duration, BigDecimal totalCost, BigDecimal employeeCost,
+                   BigDecimal vendorCost, BigDecimal extraDistanceCost, BigDecimal extraTimeCost,
+                   TripStatus status, LocalDateTime createdAt) {
+            this.id = id;
+            this.clientVendorId = clientVendorId;
+            this.clientId = clientId;
+            this.vendorId = vendorId;
+            this.employeeId = employeeId;
+            this.tripDate = tripDate;
+            this.distance = distance;
+            this.duration = duration;
+            this.totalCost = totalCost;
+            this.employeeCost = employeeCost;
+            this.vendorCost = vendorCost;
+            this.extraDistanceCost = extraDistanceCost;
+            this.extraTimeCost = extraTimeCost;
+            this.status = status;
+            this.createdAt = createdAt;
+        }
+
+        // Getters
+        public long getId() { return id; }
+        public long getClientVendorId() { return clientVendorId; }
+        public long getClientId() { return clientId; }
+        public long getVendorId() { return vendorId; }
+        public long getEmployeeId() { return employeeId; }
+        public LocalDate getTripDate() { return tripDate; }
+        public BigDecimal getDistance() { return distance; }
+        public BigDecimal getDuration() { return duration; }
+        public BigDecimal getTotalCost() { return totalCost; }
+        public BigDecimal getEmployeeCost() { return employeeCost; }
+        public BigDecimal getVendorCost() { return vendorCost; }
+        public BigDecimal getExtraDistanceCost() { return extraDistanceCost; }
+        public BigDecimal getExtraTimeCost() { return extraTimeCost; }
+        public TripStatus getStatus() { return status; }
+        public LocalDateTime getCreatedAt() { return createdAt; }
+    }
+}
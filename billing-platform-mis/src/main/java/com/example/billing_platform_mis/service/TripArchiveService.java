@@ -0,0 +1,559 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.ClientVendor;
+import com.example.billing_platform_mis.entity.Trip;
+import com.example.billing_platform_mis.entity.TripStatus;
+import com.example.billing_platform_mis.entity.User;
+import com.example.billing_platform_mis.repository.ClientVendorRepository;
+import com.example.billing_platform_mis.repository.TripRepository;
+import com.example.billing_platform_mis.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+//Moves trips of closed billing periods older than the retention window out of the trips table into
+//compressed columnar segment files (TripArchiveSegment), and reads them back for date-range reports.
+//Segments are memory-mapped and indexed by their trip date range, so a report whose range does not reach
+//into the archive never touches a file. Payouts, incentives and the daily billing totals stay in the
+//database; a payout or incentive of an archived trip keeps its trip_id and trip_date but has no trip.
+//
+//Each segment is written as <n>.tmp, renamed to <n>.pending, made readable, and only then are its trips
+//deleted and the file renamed to <n>.seg. Readers prefer live rows over archived ones with the same ID, and
+//a pending segment found at startup finishes its deletes, so a crash at any step loses and doubles nothing.
+@Service
+public class TripArchiveService {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String PENDING_SUFFIX = ".pending";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    //Trips of a closed period for their relationship, older than the cutoff and with no overage work pending
+    private static final String SELECT_ARCHIVABLE =
+        "SELECT t.id, t.client_vendor_id, cv.client_id, cv.vendor_id, t.employee_id, t.trip_date, t.distance, " +
+        "t.duration, t.total_cost, t.employee_cost, t.vendor_cost, t.extra_distance_cost, t.extra_time_cost, " +
+        "t.status, t.created_at " +
+        "FROM trips t JOIN client_vendors cv ON cv.id = t.client_vendor_id " +
+        "WHERE t.trip_date < ? " +
+        "AND EXISTS (SELECT 1 FROM invoice_snapshots s WHERE s.client_vendor_id = t.client_vendor_id " +
+        "AND s.period_start <= t.trip_date AND s.period_end >= t.trip_date) " +
+        "AND NOT EXISTS (SELECT 1 FROM pending_overage_work w WHERE w.trip_id = t.id) " +
+        "ORDER BY t.trip_date, t.id " +
+        "LIMIT ?";
+
+    private static final String DELETE_TRIP = "DELETE FROM trips WHERE id = ?";
+
+    //Trip IDs per IN list when checking which archived trips are still live
+    private static final int ID_CHUNK = 1000;
+
+    @Value("${billing.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${billing.archive.dir:data/trip-archive}")
+    private String archiveDir;
+
+    //Months before the current one that stay in the trips table
+    @Value("${billing.archive.retention-months:12}")
+    private int retentionMonths;
+
+    @Value("${billing.archive.segment-rows:100000}")
+    private int segmentRows;
+
+    @Value("${billing.archive.check-hours:24}")
+    private long checkHours;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ClientVendorRepository clientVendorRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TripRepository tripRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private ScheduledExecutorService scheduler;
+    private Path directory;
+
+    //Ordered by first trip date; replaced as a whole so readers always see a complete index
+    private volatile List<TripArchiveSegment> segments = List.of();
+
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong segmentsScanned = new AtomicLong();
+    private final AtomicLong segmentsSkipped = new AtomicLong();
+    private final AtomicLong archivedRowsRead = new AtomicLong();
+    private volatile LocalDateTime lastRunAt;
+    private volatile long lastRunTrips;
+    private volatile String lastError;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        directory = Paths.get(archiveDir);
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                addSegment(TripArchiveSegment.open(file));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read trip archive " + directory, e);
+        }
+    }
+
+    //Finish interrupted archive runs, then archive periodically when enabled
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (Files.isDirectory(directory)) {
+            recover();
+        }
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "trip-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::archiveQuietly, checkHours, checkHours, TimeUnit.HOURS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    //Archive every eligible trip dated before the retention cutoff; returns the number of trips moved
+    public synchronized long archive() {
+        LocalDate cutoff = getCutoff();
+        long archived = 0;
+        try {
+            Files.createDirectories(directory);
+            while (true) {
+                List<TripArchiveSegment.Row> rows = jdbcTemplate.query(SELECT_ARCHIVABLE, (rs, rowNum) -> {
+                    Timestamp createdAt = rs.getTimestamp("created_at");
+                    String status = rs.getString("status");
+                    return new TripArchiveSegment.Row(rs.getLong("id"), rs.getLong("client_vendor_id"),
+                        rs.getLong("client_id"), rs.getLong("vendor_id"), rs.getLong("employee_id"),
+                        rs.getObject("trip_date", LocalDate.class), rs.getBigDecimal("distance"),
+                        rs.getBigDecimal("duration"), rs.getBigDecimal("total_cost"), rs.getBigDecimal("employee_cost"),
+                        rs.getBigDecimal("vendor_cost"), rs.getBigDecimal("extra_distance_cost"),
+                        rs.getBigDecimal("extra_time_cost"), status == null ? null : TripStatus.valueOf(status),
+                        createdAt == null ? null : createdAt.toLocalDateTime());
+                }, cutoff, segmentRows);
+                if (rows.isEmpty()) {
+                    break;
+                }
+                archiveSegment(rows);
+                archived += rows.size();
+                if (rows.size() < segmentRows) {
+                    break;
+                }
+            }
+            lastError = null;
+        } catch (IOException e) {
+            lastError = e.getMessage();
+            throw new UncheckedIOException("Trip archival failed", e);
+        } catch (RuntimeException e) {
+            lastError = e.getMessage();
+            throw e;
+        } finally {
+            lastRunAt = LocalDateTime.now();
+            lastRunTrips = archived;
+        }
+        return archived;
+    }
+
+    //Trips dated before this are archived once their period is closed
+    public LocalDate getCutoff() {
+        return YearMonth.now().minusMonths(retentionMonths).atDay(1);
+    }
+
+    //Whether any archived trip can fall within the range
+    public boolean covers(LocalDate startDate, LocalDate endDate) {
+        for (TripArchiveSegment segment : segments) {
+            if (segment.overlaps(startDate, endDate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //Archived trips in the range whose key column equals key, newest first, as detached Trip objects
+    public List<Trip> findTrips(TripArchiveSegment.Column keyColumn, Long key, LocalDate startDate, LocalDate endDate) {
+        return findTrips(keyColumn, key, startDate, endDate, row -> true);
+    }
+
+    //As above, keeping only the rows the filter accepts (a second key, such as the client of a vendor's trips)
+    public List<Trip> findTrips(TripArchiveSegment.Column keyColumn, Long key, LocalDate startDate, LocalDate endDate,
+                                Predicate<TripArchiveSegment.Row> filter) {
+        List<TripArchiveSegment.Row> rows = new ArrayList<>();
+        iterateArchivedRows(keyColumn, key, startDate, endDate, true).forEachRemaining(row -> {
+            if (filter.test(row)) {
+                rows.add(row);
+            }
+        });
+        return rows.isEmpty() ? List.of() : toTrips(rows);
+    }
+
+    //Archived rows in the range whose key column equals key, by trip date then ID (newest first when asked),
+    //leaving out trips that are still live. Segments are read only as the iteration reaches their dates, so
+    //memory holds the matching rows of the segments around the current date, never the whole range.
+    public Iterator<TripArchiveSegment.Row> iterateArchivedRows(TripArchiveSegment.Column keyColumn, Long key,
+                                                                LocalDate startDate, LocalDate endDate,
+                                                                boolean newestFirst) {
+        if (key == null || startDate == null || endDate == null) {
+            return Collections.emptyIterator();
+        }
+        reads.incrementAndGet();
+        List<TripArchiveSegment> overlapping = new ArrayList<>();
+        for (TripArchiveSegment segment : segments) {
+            if (segment.overlaps(startDate, endDate)) {
+                overlapping.add(segment);
+            } else {
+                segmentsSkipped.incrementAndGet();
+            }
+        }
+        if (overlapping.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+        return new ArchivedRowIterator(overlapping, keyColumn, key, startDate, endDate, newestFirst);
+    }
+
+    //Every archived row, segment by segment (rebuilding the daily billing totals)
+    public void forEachRow(Consumer<TripArchiveSegment.Row> consumer) {
+        for (TripArchiveSegment segment : segments) {
+            segment.readAll().forEach(consumer);
+        }
+    }
+
+    public ArchiveMetrics getMetrics() {
+        ArchiveMetrics metrics = new ArchiveMetrics();
+        metrics.enabled = enabled;
+        metrics.directory = directory.toAbsolutePath().toString();
+        metrics.cutoff = getCutoff();
+        metrics.segments = segments.size();
+        for (TripArchiveSegment segment : segments) {
+            metrics.archivedTrips += segment.getRowCount();
+            metrics.fileBytes += segment.getFileBytes();
+            metrics.rawBytes += segment.getRawBytes();
+            if (metrics.oldestTripDate == null || segment.getMinDate().isBefore(metrics.oldestTripDate)) {
+                metrics.oldestTripDate = segment.getMinDate();
+            }
+            if (metrics.newestTripDate == null || segment.getMaxDate().isAfter(metrics.newestTripDate)) {
+                metrics.newestTripDate = segment.getMaxDate();
+            }
+        }
+        metrics.reads = reads.get();
+        metrics.segmentsScanned = segmentsScanned.get();
+        metrics.segmentsSkipped = segmentsSkipped.get();
+        metrics.archivedRowsRead = archivedRowsRead.get();
+        metrics.lastRunAt = lastRunAt;
+        metrics.lastRunTrips = lastRunTrips;
+        metrics.lastError = lastError;
+        return metrics;
+    }
+
+    private void archiveSegment(List<TripArchiveSegment.Row> rows) throws IOException {
+        String name = String.format("trips-%010d", nextSegmentNumber());
+        Path tmp = directory.resolve(name + TMP_SUFFIX);
+        Path pending = directory.resolve(name + PENDING_SUFFIX);
+        TripArchiveSegment.write(tmp, rows);
+        Files.move(tmp, pending, StandardCopyOption.ATOMIC_MOVE);
+
+        //Readable before the trips disappear; readers skip archived rows that are still live
+        TripArchiveSegment segment = TripArchiveSegment.open(pending);
+        addSegment(segment);
+        deleteTrips(segment.ids());
+        replaceSegment(segment, TripArchiveSegment.open(finish(pending)));
+    }
+
+    //Complete segments left pending by a crash and drop unfinished temporary files
+    private void recover() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                if (fileName.endsWith(TMP_SUFFIX)) {
+                    Files.delete(file);
+                } else if (fileName.endsWith(PENDING_SUFFIX)) {
+                    deleteTrips(TripArchiveSegment.open(file).ids());
+                    addSegment(TripArchiveSegment.open(finish(file)));
+                }
+            }
+        } catch (IOException e) {
+            lastError = e.getMessage();
+            throw new UncheckedIOException("Cannot recover trip archive " + directory, e);
+        }
+    }
+
+    private Path finish(Path pending) throws IOException {
+        String fileName = pending.getFileName().toString();
+        Path done = pending.resolveSibling(fileName.substring(0, fileName.length() - PENDING_SUFFIX.length()) + SEGMENT_SUFFIX);
+        Files.move(pending, done, StandardCopyOption.ATOMIC_MOVE);
+        return done;
+    }
+
+    private void deleteTrips(long[] ids) {
+        List<Object[]> batch = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            batch.add(new Object[] {id});
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(DELETE_TRIP, batch));
+    }
+
+    private void addSegment(TripArchiveSegment segment) {
+        replaceSegment(null, segment);
+    }
+
+    private synchronized void replaceSegment(TripArchiveSegment previous, TripArchiveSegment segment) {
+        List<TripArchiveSegment> ordered = new ArrayList<>(segments);
+        ordered.remove(previous);
+        ordered.add(segment);
+        ordered.sort(Comparator.comparing(TripArchiveSegment::getMinDate));
+        segments = List.copyOf(ordered);
+    }
+
+    private long nextSegmentNumber() throws IOException {
+        long next = 1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "trips-*")) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                String number = fileName.substring("trips-".length(), fileName.indexOf('.'));
+                next = Math.max(next, Long.parseLong(number) + 1);
+            }
+        }
+        return next;
+    }
+
+    //Detached trips pointing at the current relationship and employee entities
+    public List<Trip> toTrips(List<TripArchiveSegment.Row> rows) {
+        Set<Long> employeeIds = new HashSet<>();
+        Set<Long> clientVendorIds = new HashSet<>();
+        for (TripArchiveSegment.Row row : rows) {
+            employeeIds.add(row.getEmployeeId());
+            clientVendorIds.add(row.getClientVendorId());
+        }
+        Map<Long, ClientVendor> relationships = new HashMap<>();
+        for (ClientVendor relationship : clientVendorRepository.findAllWithDetailsByIdIn(clientVendorIds)) {
+            relationships.put(relationship.getId(), relationship);
+        }
+        Map<Long, User> employees = new HashMap<>();
+        for (User employee : userRepository.findAllById(employeeIds)) {
+            employees.put(employee.getId(), employee);
+        }
+
+        List<Trip> trips = new ArrayList<>(rows.size());
+        for (TripArchiveSegment.Row row : rows) {
+            Trip trip = new Trip();
+            trip.setId(row.getId());
+            trip.setClientVendor(relationships.get(row.getClientVendorId()));
+            trip.setEmployee(employees.get(row.getEmployeeId()));
+            trip.setDistance(row.getDistance());
+            trip.setDuration(row.getDuration());
+            trip.setTripDate(row.getTripDate());
+            trip.setTotalCost(row.getTotalCost());
+            trip.setEmployeeCost(row.getEmployeeCost());
+            trip.setVendorCost(row.getVendorCost());
+            trip.setExtraDistanceCost(row.getExtraDistanceCost());
+            trip.setExtraTimeCost(row.getExtraTimeCost());
+            trip.setStatus(row.getStatus());
+            trip.setCreatedAt(row.getCreatedAt());
+            trips.add(trip);
+        }
+        return trips;
+    }
+
+    private void archiveQuietly() {
+        try {
+            archive();
+        } catch (RuntimeException e) {
+            //Recorded in lastError; the next run retries
+        }
+    }
+
+    //Merges the segments' matching rows in trip order. Segments may overlap in dates (a period closed late is
+    //archived after newer ones), so each is opened once the merge reaches its first date in iteration order.
+    private class ArchivedRowIterator implements Iterator<TripArchiveSegment.Row> {
+        private final TripArchiveSegment.Column keyColumn;
+        private final Long key;
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final boolean newestFirst;
+        private final Comparator<TripArchiveSegment.Row> order;
+        private final Deque<TripArchiveSegment> unopened;
+        private final PriorityQueue<SegmentCursor> open;
+
+        ArchivedRowIterator(List<TripArchiveSegment> overlapping, TripArchiveSegment.Column keyColumn, Long key,
+                            LocalDate startDate, LocalDate endDate, boolean newestFirst) {
+            this.keyColumn = keyColumn;
+            this.key = key;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.newestFirst = newestFirst;
+            Comparator<TripArchiveSegment.Row> ascending =
+                Comparator.comparing(TripArchiveSegment.Row::getTripDate).thenComparing(TripArchiveSegment.Row::getId);
+            order = newestFirst ? ascending.reversed() : ascending;
+            List<TripArchiveSegment> ordered = new ArrayList<>(overlapping);
+            ordered.sort(newestFirst
+                ? Comparator.comparing(TripArchiveSegment::getMaxDate).reversed()
+                : Comparator.comparing(TripArchiveSegment::getMinDate));
+            unopened = new ArrayDeque<>(ordered);
+            open = new PriorityQueue<>((a, b) -> order.compare(a.peek(), b.peek()));
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!unopened.isEmpty() && (open.isEmpty() || reaches(unopened.peek(), open.peek().peek()))) {
+                openSegment(unopened.poll());
+            }
+            return !open.isEmpty();
+        }
+
+        @Override
+        public TripArchiveSegment.Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            SegmentCursor cursor = open.poll();
+            TripArchiveSegment.Row row = cursor.next();
+            if (cursor.hasNext()) {
+                open.add(cursor);
+            }
+            return row;
+        }
+
+        //Whether the segment can hold a row that comes no later than the given one
+        private boolean reaches(TripArchiveSegment segment, TripArchiveSegment.Row row) {
+            return newestFirst ? !segment.getMaxDate().isBefore(row.getTripDate())
+                : !segment.getMinDate().isAfter(row.getTripDate());
+        }
+
+        private void openSegment(TripArchiveSegment segment) {
+            segmentsScanned.incrementAndGet();
+            List<TripArchiveSegment.Row> rows = withoutLive(segment.read(startDate, endDate, keyColumn, key));
+            archivedRowsRead.addAndGet(rows.size());
+            if (newestFirst) {
+                Collections.reverse(rows);
+            }
+            if (!rows.isEmpty()) {
+                open.add(new SegmentCursor(rows));
+            }
+        }
+    }
+
+    private static class SegmentCursor {
+        private final List<TripArchiveSegment.Row> rows;
+        private int position;
+
+        SegmentCursor(List<TripArchiveSegment.Row> rows) {
+            this.rows = rows;
+        }
+
+        boolean hasNext() { return position < rows.size(); }
+        TripArchiveSegment.Row peek() { return rows.get(position); }
+        TripArchiveSegment.Row next() { return rows.get(position++); }
+    }
+
+    //Rows of one segment whose trip has not been deleted from the trips table yet dropped (readers take the live row)
+    private List<TripArchiveSegment.Row> withoutLive(List<TripArchiveSegment.Row> rows) {
+        Set<Long> live = new HashSet<>();
+        for (int from = 0; from < rows.size(); from += ID_CHUNK) {
+            List<Long> ids = new ArrayList<>();
+            for (TripArchiveSegment.Row row : rows.subList(from, Math.min(rows.size(), from + ID_CHUNK))) {
+                ids.add(row.getId());
+            }
+            live.addAll(tripRepository.findExistingIds(ids));
+        }
+        List<TripArchiveSegment.Row> archived = new ArrayList<>(rows.size() - live.size());
+        for (TripArchiveSegment.Row row : rows) {
+            if (!live.contains(row.getId())) {
+                archived.add(row);
+            }
+        }
+        return archived;
+    }
+
+    public static class ArchiveMetrics {
+        private boolean enabled;
+        private String directory;
+        private LocalDate cutoff;
+        private int segments;
+        private long archivedTrips;
+        private long fileBytes;
+        private long rawBytes;
+        private LocalDate oldestTripDate;
+        private LocalDate newestTripDate;
+        private long reads;
+        private long segmentsScanned;
+        private long segmentsSkipped;
+        private long archivedRowsRead;
+        private LocalDateTime lastRunAt;
+        private long lastRunTrips;
+        private String lastError;
+
+        // Getters
+        public boolean isEnabled() { return enabled; }
+        public String getDirectory() { return directory; }
+        public LocalDate getCutoff() { return cutoff; }
+        public int getSegments() { return segments; }
+        public long getArchivedTrips() { return archivedTrips; }
+        public long getFileBytes() { return fileBytes; }
+        public long getRawBytes() { return rawBytes; }
+        public double getCompressionRatio() { return fileBytes > 0 ? (double) rawBytes / fileBytes : 0; }
+        public LocalDate getOldestTripDate() { return oldestTripDate; }
+        public LocalDate getNewestTripDate() { return newestTripDate; }
+        public long getReads() { return reads; }
+        public long getSegmentsScanned() { return segmentsScanned; }
+        public long getSegmentsSkipped() { return segmentsSkipped; }
+        public long getArchivedRowsRead() { return archivedRowsRead; }
+        public LocalDateTime getLastRunAt() { return lastRunAt; }
+        public long getLastRunTrips() { return lastRunTrips; }
+        public String getLastError() { return lastError; }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.Trip;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+//Writes new trips with one JDBC batch insert together with their day accumulators, pending overage work and
+//outbox events.
+//Used by bulk imports and the write-behind ingestion buffer; must run inside the caller's transaction.
+@Service
+public class TripBatchWriter {
+
+    private static final String INSERT_TRIP =
+        "INSERT INTO trips (id, client_vendor_id, employee_id, distance, duration, trip_date, total_cost, " +
+        "employee_cost, vendor_cost, extra_distance_cost, extra_time_cost, status, created_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private TripAccumulatorService tripAccumulatorService;
+
+    @Autowired
+    private OverageWorkQueue overageWorkQueue;
+
+    @Autowired
+    private TripOutbox tripOutbox;
+
+    @Autowired
+    private SequenceIdAllocator sequenceIdAllocator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    //Insert the trips and return their IDs. Trips without an ID take one from the trips sequence, so the
+    //batch needs no generated-key round trips; trips without a creation time are stamped now.
+    public List<Long> write(List<Trip> trips) {
+        if (trips.isEmpty()) {
+            return List.of();
+        }
+        assignIds(trips);
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> tripIds = new ArrayList<>(trips.size());
+        List<Object[]> rows = new ArrayList<>(trips.size());
+        for (Trip trip : trips) {
+            if (trip.getCreatedAt() == null) {
+                trip.setCreatedAt(now);
+            }
+            tripIds.add(trip.getId());
+            rows.add(new Object[] {
+                trip.getId(), trip.getClientVendor().getId(), trip.getEmployee().getId(), trip.getDistance(),
+                trip.getDuration(), Date.valueOf(trip.getTripDate()), trip.getTotalCost(), trip.getEmployeeCost(),
+                trip.getVendorCost(), trip.getExtraDistanceCost(), trip.getExtraTimeCost(), trip.getStatus().name(),
+                Timestamp.valueOf(trip.getCreatedAt())
+            });
+        }
+        jdbcTemplate.batchUpdate(INSERT_TRIP, rows);
+        tripAccumulatorService.recordTrips(trips);
+        overageWorkQueue.submitAll(tripIds);
+        tripOutbox.tripsCreated(trips);
+        return tripIds;
+    }
+
+    private void assignIds(List<Trip> trips) {
+        int missing = 0;
+        for (Trip trip : trips) {
+            if (trip.getId() == null) {
+                missing++;
+            }
+        }
+        if (missing == 0) {
+            return;
+        }
+        List<Long> ids = sequenceIdAllocator.nextIds(Trip.class, missing);
+        int next = 0;
+        for (Trip trip : trips) {
+            if (trip.getId() == null) {
+                trip.setId(ids.get(next++));
+            }
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.TripEvent;
+import com.example.billing_platform_mis.repository.TripEventRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+//Delivers trip outbox events to every TripEventSubscriber bean. One dispatcher thread reads undelivered
+//events in batches, hands each batch to all subscribers and deletes it once they have all accepted it.
+//The thread is woken as soon as a transaction with new events commits and otherwise polls, which also picks
+//up events left by a crash. Delivery is at least once: a failed batch is redelivered event by event, so one
+//bad event cannot hold back other trips, and events that keep failing are parked after max-attempts.
+//Events of one trip are delivered in the order their changes committed (a parked event no longer holds back
+//the trip's later ones); there is no order across trips.
+//The application ships no subscriber, so the outbox only runs when billing.outbox.enabled is set.
+@Service
+public class TripEventDispatcher {
+
+    private static final int ERROR_MESSAGE_LENGTH = 500;
+
+    @Value("${billing.outbox.enabled:false}")
+    private boolean enabled;
+
+    @Value("${billing.outbox.batch-size:200}")
+    private int batchSize;
+
+    //Poll interval when no commit has signalled new events
+    @Value("${billing.outbox.poll-millis:1000}")
+    private long pollMillis;
+
+    //Pause after a failed delivery before trying again
+    @Value("${billing.outbox.retry-millis:1000}")
+    private long retryMillis;
+
+    @Value("${billing.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Autowired
+    private TripEventRepository tripEventRepository;
+
+    @Autowired(required = false)
+    private List<TripEventSubscriber> subscribers = List.of();
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private volatile Thread dispatcher;
+    private volatile boolean running;
+
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong failedDeliveries = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private volatile long lastLagMillis;
+    private volatile String lastError;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        running = true;
+        Thread thread = new Thread(this::dispatchLoop, "trip-event-dispatcher");
+        thread.setDaemon(true);
+        dispatcher = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        Thread thread = dispatcher;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    //Deliver new events now instead of at the next poll
+    public void wake() {
+        Thread thread = dispatcher;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    public DispatcherMetrics getMetrics() {
+        LocalDateTime oldest = tripEventRepository.findOldestDeliverableCreatedAt(maxAttempts);
+
+        DispatcherMetrics metrics = new DispatcherMetrics();
+        metrics.running = running;
+        metrics.subscribers = subscribers.stream().map(subscriber -> subscriber.getClass().getSimpleName()).toList();
+        metrics.pendingEvents = tripEventRepository.countByAttemptsLessThan(maxAttempts);
+        metrics.parkedEvents = tripEventRepository.countByAttemptsGreaterThanEqual(maxAttempts);
+        metrics.oldestPendingAgeSeconds = oldest != null
+            ? Math.max(0, Duration.between(oldest, LocalDateTime.now()).getSeconds()) : 0;
+        metrics.delivered = delivered.get();
+        metrics.failedDeliveries = failedDeliveries.get();
+        metrics.batches = batches.get();
+        metrics.lastLagMillis = lastLagMillis;
+        metrics.lastError = lastError;
+        return metrics;
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            boolean caughtUp;
+            try {
+                caughtUp = drain();
+            } catch (RuntimeException e) {
+                lastError = message(e);
+                caughtUp = false;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(caughtUp ? pollMillis : retryMillis));
+        }
+    }
+
+    //Deliver batches until none are left; false if a delivery failed
+    private boolean drain() {
+        while (running) {
+            List<TripEvent> events = tripEventRepository.findDeliverable(maxAttempts, PageRequest.of(0, batchSize));
+            if (events.isEmpty()) {
+                return true;
+            }
+            if (!dispatch(events)) {
+                return false;
+            }
+            if (events.size() < batchSize) {
+                return true;
+            }
+        }
+        return true;
+    }
+
+    private boolean dispatch(List<TripEvent> events) {
+        try {
+            deliver(events);
+            acknowledge(events);
+            return true;
+        } catch (RuntimeException e) {
+            lastError = message(e);
+        }
+
+        //A trip's later events wait while an earlier one is failing, until it is delivered or parked
+        boolean allDelivered = true;
+        Set<Long> failedTrips = new HashSet<>();
+        for (TripEvent event : events) {
+            if (failedTrips.contains(event.getTripId())) {
+                allDelivered = false;
+                continue;
+            }
+            try {
+                deliver(List.of(event));
+                acknowledge(List.of(event));
+            } catch (RuntimeException e) {
+                allDelivered = false;
+                failedTrips.add(event.getTripId());
+                failedDeliveries.incrementAndGet();
+                lastError = "Event " + event.getId() + ": " + message(e);
+                transactionTemplate.executeWithoutResult(status ->
+                    tripEventRepository.recordFailure(event.getId(), truncate(message(e))));
+            }
+        }
+        return allDelivered;
+    }
+
+    private void deliver(List<TripEvent> events) {
+        List<TripEvent> view = Collections.unmodifiableList(events);
+        for (TripEventSubscriber subscriber : subscribers) {
+            subscriber.onTripEvents(view);
+        }
+    }
+
+    private void acknowledge(List<TripEvent> events) {
+        List<Long> ids = new ArrayList<>(events.size());
+        for (TripEvent event : events) {
+            ids.add(event.getId());
+        }
+        transactionTemplate.executeWithoutResult(status -> tripEventRepository.deleteByIdIn(ids));
+        delivered.addAndGet(events.size());
+        batches.incrementAndGet();
+        lastLagMillis = Math.max(0, Duration.between(events.get(events.size() - 1).getCreatedAt(), LocalDateTime.now()).toMillis());
+    }
+
+    private static String message(Exception e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    private static String truncate(String message) {
+        return message.length() > ERROR_MESSAGE_LENGTH ? message.substring(0, ERROR_MESSAGE_LENGTH) : message;
+    }
+
+    public static class DispatcherMetrics {
+        private boolean running;
+        private List<String> subscribers;
+        private long pendingEvents;
+        private long parkedEvents;
+        private long oldestPendingAgeSeconds;
+        private long delivered;
+        private long failedDeliveries;
+        private long batches;
+        private long lastLagMillis;
+        private String lastError;
+
+        // Getters
+        public boolean isRunning() { return running; }
+        public List<String> getSubscribers() { return subscribers; }
+        public long getPendingEvents() { return pendingEvents; }
+        public long getParkedEvents() { return parkedEvents; }
+        public long getOldestPendingAgeSeconds() { return oldestPendingAgeSeconds; }
+        public long getDelivered() { return delivered; }
+        public long getFailedDeliveries() { return failedDeliveries; }
+        public long getBatches() { return batches; }
+        public long getLastLagMillis() { return lastLagMillis; }
+        public String getLastError() { return lastError; }
+    }
+}
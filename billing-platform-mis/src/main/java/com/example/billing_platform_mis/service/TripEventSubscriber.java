@@ -0,0 +1,15 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.TripEvent;
+
+import java.util.List;
+
+//Receives trip changes from the outbox once they have committed; every Spring bean implementing this is
+//subscribed. Delivery is at least once: after a failure or a restart events may arrive again, so
+//subscribers must apply them idempotently (e.g. keyed by event or trip ID). Subscribers only receive events
+//when billing.outbox.enabled is set.
+public interface TripEventSubscriber {
+
+    //Events ordered by trip, each trip's in commit order; throwing makes the dispatcher deliver them again later
+    void onTripEvents(List<TripEvent> events);
+}
@@ -0,0 +1,335 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.ClientVendor;
+import com.example.billing_platform_mis.pricing.Money;
+import com.example.billing_platform_mis.pricing.OverageCharges;
+import com.example.billing_platform_mis.pricing.PricingEngine;
+import com.example.billing_platform_mis.pricing.RateCard;
+import com.example.billing_platform_mis.pricing.TripCharges;
+import com.example.billing_platform_mis.repository.ClientVendorRepository;
+import com.example.billing_platform_mis.repository.IncentiveRepository;
+import com.example.billing_platform_mis.repository.PayoutRepository;
+import com.example.billing_platform_mis.repository.TripRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+//Trip-by-trip breakdown of a relationship's charges, written as NDJSON straight from a database cursor:
+//a "rates" line, one "trip" line per trip and a closing "totals" line. Rows are projections, so the
+//persistence context stays empty and memory does not grow with the size of the period. Archived trips of
+//the period are read from the trip archive and merged into the cursor's date order.
+@Service
+public class TripExplanationService {
+
+    private static final int FLUSH_EVERY = 200;
+    //Trip IDs per IN list when loading the incentives and payouts of archived trips
+    private static final int ID_CHUNK = 1000;
+
+    //Row order of the explanation: trip date, then trip ID
+    private static final Comparator<Object[]> TRIP_ORDER =
+        Comparator.comparing((Object[] row) -> (LocalDate) row[1]).thenComparing(row -> (Long) row[0]);
+
+    @Autowired
+    private ClientVendorRepository clientVendorRepository;
+
+    @Autowired
+    private TripRepository tripRepository;
+
+    @Autowired
+    private IncentiveRepository incentiveRepository;
+
+    @Autowired
+    private PayoutRepository payoutRepository;
+
+    @Autowired
+    private TripArchiveService tripArchiveService;
+
+    @Autowired
+    private RateCardService rateCardService;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    //Rate card the explanation will use; fails before any output is written if the request is invalid
+    public RateCard prepare(Long clientVendorId, LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("Invalid billing period");
+        }
+        ClientVendor relationship = clientVendorRepository.findById(clientVendorId)
+            .orElseThrow(() -> new IllegalArgumentException("Client-vendor relationship not found"));
+        return rateCardService.getRateCard(relationship);
+    }
+
+    //Write the explanation of every trip in the period to the output
+    @Transactional(readOnly = true)
+    public void writeExplanations(RateCard rateCard, LocalDate startDate, LocalDate endDate, OutputStream output) {
+        long tripRateComponent = Money.hundredthsToAmount(rateCard.getStrategy().perTripBaseCost(0, rateCard.getTripRate()));
+        long packageContribution = rateCard.getPerTripBaseCost() - tripRateComponent;
+
+        writeLine(output, ratesLine(rateCard, startDate, endDate, tripRateComponent, packageContribution));
+
+        long tripCount = 0;
+        long totalCost = 0;
+        BigDecimal recordedCost = BigDecimal.ZERO;
+        BigDecimal recordedIncentives = BigDecimal.ZERO;
+        BigDecimal recordedPayouts = BigDecimal.ZERO;
+        long mismatches = 0;
+
+        Iterator<Object[]> archived = archivedCharges(rateCard.getClientVendorId(), startDate, endDate);
+        try (Stream<Object[]> rows = tripRepository.streamTripChargesByClientVendorAndDateRange(
+                rateCard.getClientVendorId(), startDate, endDate)) {
+            Iterator<Object[]> iterator = inTripOrder(rows.iterator(), archived);
+            while (iterator.hasNext()) {
+                Object[] row = iterator.next();
+                BigDecimal distance = (BigDecimal) row[3];
+                BigDecimal duration = (BigDecimal) row[4];
+                TripCharges charges = PricingEngine.priceTrip(rateCard, distance, duration);
+                OverageCharges overages = PricingEngine.priceOverages(rateCard, distance, duration);
+
+                Map<String, Object> line = new LinkedHashMap<>();
+                line.put("type", "trip");
+                line.put("tripId", row[0]);
+                line.put("tripDate", row[1].toString());
+                line.put("employeeId", row[2]);
+                line.put("distance", distance);
+                line.put("duration", duration);
+
+                Map<String, Object> base = new LinkedHashMap<>();
+                base.put("tripRate", Money.toBigDecimal(tripRateComponent));
+                base.put("packageContribution", Money.toBigDecimal(packageContribution));
+                base.put("total", Money.toBigDecimal(rateCard.getPerTripBaseCost()));
+                base.put("vendorShare", Money.toBigDecimal(rateCard.getHalfBaseCost()));
+                base.put("employeeShare", Money.toBigDecimal(rateCard.getHalfBaseCost()));
+                line.put("base", base);
+
+                Map<String, Object> extraDistance = new LinkedHashMap<>();
+                extraDistance.put("overage", overages.getDistanceOverage());
+                extraDistance.put("employeeCost", overages.getDistanceIncentive());
+                extraDistance.put("vendorCost", overages.getDistancePayout());
+                line.put("extraDistance", extraDistance);
+
+                Map<String, Object> extraTime = new LinkedHashMap<>();
+                extraTime.put("overage", overages.getTimeOverage());
+                extraTime.put("employeeCost", overages.getTimeIncentive());
+                extraTime.put("vendorCost", overages.getTimePayout());
+                line.put("extraTime", extraTime);
+
+                line.put("vendorCost", charges.getVendorCost());
+                line.put("employeeCost", charges.getEmployeeCost());
+                line.put("totalCost", charges.getTotalCost());
+
+                Map<String, Object> recorded = new LinkedHashMap<>();
+                recorded.put("vendorCost", row[5]);
+                recorded.put("employeeCost", row[6]);
+                recorded.put("totalCost", row[7]);
+                line.put("recorded", recorded);
+
+                boolean matches = row[7] != null && charges.getTotalCost().compareTo((BigDecimal) row[7]) == 0;
+                line.put("matchesCurrentRates", matches);
+
+                if (row[10] != null) {
+                    Map<String, Object> incentive = new LinkedHashMap<>();
+                    incentive.put("distance", row[8]);
+                    incentive.put("time", row[9]);
+                    incentive.put("total", row[10]);
+                    line.put("incentive", incentive);
+                    recordedIncentives = recordedIncentives.add((BigDecimal) row[10]);
+                } else {
+                    line.put("incentive", null);
+                }
+                if (row[14] != null) {
+                    Map<String, Object> payout = new LinkedHashMap<>();
+                    payout.put("base", row[11]);
+                    payout.put("distance", row[12]);
+                    payout.put("time", row[13]);
+                    payout.put("total", row[14]);
+                    line.put("payout", payout);
+                    recordedPayouts = recordedPayouts.add((BigDecimal) row[14]);
+                } else {
+                    line.put("payout", null);
+                }
+
+                writeLine(output, line);
+
+                tripCount++;
+                //Sum of the rounded per-trip totals, so the closing line adds up to the trip lines
+                totalCost = Math.addExact(totalCost, Money.roundToHundredths(charges.getTotalCostValue()));
+                if (row[7] != null) {
+                    recordedCost = recordedCost.add((BigDecimal) row[7]);
+                }
+                if (!matches) {
+                    mismatches++;
+                }
+                if (tripCount % FLUSH_EVERY == 0) {
+                    flush(output);
+                }
+            }
+        }
+
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totals.put("type", "totals");
+        totals.put("tripCount", tripCount);
+        totals.put("totalCost", BigDecimal.valueOf(totalCost, 2));
+        totals.put("recordedTotalCost", recordedCost);
+        totals.put("recordedIncentives", recordedIncentives);
+        totals.put("recordedPayouts", recordedPayouts);
+        totals.put("tripsNotMatchingCurrentRates", mismatches);
+        writeLine(output, totals);
+        flush(output);
+    }
+
+    //Archived trips of the period in the shape of the live rows, with the incentive and payout still stored
+    //for them; read from the archive and joined to their amounts ID_CHUNK trips at a time
+    private Iterator<Object[]> archivedCharges(Long clientVendorId, LocalDate startDate, LocalDate endDate) {
+        Iterator<TripArchiveSegment.Row> trips = tripArchiveService.iterateArchivedRows(
+            TripArchiveSegment.Column.CLIENT_VENDOR_ID, clientVendorId, startDate, endDate, false);
+        return new Iterator<>() {
+            private final Deque<Object[]> chunk = new ArrayDeque<>();
+
+            @Override
+            public boolean hasNext() {
+                if (chunk.isEmpty() && trips.hasNext()) {
+                    loadChunk();
+                }
+                return !chunk.isEmpty();
+            }
+
+            @Override
+            public Object[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return chunk.poll();
+            }
+
+            private void loadChunk() {
+                List<TripArchiveSegment.Row> rows = new ArrayList<>(ID_CHUNK);
+                List<Long> ids = new ArrayList<>(ID_CHUNK);
+                while (rows.size() < ID_CHUNK && trips.hasNext()) {
+                    TripArchiveSegment.Row trip = trips.next();
+                    rows.add(trip);
+                    ids.add(trip.getId());
+                }
+                Map<Long, Object[]> incentives = new HashMap<>();
+                for (Object[] incentive : incentiveRepository.findAmountsByTripIdIn(ids)) {
+                    incentives.put((Long) incentive[0], incentive);
+                }
+                Map<Long, Object[]> payouts = new HashMap<>();
+                for (Object[] payout : payoutRepository.findAmountsByTripIdIn(ids)) {
+                    payouts.put((Long) payout[0], payout);
+                }
+                Object[] none = new Object[5];
+                for (TripArchiveSegment.Row trip : rows) {
+                    Object[] incentive = incentives.getOrDefault(trip.getId(), none);
+                    Object[] payout = payouts.getOrDefault(trip.getId(), none);
+                    chunk.add(new Object[] {
+                        trip.getId(), trip.getTripDate(), trip.getEmployeeId(), trip.getDistance(), trip.getDuration(),
+                        trip.getVendorCost(), trip.getEmployeeCost(), trip.getTotalCost(),
+                        incentive[1], incentive[2], incentive[3],
+                        payout[1], payout[2], payout[3], payout[4]
+                    });
+                }
+            }
+        };
+    }
+
+    //Live and archived rows together in trip order; each input is already in that order
+    private static Iterator<Object[]> inTripOrder(Iterator<Object[]> live, Iterator<Object[]> archived) {
+        if (!archived.hasNext()) {
+            return live;
+        }
+        return new Iterator<>() {
+            private Object[] nextLive = live.hasNext() ? live.next() : null;
+            private Object[] nextArchived = archived.hasNext() ? archived.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return nextLive != null || nextArchived != null;
+            }
+
+            @Override
+            public Object[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Object[] row;
+                if (nextArchived == null || (nextLive != null && TRIP_ORDER.compare(nextLive, nextArchived) <= 0)) {
+                    row = nextLive;
+                    nextLive = live.hasNext() ? live.next() : null;
+                } else {
+                    row = nextArchived;
+                    nextArchived = archived.hasNext() ? archived.next() : null;
+                }
+                return row;
+            }
+        };
+    }
+
+    //Error body for a request rejected before streaming started
+    public void writeError(String message, OutputStream output) {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("error", message);
+        writeLine(output, error);
+    }
+
+    private Map<String, Object> ratesLine(RateCard rateCard, LocalDate startDate, LocalDate endDate,
+                                          long tripRateComponent, long packageContribution) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("type", "rates");
+        line.put("clientVendorId", rateCard.getClientVendorId());
+        line.put("billingModel", rateCard.getBillingModel().toString());
+        line.put("startDate", startDate.toString());
+        line.put("endDate", endDate.toString());
+        line.put("packageRate", BigDecimal.valueOf(rateCard.getPackageRate(), 2));
+        line.put("tripRate", BigDecimal.valueOf(rateCard.getTripRate(), 2));
+        line.put("standardDistanceLimit", limit(rateCard.getDistanceLimit()));
+        line.put("standardTimeLimit", limit(rateCard.getTimeLimit()));
+        line.put("employeeExtraDistanceRate", BigDecimal.valueOf(rateCard.getEmployeeExtraDistanceRate(), 2));
+        line.put("employeeExtraTimeRate", BigDecimal.valueOf(rateCard.getEmployeeExtraTimeRate(), 2));
+        line.put("vendorExtraDistanceRate", BigDecimal.valueOf(rateCard.getVendorExtraDistanceRate(), 2));
+        line.put("vendorExtraTimeRate", BigDecimal.valueOf(rateCard.getVendorExtraTimeRate(), 2));
+        line.put("perTripTripRate", Money.toBigDecimal(tripRateComponent));
+        line.put("perTripPackageContribution", Money.toBigDecimal(packageContribution));
+        return line;
+    }
+
+    //A relationship without a limit is shown with a null one
+    private static BigDecimal limit(long hundredths) {
+        return hundredths != RateCard.NO_LIMIT ? BigDecimal.valueOf(hundredths, 2) : null;
+    }
+
+    private void writeLine(OutputStream output, Map<String, Object> line) {
+        try {
+            output.write(jsonMapper.writeValueAsBytes(line));
+            output.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void flush(OutputStream output) {
+        try {
+            output.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.Trip;
+import com.example.billing_platform_mis.repository.TripRepository;
+import com.example.billing_platform_mis.service.TripArchiveSegment.Column;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+//Trip finders over the trips table and the trip archive. Each returns what the TripRepository finder of the
+//same name returns, plus the archived trips it would have returned, newest first. Date ranges that do not reach
+//into the archive cost nothing beyond the repository query; the all-time finders read every archived trip of
+//their key.
+@Service
+public class TripHistoryService {
+
+    @Autowired
+    private TripRepository tripRepository;
+
+    @Autowired
+    private TripArchiveService tripArchiveService;
+
+    public List<Trip> findByEmployeeIdAndDateRange(Long employeeId, LocalDate startDate, LocalDate endDate) {
+        return withArchived(tripRepository.findByEmployeeIdAndDateRange(employeeId, startDate, endDate),
+            Column.EMPLOYEE_ID, employeeId, startDate, endDate);
+    }
+
+    public List<Trip> findByClientIdAndDateRange(Long clientId, LocalDate startDate, LocalDate endDate) {
+        return withArchived(tripRepository.findByClientIdAndDateRange(clientId, startDate, endDate),
+            Column.CLIENT_ID, clientId, startDate, endDate);
+    }
+
+    public List<Trip> findByVendorIdAndDateRange(Long vendorId, LocalDate startDate, LocalDate endDate) {
+        return withArchived(tripRepository.findByVendorIdAndDateRange(vendorId, startDate, endDate),
+            Column.VENDOR_ID, vendorId, startDate, endDate);
+    }
+
+    public List<Trip> findByClientVendorIdAndDateRange(Long clientVendorId, LocalDate startDate, LocalDate endDate) {
+        return withArchived(tripRepository.findByClientVendorIdAndDateRange(clientVendorId, startDate, endDate),
+            Column.CLIENT_VENDOR_ID, clientVendorId, startDate, endDate);
+    }
+
+    public List<Trip> findByClientIdWithEmployeeDetailsAndDateRange(Long clientId, LocalDate startDate, LocalDate endDate) {
+        return withArchived(tripRepository.findByClientIdWithEmployeeDetailsAndDateRange(clientId, startDate, endDate),
+            Column.CLIENT_ID, clientId, startDate, endDate);
+    }
+
+    public List<Trip> findByVendorIdWithClientDetailsAndDateRange(Long vendorId, LocalDate startDate, LocalDate endDate) {
+        return withArchived(tripRepository.findByVendorIdWithClientDetailsAndDateRange(vendorId, startDate, endDate),
+            Column.VENDOR_ID, vendorId, startDate, endDate);
+    }
+
+    public List<Trip> findByEmployeeId(Long employeeId) {
+        return withArchived(tripRepository.findByEmployeeId(employeeId), Column.EMPLOYEE_ID, employeeId,
+            LocalDate.MIN, LocalDate.MAX, row -> true);
+    }
+
+    public List<Trip> findTripsByClientId(Long clientId) {
+        return withArchived(tripRepository.findTripsByClientId(clientId), Column.CLIENT_ID, clientId,
+            LocalDate.MIN, LocalDate.MAX, row -> true);
+    }
+
+    public List<Trip> findByVendorId(Long vendorId) {
+        return withArchived(tripRepository.findByVendorId(vendorId), Column.VENDOR_ID, vendorId,
+            LocalDate.MIN, LocalDate.MAX, row -> true);
+    }
+
+    public List<Trip> findByEmployeeIdAndClientId(Long employeeId, Long clientId) {
+        return withArchived(tripRepository.findByEmployeeIdAndClientId(employeeId, clientId), Column.EMPLOYEE_ID,
+            employeeId, LocalDate.MIN, LocalDate.MAX, row -> clientId != null && row.getClientId() == clientId);
+    }
+
+    public List<Trip> findByVendorIdAndClientId(Long vendorId, Long clientId) {
+        return withArchived(tripRepository.findByVendorIdAndClientId(vendorId, clientId), Column.VENDOR_ID,
+            vendorId, LocalDate.MIN, LocalDate.MAX, row -> clientId != null && row.getClientId() == clientId);
+    }
+
+    private List<Trip> withArchived(List<Trip> live, Column keyColumn, Long key, LocalDate startDate, LocalDate endDate) {
+        return withArchived(live, keyColumn, key, startDate, endDate, row -> true);
+    }
+
+    //Merge archived trips into live ones by trip date (descending); a trip still live wins over its archived copy
+    private List<Trip> withArchived(List<Trip> live, Column keyColumn, Long key, LocalDate startDate, LocalDate endDate,
+                                    Predicate<TripArchiveSegment.Row> filter) {
+        if (key == null || startDate == null || endDate == null || !tripArchiveService.covers(startDate, endDate)) {
+            return live;
+        }
+        List<Trip> archived = tripArchiveService.findTrips(keyColumn, key, startDate, endDate, filter);
+        if (archived.isEmpty()) {
+            return live;
+        }
+        Set<Long> liveIds = new HashSet<>();
+        for (Trip trip : live) {
+            liveIds.add(trip.getId());
+        }
+        List<Trip> merged = new ArrayList<>(live.size() + archived.size());
+        merged.addAll(live);
+        for (Trip trip : archived) {
+            if (!liveIds.contains(trip.getId())) {
+                merged.add(trip);
+            }
+        }
+        merged.sort(Comparator.comparing(Trip::getTripDate).reversed());
+        return merged;
+    }
+}
@@ -0,0 +1,393 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.ClientVendor;
+import com.example.billing_platform_mis.entity.Trip;
+import com.example.billing_platform_mis.entity.TripStatus;
+import com.example.billing_platform_mis.entity.User;
+import com.example.billing_platform_mis.entity.UserRole;
+import com.example.billing_platform_mis.pricing.PricingEngine;
+import com.example.billing_platform_mis.pricing.RateCard;
+import com.example.billing_platform_mis.pricing.TripCharges;
+import com.example.billing_platform_mis.repository.ClientVendorRepository;
+import com.example.billing_platform_mis.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Bulk import of completed trips from NDJSON or CSV. Client relationships and rate cards are loaded once
+//per upload and membership comes from the in-memory index. Rows are validated and priced in memory, and
+//trips are written with JDBC batch inserts in one transaction per batch together with their day
+//accumulators and pending overage work.
+//Rejected rows are reported with their line number and never stop the rest of the upload.
+@Service
+public class TripImportService {
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    private static final List<String> COLUMNS = List.of("employeeId", "vendorId", "distance", "duration", "tripDate");
+
+    //Column limits of trips.distance (8,2) and trips.duration (6,2)
+    private static final BigDecimal MAX_DISTANCE = new BigDecimal("999999.99");
+    private static final BigDecimal MAX_DURATION = new BigDecimal("9999.99");
+
+    @Value("${billing.import.batch-size:1000}")
+    private int batchSize;
+
+    //Row errors returned in the response; further errors are only counted
+    @Value("${billing.import.max-errors:1000}")
+    private int maxErrors;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ClientEmployeeIndex clientEmployeeIndex;
+
+    @Autowired
+    private ClientVendorRepository clientVendorRepository;
+
+    @Autowired
+    private RateCardService rateCardService;
+
+    @Autowired
+    private PeriodCloseService periodCloseService;
+
+    @Autowired
+    private TripBatchWriter tripBatchWriter;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    //Import every row of the upload for a client; format is FORMAT_CSV (header line required) or FORMAT_NDJSON
+    public ImportResult importTrips(Long clientId, String format, InputStream input) throws IOException {
+        if (!FORMAT_CSV.equals(format) && !FORMAT_NDJSON.equals(format)) {
+            throw new IllegalArgumentException("Unsupported import format: " + format);
+        }
+        long startNanos = System.nanoTime();
+        ImportContext context = loadContext(clientId);
+        ImportResult result = new ImportResult();
+        List<PendingRow> batch = new ArrayList<>(batchSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16)) {
+            Map<String, Integer> header = null;
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (FORMAT_CSV.equals(format) && header == null) {
+                    header = parseHeader(line);
+                    continue;
+                }
+                result.rowsRead++;
+                try {
+                    RawRow raw = FORMAT_CSV.equals(format) ? parseCsv(line, header) : parseJson(line);
+                    batch.add(new PendingRow(lineNumber, buildTrip(context, raw)));
+                } catch (IllegalArgumentException e) {
+                    result.reject(lineNumber, e.getMessage(), maxErrors);
+                }
+                if (batch.size() >= batchSize) {
+                    writeBatch(batch, result);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch, result);
+        }
+
+        result.elapsedMillis = Duration.ofNanos(System.nanoTime() - startNanos).toMillis();
+        result.rowsPerSecond = result.rowsRead * 1000.0 / Math.max(1, result.elapsedMillis);
+        return result;
+    }
+
+    //Relationships and pricing inputs shared by every row of an upload
+    private ImportContext loadContext(Long clientId) {
+        User client = userRepository.findById(clientId)
+            .orElseThrow(() -> new IllegalArgumentException("Client not found"));
+        if (client.getRole() != UserRole.CLIENT) {
+            throw new IllegalArgumentException("User is not a client");
+        }
+
+        ImportContext context = new ImportContext();
+        context.clientId = clientId;
+        List<ClientVendor> relationships = clientVendorRepository.findByClientId(clientId);
+        for (ClientVendor relationship : relationships) {
+            context.relationshipsByVendor.put(relationship.getVendor().getId(), relationship);
+        }
+        context.rateCards = rateCardService.getRateCards(relationships);
+        context.today = LocalDate.now();
+        return context;
+    }
+
+    //Validate and price one row; the same rules as booking a single trip
+    private Trip buildTrip(ImportContext context, RawRow raw) {
+        Long employeeId = parseId(raw.employeeId, "employeeId");
+        Long vendorId = parseId(raw.vendorId, "vendorId");
+        BigDecimal distance = parseAmount(raw.distance, "distance", MAX_DISTANCE);
+        BigDecimal duration = parseAmount(raw.duration, "duration", MAX_DURATION);
+        LocalDate tripDate = parseDate(raw.tripDate);
+
+        if (duration.signum() <= 0) {
+            throw new IllegalArgumentException("Duration must be positive");
+        }
+        if (tripDate.isAfter(context.today)) {
+            throw new IllegalArgumentException("Invalid trip date");
+        }
+        if (!clientEmployeeIndex.isMember(context.clientId, employeeId)) {
+            throw new IllegalArgumentException("Employee is not associated with this client");
+        }
+        ClientVendor relationship = context.relationshipsByVendor.get(vendorId);
+        if (relationship == null) {
+            throw new IllegalArgumentException("No agreement exists between client and vendor");
+        }
+        if (periodCloseService.isClosed(relationship.getId(), tripDate)) {
+            throw new IllegalArgumentException("Billing period is closed for this trip date");
+        }
+
+        TripCharges charges = PricingEngine.priceTrip(context.rateCards.get(relationship.getId()), distance, duration);
+        Trip trip = new Trip();
+        trip.setClientVendor(relationship);
+        trip.setEmployee(context.employee(employeeId));
+        trip.setDistance(distance);
+        trip.setDuration(duration);
+        trip.setTripDate(tripDate);
+        trip.setVendorCost(charges.getVendorCost());
+        trip.setEmployeeCost(charges.getEmployeeCost());
+        trip.setTotalCost(charges.getTotalCost());
+        trip.setExtraDistanceCost(charges.getExtraDistanceCost());
+        trip.setExtraTimeCost(charges.getExtraTimeCost());
+        trip.setStatus(TripStatus.COMPLETED);
+        return trip;
+    }
+
+    //Insert one batch with its accumulators and overage work. A failed batch is retried row by row, as the
+    //ingestion buffer's flush does, so only the rows the database refuses are rejected.
+    private void writeBatch(List<PendingRow> batch, ImportResult result) {
+        List<Trip> trips = new ArrayList<>(batch.size());
+        for (PendingRow row : batch) {
+            trips.add(row.trip);
+        }
+        try {
+            write(trips);
+            result.imported += batch.size();
+            result.batches++;
+            return;
+        } catch (RuntimeException e) {
+            result.retriedBatches++;
+        }
+        for (PendingRow row : batch) {
+            try {
+                write(List.of(row.trip));
+                result.imported++;
+            } catch (RuntimeException e) {
+                String message = "Insert failed: " + (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                result.reject(row.lineNumber, message, maxErrors);
+            }
+        }
+    }
+
+    private void write(List<Trip> trips) {
+        transactionTemplate.executeWithoutResult(status -> {
+            tripBatchWriter.write(trips);
+        });
+    }
+
+    private Map<String, Integer> parseHeader(String line) {
+        String[] names = line.split(",", -1);
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            header.put(names[i].trim(), i);
+        }
+        for (String column : COLUMNS) {
+            if (!header.containsKey(column)) {
+                throw new IllegalArgumentException("CSV header is missing column " + column);
+            }
+        }
+        return header;
+    }
+
+    private RawRow parseCsv(String line, Map<String, Integer> header) {
+        String[] values = line.split(",", -1);
+        if (values.length < header.size()) {
+            throw new IllegalArgumentException("Expected " + header.size() + " columns but found " + values.length);
+        }
+        RawRow raw = new RawRow();
+        raw.employeeId = values[header.get("employeeId")].trim();
+        raw.vendorId = values[header.get("vendorId")].trim();
+        raw.distance = values[header.get("distance")].trim();
+        raw.duration = values[header.get("duration")].trim();
+        raw.tripDate = values[header.get("tripDate")].trim();
+        return raw;
+    }
+
+    private RawRow parseJson(String line) {
+        Map<?, ?> values;
+        try {
+            values = jsonMapper.readValue(line, Map.class);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed JSON row");
+        }
+        RawRow raw = new RawRow();
+        raw.employeeId = text(values.get("employeeId"));
+        raw.vendorId = text(values.get("vendorId"));
+        raw.distance = text(values.get("distance"));
+        raw.duration = text(values.get("duration"));
+        raw.tripDate = text(values.get("tripDate"));
+        return raw;
+    }
+
+    private static String text(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    private static Long parseId(String value, String column) {
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException(column + " is required");
+        }
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+    }
+
+    private static BigDecimal parseAmount(String value, String column, BigDecimal max) {
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException(column + " is required");
+        }
+        BigDecimal amount;
+        try {
+            amount = new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+        if (amount.signum() < 0 || amount.compareTo(max) > 0 || amount.stripTrailingZeros().scale() > 2) {
+            throw new IllegalArgumentException(column + " must be between 0 and " + max + " with at most 2 decimals");
+        }
+        return amount;
+    }
+
+    private static LocalDate parseDate(String value) {
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("tripDate is required");
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid tripDate: " + value);
+        }
+    }
+
+    private static class ImportContext {
+        private Long clientId;
+        private final Map<Long, ClientVendor> relationshipsByVendor = new HashMap<>();
+        private Map<Long, RateCard> rateCards;
+        private final Map<Long, User> employees = new HashMap<>();
+        private LocalDate today;
+
+        //ID-only employee reference; the insert only needs the key
+        private User employee(Long employeeId) {
+            return employees.computeIfAbsent(employeeId, id -> {
+                User employee = new User();
+                employee.setId(id);
+                return employee;
+            });
+        }
+    }
+
+    private static class RawRow {
+        private String employeeId;
+        private String vendorId;
+        private String distance;
+        private String duration;
+        private String tripDate;
+    }
+
+    private static class PendingRow {
+        private final long lineNumber;
+        private final Trip trip;
+
+        private PendingRow(long lineNumber, Trip trip) {
+            this.lineNumber = lineNumber;
+            this.trip = trip;
+        }
+    }
+
+    public static class RowError {
+        private final long line;
+        private final String error;
+
+        public RowError(long line, String error) {
+            this.line = line;
+            this.error = error;
+        }
+
+        // Getters
+        public long getLine() { return line; }
+        public String getError() { return error; }
+    }
+
+    public static class ImportResult {
+        private long rowsRead;
+        private long imported;
+        private long rejected;
+        private int batches;
+        private int retriedBatches;
+        private long elapsedMillis;
+        private double rowsPerSecond;
+        private final List<RowError> errors = new ArrayList<>();
+        private boolean errorsTruncated;
+
+        private void reject(long line, String error, int maxErrors) {
+            rejected++;
+            if (errors.size() < maxErrors) {
+                errors.add(new RowError(line, error));
+            } else {
+                errorsTruncated = true;
+            }
+        }
+
+        // Getters
+        public long getRowsRead() { return rowsRead; }
+        public long getImported() { return imported; }
+        public long getRejected() { return rejected; }
+        public int getBatches() { return batches; }
+        public int getRetriedBatches() { return retriedBatches; }
+        public long getElapsedMillis() { return elapsedMillis; }
+        public double getRowsPerSecond() { return rowsPerSecond; }
+        public List<RowError> getErrors() { return errors; }
+        public boolean isErrorsTruncated() { return errorsTruncated; }
+    }
+}
@@ -0,0 +1,790 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.ClientVendor;
+import com.example.billing_platform_mis.entity.Trip;
+import com.example.billing_platform_mis.entity.TripStatus;
+import com.example.billing_platform_mis.entity.User;
+import com.example.billing_platform_mis.repository.ClientVendorRepository;
+import com.example.billing_platform_mis.repository.TripRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+//Optional write-behind mode for trip bookings. A booking is acknowledged once its trip is in a local append
+//log that has been forced to disk; one writer thread appends and fsyncs every booking waiting at that moment
+//together (group commit). A flusher then writes the logged trips to the database every few milliseconds in
+//JDBC batches, with their day accumulators and overage work, and a log segment is deleted once all of its
+//trips are committed. Segments left by a crash are replayed at startup, skipping trips already stored.
+//Reads of a client's trips wait until that client's logged trips are committed, so the booking client
+//always sees its own bookings; other readers may see a trip a few milliseconds after it was acknowledged.
+@Service
+public class TripIngestionBuffer {
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("trips-(\\d+)\\.log");
+    private static final String REJECTED_LOG = "rejected.log";
+    private static final int ID_BLOCK = 50;
+    private static final int FIELDS = 13;
+    private static final int MAX_GROUP = 1000;
+    //SQLSTATEs of constraint failures no retry can clear: not null, foreign key (H2 reports a missing parent
+    //as 23506), check. Data exceptions (class 22, e.g. a value out of range) cannot clear either; a unique
+    //conflict can.
+    private static final Set<String> PERMANENT_STATES = Set.of("23502", "23503", "23506", "23514");
+    private static final String DATA_EXCEPTION_CLASS = "22";
+
+    @Value("${billing.ingestion.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${billing.ingestion.write-behind.log-dir:data/trip-log}")
+    private String logDir;
+
+    @Value("${billing.ingestion.write-behind.flush-millis:5}")
+    private long flushMillis;
+
+    @Value("${billing.ingestion.write-behind.batch-size:500}")
+    private int batchSize;
+
+    //Trips per log segment before a new segment is started
+    @Value("${billing.ingestion.write-behind.segment-records:10000}")
+    private int segmentRecords;
+
+    //Logged trips not yet in the database before new bookings are refused
+    @Value("${billing.ingestion.write-behind.max-pending:100000}")
+    private int maxPending;
+
+    @Value("${billing.ingestion.write-behind.ack-timeout-millis:5000}")
+    private long ackTimeoutMillis;
+
+    //How long a client's read waits for its own logged trips to reach the database
+    @Value("${billing.ingestion.write-behind.visibility-timeout-millis:5000}")
+    private long visibilityTimeoutMillis;
+
+    //Pause after the database refused a flush for a reason other than the data itself
+    @Value("${billing.ingestion.write-behind.retry-millis:1000}")
+    private long retryMillis;
+
+    //The pause doubles with every consecutive refused flush up to this
+    @Value("${billing.ingestion.write-behind.max-retry-millis:60000}")
+    private long maxRetryMillis;
+
+    @Autowired
+    private TripBatchWriter tripBatchWriter;
+
+    @Autowired
+    private TripRepository tripRepository;
+
+    @Autowired
+    private ClientVendorRepository clientVendorRepository;
+
+    @Autowired
+    private SequenceIdAllocator sequenceIdAllocator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private Path directory;
+    private Thread writer;
+    private ScheduledExecutorService flusher;
+    private volatile boolean running;
+    private volatile boolean accepting;
+    private volatile long retryAfterMillis;
+    private int failedFlushes;
+
+    private final BlockingQueue<Append> appends = new LinkedBlockingQueue<>();
+    //Trips durable in the log but not yet committed to the database, oldest first
+    private final Deque<LogRecord> pending = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger pendingTrips = new AtomicInteger();
+    //Trips accepted per client that are not yet readable from the database
+    private final Map<Long, AtomicInteger> unreadableByClient = new ConcurrentHashMap<>();
+    private final Object visibility = new Object();
+    private final List<Segment> segments = new ArrayList<>();
+    private final Deque<Long> reservedIds = new ArrayDeque<>();
+    private Segment current;
+    private long nextSegmentNumber = 1;
+
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong groupCommits = new AtomicLong();
+    private final AtomicLong committed = new AtomicLong();
+    private final AtomicLong flushBatches = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong recovered = new AtomicLong();
+    private volatile String lastError;
+
+    //Replay what a previous run left in the log, then start the writer and the flusher
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        directory = Paths.get(logDir);
+        Files.createDirectories(directory);
+        recover();
+
+        running = true;
+        writer = new Thread(this::writeLoop, "trip-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "trip-log-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, 0, flushMillis, TimeUnit.MILLISECONDS);
+        accepting = true;
+    }
+
+    //Stop taking bookings, finish logging the ones already taken and make a last attempt to store them;
+    //anything not stored stays in the log for the next start
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        accepting = false;
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        retryAfterMillis = 0;
+        flush();
+        synchronized (segments) {
+            if (current != null) {
+                seal(current);
+            }
+        }
+    }
+
+    //Whether bookings should go through the log; false while disabled, recovering or shutting down
+    public boolean isAccepting() {
+        return accepting;
+    }
+
+    //Log a priced trip and wait until it is on disk. Returns the trip with its ID and creation time; it is
+    //committed to the database shortly after. If the wait times out the trip may still be stored later.
+    public Trip submit(Trip trip, Long clientId) {
+        if (!accepting) {
+            throw new IllegalStateException("Write-behind trip ingestion is not accepting trips");
+        }
+        if (pendingTrips.get() >= maxPending) {
+            throw new IllegalStateException("Trip ingestion buffer is full; retry shortly");
+        }
+        trip.setId(nextTripId());
+        trip.setCreatedAt(LocalDateTime.now());
+        if (trip.getStatus() == null) {
+            trip.setStatus(TripStatus.COMPLETED);
+        }
+        LogRecord record = new LogRecord(trip, clientId);
+        Append append = new Append(record, encode(record));
+        markUnreadable(clientId, 1);
+        appends.add(append);
+
+        try {
+            append.durable.get(ackTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new UnconfirmedTripException("Trip was not confirmed in time; check before booking it again");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not log trip: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnconfirmedTripException("Interrupted while logging trip; check before booking it again");
+        }
+        return trip;
+    }
+
+    //Block until every trip accepted for the client is readable from the database
+    public void awaitVisible(Long clientId) {
+        if (!enabled || clientId == null || unreadable(clientId) == 0) {
+            return;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(visibilityTimeoutMillis);
+        synchronized (visibility) {
+            while (unreadable(clientId) > 0) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis <= 0) {
+                    throw new IllegalStateException("Recently booked trips are not stored yet; retry shortly");
+                }
+                try {
+                    visibility.wait(remainingMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for booked trips");
+                }
+            }
+        }
+    }
+
+    public IngestionMetrics getMetrics() {
+        IngestionMetrics metrics = new IngestionMetrics();
+        metrics.enabled = enabled;
+        metrics.accepting = accepting;
+        metrics.pendingTrips = pendingTrips.get();
+        metrics.appended = appended.get();
+        metrics.groupCommits = groupCommits.get();
+        metrics.averageGroupSize = metrics.groupCommits > 0 ? (double) metrics.appended / metrics.groupCommits : 0;
+        metrics.committed = committed.get();
+        metrics.flushBatches = flushBatches.get();
+        metrics.rejected = rejected.get();
+        metrics.recovered = recovered.get();
+        synchronized (segments) {
+            metrics.logSegments = segments.size();
+        }
+        metrics.lastError = lastError;
+        return metrics;
+    }
+
+    //IDs are reserved a block at a time, so most bookings need no sequence call
+    private synchronized Long nextTripId() {
+        if (reservedIds.isEmpty()) {
+            reservedIds.addAll(transactionTemplate.execute(status -> sequenceIdAllocator.nextIds(Trip.class, ID_BLOCK)));
+        }
+        return reservedIds.poll();
+    }
+
+    //Writer thread: take every append waiting, write them with one fsync and acknowledge them
+    private void writeLoop() {
+        while (running || !appends.isEmpty()) {
+            List<Append> group = new ArrayList<>();
+            try {
+                Append first = appends.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            appends.drainTo(group, MAX_GROUP - 1);
+            synchronized (segments) {
+                writeGroup(group);
+            }
+        }
+    }
+
+    private void writeGroup(List<Append> group) {
+        int next = 0;
+        while (next < group.size()) {
+            Segment segment;
+            try {
+                segment = currentSegment();
+            } catch (IOException e) {
+                fail(group.subList(next, group.size()), e);
+                return;
+            }
+            int end = Math.min(group.size(), next + segmentRecords - segment.appended);
+            List<Append> chunk = group.subList(next, end);
+            try {
+                writeChunk(segment, chunk);
+            } catch (IOException e) {
+                fail(chunk, e);
+                seal(segment);
+            }
+            next = end;
+        }
+    }
+
+    private void writeChunk(Segment segment, List<Append> chunk) throws IOException {
+        int size = 0;
+        for (Append append : chunk) {
+            size += append.line.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (Append append : chunk) {
+            buffer.put(append.line);
+        }
+        buffer.flip();
+
+        long position = segment.channel.position();
+        try {
+            while (buffer.hasRemaining()) {
+                segment.channel.write(buffer);
+            }
+            segment.channel.force(false);
+        } catch (IOException e) {
+            //Never leave unacknowledged trips behind for a replay
+            try {
+                segment.channel.truncate(position);
+            } catch (IOException ignored) {
+                //The failure is reported through the original exception
+            }
+            throw e;
+        }
+
+        segment.appended += chunk.size();
+        for (Append append : chunk) {
+            append.record.segment = segment;
+            pending.add(append.record);
+            pendingTrips.incrementAndGet();
+            append.durable.complete(null);
+        }
+        appended.addAndGet(chunk.size());
+        groupCommits.incrementAndGet();
+        if (segment.appended >= segmentRecords) {
+            seal(segment);
+        }
+    }
+
+    private void fail(List<Append> failed, IOException e) {
+        lastError = "Log write failed: " + e.getMessage();
+        for (Append append : failed) {
+            markReadable(append.record.clientId, 1);
+            append.durable.completeExceptionally(e);
+        }
+    }
+
+    private Segment currentSegment() throws IOException {
+        if (current == null) {
+            Path path = directory.resolve(String.format("trips-%010d.log", nextSegmentNumber++));
+            Segment segment = new Segment(path);
+            segment.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            forceDirectory();
+            segments.add(segment);
+            current = segment;
+        }
+        return current;
+    }
+
+    //Make the new segment's directory entry durable too; not every platform allows opening a directory
+    private void forceDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            //Best effort
+        }
+    }
+
+    //Called with the segments lock held
+    private void seal(Segment segment) {
+        if (segment.channel != null) {
+            try {
+                segment.channel.close();
+            } catch (IOException e) {
+                lastError = "Log close failed: " + e.getMessage();
+            }
+            segment.channel = null;
+        }
+        segment.sealed = true;
+        if (current == segment) {
+            current = null;
+        }
+        releaseSegments();
+    }
+
+    //Delete sealed segments whose trips are all committed or rejected; called with the segments lock held
+    private void releaseSegments() {
+        segments.removeIf(segment -> {
+            if (!segment.sealed || segment.settled.get() < segment.appended) {
+                return false;
+            }
+            try {
+                Files.deleteIfExists(segment.path);
+                return true;
+            } catch (IOException e) {
+                lastError = "Log delete failed: " + e.getMessage();
+                return false;
+            }
+        });
+    }
+
+    //Flusher: commit everything pending in batches; stop at the first batch the database cannot take
+    private void flush() {
+        if (System.currentTimeMillis() < retryAfterMillis) {
+            return;
+        }
+        while (!pending.isEmpty()) {
+            List<LogRecord> batch = new ArrayList<>(batchSize);
+            LogRecord record;
+            while (batch.size() < batchSize && (record = pending.poll()) != null) {
+                batch.add(record);
+            }
+            if (!commit(batch)) {
+                return;
+            }
+        }
+    }
+
+    //A failed batch is retried trip by trip. Only trips the database can never take are rejected; any other
+    //failure, including a unique conflict that may clear, puts the rest back in the log's order and pauses
+    //flushing with a growing backoff, leaving their log entries unsettled.
+    private boolean commit(List<LogRecord> batch) {
+        try {
+            write(batch);
+            settle(batch, true);
+            failedFlushes = 0;
+            return true;
+        } catch (RuntimeException e) {
+            lastError = "Batch flush failed: " + message(e);
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            LogRecord record = batch.get(i);
+            RuntimeException failure;
+            try {
+                write(List.of(record));
+                settle(List.of(record), true);
+                continue;
+            } catch (DataIntegrityViolationException e) {
+                if (isPermanent(e)) {
+                    reject(record.trip, message(e));
+                    settle(List.of(record), false);
+                    continue;
+                }
+                if (isStored(record.trip)) {
+                    //An earlier attempt committed it after all
+                    settle(List.of(record), true);
+                    continue;
+                }
+                failure = e;
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            lastError = "Flush failed: " + message(failure);
+            for (int j = batch.size() - 1; j >= i; j--) {
+                pending.addFirst(batch.get(j));
+            }
+            retryAfterMillis = System.currentTimeMillis() + backoffMillis();
+            return false;
+        }
+        failedFlushes = 0;
+        return true;
+    }
+
+    private long backoffMillis() {
+        long backoff = retryMillis << Math.min(failedFlushes, 16);
+        failedFlushes++;
+        return Math.min(backoff, maxRetryMillis);
+    }
+
+    private static boolean isPermanent(DataIntegrityViolationException e) {
+        String state = sqlState(e);
+        return state != null && (PERMANENT_STATES.contains(state) || state.startsWith(DATA_EXCEPTION_CLASS));
+    }
+
+    private static String sqlState(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null) {
+                return sqlException.getSQLState();
+            }
+        }
+        return null;
+    }
+
+    private boolean isStored(Trip trip) {
+        try {
+            return !tripRepository.findExistingIds(List.of(trip.getId())).isEmpty();
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void write(List<LogRecord> batch) {
+        List<Trip> trips = new ArrayList<>(batch.size());
+        for (LogRecord record : batch) {
+            trips.add(record.trip);
+        }
+        transactionTemplate.executeWithoutResult(status -> tripBatchWriter.write(trips));
+        flushBatches.incrementAndGet();
+    }
+
+    //Trips that left the buffer, stored or rejected
+    private void settle(List<LogRecord> records, boolean stored) {
+        if (stored) {
+            committed.addAndGet(records.size());
+        }
+        pendingTrips.addAndGet(-records.size());
+        Set<Segment> touched = new HashSet<>();
+        for (LogRecord record : records) {
+            markReadable(record.clientId, 1);
+            record.segment.settled.incrementAndGet();
+            touched.add(record.segment);
+        }
+        for (Segment segment : touched) {
+            if (segment.sealed) {
+                synchronized (segments) {
+                    releaseSegments();
+                }
+                break;
+            }
+        }
+    }
+
+    private void markUnreadable(Long clientId, int count) {
+        unreadableByClient.computeIfAbsent(clientId, id -> new AtomicInteger()).addAndGet(count);
+    }
+
+    private void markReadable(Long clientId, int count) {
+        AtomicInteger unreadable = unreadableByClient.get(clientId);
+        if (unreadable != null && unreadable.addAndGet(-count) <= 0) {
+            synchronized (visibility) {
+                visibility.notifyAll();
+            }
+        }
+    }
+
+    private int unreadable(Long clientId) {
+        AtomicInteger unreadable = unreadableByClient.get(clientId);
+        return unreadable != null ? unreadable.get() : 0;
+    }
+
+    //Trips the database will never take are kept next to the log for manual follow-up, never replayed
+    private synchronized void reject(Trip trip, String error) {
+        rejected.incrementAndGet();
+        lastError = "Trip " + trip.getId() + " rejected: " + error;
+        String line = trip.getId() + "\t" + error.replace('\n', ' ') + "\n";
+        try {
+            Files.writeString(directory.resolve(REJECTED_LOG), line, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            lastError = "Could not record rejected trip " + trip.getId() + ": " + e.getMessage();
+        }
+    }
+
+    //Queue the trips of segments left by a previous run. Trips already stored are skipped and a torn last
+    //line (a write the crash interrupted, never acknowledged) fails its checksum and is ignored.
+    private void recover() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> SEGMENT_NAME.matcher(path.getFileName().toString()).matches())
+                .sorted()
+                .forEach(paths::add);
+        }
+        for (Path path : paths) {
+            Matcher matcher = SEGMENT_NAME.matcher(path.getFileName().toString());
+            matcher.matches();
+            nextSegmentNumber = Math.max(nextSegmentNumber, Long.parseLong(matcher.group(1)) + 1);
+
+            Segment segment = new Segment(path);
+            segment.sealed = true;
+            List<String[]> rows = new ArrayList<>();
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.US_ASCII)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = decode(line);
+                    if (fields != null) {
+                        rows.add(fields);
+                    }
+                }
+            }
+            for (int offset = 0; offset < rows.size(); offset += batchSize) {
+                queueRecovered(segment, rows.subList(offset, Math.min(rows.size(), offset + batchSize)));
+            }
+            synchronized (segments) {
+                segments.add(segment);
+                releaseSegments();
+            }
+        }
+    }
+
+    private void queueRecovered(Segment segment, List<String[]> rows) {
+        List<Long> ids = new ArrayList<>(rows.size());
+        Set<Long> relationshipIds = new HashSet<>();
+        for (String[] fields : rows) {
+            ids.add(Long.valueOf(fields[0]));
+            relationshipIds.add(Long.valueOf(fields[2]));
+        }
+        Set<Long> stored = new HashSet<>(tripRepository.findExistingIds(ids));
+        Map<Long, ClientVendor> relationships = new HashMap<>();
+        for (ClientVendor relationship : clientVendorRepository.findAllById(relationshipIds)) {
+            relationships.put(relationship.getId(), relationship);
+        }
+
+        for (String[] fields : rows) {
+            Long tripId = Long.valueOf(fields[0]);
+            if (stored.contains(tripId)) {
+                continue;
+            }
+            ClientVendor relationship = relationships.get(Long.valueOf(fields[2]));
+            Trip trip = toTrip(fields, relationship);
+            if (relationship == null) {
+                reject(trip, "Client-vendor relationship no longer exists");
+                continue;
+            }
+            LogRecord record = new LogRecord(trip, Long.valueOf(fields[1]));
+            record.segment = segment;
+            segment.appended++;
+            markUnreadable(record.clientId, 1);
+            pending.add(record);
+            pendingTrips.incrementAndGet();
+            recovered.incrementAndGet();
+        }
+    }
+
+    //id,clientId,clientVendorId,employeeId,distance,duration,tripDate,totalCost,employeeCost,vendorCost,
+    //extraDistanceCost,extraTimeCost,createdAt followed by a CRC-32 of those fields
+    private static byte[] encode(LogRecord record) {
+        Trip trip = record.trip;
+        String fields = String.join(",",
+            String.valueOf(trip.getId()), String.valueOf(record.clientId), String.valueOf(trip.getClientVendor().getId()),
+            String.valueOf(trip.getEmployee().getId()), amount(trip.getDistance()), amount(trip.getDuration()),
+            trip.getTripDate().toString(), amount(trip.getTotalCost()), amount(trip.getEmployeeCost()),
+            amount(trip.getVendorCost()), amount(trip.getExtraDistanceCost()), amount(trip.getExtraTimeCost()),
+            trip.getCreatedAt().toString());
+        byte[] bytes = fields.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (fields + "," + Long.toHexString(crc.getValue()) + "\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    //Fields of a log line, or null when the line is torn or corrupt
+    private static String[] decode(String line) {
+        int checksumAt = line.lastIndexOf(',');
+        if (checksumAt < 0) {
+            return null;
+        }
+        String fields = line.substring(0, checksumAt);
+        CRC32 crc = new CRC32();
+        crc.update(fields.getBytes(StandardCharsets.US_ASCII));
+        if (!Long.toHexString(crc.getValue()).equals(line.substring(checksumAt + 1))) {
+            return null;
+        }
+        String[] values = fields.split(",", -1);
+        return values.length == FIELDS ? values : null;
+    }
+
+    private static Trip toTrip(String[] fields, ClientVendor relationship) {
+        User employee = new User();
+        employee.setId(Long.valueOf(fields[3]));
+        Trip trip = new Trip();
+        trip.setId(Long.valueOf(fields[0]));
+        trip.setClientVendor(relationship);
+        trip.setEmployee(employee);
+        trip.setDistance(parseAmount(fields[4]));
+        trip.setDuration(parseAmount(fields[5]));
+        trip.setTripDate(LocalDate.parse(fields[6]));
+        trip.setTotalCost(parseAmount(fields[7]));
+        trip.setEmployeeCost(parseAmount(fields[8]));
+        trip.setVendorCost(parseAmount(fields[9]));
+        trip.setExtraDistanceCost(parseAmount(fields[10]));
+        trip.setExtraTimeCost(parseAmount(fields[11]));
+        trip.setCreatedAt(LocalDateTime.parse(fields[12]));
+        trip.setStatus(TripStatus.COMPLETED);
+        return trip;
+    }
+
+    private static String amount(BigDecimal value) {
+        return value != null ? value.toPlainString() : "";
+    }
+
+    private static BigDecimal parseAmount(String value) {
+        return value.isEmpty() ? null : new BigDecimal(value);
+    }
+
+    private static String message(Exception e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    //One log file; settled counts its trips that were committed or rejected
+    private static class Segment {
+        private final Path path;
+        private FileChannel channel;
+        private volatile int appended;
+        private volatile boolean sealed;
+        private final AtomicInteger settled = new AtomicInteger();
+
+        private Segment(Path path) {
+            this.path = path;
+        }
+    }
+
+    private static class LogRecord {
+        private final Trip trip;
+        private final Long clientId;
+        private Segment segment;
+
+        private LogRecord(Trip trip, Long clientId) {
+            this.trip = trip;
+            this.clientId = clientId;
+        }
+    }
+
+    private static class Append {
+        private final LogRecord record;
+        private final byte[] line;
+        private final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        private Append(LogRecord record, byte[] line) {
+            this.record = record;
+            this.line = line;
+        }
+    }
+
+    public static class IngestionMetrics {
+        private boolean enabled;
+        private boolean accepting;
+        private int pendingTrips;
+        private long appended;
+        private long groupCommits;
+        private double averageGroupSize;
+        private long committed;
+        private long flushBatches;
+        private long rejected;
+        private long recovered;
+        private int logSegments;
+        private String lastError;
+
+        // Getters
+        public boolean isEnabled() { return enabled; }
+        public boolean isAccepting() { return accepting; }
+        public int getPendingTrips() { return pendingTrips; }
+        public long getAppended() { return appended; }
+        public long getGroupCommits() { return groupCommits; }
+        public double getAverageGroupSize() { return averageGroupSize; }
+        public long getCommitted() { return committed; }
+        public long getFlushBatches() { return flushBatches; }
+        public long getRejected() { return rejected; }
+        public long getRecovered() { return recovered; }
+        public int getLogSegments() { return logSegments; }
+        public String getLastError() { return lastError; }
+    }
+
+    //The trip was handed to the log but not confirmed, so it may still be stored
+    public static class UnconfirmedTripException extends IllegalStateException {
+        public UnconfirmedTripException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.Trip;
+import com.example.billing_platform_mis.entity.TripEvent;
+import com.example.billing_platform_mis.entity.TripEventType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//Write side of the trip outbox. Every trip insert and update appends an event in the caller's transaction,
+//so an event exists exactly when its change committed; the dispatcher is woken once the transaction commits.
+//Each event is numbered after the trip's earlier events (trip_seq) while the trip row is locked by the change,
+//so the numbers follow commit order per trip. Nothing is written unless billing.outbox.enabled is set.
+@Service
+public class TripOutbox {
+
+    private static final String INSERT_EVENT =
+        "INSERT INTO trip_outbox (id, trip_id, client_vendor_id, event_type, payload, attempts, created_at, trip_seq) " +
+        "SELECT CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS VARCHAR(20)), CAST(? AS TEXT), 0, " +
+        "CAST(? AS TIMESTAMP), COALESCE(MAX(trip_seq), 0) + 1 FROM trip_outbox WHERE trip_id = ?";
+
+    private static final String LOCK_TRIP = "SELECT id FROM trips WHERE id = ? FOR UPDATE";
+
+    @Value("${billing.outbox.enabled:false}")
+    private boolean enabled;
+
+    @Autowired
+    private TripEventDispatcher tripEventDispatcher;
+
+    @Autowired
+    private SequenceIdAllocator sequenceIdAllocator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    //New trips; they must already have their IDs
+    public void tripsCreated(List<Trip> trips) {
+        List<Object[]> rows = new ArrayList<>(trips.size());
+        for (Trip trip : trips) {
+            rows.add(row(trip.getId(), trip.getClientVendor().getId(), TripEventType.CREATED, snapshot(trip)));
+        }
+        append(rows);
+    }
+
+    //An edited trip together with its values before the edit (taken with snapshot)
+    public void tripUpdated(Map<String, Object> before, Trip trip) {
+        if (!enabled) {
+            return;
+        }
+        //The entity update may not be flushed yet; lock the row so concurrent edits number their events in turn
+        jdbcTemplate.queryForList(LOCK_TRIP, Long.class, trip.getId());
+        Map<String, Object> payload = snapshot(trip);
+        payload.put("before", before);
+        append(Collections.singletonList(row(trip.getId(), trip.getClientVendor().getId(), TripEventType.UPDATED, payload)));
+    }
+
+    //Cost updates of a repricing chunk, after they were written: vendor, employee, total, extra distance and extra
+    //time cost, trip ID
+    public void tripsRepriced(Long clientVendorId, List<Object[]> updates) {
+        List<Object[]> rows = new ArrayList<>(updates.size());
+        for (Object[] update : updates) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("tripId", update[5]);
+            payload.put("clientVendorId", clientVendorId);
+            payload.put("vendorCost", update[0]);
+            payload.put("employeeCost", update[1]);
+            payload.put("totalCost", update[2]);
+            payload.put("extraDistanceCost", update[3]);
+            payload.put("extraTimeCost", update[4]);
+            rows.add(row((Long) update[5], clientVendorId, TripEventType.REPRICED, payload));
+        }
+        append(rows);
+    }
+
+    //Trip fields carried in event payloads
+    public static Map<String, Object> snapshot(Trip trip) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("tripId", trip.getId());
+        values.put("clientVendorId", trip.getClientVendor().getId());
+        values.put("employeeId", trip.getEmployee().getId());
+        values.put("tripDate", trip.getTripDate());
+        values.put("distance", trip.getDistance());
+        values.put("duration", trip.getDuration());
+        values.put("totalCost", trip.getTotalCost());
+        values.put("employeeCost", trip.getEmployeeCost());
+        values.put("vendorCost", trip.getVendorCost());
+        values.put("extraDistanceCost", trip.getExtraDistanceCost());
+        values.put("extraTimeCost", trip.getExtraTimeCost());
+        values.put("status", trip.getStatus());
+        return values;
+    }
+
+    private Object[] row(Long tripId, Long clientVendorId, TripEventType type, Map<String, Object> payload) {
+        return new Object[] {null, tripId, clientVendorId, type.name(), jsonMapper.writeValueAsString(payload), null, tripId};
+    }
+
+    private void append(List<Object[]> rows) {
+        if (!enabled || rows.isEmpty()) {
+            return;
+        }
+        List<Long> ids = sequenceIdAllocator.nextIds(TripEvent.class, rows.size());
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        for (int i = 0; i < rows.size(); i++) {
+            rows.get(i)[0] = ids.get(i);
+            rows.get(i)[5] = createdAt;
+        }
+        jdbcTemplate.batchUpdate(INSERT_EVENT, rows);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            tripEventDispatcher.wake();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                tripEventDispatcher.wake();
+            }
+        });
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.billing_platform_mis.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//Keeps monthly partitions of trips, payouts and incentives ahead of the calendar on PostgreSQL once
+//db/migration/trips-partitioning-postgresql.sql has partitioned them. Runs at startup and then on a fixed
+//delay, creating <table>_yYYYYmMM for the current month and the next months-ahead months where missing.
+//On H2, or on PostgreSQL before the migration, there is nothing to maintain and it does nothing.
+@Service
+public class TripPartitionService {
+
+    //Serialises maintenance across application instances sharing the database
+    private static final long ADVISORY_LOCK_KEY = 0x7472697073L;
+
+    private static final String FIND_PARTITIONED =
+        "SELECT c.relname FROM pg_partitioned_table p JOIN pg_class c ON c.oid = p.partrelid " +
+        "WHERE c.relname IN ('trips', 'payouts', 'incentives') AND pg_table_is_visible(c.oid)";
+
+    private static final String FIND_PARTITIONS =
+        "SELECT parent.relname AS parent_table, child.relname AS partition_name, " +
+        "pg_get_expr(child.relpartbound, child.oid) AS bounds, " +
+        "GREATEST(child.reltuples, 0)::bigint AS estimated_rows, pg_total_relation_size(child.oid) AS total_bytes " +
+        "FROM pg_inherits i " +
+        "JOIN pg_class parent ON parent.oid = i.inhparent " +
+        "JOIN pg_class child ON child.oid = i.inhrelid " +
+        "WHERE parent.relname IN ('trips', 'payouts', 'incentives') AND pg_table_is_visible(parent.oid) " +
+        "ORDER BY parent.relname, child.relname";
+
+    @Value("${billing.partitioning.enabled:true}")
+    private boolean enabled;
+
+    //Monthly partitions kept in place beyond the current month
+    @Value("${billing.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${billing.partitioning.check-hours:24}")
+    private long checkHours;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private ScheduledExecutorService scheduler;
+    private volatile Boolean postgres;
+
+    private volatile LocalDateTime lastRunAt;
+    private volatile List<String> lastCreated = List.of();
+    private volatile String lastError;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || !isPostgres()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "trip-partition-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::maintainQuietly, 0, checkHours, TimeUnit.HOURS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    //Create the missing partitions from the current month to months-ahead; returns the partitions created
+    public synchronized List<String> maintain() {
+        List<String> created = new ArrayList<>();
+        if (!isPostgres()) {
+            return created;
+        }
+        List<String> errors = new ArrayList<>();
+        YearMonth current = YearMonth.now();
+        for (String table : partitionedTables()) {
+            for (int ahead = 0; ahead <= monthsAhead; ahead++) {
+                YearMonth month = current.plusMonths(ahead);
+                String partition = partitionName(table, month);
+                try {
+                    if (createPartition(table, partition, month)) {
+                        created.add(partition);
+                    }
+                } catch (DataAccessException e) {
+                    //Typically rows for that month already sitting in the default partition
+                    errors.add(partition + ": " + e.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+        lastRunAt = LocalDateTime.now();
+        lastCreated = List.copyOf(created);
+        lastError = errors.isEmpty() ? null : String.join("; ", errors);
+        return created;
+    }
+
+    public PartitionStatus getStatus() {
+        PartitionStatus status = new PartitionStatus();
+        status.postgres = isPostgres();
+        status.monthsAhead = monthsAhead;
+        status.lastRunAt = lastRunAt;
+        status.lastCreated = lastCreated;
+        status.lastError = lastError;
+        if (status.postgres) {
+            status.partitionedTables = partitionedTables();
+            status.partitions = jdbcTemplate.query(FIND_PARTITIONS, (rs, rowNum) -> new PartitionInfo(
+                rs.getString("parent_table"), rs.getString("partition_name"), rs.getString("bounds"),
+                rs.getLong("estimated_rows"), rs.getLong("total_bytes")));
+        }
+        return status;
+    }
+
+    //Partition holding a month of a table, e.g. trips_y2026m03
+    public static String partitionName(String table, YearMonth month) {
+        return String.format("%s_y%04dm%02d", table, month.getYear(), month.getMonthValue());
+    }
+
+    public boolean isPostgres() {
+        if (postgres == null) {
+            postgres = jdbcTemplate.execute((Connection connection) ->
+                "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName()));
+        }
+        return postgres;
+    }
+
+    private List<String> partitionedTables() {
+        return jdbcTemplate.queryForList(FIND_PARTITIONED, String.class);
+    }
+
+    //Each partition in its own transaction, so one conflicting month does not hold back the others
+    private boolean createPartition(String table, String partition, YearMonth month) {
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", ADVISORY_LOCK_KEY);
+            if (jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition)) {
+                return false;
+            }
+            LocalDate from = month.atDay(1);
+            LocalDate to = month.plusMonths(1).atDay(1);
+            jdbcTemplate.execute("CREATE TABLE " + partition + " PARTITION OF " + table +
+                " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+            return true;
+        });
+    }
+
+    private void maintainQuietly() {
+        try {
+            maintain();
+        } catch (RuntimeException e) {
+            lastError = e.getMessage();
+        }
+    }
+
+    public static class PartitionInfo {
+        private final String table;
+        private final String partition;
+        private final String bounds;
+        private final long estimatedRows;
+        private final long totalBytes;
+
+        public PartitionInfo(String table, String partition, String bounds, long estimatedRows, long totalBytes) {
+            this.table = table;
+            this.partition = partition;
+            this.bounds = bounds;
+            this.estimatedRows = estimatedRows;
+            this.totalBytes = totalBytes;
+        }
+
+        // Getters
+        public String getTable() { return table; }
+        public String getPartition() { return partition; }
+        public String getBounds() { return bounds; }
+        public long getEstimatedRows() { return estimatedRows; }
+        public long getTotalBytes() { return totalBytes; }
+    }
+
+    public static class PartitionStatus {
+        private boolean postgres;
+        private int monthsAhead;
+        private List<String> partitionedTables = List.of();
+        private List<PartitionInfo> partitions = List.of();
+        private LocalDateTime lastRunAt;
+        private List<String> lastCreated = List.of();
+        private String lastError;
+
+        // Getters
+        public boolean isPostgres() { return postgres; }
+        public int getMonthsAhead() { return monthsAhead; }
+        public List<String> getPartitionedTables() { return partitionedTables; }
+        public List<PartitionInfo> getPartitions() { return partitions; }
+        public LocalDateTime getLastRunAt() { return lastRunAt; }
+        public List<String> getLastCreated() { return lastCreated; }
+        public String getLastError() { return lastError; }
+    }
+}
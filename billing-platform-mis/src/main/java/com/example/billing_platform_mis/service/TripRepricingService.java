@@ -0,0 +1,318 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.ClientVendor;
+import com.example.billing_platform_mis.entity.RepricingJob;
+import com.example.billing_platform_mis.entity.RepricingStatus;
+import com.example.billing_platform_mis.pricing.PricingEngine;
+import com.example.billing_platform_mis.pricing.RateCard;
+import com.example.billing_platform_mis.pricing.TripCharges;
+import com.example.billing_platform_mis.repository.ClientVendorRepository;
+import com.example.billing_platform_mis.repository.RepricingJobRepository;
+import com.example.billing_platform_mis.repository.TripRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Background repricing of stored trip costs after rate changes. Each relationship's trips are walked in ID
+//order, one committed chunk at a time, with the last repriced trip ID checkpointed in repricing_jobs so an
+//interrupted job resumes where it stopped. A single throttled worker keeps the load off foreground requests.
+@Service
+public class TripRepricingService {
+
+    private static final int ERROR_MESSAGE_LENGTH = 500;
+
+    private static final List<RepricingStatus> UNFINISHED = List.of(RepricingStatus.PENDING, RepricingStatus.RUNNING);
+
+    private static final String UPDATE_TRIP_COSTS =
+        "UPDATE trips SET vendor_cost = ?, employee_cost = ?, total_cost = ?, " +
+        "extra_distance_cost = ?, extra_time_cost = ? WHERE id = ?";
+
+    @Value("${billing.repricing.chunk-size:500}")
+    private int chunkSize;
+
+    //Share of wall time the worker may spend repricing; it sleeps for the rest
+    @Value("${billing.repricing.duty-cycle-percent:25}")
+    private int dutyCyclePercent;
+
+    @Value("${billing.repricing.max-attempts:5}")
+    private int maxAttempts;
+
+    @Autowired
+    private RepricingJobRepository repricingJobRepository;
+
+    @Autowired
+    private ClientVendorRepository clientVendorRepository;
+
+    @Autowired
+    private TripRepository tripRepository;
+
+    @Autowired
+    private RateCardService rateCardService;
+
+    @Autowired
+    private PeriodCloseService periodCloseService;
+
+    @Autowired
+    private TripOutbox tripOutbox;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private ExecutorService worker;
+    private volatile boolean running;
+
+    //Set while a drain is queued, so bursts of rate changes wake the worker once
+    private final AtomicBoolean wakeRequested = new AtomicBoolean();
+
+    private final AtomicLong chunksProcessed = new AtomicLong();
+    private final AtomicLong tripsUpdated = new AtomicLong();
+    private final AtomicLong throttledMillis = new AtomicLong();
+
+    //Queue repricing of a relationship's trips; an unfinished job restarts from the first trip
+    @Transactional
+    public RepricingJob schedule(Long clientVendorId, String reason) {
+        RepricingJob job = repricingJobRepository.findByClientVendorId(clientVendorId).orElseGet(() -> {
+            RepricingJob created = new RepricingJob();
+            created.setClientVendorId(clientVendorId);
+            return created;
+        });
+        job.setStatus(RepricingStatus.PENDING);
+        job.setReason(reason);
+        job.setLastTripId(0L);
+        job.setTripsScanned(0L);
+        job.setTripsUpdated(0L);
+        job.setTripsSkipped(0L);
+        job.setAttempts(0);
+        job.setLastError(null);
+        job.setRequestedAt(LocalDateTime.now());
+        job.setCompletedAt(null);
+        RepricingJob saved = repricingJobRepository.save(job);
+        wakeAfterCommit();
+        return saved;
+    }
+
+    //Latest jobs, newest request first
+    @Transactional(readOnly = true)
+    public List<RepricingJob> getJobs() {
+        return repricingJobRepository.findAllByOrderByRequestedAtDesc();
+    }
+
+    public RepricingMetrics getMetrics() {
+        RepricingMetrics metrics = new RepricingMetrics();
+        metrics.running = running;
+        metrics.chunksProcessed = chunksProcessed.get();
+        metrics.tripsUpdated = tripsUpdated.get();
+        metrics.throttledMillis = throttledMillis.get();
+        return metrics;
+    }
+
+    //Start the worker once the application is ready and resume jobs left unfinished by a previous run
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "trip-repricer");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        running = true;
+        wake();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.shutdownNow();
+            worker.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private void wakeAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            wake();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                wake();
+            }
+        });
+    }
+
+    private void wake() {
+        if (running && wakeRequested.compareAndSet(false, true)) {
+            worker.execute(this::drainJobs);
+        }
+    }
+
+    //Run unfinished jobs until none are left (jobs scheduled meanwhile are picked up by the next pass)
+    private void drainJobs() {
+        wakeRequested.set(false);
+        try {
+            List<RepricingJob> jobs;
+            do {
+                jobs = transactionTemplate.execute(status -> repricingJobRepository.findByStatusInOrderByRequestedAtAsc(UNFINISHED));
+                for (RepricingJob job : jobs) {
+                    if (!running || Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    runJob(job.getId());
+                }
+            } while (!jobs.isEmpty());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            //Jobs stay unfinished in the table and are resumed on the next wake-up or restart
+        }
+    }
+
+    private void runJob(Long jobId) throws InterruptedException {
+        boolean more = true;
+        while (more && running) {
+            long startNanos = System.nanoTime();
+            try {
+                more = transactionTemplate.execute(status -> processNextChunk(jobId));
+            } catch (OptimisticLockingFailureException e) {
+                //The job was restarted by a newer rate change; carry on from its reset checkpoint
+                continue;
+            } catch (RuntimeException e) {
+                more = recordFailure(jobId, e);
+            }
+            throttle(System.nanoTime() - startNanos);
+        }
+    }
+
+    //Reprice the next chunk of a job and advance its checkpoint in the same transaction; false once the job is done
+    private boolean processNextChunk(Long jobId) {
+        RepricingJob job = repricingJobRepository.findById(jobId).orElse(null);
+        if (job == null || !UNFINISHED.contains(job.getStatus())) {
+            return false;
+        }
+
+        ClientVendor relationship = clientVendorRepository.findById(job.getClientVendorId()).orElse(null);
+        List<Object[]> rows = relationship == null ? List.of()
+            : tripRepository.findTripCostsAfter(job.getClientVendorId(), job.getLastTripId(), PageRequest.of(0, chunkSize));
+
+        if (!rows.isEmpty()) {
+            RateCard rateCard = rateCardService.getRateCard(relationship);
+            List<Object[]> updates = new ArrayList<>();
+            long skipped = 0;
+            for (Object[] row : rows) {
+                if (periodCloseService.isClosed(job.getClientVendorId(), (LocalDate) row[3])) {
+                    skipped++;
+                    continue;
+                }
+                TripCharges charges = PricingEngine.priceTrip(rateCard, (BigDecimal) row[1], (BigDecimal) row[2]);
+                Object[] repriced = {
+                    charges.getVendorCost(), charges.getEmployeeCost(), charges.getTotalCost(),
+                    charges.getExtraDistanceCost(), charges.getExtraTimeCost(), row[0]
+                };
+                //Only rows whose stored costs actually differ are written
+                if (!sameCosts(row, repriced)) {
+                    updates.add(repriced);
+                }
+            }
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPDATE_TRIP_COSTS, updates);
+                tripOutbox.tripsRepriced(job.getClientVendorId(), updates);
+            }
+
+            job.setLastTripId((Long) rows.get(rows.size() - 1)[0]);
+            job.setTripsScanned(job.getTripsScanned() + rows.size());
+            job.setTripsUpdated(job.getTripsUpdated() + updates.size());
+            job.setTripsSkipped(job.getTripsSkipped() + skipped);
+            tripsUpdated.addAndGet(updates.size());
+            chunksProcessed.incrementAndGet();
+        }
+
+        boolean more = rows.size() == chunkSize;
+        job.setStatus(more ? RepricingStatus.RUNNING : RepricingStatus.COMPLETED);
+        job.setCompletedAt(more ? null : LocalDateTime.now());
+        repricingJobRepository.saveAndFlush(job);
+        return more;
+    }
+
+    //Count a failed chunk; the job is retried from its checkpoint until it runs out of attempts
+    private boolean recordFailure(Long jobId, RuntimeException e) {
+        String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        try {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                repricingJobRepository.findById(jobId).map(job -> {
+                    job.setAttempts(job.getAttempts() + 1);
+                    job.setLastError(message.length() > ERROR_MESSAGE_LENGTH
+                        ? message.substring(0, ERROR_MESSAGE_LENGTH) : message);
+                    if (job.getAttempts() >= maxAttempts) {
+                        job.setStatus(RepricingStatus.FAILED);
+                    }
+                    repricingJobRepository.save(job);
+                    return job.getStatus() != RepricingStatus.FAILED;
+                }).orElse(false)));
+        } catch (RuntimeException ignored) {
+            //Leave the job unfinished; it is resumed on the next wake-up or restart
+            return false;
+        }
+    }
+
+    //Sleep long enough that chunk work stays within the duty cycle
+    private void throttle(long workNanos) throws InterruptedException {
+        int dutyCycle = Math.min(100, Math.max(1, dutyCyclePercent));
+        long pauseMillis = Duration.ofNanos(workNanos).toMillis() * (100 - dutyCycle) / dutyCycle;
+        if (pauseMillis > 0) {
+            throttledMillis.addAndGet(pauseMillis);
+            Thread.sleep(pauseMillis);
+        }
+    }
+
+    private static boolean sameCosts(Object[] stored, Object[] repriced) {
+        for (int i = 0; i < 5; i++) {
+            BigDecimal current = (BigDecimal) stored[i + 4];
+            if (current == null || current.compareTo((BigDecimal) repriced[i]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static class RepricingMetrics {
+        private boolean running;
+        private long chunksProcessed;
+        private long tripsUpdated;
+        private long throttledMillis;
+
+        // Getters
+        public boolean isRunning() { return running; }
+        public long getChunksProcessed() { return chunksProcessed; }
+        public long getTripsUpdated() { return tripsUpdated; }
+        public long getThrottledMillis() { return throttledMillis; }
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 
 @Service
@@ -17,6 +18,9 @@ public class TripService {
     
     @Autowired
     private TripRepository tripRepository;
+
+    @Autowired
+    private TripHistoryService tripHistoryService;
     
     @Autowired
     private ClientVendorRepository clientVendorRepository;
@@ -25,7 +29,25 @@ public class TripService {
     private UserRepository userRepository;
     
     @Autowired
-    private ClientEmployeeRepository clientEmployeeRepository;
+    private ClientEmployeeIndex clientEmployeeIndex;
+    
+    @Autowired
+    private TripAccumulatorService tripAccumulatorService;
+    
+    @Autowired
+    private OverageWorkQueue overageWorkQueue;
+    
+    @Autowired
+    private TripOutbox tripOutbox;
+    
+    @Autowired
+    private PayoutRepository payoutRepository;
+    
+    @Autowired
+    private IncentiveRepository incentiveRepository;
+    
+    @Autowired
+    private PeriodCloseService periodCloseService;
     
     //Record a new trip with basic validation
     public Trip recordTrip(Long clientVendorId, Long employeeId, BigDecimal distance, 
@@ -39,16 +61,18 @@ public class TripService {
             throw new IllegalArgumentException("Invalid trip date");
         }
         
-        //Validate relationships exist
-        ClientVendor clientVendor = clientVendorRepository.findById(clientVendorId)
-            .orElseThrow(() -> new IllegalArgumentException("Client-vendor relationship not found"));
-        
-        User employee = userRepository.findById(employeeId)
-            .orElseThrow(() -> new IllegalArgumentException("Employee not found"));
-        
-        //Verify employee belongs to client
-        if (!clientEmployeeRepository.existsByClientIdAndEmployeeId(
-                clientVendor.getClient().getId(), employeeId)) {
+        //Validate relationship and employee in one query; membership comes from the in-memory index
+        List<Object[]> rows = clientVendorRepository.findBookingContextByClientVendor(clientVendorId, employeeId);
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("Client-vendor relationship not found");
+        }
+        Object[] row = rows.get(0);
+        ClientVendor clientVendor = (ClientVendor) row[0];
+        User employee = (User) row[3];
+        if (employee == null) {
+            throw new IllegalArgumentException("Employee not found");
+        }
+        if (!clientEmployeeIndex.isMember(clientVendor.getClient().getId(), employeeId)) {
             throw new IllegalArgumentException("Employee does not belong to this client");
         }
         
@@ -60,7 +84,38 @@ public class TripService {
         trip.setDuration(duration);
         trip.setTripDate(tripDate);
         
-        return tripRepository.save(trip);
+        return saveTrip(trip);
+    }
+    
+    //Resolve and validate everything a client booking needs with a single query plus the membership index
+    @Transactional(readOnly = true)
+    public BookingContext resolveBookingContext(Long clientId, Long employeeId, Long vendorId) {
+        List<Object[]> rows = clientVendorRepository.findBookingContext(clientId, vendorId, employeeId);
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("Client not found");
+        }
+        Object[] row = rows.get(0);
+        User client = (User) row[0];
+        if (client.getRole() != UserRole.CLIENT) {
+            throw new IllegalArgumentException("User is not a client");
+        }
+        if (row[3] == null || !clientEmployeeIndex.isMember(clientId, employeeId)) {
+            throw new IllegalArgumentException("Employee is not associated with this client");
+        }
+        if (row[1] == null) {
+            throw new IllegalArgumentException("No agreement exists between client and vendor");
+        }
+        return new BookingContext(client, (ClientVendor) row[1], (User) row[3]);
+    }
+    
+    //Persist a new trip, add it to the daily billing accumulators, queue its overage processing and
+    //publish it to the trip outbox, all in the same transaction
+    public Trip saveTrip(Trip trip) {
+        Trip savedTrip = tripRepository.save(trip);
+        tripAccumulatorService.recordTrip(savedTrip);
+        overageWorkQueue.submit(savedTrip.getId());
+        tripOutbox.tripsCreated(List.of(savedTrip));
+        return savedTrip;
     }
     
     //Get trips by user role with basic filtering
@@ -70,11 +125,11 @@ public class TripService {
         
         switch (user.getRole()) {
             case EMPLOYEE:
-                return tripRepository.findByEmployeeIdAndDateRange(userId, startDate, endDate);
+                return tripHistoryService.findByEmployeeIdAndDateRange(userId, startDate, endDate);
             case CLIENT:
-                return tripRepository.findByClientIdAndDateRange(userId, startDate, endDate);
+                return tripHistoryService.findByClientIdAndDateRange(userId, startDate, endDate);
             case VENDOR:
-                return tripRepository.findByVendorIdAndDateRange(userId, startDate, endDate);
+                return tripHistoryService.findByVendorIdAndDateRange(userId, startDate, endDate);
             case ADMIN:
                 return tripRepository.findAll().stream()
                     .filter(trip -> !trip.getTripDate().isBefore(startDate) && 
@@ -87,7 +142,7 @@ public class TripService {
     
     //Get trips for specific client-vendor relationship
     public List<Trip> getTripsForClientVendor(Long clientVendorId, LocalDate startDate, LocalDate endDate) {
-        return tripRepository.findByClientVendorIdAndDateRange(clientVendorId, startDate, endDate);
+        return tripHistoryService.findByClientVendorIdAndDateRange(clientVendorId, startDate, endDate);
     }
     
     //Update trip (admin only for simplicity)
@@ -100,10 +155,48 @@ public class TripService {
             throw new IllegalArgumentException("Distance and duration must be positive");
         }
         
+        //Closed periods are frozen: a trip can neither change inside one nor move into or out of one
+        Long clientVendorId = trip.getClientVendor().getId();
+        if (periodCloseService.isClosed(clientVendorId, trip.getTripDate())
+                || periodCloseService.isClosed(clientVendorId, tripDate)) {
+            throw new IllegalArgumentException("Billing period is closed for this trip date");
+        }
+        
+        //Move the trip's contribution between daily accumulators
+        tripAccumulatorService.removeTrip(trip);
+        Map<String, Object> before = TripOutbox.snapshot(trip);
+        boolean dateChanged = !trip.getTripDate().equals(tripDate);
+        
         trip.setDistance(distance);
         trip.setDuration(duration);
         trip.setTripDate(tripDate);
         
-        return tripRepository.save(trip);
+        Trip savedTrip = tripRepository.save(trip);
+        if (dateChanged) {
+            //Flush the trip first: on partitioned PostgreSQL its payouts/incentives reference (id, trip_date)
+            tripRepository.flush();
+            payoutRepository.updateTripDate(tripId, tripDate);
+            incentiveRepository.updateTripDate(tripId, tripDate);
+        }
+        tripAccumulatorService.recordTrip(savedTrip);
+        tripOutbox.tripUpdated(before, savedTrip);
+        return savedTrip;
+    }
+    
+    public static class BookingContext {
+        private final User client;
+        private final ClientVendor clientVendor;
+        private final User employee;
+        
+        public BookingContext(User client, ClientVendor clientVendor, User employee) {
+            this.client = client;
+            this.clientVendor = clientVendor;
+            this.employee = employee;
+        }
+        
+        // Getters
+        public User getClient() { return client; }
+        public ClientVendor getClientVendor() { return clientVendor; }
+        public User getEmployee() { return employee; }
     }
-}
\ No newline at end of file
+}
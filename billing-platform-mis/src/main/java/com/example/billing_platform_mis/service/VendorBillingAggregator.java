@@ -0,0 +1,284 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.ClientVendor;
+import com.example.billing_platform_mis.entity.InvoiceSnapshot;
+import com.example.billing_platform_mis.pricing.PricingEngine;
+import com.example.billing_platform_mis.pricing.RateCard;
+import com.example.billing_platform_mis.repository.ClientVendorRepository;
+import com.example.billing_platform_mis.repository.IncentiveRepository;
+import com.example.billing_platform_mis.repository.PayoutRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Platform-wide period totals computed as per-vendor partials on a dedicated fork/join pool.
+//Inputs shared by every vendor (relationships, trip counts, rate cards, closed periods) are loaded once;
+//each vendor partition then prices its relationships and runs its own payout/incentive queries, holding
+//one of a fixed number of connection permits so parallelism never exhausts the connection pool.
+@Service
+public class VendorBillingAggregator {
+
+    @Value("${billing.aggregation.parallelism:0}")
+    private int configuredParallelism;
+
+    //Vendors per leaf task
+    @Value("${billing.aggregation.partition-size:64}")
+    private int partitionSize;
+
+    //Maximum partitions querying the database at the same time
+    @Value("${billing.aggregation.connection-budget:4}")
+    private int connectionBudget;
+
+    @Autowired
+    private ClientVendorRepository clientVendorRepository;
+
+    @Autowired
+    private PayoutRepository payoutRepository;
+
+    @Autowired
+    private IncentiveRepository incentiveRepository;
+
+    @Autowired
+    private TripAccumulatorService tripAccumulatorService;
+
+    @Autowired
+    private RateCardService rateCardService;
+
+    @Autowired
+    private PeriodCloseService periodCloseService;
+
+    private volatile ForkJoinPool pool;
+    private volatile Semaphore connectionPermits;
+
+    //Revenue, payouts and incentives per vendor for a period, merged in vendor ID order
+    public PlatformTotals aggregate(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("Invalid billing period");
+        }
+        long startNanos = System.nanoTime();
+
+        Map<Long, List<ClientVendor>> relationshipsByVendor = new TreeMap<>();
+        List<ClientVendor> relationships = clientVendorRepository.findAllWithDetails();
+        for (ClientVendor relationship : relationships) {
+            relationshipsByVendor.computeIfAbsent(relationship.getVendor().getId(), id -> new ArrayList<>()).add(relationship);
+        }
+
+        PeriodInputs inputs = new PeriodInputs();
+        inputs.startDate = startDate;
+        inputs.endDate = endDate;
+        inputs.relationshipsByVendor = relationshipsByVendor;
+        inputs.tripCounts = tripAccumulatorService.countTripsByClientVendor(startDate, endDate);
+        inputs.rateCards = rateCardService.getRateCards(relationships);
+        inputs.closedPeriods = new HashMap<>();
+        for (InvoiceSnapshot snapshot : periodCloseService.getClosedPeriods(startDate, endDate)) {
+            inputs.closedPeriods.put(snapshot.getClientVendorId(), snapshot);
+        }
+
+        List<Long> vendorIds = new ArrayList<>(relationshipsByVendor.keySet());
+        AtomicInteger partitions = new AtomicInteger();
+        Map<Long, VendorTotals> partials = vendorIds.isEmpty() ? new TreeMap<>()
+            : pool().invoke(new PartitionTask(inputs, vendorIds, partitions));
+
+        PlatformTotals totals = new PlatformTotals(startDate, endDate, new ArrayList<>(partials.values()));
+        totals.partitions = partitions.get();
+        totals.parallelism = pool().getParallelism();
+        totals.elapsedMillis = Duration.ofNanos(System.nanoTime() - startNanos).toMillis();
+        return totals;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    private ForkJoinPool pool() {
+        if (pool == null) {
+            synchronized (this) {
+                if (pool == null) {
+                    int parallelism = configuredParallelism > 0 ? configuredParallelism
+                        : Runtime.getRuntime().availableProcessors();
+                    connectionPermits = new Semaphore(Math.max(1, connectionBudget));
+                    AtomicInteger threadNumber = new AtomicInteger();
+                    pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+                        var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                        thread.setName("billing-aggregator-" + threadNumber.incrementAndGet());
+                        return thread;
+                    }, null, false);
+                }
+            }
+        }
+        return pool;
+    }
+
+    //Partials of one vendor partition: pricing from the shared inputs plus two grouped queries
+    private Map<Long, VendorTotals> aggregatePartition(PeriodInputs inputs, List<Long> vendorIds) {
+        Map<Long, VendorTotals> partials = new TreeMap<>();
+        for (Long vendorId : vendorIds) {
+            VendorTotals vendor = new VendorTotals(vendorId);
+            for (ClientVendor relationship : inputs.relationshipsByVendor.get(vendorId)) {
+                vendor.vendorName = relationship.getVendor().getName();
+                vendor.relationships++;
+                long tripCount = inputs.tripCounts.getOrDefault(relationship.getId(), 0L);
+                InvoiceSnapshot closed = inputs.closedPeriods.get(relationship.getId());
+                if (closed != null) {
+                    vendor.tripCount += closed.getTripCount();
+                    vendor.revenue = vendor.revenue.add(closed.getTotalAmount());
+                    vendor.closedRelationships++;
+                } else {
+                    vendor.tripCount += tripCount;
+                    vendor.revenue = vendor.revenue.add(PricingEngine.pricePeriod(
+                        inputs.rateCards.get(relationship.getId()), tripCount).getTotalAmount());
+                }
+            }
+            partials.put(vendorId, vendor);
+        }
+
+        List<Object[]> payoutRows;
+        List<Object[]> incentiveRows;
+        connectionPermits.acquireUninterruptibly();
+        try {
+            payoutRows = payoutRepository.sumPayoutsByVendorInAndDateRange(vendorIds, inputs.startDate, inputs.endDate);
+            incentiveRows = incentiveRepository.sumIncentivesByVendorInAndDateRange(vendorIds, inputs.startDate, inputs.endDate);
+        } finally {
+            connectionPermits.release();
+        }
+        for (Object[] row : payoutRows) {
+            VendorTotals vendor = partials.get((Long) row[0]);
+            vendor.payouts = toBigDecimal(row[1]);
+            vendor.payoutCount = ((Number) row[2]).longValue();
+        }
+        for (Object[] row : incentiveRows) {
+            VendorTotals vendor = partials.get((Long) row[0]);
+            vendor.incentives = toBigDecimal(row[1]);
+            vendor.incentiveCount = ((Number) row[2]).longValue();
+        }
+        return partials;
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value == null) return BigDecimal.ZERO;
+        return value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+    }
+
+    //Splits the sorted vendor IDs in halves down to partition size; results merge into one vendor-ordered map
+    private class PartitionTask extends RecursiveTask<Map<Long, VendorTotals>> {
+        private final PeriodInputs inputs;
+        private final List<Long> vendorIds;
+        private final AtomicInteger partitions;
+
+        private PartitionTask(PeriodInputs inputs, List<Long> vendorIds, AtomicInteger partitions) {
+            this.inputs = inputs;
+            this.vendorIds = vendorIds;
+            this.partitions = partitions;
+        }
+
+        @Override
+        protected Map<Long, VendorTotals> compute() {
+            if (vendorIds.size() <= Math.max(1, partitionSize)) {
+                partitions.incrementAndGet();
+                return aggregatePartition(inputs, vendorIds);
+            }
+            int middle = vendorIds.size() / 2;
+            PartitionTask left = new PartitionTask(inputs, vendorIds.subList(0, middle), partitions);
+            PartitionTask right = new PartitionTask(inputs, vendorIds.subList(middle, vendorIds.size()), partitions);
+            left.fork();
+            Map<Long, VendorTotals> merged = right.compute();
+            merged.putAll(left.join());
+            return merged;
+        }
+    }
+
+    //Read-only inputs shared by every partition
+    private static class PeriodInputs {
+        private LocalDate startDate;
+        private LocalDate endDate;
+        private Map<Long, List<ClientVendor>> relationshipsByVendor;
+        private Map<Long, Long> tripCounts;
+        private Map<Long, RateCard> rateCards;
+        private Map<Long, InvoiceSnapshot> closedPeriods;
+    }
+
+    public static class VendorTotals {
+        private final Long vendorId;
+        private String vendorName;
+        private int relationships;
+        private int closedRelationships;
+        private long tripCount;
+        private BigDecimal revenue = BigDecimal.ZERO;
+        private BigDecimal payouts = BigDecimal.ZERO;
+        private long payoutCount;
+        private BigDecimal incentives = BigDecimal.ZERO;
+        private long incentiveCount;
+
+        public VendorTotals(Long vendorId) {
+            this.vendorId = vendorId;
+        }
+
+        // Getters
+        public Long getVendorId() { return vendorId; }
+        public String getVendorName() { return vendorName; }
+        public int getRelationships() { return relationships; }
+        public int getClosedRelationships() { return closedRelationships; }
+        public long getTripCount() { return tripCount; }
+        public BigDecimal getRevenue() { return revenue; }
+        public BigDecimal getPayouts() { return payouts; }
+        public long getPayoutCount() { return payoutCount; }
+        public BigDecimal getIncentives() { return incentives; }
+        public long getIncentiveCount() { return incentiveCount; }
+    }
+
+    public static class PlatformTotals {
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final List<VendorTotals> vendors;
+        private long tripCount;
+        private BigDecimal revenue = BigDecimal.ZERO;
+        private BigDecimal payouts = BigDecimal.ZERO;
+        private BigDecimal incentives = BigDecimal.ZERO;
+        private int partitions;
+        private int parallelism;
+        private long elapsedMillis;
+
+        //Totals are summed in vendor ID order so repeated runs produce identical results
+        public PlatformTotals(LocalDate startDate, LocalDate endDate, List<VendorTotals> vendors) {
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.vendors = vendors;
+            for (VendorTotals vendor : vendors) {
+                tripCount += vendor.tripCount;
+                revenue = revenue.add(vendor.revenue);
+                payouts = payouts.add(vendor.payouts);
+                incentives = incentives.add(vendor.incentives);
+            }
+        }
+
+        // Getters
+        public LocalDate getStartDate() { return startDate; }
+        public LocalDate getEndDate() { return endDate; }
+        public List<VendorTotals> getVendors() { return vendors; }
+        public int getVendorCount() { return vendors.size(); }
+        public long getTripCount() { return tripCount; }
+        public BigDecimal getRevenue() { return revenue; }
+        public BigDecimal getPayouts() { return payouts; }
+        public BigDecimal getIncentives() { return incentives; }
+        public int getPartitions() { return partitions; }
+        public int getParallelism() { return parallelism; }
+        public long getElapsedMillis() { return elapsedMillis; }
+    }
+}
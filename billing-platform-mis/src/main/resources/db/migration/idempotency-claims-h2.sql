@@ -0,0 +1,8 @@
+-- Claim ownership for idempotency_keys (H2).
+-- A request holding an Idempotency-Key claim records its owner token and refreshes heartbeat_at while it runs;
+-- only claims whose heartbeat has stopped are taken over, and only the owner can store the response. Run once
+-- on an existing database when Hibernate does not update the schema; rows claimed before the upgrade have
+-- neither column and are judged by created_at.
+
+ALTER TABLE idempotency_keys ADD COLUMN IF NOT EXISTS owner VARCHAR(36);
+ALTER TABLE idempotency_keys ADD COLUMN IF NOT EXISTS heartbeat_at TIMESTAMP;
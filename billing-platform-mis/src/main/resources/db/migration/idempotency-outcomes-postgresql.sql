@@ -0,0 +1,7 @@
+-- Outcome of abandoned claims in idempotency_keys (PostgreSQL).
+-- retry_safe marks claims whose request stores its response in the same transaction as its changes; only
+-- those are taken over once abandoned, any other abandoned claim answers retries with an unknown outcome.
+-- Run once on an existing database when Hibernate does not update the schema; claims made before the
+-- upgrade have no value and are treated as not retry-safe.
+
+ALTER TABLE idempotency_keys ADD COLUMN IF NOT EXISTS retry_safe BOOLEAN;
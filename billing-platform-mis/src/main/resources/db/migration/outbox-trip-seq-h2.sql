@@ -0,0 +1,8 @@
+-- Per-trip delivery order for trip_outbox (H2).
+-- Event ids come from pooled sequence blocks, so on more than one instance they do not follow commit order;
+-- trip_seq numbers each trip's events in the order their changes committed and the dispatcher delivers by
+-- (trip_id, trip_seq). Run once on an existing database when Hibernate does not update the schema; events
+-- written before the upgrade keep trip_seq 1 and fall back to id order.
+
+ALTER TABLE trip_outbox ADD COLUMN IF NOT EXISTS trip_seq INTEGER DEFAULT 1;
+CREATE INDEX IF NOT EXISTS idx_trip_outbox_trip_seq ON trip_outbox (trip_id, trip_seq);
@@ -0,0 +1,69 @@
+-- Moves primary keys from identity columns to pooled sequences (H2).
+-- Every entity now takes IDs from <table>_seq with allocationSize = 50, so Hibernate reserves 50 IDs per
+-- sequence call and can batch inserts. Run once on an existing database before starting the new version;
+-- new schemas get the sequences from Hibernate. Each sequence is positioned so its next block starts
+-- above the table's current maximum ID.
+
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE users_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM users);
+ALTER TABLE users ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE IF NOT EXISTS client_profiles_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE client_profiles_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM client_profiles);
+ALTER TABLE client_profiles ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE IF NOT EXISTS vendor_profiles_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE vendor_profiles_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM vendor_profiles);
+ALTER TABLE vendor_profiles ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE IF NOT EXISTS client_employees_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE client_employees_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM client_employees);
+ALTER TABLE client_employees ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE IF NOT EXISTS client_vendors_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE client_vendors_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM client_vendors);
+ALTER TABLE client_vendors ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE IF NOT EXISTS hybrid_pricing_tiers_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE hybrid_pricing_tiers_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM hybrid_pricing_tiers);
+ALTER TABLE hybrid_pricing_tiers ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE IF NOT EXISTS trips_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE trips_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM trips);
+ALTER TABLE trips ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE IF NOT EXISTS trip_daily_totals_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE trip_daily_totals_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM trip_daily_totals);
+ALTER TABLE trip_daily_totals ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE IF NOT EXISTS incentives_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE incentives_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM incentives);
+ALTER TABLE incentives ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE IF NOT EXISTS payouts_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE payouts_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM payouts);
+ALTER TABLE payouts ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE IF NOT EXISTS invoices_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE invoices_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM invoices);
+ALTER TABLE invoices ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE IF NOT EXISTS invoice_snapshots_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE invoice_snapshots_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM invoice_snapshots);
+ALTER TABLE invoice_snapshots ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE IF NOT EXISTS reports_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE reports_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM reports);
+ALTER TABLE reports ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE IF NOT EXISTS pending_overage_work_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE pending_overage_work_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM pending_overage_work);
+ALTER TABLE pending_overage_work ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE IF NOT EXISTS processing_watermarks_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE processing_watermarks_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM processing_watermarks);
+ALTER TABLE processing_watermarks ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE IF NOT EXISTS repricing_jobs_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE repricing_jobs_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM repricing_jobs);
+ALTER TABLE repricing_jobs ALTER COLUMN id DROP IDENTITY;
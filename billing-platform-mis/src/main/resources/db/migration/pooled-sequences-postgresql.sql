@@ -0,0 +1,69 @@
+-- Moves primary keys from identity columns to pooled sequences (PostgreSQL).
+-- Every entity now takes IDs from <table>_seq with allocationSize = 50, so Hibernate reserves 50 IDs per
+-- sequence call and can batch inserts. Run once on an existing database before starting the new version;
+-- new schemas get the sequences from Hibernate. Each sequence is positioned so its next block starts
+-- above the table's current maximum ID.
+
+CREATE SEQUENCE IF NOT EXISTS users_seq INCREMENT BY 50;
+SELECT setval('users_seq', GREATEST(COALESCE(MAX(id), 0), 1)) FROM users;
+ALTER TABLE users ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS client_profiles_seq INCREMENT BY 50;
+SELECT setval('client_profiles_seq', GREATEST(COALESCE(MAX(id), 0), 1)) FROM client_profiles;
+ALTER TABLE client_profiles ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS vendor_profiles_seq INCREMENT BY 50;
+SELECT setval('vendor_profiles_seq', GREATEST(COALESCE(MAX(id), 0), 1)) FROM vendor_profiles;
+ALTER TABLE vendor_profiles ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS client_employees_seq INCREMENT BY 50;
+SELECT setval('client_employees_seq', GREATEST(COALESCE(MAX(id), 0), 1)) FROM client_employees;
+ALTER TABLE client_employees ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS client_vendors_seq INCREMENT BY 50;
+SELECT setval('client_vendors_seq', GREATEST(COALESCE(MAX(id), 0), 1)) FROM client_vendors;
+ALTER TABLE client_vendors ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS hybrid_pricing_tiers_seq INCREMENT BY 50;
+SELECT setval('hybrid_pricing_tiers_seq', GREATEST(COALESCE(MAX(id), 0), 1)) FROM hybrid_pricing_tiers;
+ALTER TABLE hybrid_pricing_tiers ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS trips_seq INCREMENT BY 50;
+SELECT setval('trips_seq', GREATEST(COALESCE(MAX(id), 0), 1)) FROM trips;
+ALTER TABLE trips ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS trip_daily_totals_seq INCREMENT BY 50;
+SELECT setval('trip_daily_totals_seq', GREATEST(COALESCE(MAX(id), 0), 1)) FROM trip_daily_totals;
+ALTER TABLE trip_daily_totals ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS incentives_seq INCREMENT BY 50;
+SELECT setval('incentives_seq', GREATEST(COALESCE(MAX(id), 0), 1)) FROM incentives;
+ALTER TABLE incentives ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS payouts_seq INCREMENT BY 50;
+SELECT setval('payouts_seq', GREATEST(COALESCE(MAX(id), 0), 1)) FROM payouts;
+ALTER TABLE payouts ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS invoices_seq INCREMENT BY 50;
+SELECT setval('invoices_seq', GREATEST(COALESCE(MAX(id), 0), 1)) FROM invoices;
+ALTER TABLE invoices ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS invoice_snapshots_seq INCREMENT BY 50;
+SELECT setval('invoice_snapshots_seq', GREATEST(COALESCE(MAX(id), 0), 1)) FROM invoice_snapshots;
+ALTER TABLE invoice_snapshots ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS reports_seq INCREMENT BY 50;
+SELECT setval('reports_seq', GREATEST(COALESCE(MAX(id), 0), 1)) FROM reports;
+ALTER TABLE reports ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS pending_overage_work_seq INCREMENT BY 50;
+SELECT setval('pending_overage_work_seq', GREATEST(COALESCE(MAX(id), 0), 1)) FROM pending_overage_work;
+ALTER TABLE pending_overage_work ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS processing_watermarks_seq INCREMENT BY 50;
+SELECT setval('processing_watermarks_seq', GREATEST(COALESCE(MAX(id), 0), 1)) FROM processing_watermarks;
+ALTER TABLE processing_watermarks ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS repricing_jobs_seq INCREMENT BY 50;
+SELECT setval('repricing_jobs_seq', GREATEST(COALESCE(MAX(id), 0), 1)) FROM repricing_jobs;
+ALTER TABLE repricing_jobs ALTER COLUMN id DROP IDENTITY IF EXISTS;
@@ -0,0 +1,25 @@
+-- Indexes behind the tenant and date-range finders of TripRepository, PayoutRepository and IncentiveRepository
+-- (PostgreSQL). Each finder filters on a relationship (client_vendor_id, employee_id, client_employee_id) plus a
+-- trip_date range, so the composite indexes lead with the relationship and end with the date; PostgreSQL does not
+-- index foreign key columns on its own. On tables partitioned by trips-partitioning-postgresql.sql each index is
+-- created on every monthly partition and on the ones TripPartitionService adds later. Run once on an existing
+-- database; new schemas get the same indexes from the entity mappings. vendor_profiles.user_id and
+-- client_profiles.user_id are already covered by the unique constraints of their one-to-one mappings.
+
+CREATE INDEX IF NOT EXISTS trips_client_vendor_date_idx ON trips (client_vendor_id, trip_date);
+CREATE INDEX IF NOT EXISTS trips_employee_date_idx ON trips (employee_id, trip_date);
+CREATE INDEX IF NOT EXISTS trips_trip_date_idx ON trips (trip_date);
+
+CREATE INDEX IF NOT EXISTS payouts_client_vendor_date_idx ON payouts (client_vendor_id, trip_date);
+CREATE INDEX IF NOT EXISTS payouts_trip_idx ON payouts (trip_id);
+CREATE INDEX IF NOT EXISTS payouts_trip_date_idx ON payouts (trip_date);
+CREATE INDEX IF NOT EXISTS payouts_created_at_idx ON payouts (created_at);
+
+CREATE INDEX IF NOT EXISTS incentives_client_employee_date_idx ON incentives (client_employee_id, trip_date);
+CREATE INDEX IF NOT EXISTS incentives_client_vendor_date_idx ON incentives (client_vendor_id, trip_date);
+CREATE INDEX IF NOT EXISTS incentives_trip_idx ON incentives (trip_id);
+CREATE INDEX IF NOT EXISTS incentives_trip_date_idx ON incentives (trip_date);
+CREATE INDEX IF NOT EXISTS incentives_created_at_idx ON incentives (created_at);
+
+CREATE INDEX IF NOT EXISTS client_vendors_vendor_idx ON client_vendors (vendor_id);
+CREATE INDEX IF NOT EXISTS client_employees_employee_idx ON client_employees (employee_id);
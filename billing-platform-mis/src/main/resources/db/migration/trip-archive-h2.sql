@@ -0,0 +1,15 @@
+-- Prepares payouts and incentives for trip archival (H2).
+-- Archived trips leave the trips table while their payouts and incentives stay, so the foreign keys from
+-- payouts.trip_id and incentives.trip_id to trips are dropped, and incentives get the client-vendor
+-- relationship of their trip so vendor totals no longer need the trip row. Run once on an existing database
+-- before starting the new version; new schemas are created this way by Hibernate. The constraint names are
+-- the ones Hibernate generated for these columns.
+
+ALTER TABLE payouts DROP CONSTRAINT IF EXISTS FK7A241UBF9IXURU66U9M8FATER;
+ALTER TABLE incentives DROP CONSTRAINT IF EXISTS FKO3QQ75US82GAW0G8S0170VV6;
+
+ALTER TABLE incentives ADD COLUMN IF NOT EXISTS client_vendor_id BIGINT;
+UPDATE incentives i SET client_vendor_id = (SELECT t.client_vendor_id FROM trips t WHERE t.id = i.trip_id)
+    WHERE i.client_vendor_id IS NULL;
+ALTER TABLE incentives ADD CONSTRAINT IF NOT EXISTS incentives_client_vendor_fk
+    FOREIGN KEY (client_vendor_id) REFERENCES client_vendors (id);
@@ -0,0 +1,32 @@
+-- Prepares payouts and incentives for trip archival (PostgreSQL).
+-- Archived trips leave the trips table while their payouts and incentives stay, so the foreign keys from
+-- payouts and incentives to trips are dropped (whether Hibernate's or the (trip_id, trip_date) keys of
+-- trips-partitioning-postgresql.sql), and incentives get the client-vendor relationship of their trip so
+-- vendor totals no longer need the trip row. Run once on an existing database before starting the new
+-- version; new schemas are created this way by Hibernate.
+
+BEGIN;
+
+DO $$
+DECLARE
+    constraint_row RECORD;
+BEGIN
+    FOR constraint_row IN
+        SELECT c.conrelid::regclass AS table_name, c.conname
+        FROM pg_constraint c
+        WHERE c.contype = 'f'
+          AND c.conrelid IN ('payouts'::regclass, 'incentives'::regclass)
+          AND c.confrelid = 'trips'::regclass
+          AND c.conparentid = 0
+    LOOP
+        EXECUTE format('ALTER TABLE %s DROP CONSTRAINT %I', constraint_row.table_name, constraint_row.conname);
+    END LOOP;
+END $$;
+
+ALTER TABLE incentives ADD COLUMN IF NOT EXISTS client_vendor_id BIGINT;
+UPDATE incentives i SET client_vendor_id = t.client_vendor_id FROM trips t
+    WHERE t.id = i.trip_id AND i.client_vendor_id IS NULL;
+ALTER TABLE incentives ADD CONSTRAINT incentives_client_vendor_fk
+    FOREIGN KEY (client_vendor_id) REFERENCES client_vendors (id);
+
+COMMIT;
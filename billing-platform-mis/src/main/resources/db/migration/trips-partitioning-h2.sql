@@ -0,0 +1,10 @@
+-- Copies each trip's date onto its payouts and incentives (H2).
+-- H2 has no declarative partitioning, so trips, payouts and incentives stay single tables in development;
+-- this only backfills the trip_date column the date-range finders now filter on. Run once on an existing
+-- database before starting the new version; new schemas get the column from Hibernate.
+
+ALTER TABLE payouts ADD COLUMN IF NOT EXISTS trip_date DATE;
+UPDATE payouts p SET trip_date = (SELECT t.trip_date FROM trips t WHERE t.id = p.trip_id) WHERE p.trip_date IS NULL;
+
+ALTER TABLE incentives ADD COLUMN IF NOT EXISTS trip_date DATE;
+UPDATE incentives i SET trip_date = (SELECT t.trip_date FROM trips t WHERE t.id = i.trip_id) WHERE i.trip_date IS NULL;
@@ -0,0 +1,93 @@
+-- Range-partitions trips, payouts and incentives by month of trip_date (PostgreSQL 15 or later).
+-- Payouts and incentives get a copy of their trip's date so all three tables share the partition key:
+-- a date-range query only scans the months it asks for, and old months can be detached or dropped whole.
+-- Run once, with the application stopped, on a database created by Hibernate; it runs in one transaction
+-- and rewrites the three tables. Afterwards start the application with spring.jpa.hibernate.ddl-auto set to
+-- validate or none: Hibernate cannot express the composite keys and would try to add single-column
+-- foreign keys to trips. TripPartitionService keeps creating the partitions of the coming months.
+--
+-- Partitioned tables need the partition key in every primary key and unique constraint, so the keys
+-- become (id, trip_date) and payouts/incentives reference trips by (trip_id, trip_date). IDs still come
+-- from the pooled sequences and stay unique on their own.
+
+BEGIN;
+
+ALTER TABLE payouts ADD COLUMN IF NOT EXISTS trip_date DATE;
+UPDATE payouts p SET trip_date = t.trip_date FROM trips t WHERE t.id = p.trip_id AND p.trip_date IS NULL;
+
+ALTER TABLE incentives ADD COLUMN IF NOT EXISTS trip_date DATE;
+UPDATE incentives i SET trip_date = t.trip_date FROM trips t WHERE t.id = i.trip_id AND i.trip_date IS NULL;
+
+ALTER TABLE incentives RENAME TO incentives_unpartitioned;
+ALTER TABLE incentives_unpartitioned RENAME CONSTRAINT incentives_pkey TO incentives_unpartitioned_pkey;
+ALTER TABLE payouts RENAME TO payouts_unpartitioned;
+ALTER TABLE payouts_unpartitioned RENAME CONSTRAINT payouts_pkey TO payouts_unpartitioned_pkey;
+ALTER TABLE trips RENAME TO trips_unpartitioned;
+ALTER TABLE trips_unpartitioned RENAME CONSTRAINT trips_pkey TO trips_unpartitioned_pkey;
+
+CREATE TABLE trips (LIKE trips_unpartitioned INCLUDING DEFAULTS INCLUDING CONSTRAINTS)
+    PARTITION BY RANGE (trip_date);
+ALTER TABLE trips ADD CONSTRAINT trips_pkey PRIMARY KEY (id, trip_date);
+ALTER TABLE trips ADD CONSTRAINT trips_client_vendor_fk FOREIGN KEY (client_vendor_id) REFERENCES client_vendors (id);
+ALTER TABLE trips ADD CONSTRAINT trips_employee_fk FOREIGN KEY (employee_id) REFERENCES users (id);
+CREATE INDEX trips_client_vendor_date_idx ON trips (client_vendor_id, trip_date);
+CREATE INDEX trips_employee_date_idx ON trips (employee_id, trip_date);
+
+CREATE TABLE payouts (LIKE payouts_unpartitioned INCLUDING DEFAULTS INCLUDING CONSTRAINTS)
+    PARTITION BY RANGE (trip_date);
+ALTER TABLE payouts ALTER COLUMN trip_date SET NOT NULL;
+ALTER TABLE payouts ADD CONSTRAINT payouts_pkey PRIMARY KEY (id, trip_date);
+ALTER TABLE payouts ADD CONSTRAINT payouts_client_vendor_fk FOREIGN KEY (client_vendor_id) REFERENCES client_vendors (id);
+-- A trip moved to another month carries its payouts along
+ALTER TABLE payouts ADD CONSTRAINT payouts_trip_fk FOREIGN KEY (trip_id, trip_date)
+    REFERENCES trips (id, trip_date) ON UPDATE CASCADE;
+CREATE INDEX payouts_client_vendor_date_idx ON payouts (client_vendor_id, trip_date);
+CREATE INDEX payouts_trip_idx ON payouts (trip_id);
+
+CREATE TABLE incentives (LIKE incentives_unpartitioned INCLUDING DEFAULTS INCLUDING CONSTRAINTS)
+    PARTITION BY RANGE (trip_date);
+ALTER TABLE incentives ALTER COLUMN trip_date SET NOT NULL;
+ALTER TABLE incentives ADD CONSTRAINT incentives_pkey PRIMARY KEY (id, trip_date);
+ALTER TABLE incentives ADD CONSTRAINT incentives_client_employee_fk FOREIGN KEY (client_employee_id)
+    REFERENCES client_employees (id);
+ALTER TABLE incentives ADD CONSTRAINT incentives_trip_fk FOREIGN KEY (trip_id, trip_date)
+    REFERENCES trips (id, trip_date) ON UPDATE CASCADE;
+CREATE INDEX incentives_client_employee_date_idx ON incentives (client_employee_id, trip_date);
+CREATE INDEX incentives_trip_idx ON incentives (trip_id);
+
+-- One partition per month, named <table>_yYYYYmMM, from the oldest trip to three months ahead.
+-- Dates outside every monthly partition land in <table>_default.
+DO $$
+DECLARE
+    month DATE;
+    last_month DATE := date_trunc('month', CURRENT_DATE) + INTERVAL '3 months';
+    parent TEXT;
+BEGIN
+    SELECT COALESCE(date_trunc('month', MIN(trip_date)), date_trunc('month', CURRENT_DATE))
+        INTO month FROM trips_unpartitioned;
+    WHILE month <= last_month LOOP
+        FOREACH parent IN ARRAY ARRAY['trips', 'payouts', 'incentives'] LOOP
+            EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                parent || to_char(month, '"_y"YYYY"m"MM'), parent, month, (month + INTERVAL '1 month')::date);
+        END LOOP;
+        month := (month + INTERVAL '1 month')::date;
+    END LOOP;
+END $$;
+
+CREATE TABLE trips_default PARTITION OF trips DEFAULT;
+CREATE TABLE payouts_default PARTITION OF payouts DEFAULT;
+CREATE TABLE incentives_default PARTITION OF incentives DEFAULT;
+
+INSERT INTO trips SELECT * FROM trips_unpartitioned;
+INSERT INTO payouts SELECT * FROM payouts_unpartitioned;
+INSERT INTO incentives SELECT * FROM incentives_unpartitioned;
+
+DROP TABLE incentives_unpartitioned;
+DROP TABLE payouts_unpartitioned;
+DROP TABLE trips_unpartitioned;
+
+ANALYZE trips;
+ANALYZE payouts;
+ANALYZE incentives;
+
+COMMIT;
@@ -0,0 +1,133 @@
+package com.example.billing_platform_mis;
+
+import com.example.billing_platform_mis.entity.BillingModel;
+import com.example.billing_platform_mis.entity.ClientVendor;
+import com.example.billing_platform_mis.entity.Payout;
+import com.example.billing_platform_mis.entity.Report;
+import com.example.billing_platform_mis.entity.Trip;
+import com.example.billing_platform_mis.entity.TripStatus;
+import com.example.billing_platform_mis.entity.User;
+import com.example.billing_platform_mis.entity.UserRole;
+import com.example.billing_platform_mis.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//Insert throughput of trips, payouts and report audits with one statement per row (what IDENTITY keys forced)
+//against JDBC batches of 50 on the pooled sequences. Runs on demand only:
+//  ./mvnw test -Dtest=InsertBatchingBenchmarkTest -Dbenchmark=true
+//and against PostgreSQL by adding -Dspring.datasource.url=jdbc:postgresql://... -Dspring.datasource.username=...
+//-Dspring.datasource.password=... -Dspring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect
+@SpringBootTest(properties = {
+	"spring.jpa.show-sql=false",
+	"spring.jpa.properties.hibernate.jdbc.batch_size=50",
+	"spring.jpa.properties.hibernate.order_inserts=true",
+	"spring.jpa.properties.hibernate.order_updates=true"
+})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class InsertBatchingBenchmarkTest {
+
+	private static final int ROWS = Integer.getInteger("benchmark.rows", 20_000);
+	private static final int ROWS_PER_TRANSACTION = 1_000;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void insertThroughput() {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		User client = userRepository.findByRole(UserRole.CLIENT).get(0);
+		User vendor = userRepository.findByRole(UserRole.VENDOR).get(0);
+		User employee = userRepository.findByRole(UserRole.EMPLOYEE).get(0);
+		ClientVendor relationship = transactionTemplate.execute(status -> {
+			ClientVendor created = new ClientVendor();
+			created.setClient(client);
+			created.setVendor(vendor);
+			created.setBillingModel(BillingModel.TRIP);
+			created.setTripRate(new BigDecimal("40.00"));
+			entityManager.persist(created);
+			return created;
+		});
+
+		System.out.printf("%n%-8s %-10s %10s %12s%n", "entity", "batch", "rows", "rows/s");
+		for (int batchSize : new int[] {1, 50}) {
+			List<Long> tripIds = new ArrayList<>(ROWS);
+			measure(transactionTemplate, "trips", batchSize, i -> {
+				Trip trip = new Trip();
+				trip.setClientVendor(entityManager.getReference(ClientVendor.class, relationship.getId()));
+				trip.setEmployee(entityManager.getReference(User.class, employee.getId()));
+				trip.setDistance(BigDecimal.valueOf(1000 + i % 2000, 2));
+				trip.setDuration(BigDecimal.valueOf(50 + i % 200, 2));
+				trip.setTripDate(LocalDate.of(2026, 1, 1).plusDays(i % 365));
+				trip.setTotalCost(new BigDecimal("40.00"));
+				trip.setStatus(TripStatus.COMPLETED);
+				entityManager.persist(trip);
+				tripIds.add(trip.getId());
+				return trip;
+			});
+			measure(transactionTemplate, "payouts", batchSize, i -> {
+				Payout payout = new Payout();
+				payout.setClientVendor(entityManager.getReference(ClientVendor.class, relationship.getId()));
+				payout.setTrip(entityManager.getReference(Trip.class, tripIds.get(i)));
+				payout.setTripDate(LocalDate.of(2026, 1, 1).plusDays(i % 365));
+				payout.setTotalAmount(new BigDecimal("1.50"));
+				entityManager.persist(payout);
+				return payout;
+			});
+			measure(transactionTemplate, "reports", batchSize, i -> {
+				Report report = new Report();
+				report.setGeneratedBy(entityManager.getReference(User.class, client.getId()));
+				report.setReportType("BENCHMARK");
+				report.setTargetEntityId(vendor.getId());
+				report.setDateFrom(LocalDate.of(2026, 1, 1));
+				report.setDateTo(LocalDate.of(2026, 1, 31));
+				entityManager.persist(report);
+				return report;
+			});
+		}
+	}
+
+	//Persist ROWS entities in transactions of ROWS_PER_TRANSACTION with the given JDBC batch size
+	private void measure(TransactionTemplate transactionTemplate, String entity, int batchSize, IntFunction<Object> persist) {
+		long startNanos = System.nanoTime();
+		int persisted = 0;
+		for (int offset = 0; offset < ROWS; offset += ROWS_PER_TRANSACTION) {
+			int first = offset;
+			persisted += transactionTemplate.execute(status -> {
+				entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+				int count = 0;
+				for (int i = first; i < Math.min(ROWS, first + ROWS_PER_TRANSACTION); i++) {
+					persist.apply(i);
+					count++;
+				}
+				entityManager.flush();
+				entityManager.clear();
+				return count;
+			});
+		}
+		double seconds = (System.nanoTime() - startNanos) / 1e9;
+		System.out.printf("%-8s %-10s %10d %12.0f%n", entity, batchSize == 1 ? "per-row" : "jdbc-" + batchSize,
+			persisted, persisted / seconds);
+		assertEquals(ROWS, persisted);
+	}
+}
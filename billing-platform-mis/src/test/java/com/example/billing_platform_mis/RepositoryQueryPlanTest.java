@@ -0,0 +1,265 @@
+package com.example.billing_platform_mis;
+
+import com.example.billing_platform_mis.repository.IncentiveRepository;
+import com.example.billing_platform_mis.repository.PayoutRepository;
+import com.example.billing_platform_mis.repository.TripRepository;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Runs every @Query of TripRepository, PayoutRepository and IncentiveRepository against a seeded schema, EXPLAINs
+//the statements each one sends and fails when one of them scans trips, payouts or incentives in full. Queries that
+//aggregate a whole table on purpose are listed in WHOLE_TABLE; a new finder either uses an index from
+//db/migration/query-indexes-*.sql or has to be added there. Runs on the default H2 database; against PostgreSQL 16+
+//(EXPLAIN GENERIC_PLAN) with
+//  ./mvnw test -Dtest=RepositoryQueryPlanTest -Dspring.datasource.url=jdbc:postgresql://... -Dspring.datasource.username=...
+//  -Dspring.datasource.password=... -Dspring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect
+@SpringBootTest(properties = {
+	"spring.jpa.hibernate.ddl-auto=create",
+	"spring.jpa.properties.hibernate.session_factory.statement_inspector=com.example.billing_platform_mis.RepositoryQueryPlanTest$CapturingInspector",
+	"billing.partitioning.enabled=false"
+})
+class RepositoryQueryPlanTest {
+
+	private static final Set<String> HOT_TABLES = Set.of("trips", "payouts", "incentives");
+
+	//Whole-table scans by design: platform-wide totals and limit checks that compare two columns
+	private static final Map<Class<?>, Set<String>> WHOLE_TABLE = Map.of(
+		TripRepository.class, Set.of("findTripsExceedingDistanceLimit", "findTripsExceedingTimeLimit",
+			"aggregateTripsByClientVendorAndDay", "countTotalTrips"),
+		PayoutRepository.class, Set.of("calculateAveragePayoutAmount", "countTotalPayouts", "calculateTotalPayoutAmount"),
+		IncentiveRepository.class, Set.of("calculateAverageIncentiveAmount", "countTotalIncentives", "calculateTotalIncentiveAmount"));
+
+	private static final long FIRST_ID = 1_000_000L;
+	private static final int CLIENTS = 10;
+	private static final int VENDORS = 10;
+	private static final int EMPLOYEES = 200;
+	private static final int TRIPS = 20_000;
+	private static final LocalDate FIRST_DAY = LocalDate.of(2025, 1, 1);
+
+	private static final Pattern H2_TABLE_SCAN = Pattern.compile("/\\* PUBLIC\\.(\\w+)\\.tableScan \\*/");
+	private static final Pattern PG_SEQ_SCAN = Pattern.compile("Seq Scan on (\\w+)");
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private TripRepository tripRepository;
+
+	@Autowired
+	private PayoutRepository payoutRepository;
+
+	@Autowired
+	private IncentiveRepository incentiveRepository;
+
+	@Test
+	void hotQueriesUseIndexes() {
+		seed();
+		jdbcTemplate.execute("ANALYZE");
+		boolean postgres = jdbcTemplate.execute((Connection connection) ->
+			"PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName()));
+
+		List<String> failures = new ArrayList<>();
+		int explained = 0;
+		for (Map.Entry<Class<?>, Object> repository : Map.<Class<?>, Object>of(
+				TripRepository.class, tripRepository,
+				PayoutRepository.class, payoutRepository,
+				IncentiveRepository.class, incentiveRepository).entrySet()) {
+			Set<String> wholeTable = WHOLE_TABLE.get(repository.getKey());
+			List<Method> queries = Arrays.stream(repository.getKey().getDeclaredMethods())
+				.filter(method -> method.isAnnotationPresent(Query.class))
+				.sorted(Comparator.comparing(Method::getName))
+				.toList();
+			assertTrue(queries.stream().map(Method::getName).toList().containsAll(wholeTable), wholeTable.toString());
+
+			for (Method query : queries) {
+				List<String> statements = capture(repository.getValue(), query);
+				assertTrue(!statements.isEmpty(), query.getName() + " sent no statement");
+				for (String sql : statements) {
+					String plan = explain(postgres, sql);
+					Set<String> scanned = fullScans(postgres, plan);
+					if (!scanned.isEmpty() && !wholeTable.contains(query.getName())) {
+						failures.add(repository.getKey().getSimpleName() + "." + query.getName() + " scans " + scanned + ":\n" + plan);
+					}
+					explained++;
+				}
+			}
+		}
+		assertTrue(explained > 0);
+		assertEquals(List.of(), failures);
+	}
+
+	//Run a repository query in a rolled-back transaction and return the statements it sent
+	private List<String> capture(Object repository, Method query) {
+		Object[] arguments = arguments(query);
+		List<String> statements = new ArrayList<>();
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			status.setRollbackOnly();
+			CapturingInspector.STATEMENTS.set(statements);
+			try {
+				Object result = query.invoke(repository, arguments);
+				if (result instanceof Stream<?> stream) {
+					stream.close();
+				}
+			} catch (IllegalAccessException | InvocationTargetException e) {
+				throw new IllegalStateException(query.getName(), e);
+			} finally {
+				CapturingInspector.STATEMENTS.remove();
+			}
+		});
+		return statements;
+	}
+
+	//A representative value per parameter; the first LocalDate opens a one-month range, the second closes it
+	private static Object[] arguments(Method query) {
+		Class<?>[] types = query.getParameterTypes();
+		Object[] arguments = new Object[types.length];
+		int dates = 0;
+		for (int i = 0; i < types.length; i++) {
+			Class<?> type = types[i];
+			if (type == Long.class || type == long.class) {
+				arguments[i] = FIRST_ID;
+			} else if (type == LocalDate.class) {
+				arguments[i] = dates++ == 0 ? LocalDate.of(2025, 3, 1) : LocalDate.of(2025, 3, 31);
+			} else if (type == LocalDateTime.class) {
+				arguments[i] = LocalDateTime.of(2025, 3, 1, 0, 0);
+			} else if (Collection.class.isAssignableFrom(type)) {
+				arguments[i] = List.of(FIRST_ID, FIRST_ID + 1, FIRST_ID + 2);
+			} else if (type == Pageable.class) {
+				arguments[i] = PageRequest.of(0, 100);
+			} else if (type == BigDecimal.class) {
+				arguments[i] = BigDecimal.ONE;
+			} else {
+				throw new IllegalArgumentException(query.getName() + ": no test value for " + type.getName());
+			}
+		}
+		return arguments;
+	}
+
+	//H2 plans prepared statements with unbound parameters; PostgreSQL needs $n placeholders and GENERIC_PLAN
+	private String explain(boolean postgres, String sql) {
+		if (!postgres) {
+			return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+		}
+		StringBuilder numbered = new StringBuilder();
+		int parameter = 0;
+		for (char c : sql.toCharArray()) {
+			if (c == '?') {
+				numbered.append('$').append(++parameter);
+			} else {
+				numbered.append(c);
+			}
+		}
+		return String.join("\n", jdbcTemplate.queryForList("EXPLAIN (GENERIC_PLAN) " + numbered, String.class));
+	}
+
+	//Hot tables read in full; monthly partitions of PostgreSQL count as their parent table
+	private static Set<String> fullScans(boolean postgres, String plan) {
+		Set<String> tables = new LinkedHashSet<>();
+		Matcher matcher = (postgres ? PG_SEQ_SCAN : H2_TABLE_SCAN).matcher(plan);
+		while (matcher.find()) {
+			String table = matcher.group(1).toLowerCase();
+			int partition = table.lastIndexOf('_');
+			if (partition > 0 && HOT_TABLES.contains(table.substring(0, partition))) {
+				table = table.substring(0, partition);
+			}
+			if (HOT_TABLES.contains(table)) {
+				tables.add(table);
+			}
+		}
+		return tables;
+	}
+
+	//CLIENTS x VENDORS relationships, EMPLOYEES employees and TRIPS trips over a year, each with a payout and an incentive
+	private void seed() {
+		long id = FIRST_ID;
+		List<Object[]> users = new ArrayList<>();
+		for (int i = 0; i < CLIENTS + VENDORS + EMPLOYEES; i++) {
+			String role = i < CLIENTS ? "CLIENT" : i < CLIENTS + VENDORS ? "VENDOR" : "EMPLOYEE";
+			users.add(new Object[] {id + i, "Plan " + role + " " + i, "plan" + i + "@example.com", "x", role});
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO users (id, name, email, password_hash, role) VALUES (?, ?, ?, ?, ?)", users);
+
+		List<Object[]> relationships = new ArrayList<>();
+		for (int client = 0; client < CLIENTS; client++) {
+			for (int vendor = 0; vendor < VENDORS; vendor++) {
+				relationships.add(new Object[] {id + client * VENDORS + vendor, id + client, id + CLIENTS + vendor, "TRIP"});
+			}
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO client_vendors (id, client_id, vendor_id, billing_model) VALUES (?, ?, ?, ?)", relationships);
+
+		List<Object[]> clientEmployees = new ArrayList<>();
+		for (int employee = 0; employee < EMPLOYEES; employee++) {
+			clientEmployees.add(new Object[] {id + employee, id + employee % CLIENTS, id + CLIENTS + VENDORS + employee});
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO client_employees (id, client_id, employee_id) VALUES (?, ?, ?)", clientEmployees);
+
+		List<Object[]> trips = new ArrayList<>();
+		List<Object[]> payouts = new ArrayList<>();
+		List<Object[]> incentives = new ArrayList<>();
+		for (int i = 0; i < TRIPS; i++) {
+			int employee = i % EMPLOYEES;
+			int client = employee % CLIENTS;
+			long clientVendorId = id + client * VENDORS + (i / EMPLOYEES) % VENDORS;
+			Date tripDate = Date.valueOf(FIRST_DAY.plusDays(i % 365));
+			Timestamp createdAt = Timestamp.valueOf(FIRST_DAY.plusDays(i % 365).atTime(12, 0));
+			BigDecimal amount = BigDecimal.valueOf(1000 + i % 500, 2);
+			trips.add(new Object[] {id + i, clientVendorId, id + CLIENTS + VENDORS + employee, tripDate, amount, BigDecimal.ONE, createdAt});
+			payouts.add(new Object[] {id + i, clientVendorId, id + i, tripDate, amount, createdAt});
+			incentives.add(new Object[] {id + i, id + employee, clientVendorId, id + i, tripDate, amount, createdAt});
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO trips (id, client_vendor_id, employee_id, trip_date, distance, duration, created_at) " +
+			"VALUES (?, ?, ?, ?, ?, ?, ?)", trips);
+		jdbcTemplate.batchUpdate("INSERT INTO payouts (id, client_vendor_id, trip_id, trip_date, total_amount, created_at) " +
+			"VALUES (?, ?, ?, ?, ?, ?)", payouts);
+		jdbcTemplate.batchUpdate("INSERT INTO incentives (id, client_employee_id, client_vendor_id, trip_id, trip_date, total_amount, created_at) " +
+			"VALUES (?, ?, ?, ?, ?, ?, ?)", incentives);
+	}
+
+	//Records the statements of the current thread only, so background services do not interfere
+	public static class CapturingInspector implements StatementInspector {
+		private static final ThreadLocal<List<String>> STATEMENTS = new ThreadLocal<>();
+
+		@Override
+		public String inspect(String sql) {
+			List<String> statements = STATEMENTS.get();
+			if (statements != null) {
+				statements.add(sql);
+			}
+			return sql;
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package com.example.billing_platform_mis;
+
+import com.example.billing_platform_mis.repository.IncentiveRepository;
+import com.example.billing_platform_mis.repository.PayoutRepository;
+import com.example.billing_platform_mis.repository.TripRepository;
+import com.example.billing_platform_mis.service.TripPartitionService;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Partitions a fresh PostgreSQL schema with db/migration/trips-partitioning-postgresql.sql, lets
+//TripPartitionService add the months after it, and checks with EXPLAIN that the date-range finders of
+//trips, payouts and incentives only scan the partitions of the months they ask for. Needs a scratch
+//PostgreSQL 15+ database whose trips, payouts and incentives tables it drops:
+//  ./mvnw test -Dtest=TripPartitionPruningTest -Dpartitioning.postgres=true
+//  -Dspring.datasource.url=jdbc:postgresql://... -Dspring.datasource.username=... -Dspring.datasource.password=...
+//  -Dspring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect
+@SpringBootTest(properties = {
+	"spring.jpa.hibernate.ddl-auto=create",
+	"spring.jpa.properties.hibernate.session_factory.statement_inspector=com.example.billing_platform_mis.TripPartitionPruningTest$CapturingInspector",
+	"billing.partitioning.enabled=false",
+	"billing.partitioning.months-ahead=5"
+})
+@EnabledIfSystemProperty(named = "partitioning.postgres", matches = "true")
+class TripPartitionPruningTest {
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TripPartitionService tripPartitionService;
+
+	@Autowired
+	private TripRepository tripRepository;
+
+	@Autowired
+	private PayoutRepository payoutRepository;
+
+	@Autowired
+	private IncentiveRepository incentiveRepository;
+
+	@Test
+	void dateRangeFindersPruneMonthlyPartitions() throws Exception {
+		String migration = new ClassPathResource("db/migration/trips-partitioning-postgresql.sql")
+			.getContentAsString(StandardCharsets.UTF_8);
+		jdbcTemplate.execute(migration);
+		assertEquals(List.of("incentives", "payouts", "trips"),
+			tripPartitionService.getStatus().getPartitionedTables().stream().sorted().toList());
+
+		//The migration covers three months ahead; maintenance adds the fourth and fifth, once
+		YearMonth current = YearMonth.now();
+		List<String> created = tripPartitionService.maintain();
+		assertTrue(created.contains(TripPartitionService.partitionName("trips", current.plusMonths(5))), created.toString());
+		assertTrue(created.contains(TripPartitionService.partitionName("payouts", current.plusMonths(4))), created.toString());
+		assertEquals(List.of(), tripPartitionService.maintain());
+
+		YearMonth month = current.plusMonths(1);
+		LocalDate startDate = month.atDay(3);
+		LocalDate endDate = month.atDay(20);
+
+		assertScansOnly("trips", month, explain(() -> tripRepository.findByClientVendorIdAndDateRange(1L, startDate, endDate),
+			1L, startDate, endDate));
+		assertScansOnly("payouts", month, explain(() -> payoutRepository.findByVendorIdAndDateRange(1L, startDate, endDate),
+			1L, startDate, endDate));
+		assertScansOnly("incentives", month, explain(() -> incentiveRepository.calculateTotalIncentiveByEmployeeAndDateRange(1L, startDate, endDate),
+			1L, startDate, endDate));
+	}
+
+	//EXPLAIN the first statement a finder sends, with its parameters bound in order
+	private String explain(Runnable finder, Object... parameters) {
+		CapturingInspector.STATEMENTS.clear();
+		finder.run();
+		String sql = CapturingInspector.STATEMENTS.get(0);
+		return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, parameters));
+	}
+
+	private static void assertScansOnly(String table, YearMonth month, String plan) {
+		assertTrue(plan.contains(TripPartitionService.partitionName(table, month)), plan);
+		assertFalse(plan.contains(TripPartitionService.partitionName(table, month.minusMonths(1))), plan);
+		assertFalse(plan.contains(TripPartitionService.partitionName(table, month.plusMonths(1))), plan);
+		assertFalse(plan.contains(table + "_default"), plan);
+	}
+
+	public static class CapturingInspector implements StatementInspector {
+		private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+		@Override
+		public String inspect(String sql) {
+			STATEMENTS.add(sql);
+			return sql;
+		}
+	}
+}
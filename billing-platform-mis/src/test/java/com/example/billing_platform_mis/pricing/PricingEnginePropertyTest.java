@@ -0,0 +1,274 @@
+package com.example.billing_platform_mis.pricing;
+
+import com.example.billing_platform_mis.entity.BillingModel;
+import com.example.billing_platform_mis.entity.ClientVendor;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//Fixed-point pricing must match the original BigDecimal trip and period pricing at scale 2
+class PricingEnginePropertyTest {
+
+	private static final int ITERATIONS = 200_000;
+
+	@Test
+	void bookingMatchesBigDecimalPricing() {
+		Random random = new Random(20261017L);
+		for (int i = 0; i < ITERATIONS; i++) {
+			ClientVendor relationship = randomRelationship(random, true);
+			BigDecimal distance = randomDecimal(random, 100_000);
+			BigDecimal duration = randomDecimal(random, 10_000);
+
+			TripCharges charges = PricingEngine.priceTrip(RateCard.from(relationship), distance, duration);
+			BigDecimal[] expected = legacyBooking(relationship, distance, duration);
+			String context = "iteration " + i + ": " + relationship + " distance=" + distance + " duration=" + duration;
+
+			assertEquals(scale2(expected[0]), charges.getVendorCost(), context);
+			assertEquals(scale2(expected[1]), charges.getEmployeeCost(), context);
+			assertEquals(scale2(expected[2]), charges.getTotalCost(), context);
+			assertEquals(scale2(expected[3]), charges.getExtraDistanceCost(), context);
+			assertEquals(scale2(expected[4]), charges.getExtraTimeCost(), context);
+		}
+	}
+
+	@Test
+	void zeroLimitChargesTheWholeTripAtBooking() {
+		ClientVendor relationship = new ClientVendor();
+		relationship.setBillingModel(BillingModel.TRIP);
+		relationship.setTripRate(new BigDecimal("40.00"));
+		relationship.setStandardDistanceLimit(BigDecimal.ZERO);
+		relationship.setStandardTimeLimit(null);
+		relationship.setEmployeeExtraDistanceRate(new BigDecimal("2.00"));
+		relationship.setEmployeeExtraTimeRate(new BigDecimal("3.00"));
+
+		TripCharges charges = PricingEngine.priceTrip(RateCard.from(relationship), new BigDecimal("12.50"), new BigDecimal("1.50"));
+		assertEquals(new BigDecimal("25.00"), charges.getExtraDistanceCost());
+		assertEquals(new BigDecimal("0.00"), charges.getExtraTimeCost());
+	}
+
+	@Test
+	void overagesMatchBigDecimalPricing() {
+		Random random = new Random(20261018L);
+		for (int i = 0; i < ITERATIONS; i++) {
+			ClientVendor relationship = randomRelationship(random, false);
+			BigDecimal distance = randomDecimal(random, 100_000);
+			BigDecimal duration = randomDecimal(random, 10_000);
+
+			OverageCharges charges = PricingEngine.priceOverages(RateCard.from(relationship), distance, duration);
+			BigDecimal[] expected = legacyOverages(relationship, distance, duration);
+			String context = "iteration " + i + ": " + relationship + " distance=" + distance + " duration=" + duration;
+
+			assertEquals(expected[0].signum() > 0 || expected[1].signum() > 0, charges.hasOverage(), context);
+			assertEquals(scale2(expected[2]), charges.getDistanceIncentive(), context);
+			assertEquals(scale2(expected[3]), charges.getTimeIncentive(), context);
+			assertEquals(scale2(expected[4]), charges.getTotalIncentive(), context);
+			assertEquals(scale2(expected[5]), charges.getPayoutBase(), context);
+			assertEquals(scale2(expected[6]), charges.getDistancePayout(), context);
+			assertEquals(scale2(expected[7]), charges.getTimePayout(), context);
+			assertEquals(scale2(expected[8]), charges.getTotalPayout(), context);
+		}
+	}
+
+	@Test
+	void periodMatchesBigDecimalPricing() {
+		Random random = new Random(20261019L);
+		for (int i = 0; i < ITERATIONS; i++) {
+			ClientVendor relationship = randomRelationship(random, true);
+			long tripCount = random.nextInt(20) == 0 ? 0 : random.nextInt(100_000);
+
+			PeriodCharges charges = PricingEngine.pricePeriod(RateCard.from(relationship), tripCount);
+			BigDecimal[] expected = legacyPeriod(relationship, tripCount);
+			String context = "iteration " + i + ": " + relationship + " trips=" + tripCount;
+
+			assertEquals(scale2(expected[0]), charges.getPackageAmount(), context);
+			assertEquals(scale2(expected[1]), charges.getTripAmount(), context);
+			assertEquals(scale2(expected[0].add(expected[1])), charges.getTotalAmount(), context);
+		}
+	}
+
+	@Test
+	void tieredTripsMatchPerTripWalk() {
+		Random random = new Random(20261020L);
+		for (int i = 0; i < ITERATIONS / 10; i++) {
+			List<PricingTier> tiers = new ArrayList<>();
+			int tierCount = random.nextInt(4);
+			for (int t = 0; t < tierCount; t++) {
+				boolean last = t == tierCount - 1;
+				long tripLimit = last && random.nextBoolean() ? PricingTier.UNBOUNDED : random.nextInt(50);
+				tiers.add(new PricingTier(tripLimit, random.nextInt(10_000)));
+			}
+			long fallbackRate = random.nextInt(10_000);
+			long tripCount = random.nextInt(200);
+
+			//Price trip by trip: each trip pays the rate of the first tier with capacity left
+			long expected = 0;
+			long[] used = new long[tiers.size()];
+			for (long trip = 0; trip < tripCount; trip++) {
+				long rate = fallbackRate;
+				for (int t = 0; t < tiers.size(); t++) {
+					if (used[t] < tiers.get(t).getTripLimit()) {
+						used[t]++;
+						rate = tiers.get(t).getTripRate();
+						break;
+					}
+				}
+				expected += rate;
+			}
+
+			assertEquals(BigDecimal.valueOf(expected, 2),
+				Money.toBigDecimal(PricingEngine.tieredTripAmount(tiers, fallbackRate, tripCount)), "iteration " + i);
+		}
+	}
+
+	@Test
+	void halfUpDivisionMatchesBigDecimal() {
+		Random random = new Random(42L);
+		for (int i = 0; i < ITERATIONS; i++) {
+			long dividend = random.nextLong() >> random.nextInt(40);
+			long divisor = random.nextBoolean() ? 2 : 1 + random.nextInt(10_000);
+			if (random.nextBoolean()) divisor = -divisor;
+
+			long expected = BigDecimal.valueOf(dividend)
+				.divide(BigDecimal.valueOf(divisor), 0, RoundingMode.HALF_UP).longValueExact();
+			assertEquals(expected, Money.divideHalfUp(dividend, divisor), dividend + " / " + divisor);
+		}
+	}
+
+	//Booking costs exactly as computed by ClientController.calculateTripCosts before fixed-point pricing
+	//(only a null limit means no limit; BigDecimal.ROUND_HALF_UP is RoundingMode.HALF_UP)
+	private static BigDecimal[] legacyBooking(ClientVendor clientVendor, BigDecimal distance, BigDecimal duration) {
+		BillingModel billingModel = clientVendor.getBillingModel();
+
+		BigDecimal baseCost = BigDecimal.ZERO;
+		if (billingModel == BillingModel.TRIP || billingModel == BillingModel.HYBRID) {
+			baseCost = clientVendor.getTripRate() != null ? clientVendor.getTripRate() : BigDecimal.ZERO;
+		}
+
+		if (billingModel == BillingModel.PACKAGE || billingModel == BillingModel.HYBRID) {
+			BigDecimal packageContribution = clientVendor.getPackageRate() != null ?
+				clientVendor.getPackageRate().divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP) : BigDecimal.ZERO;
+			baseCost = baseCost.add(packageContribution);
+		}
+
+		BigDecimal extraDistance = BigDecimal.ZERO;
+		BigDecimal extraTime = BigDecimal.ZERO;
+
+		if (clientVendor.getStandardDistanceLimit() != null &&
+			distance.compareTo(clientVendor.getStandardDistanceLimit()) > 0) {
+			extraDistance = distance.subtract(clientVendor.getStandardDistanceLimit());
+		}
+
+		if (clientVendor.getStandardTimeLimit() != null &&
+			duration.compareTo(clientVendor.getStandardTimeLimit()) > 0) {
+			extraTime = duration.subtract(clientVendor.getStandardTimeLimit());
+		}
+
+		BigDecimal vendorExtraDistanceCost = BigDecimal.ZERO;
+		BigDecimal vendorExtraTimeCost = BigDecimal.ZERO;
+
+		if (extraDistance.compareTo(BigDecimal.ZERO) > 0) {
+			BigDecimal vendorExtraDistanceRate = clientVendor.getVendorExtraDistanceRate() != null ?
+				clientVendor.getVendorExtraDistanceRate() : BigDecimal.ZERO;
+			vendorExtraDistanceCost = extraDistance.multiply(vendorExtraDistanceRate);
+		}
+
+		if (extraTime.compareTo(BigDecimal.ZERO) > 0) {
+			BigDecimal vendorExtraTimeRate = clientVendor.getVendorExtraTimeRate() != null ?
+				clientVendor.getVendorExtraTimeRate() : BigDecimal.ZERO;
+			vendorExtraTimeCost = extraTime.multiply(vendorExtraTimeRate);
+		}
+
+		BigDecimal employeeExtraDistanceCost = BigDecimal.ZERO;
+		BigDecimal employeeExtraTimeCost = BigDecimal.ZERO;
+
+		if (extraDistance.compareTo(BigDecimal.ZERO) > 0) {
+			BigDecimal employeeExtraDistanceRate = clientVendor.getEmployeeExtraDistanceRate() != null ?
+				clientVendor.getEmployeeExtraDistanceRate() : BigDecimal.ZERO;
+			employeeExtraDistanceCost = extraDistance.multiply(employeeExtraDistanceRate);
+		}
+
+		if (extraTime.compareTo(BigDecimal.ZERO) > 0) {
+			BigDecimal employeeExtraTimeRate = clientVendor.getEmployeeExtraTimeRate() != null ?
+				clientVendor.getEmployeeExtraTimeRate() : BigDecimal.ZERO;
+			employeeExtraTimeCost = extraTime.multiply(employeeExtraTimeRate);
+		}
+
+		BigDecimal halfBaseCost = baseCost.divide(BigDecimal.valueOf(2), 2, RoundingMode.HALF_UP);
+
+		BigDecimal vendorTotalCost = halfBaseCost.add(vendorExtraDistanceCost).add(vendorExtraTimeCost);
+		BigDecimal employeeTotalCost = halfBaseCost.add(employeeExtraDistanceCost).add(employeeExtraTimeCost);
+
+		return new BigDecimal[] { vendorTotalCost, employeeTotalCost, vendorTotalCost.add(employeeTotalCost),
+			employeeExtraDistanceCost, employeeExtraTimeCost };
+	}
+
+	//Incentive and payout amounts as computed by OverageCalculationService before fixed-point pricing
+	private static BigDecimal[] legacyOverages(ClientVendor cv, BigDecimal distance, BigDecimal duration) {
+		BigDecimal distanceOverage = cv.getStandardDistanceLimit().compareTo(BigDecimal.ZERO) <= 0 ? BigDecimal.ZERO
+			: distance.subtract(cv.getStandardDistanceLimit()).max(BigDecimal.ZERO);
+		BigDecimal timeOverage = cv.getStandardTimeLimit().compareTo(BigDecimal.ZERO) <= 0 ? BigDecimal.ZERO
+			: duration.subtract(cv.getStandardTimeLimit()).max(BigDecimal.ZERO);
+
+		BigDecimal distanceIncentive = distanceOverage.multiply(cv.getEmployeeExtraDistanceRate());
+		BigDecimal timeIncentive = timeOverage.multiply(cv.getEmployeeExtraTimeRate());
+		BigDecimal baseAmount = cv.getTripRate();
+		BigDecimal distancePayout = distanceOverage.multiply(cv.getVendorExtraDistanceRate());
+		BigDecimal timePayout = timeOverage.multiply(cv.getVendorExtraTimeRate());
+
+		return new BigDecimal[] { distanceOverage, timeOverage, distanceIncentive, timeIncentive,
+			distanceIncentive.add(timeIncentive), baseAmount, distancePayout, timePayout,
+			baseAmount.add(distancePayout).add(timePayout) };
+	}
+
+	//Package and trip components as computed by BillingEngineService before the pricing engine
+	private static BigDecimal[] legacyPeriod(ClientVendor cv, long tripCount) {
+		BillingModel billingModel = cv.getBillingModel();
+		BigDecimal packageComponent = billingModel == BillingModel.TRIP ? BigDecimal.ZERO : orZero(cv.getPackageRate());
+		BigDecimal tripComponent = billingModel == BillingModel.PACKAGE ? BigDecimal.ZERO
+			: orZero(cv.getTripRate()).multiply(BigDecimal.valueOf(tripCount));
+		return new BigDecimal[] { packageComponent, tripComponent };
+	}
+
+	private static ClientVendor randomRelationship(Random random, boolean allowNulls) {
+		ClientVendor cv = new ClientVendor();
+		cv.setId((long) random.nextInt(1_000));
+		cv.setBillingModel(BillingModel.values()[random.nextInt(BillingModel.values().length)]);
+		cv.setPackageRate(randomRate(random, 10_000_000, allowNulls));
+		cv.setTripRate(randomRate(random, 1_000_000, allowNulls));
+		cv.setStandardDistanceLimit(randomRate(random, 100_000, allowNulls));
+		cv.setStandardTimeLimit(randomRate(random, 10_000, allowNulls));
+		cv.setEmployeeExtraDistanceRate(randomRate(random, 100_000, allowNulls));
+		cv.setEmployeeExtraTimeRate(randomRate(random, 100_000, allowNulls));
+		cv.setVendorExtraDistanceRate(randomRate(random, 100_000, allowNulls));
+		cv.setVendorExtraTimeRate(randomRate(random, 100_000, allowNulls));
+		return cv;
+	}
+
+	//Scale-2 value, occasionally zero or (when allowed) null
+	private static BigDecimal randomRate(Random random, long maxHundredths, boolean allowNull) {
+		int roll = random.nextInt(20);
+		if (roll == 0) return BigDecimal.ZERO;
+		if (roll == 1 && allowNull) return null;
+		return randomDecimal(random, maxHundredths);
+	}
+
+	//Scale-2 value biased towards small numbers so limits are frequently exceeded
+	private static BigDecimal randomDecimal(Random random, long maxHundredths) {
+		long bound = random.nextBoolean() ? Math.min(maxHundredths, 5_000) : maxHundredths;
+		return BigDecimal.valueOf(random.nextLong(bound + 1), 2);
+	}
+
+	private static BigDecimal orZero(BigDecimal value) {
+		return value != null ? value : BigDecimal.ZERO;
+	}
+
+	private static BigDecimal scale2(BigDecimal value) {
+		return value.setScale(2, RoundingMode.HALF_UP);
+	}
+}
@@ -0,0 +1,74 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.ClientEmployee;
+import com.example.billing_platform_mis.entity.User;
+import com.example.billing_platform_mis.entity.UserRole;
+import com.example.billing_platform_mis.repository.ClientEmployeeRepository;
+import com.example.billing_platform_mis.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Assignments changed without going through this instance's index, as another instance would change them: an
+//addition counts on first lookup, a removal once the index reloads.
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class ClientEmployeeIndexTest {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ClientEmployeeRepository clientEmployeeRepository;
+
+	@Autowired
+	private ClientEmployeeIndex clientEmployeeIndex;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void assignmentsMadeElsewhereAreSeen() {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		User client = userRepository.findByRole(UserRole.CLIENT).get(0);
+		User employee = transactionTemplate.execute(status -> {
+			User created = new User();
+			created.setName("Elsewhere Employee");
+			created.setEmail("elsewhere-" + UUID.randomUUID() + "@example.com");
+			created.setPasswordHash("x");
+			created.setRole(UserRole.EMPLOYEE);
+			entityManager.persist(created);
+			return created;
+		});
+		clientEmployeeIndex.reload();
+		long countBefore = clientEmployeeIndex.countEmployees(client.getId());
+		assertFalse(clientEmployeeIndex.isMember(client.getId(), employee.getId()));
+
+		ClientEmployee assignment = transactionTemplate.execute(status -> {
+			ClientEmployee created = new ClientEmployee();
+			created.setClient(client);
+			created.setEmployee(employee);
+			entityManager.persist(created);
+			return created;
+		});
+		assertTrue(clientEmployeeIndex.isMember(client.getId(), employee.getId()));
+		assertEquals(countBefore + 1, clientEmployeeIndex.countEmployees(client.getId()));
+
+		clientEmployeeRepository.deleteById(assignment.getId());
+		clientEmployeeIndex.reload();
+		assertFalse(clientEmployeeIndex.isMember(client.getId(), employee.getId()));
+		assertEquals(countBefore, clientEmployeeIndex.countEmployees(client.getId()));
+	}
+}
@@ -0,0 +1,180 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.IdempotencyKey;
+import com.example.billing_platform_mis.entity.User;
+import com.example.billing_platform_mis.entity.UserRole;
+import com.example.billing_platform_mis.repository.IdempotencyKeyRepository;
+import com.example.billing_platform_mis.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//A request that runs for several claim timeouts keeps its Idempotency-Key claim alive, so a retry sent
+//meanwhile is told it is in progress instead of running the action a second time. A key is only released
+//when the first request certainly changed nothing; otherwise retries are told its outcome is unknown.
+@SpringBootTest(properties = {
+	"spring.jpa.show-sql=false",
+	"billing.idempotency.claim-timeout-seconds=1"
+})
+class IdempotencyServiceTest {
+
+	@Autowired
+	private IdempotencyService idempotencyService;
+
+	@Autowired
+	private IdempotencyKeyRepository idempotencyKeyRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void longRunningRequestKeepsItsClaim() throws Exception {
+		AtomicInteger runs = new AtomicInteger();
+		CompletableFuture<ResponseEntity<?>> first = CompletableFuture.supplyAsync(() ->
+			idempotencyService.execute("test-import:1", "long-running", () -> "hash", () -> {
+				runs.incrementAndGet();
+				sleep(3_000);
+				return ResponseEntity.ok(Map.of("imported", 1));
+			}));
+
+		Thread.sleep(2_000);
+		ResponseEntity<?> retry = idempotencyService.execute("test-import:1", "long-running", () -> "hash", () -> {
+			runs.incrementAndGet();
+			return ResponseEntity.ok(Map.of("imported", 1));
+		});
+
+		assertEquals(409, retry.getStatusCode().value());
+		assertEquals(200, first.get(10, TimeUnit.SECONDS).getStatusCode().value());
+		ResponseEntity<?> replay = idempotencyService.execute("test-import:1", "long-running", () -> "hash", () -> {
+			runs.incrementAndGet();
+			return ResponseEntity.ok(Map.of("imported", 1));
+		});
+		assertEquals(200, replay.getStatusCode().value());
+		assertEquals("true", replay.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+		assertEquals(1, runs.get());
+	}
+
+	@Test
+	void refusedRequestReleasesItsKey() {
+		AtomicInteger runs = new AtomicInteger();
+		for (int i = 0; i < 2; i++) {
+			ResponseEntity<?> response = idempotencyService.execute("test-booking:1", "refused", () -> "hash", () -> {
+				runs.incrementAndGet();
+				return ResponseEntity.badRequest().body(Map.of("error", "Employee is not assigned to this client"));
+			});
+			assertEquals(400, response.getStatusCode().value());
+		}
+		assertEquals(2, runs.get());
+	}
+
+	@Test
+	void unconfirmedOrFailedRequestKeepsItsKeyAsUnknown() {
+		AtomicInteger runs = new AtomicInteger();
+		ResponseEntity<?> first = idempotencyService.execute("test-booking:1", "unconfirmed", () -> "hash", () -> {
+			runs.incrementAndGet();
+			return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(Map.of("error", "Trip was not confirmed in time"));
+		});
+		assertEquals(504, first.getStatusCode().value());
+		assertThrows(IllegalStateException.class, () ->
+			idempotencyService.execute("test-booking:1", "failed", () -> "hash", () -> {
+				runs.incrementAndGet();
+				throw new IllegalStateException("connection lost");
+			}));
+
+		for (String key : new String[] {"unconfirmed", "failed"}) {
+			ResponseEntity<?> retry = idempotencyService.execute("test-booking:1", key, () -> "hash", () -> {
+				runs.incrementAndGet();
+				return ResponseEntity.ok(Map.of("id", 1));
+			});
+			assertEquals(409, retry.getStatusCode().value());
+			assertTrue(String.valueOf(retry.getBody()).contains("unknown"));
+		}
+		assertEquals(2, runs.get());
+	}
+
+	@Test
+	void atomicFailureRollsBackAndReleasesItsKey() {
+		String email = "atomic-" + UUID.randomUUID() + "@example.com";
+		assertThrows(IllegalStateException.class, () ->
+			idempotencyService.executeAtomically("test-booking:2", "atomic", () -> "hash", () -> {
+				userRepository.save(user(email));
+				throw new IllegalStateException("failed after the insert");
+			}));
+		assertFalse(userRepository.findByEmail(email).isPresent());
+
+		ResponseEntity<?> retry = idempotencyService.executeAtomically("test-booking:2", "atomic", () -> "hash", () -> {
+			userRepository.save(user(email));
+			return ResponseEntity.ok(Map.of("created", email));
+		});
+		assertEquals(200, retry.getStatusCode().value());
+		assertTrue(userRepository.findByEmail(email).isPresent());
+		IdempotencyKey stored = idempotencyKeyRepository.findByScopeAndIdempotencyKey("test-booking:2", "atomic").orElseThrow();
+		assertEquals(200, stored.getResponseStatus());
+	}
+
+	@Test
+	void abandonedClaimIsOnlyRunAgainWhenItWasAtomic() {
+		abandonedClaim("test-booking:3", "abandoned-separate", false);
+		abandonedClaim("test-booking:3", "abandoned-atomic", true);
+		AtomicInteger runs = new AtomicInteger();
+
+		ResponseEntity<?> separate = idempotencyService.execute("test-booking:3", "abandoned-separate", () -> "hash", () -> {
+			runs.incrementAndGet();
+			return ResponseEntity.ok(Map.of("id", 1));
+		});
+		assertEquals(409, separate.getStatusCode().value());
+		assertTrue(String.valueOf(separate.getBody()).contains("unknown"));
+		assertEquals(0, runs.get());
+
+		ResponseEntity<?> atomic = idempotencyService.executeAtomically("test-booking:3", "abandoned-atomic", () -> "hash", () -> {
+			runs.incrementAndGet();
+			return ResponseEntity.ok(Map.of("id", 2));
+		});
+		assertEquals(200, atomic.getStatusCode().value());
+		assertEquals(1, runs.get());
+	}
+
+	private void abandonedClaim(String scope, String key, boolean retrySafe) {
+		LocalDateTime longAgo = LocalDateTime.now().minusMinutes(10);
+		IdempotencyKey claim = new IdempotencyKey();
+		claim.setScope(scope);
+		claim.setIdempotencyKey(key);
+		claim.setOwner(UUID.randomUUID().toString());
+		claim.setCreatedAt(longAgo);
+		claim.setHeartbeatAt(longAgo);
+		claim.setRetrySafe(retrySafe);
+		claim.setExpiresAt(LocalDateTime.now().plusHours(1));
+		idempotencyKeyRepository.save(claim);
+	}
+
+	private static User user(String email) {
+		User user = new User();
+		user.setName("Atomic User");
+		user.setEmail(email);
+		user.setPasswordHash("x");
+		user.setRole(UserRole.EMPLOYEE);
+		return user;
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.ClientVendor;
+import com.example.billing_platform_mis.entity.Trip;
+import com.example.billing_platform_mis.repository.ClientVendorRepository;
+import com.example.billing_platform_mis.repository.TripRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+//Merging of the per-relationship keyset pages of a client's trips. The repository is replaced by an in-memory
+//version of its query, so walking the pages must yield every trip exactly once in (tripDate, id) descending order.
+@ExtendWith(MockitoExtension.class)
+class KeysetPageServiceTest {
+
+	private static final Long CLIENT_ID = 6L;
+
+	@Mock
+	private TripRepository tripRepository;
+
+	@Mock
+	private ClientVendorRepository clientVendorRepository;
+
+	@Mock
+	private TripArchiveService tripArchiveService;
+
+	@InjectMocks
+	private KeysetPageService keysetPageService;
+
+	private final List<Trip> trips = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(keysetPageService, "defaultLimit", 100);
+		ReflectionTestUtils.setField(keysetPageService, "maxLimit", 500);
+		when(clientVendorRepository.findByClientId(CLIENT_ID)).thenReturn(List.of(relationship(1L), relationship(2L)));
+		when(tripRepository.findPageByClientVendorId(anyLong(), any(), anyLong(), any())).thenAnswer(invocation ->
+			page(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2), invocation.getArgument(3)));
+		when(tripArchiveService.iterateArchivedRows(any(), anyLong(), any(), any(), eq(true)))
+			.thenReturn(Collections.emptyIterator());
+	}
+
+	@Test
+	void walksEveryTripOnceAcrossRelationshipsAndTies() {
+		LocalDate day = LocalDate.of(2026, 9, 1);
+		//IDs interleave between the relationships and many trips share a date
+		for (long id = 1; id <= 23; id++) {
+			trips.add(trip(id, id % 3 == 0 ? 2L : 1L, day.plusDays(id % 4)));
+		}
+		List<Long> expected = trips.stream()
+			.sorted(Comparator.comparing(Trip::getTripDate).thenComparing(Trip::getId).reversed())
+			.map(Trip::getId)
+			.toList();
+
+		List<Long> walked = new ArrayList<>();
+		String cursor = null;
+		int pages = 0;
+		do {
+			KeysetPageService.Page<Trip> page = keysetPageService.findClientTrips(CLIENT_ID, cursor, 5);
+			page.getItems().forEach(trip -> walked.add(trip.getId()));
+			cursor = page.getNextCursor();
+			pages++;
+		} while (cursor != null);
+
+		assertEquals(expected, walked);
+		assertEquals(5, pages);
+	}
+
+	@Test
+	void asksEachRelationshipForOneRowMoreThanThePage() {
+		LocalDate day = LocalDate.of(2026, 9, 1);
+		for (long id = 1; id <= 3; id++) {
+			trips.add(trip(id, 1L, day));
+		}
+
+		KeysetPageService.Page<Trip> page = keysetPageService.findClientTrips(CLIENT_ID, null, 3);
+
+		verify(tripRepository).findPageByClientVendorId(eq(1L), any(), anyLong(), eq(PageRequest.of(0, 4)));
+		verify(tripRepository).findPageByClientVendorId(eq(2L), any(), anyLong(), eq(PageRequest.of(0, 4)));
+		//Exactly a page of rows: no further page
+		assertEquals(List.of(3L, 2L, 1L), page.getItems().stream().map(Trip::getId).toList());
+		assertNull(page.getNextCursor());
+	}
+
+	@Test
+	void nextPageContinuesWithinTheSameDate() {
+		LocalDate day = LocalDate.of(2026, 9, 1);
+		trips.add(trip(10, 1L, day));
+		trips.add(trip(11, 2L, day));
+		trips.add(trip(12, 1L, day));
+
+		KeysetPageService.Page<Trip> first = keysetPageService.findClientTrips(CLIENT_ID, null, 2);
+		assertEquals(List.of(12L, 11L), first.getItems().stream().map(Trip::getId).toList());
+		KeysetPageService.Page<Trip> second = keysetPageService.findClientTrips(CLIENT_ID, first.getNextCursor(), 2);
+		assertEquals(List.of(10L), second.getItems().stream().map(Trip::getId).toList());
+		assertNull(second.getNextCursor());
+	}
+
+	@Test
+	void capsAndValidatesTheLimit() {
+		keysetPageService.findClientTrips(CLIENT_ID, null, 10_000);
+		verify(tripRepository).findPageByClientVendorId(eq(1L), any(), anyLong(), eq(PageRequest.of(0, 501)));
+		assertThrows(IllegalArgumentException.class, () -> keysetPageService.findClientTrips(CLIENT_ID, null, 0));
+	}
+
+	//What findPageByClientVendorId's query returns: the relationship's trips before (beforeDate, beforeId), newest first
+	private List<Trip> page(Long clientVendorId, LocalDate beforeDate, Long beforeId, Pageable pageable) {
+		return trips.stream()
+			.filter(trip -> trip.getClientVendor().getId().equals(clientVendorId))
+			.filter(trip -> trip.getTripDate().isBefore(beforeDate)
+				|| (trip.getTripDate().equals(beforeDate) && trip.getId() < beforeId))
+			.sorted(Comparator.comparing(Trip::getTripDate).thenComparing(Trip::getId).reversed())
+			.limit(pageable.getPageSize())
+			.toList();
+	}
+
+	private static ClientVendor relationship(Long id) {
+		ClientVendor relationship = new ClientVendor();
+		relationship.setId(id);
+		return relationship;
+	}
+
+	private static Trip trip(long id, Long clientVendorId, LocalDate tripDate) {
+		Trip trip = new Trip();
+		trip.setId(id);
+		trip.setClientVendor(relationship(clientVendorId));
+		trip.setTripDate(tripDate);
+		return trip;
+	}
+}
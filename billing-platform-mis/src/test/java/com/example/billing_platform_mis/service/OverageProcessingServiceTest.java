@@ -0,0 +1,152 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.BillingModel;
+import com.example.billing_platform_mis.entity.ClientVendor;
+import com.example.billing_platform_mis.entity.Trip;
+import com.example.billing_platform_mis.entity.User;
+import com.example.billing_platform_mis.entity.UserRole;
+import com.example.billing_platform_mis.repository.PayoutRepository;
+import com.example.billing_platform_mis.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+//A trip holding a lower pooled ID commits only after the watermark has moved past it: the watermark run can
+//never reach it again, and its pending work row must still get it exactly one payout.
+@SpringBootTest(properties = {"spring.jpa.show-sql=false", "billing.overage.settle-seconds=0"})
+class OverageProcessingServiceTest {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private TripService tripService;
+
+	@Autowired
+	private OverageProcessingService overageProcessingService;
+
+	@Autowired
+	private PayoutRepository payoutRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void lateCommitBehindTheWatermarkStillGetsItsPayout() throws Exception {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		ClientVendor relationship = createRelationship(transactionTemplate);
+		User employee = userRepository.findByRole(UserRole.EMPLOYEE).get(0);
+
+		CountDownLatch lateInserted = new CountDownLatch(1);
+		CountDownLatch commitLate = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<Long> late = executor.submit(() -> transactionTemplate.execute(status -> {
+				Trip trip = tripService.saveTrip(trip(relationship, employee));
+				entityManager.flush();
+				lateInserted.countDown();
+				await(commitLate);
+				return trip.getId();
+			}));
+			assertTrue(lateInserted.await(30, TimeUnit.SECONDS));
+
+			//A later ID committed without pending work, as a trip stored before the queue existed would be
+			Long earlyId = transactionTemplate.execute(status -> {
+				Trip trip = trip(relationship, employee);
+				entityManager.persist(trip);
+				return trip.getId();
+			});
+			overageProcessingService.processUnprocessedTrips();
+			long watermark = overageProcessingService.getWatermark();
+			assertTrue(watermark >= earlyId);
+			assertEquals(1, payoutRepository.findAmountsByTripIdIn(List.of(earlyId)).size());
+
+			commitLate.countDown();
+			Long lateId = late.get(30, TimeUnit.SECONDS);
+			assertTrue(lateId < watermark, "the late trip's ID is already behind the watermark");
+
+			awaitPayout(lateId);
+			overageProcessingService.processUnprocessedTrips();
+			assertEquals(1, payoutRepository.findAmountsByTripIdIn(List.of(lateId)).size());
+		} finally {
+			commitLate.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	private void awaitPayout(Long tripId) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (System.currentTimeMillis() < deadline) {
+			if (!payoutRepository.findAmountsByTripIdIn(List.of(tripId)).isEmpty()) {
+				return;
+			}
+			Thread.sleep(50);
+		}
+		fail("Trip " + tripId + " got no payout");
+	}
+
+	//Over the relationship's distance limit, so the trip owes an overage payout
+	private static Trip trip(ClientVendor relationship, User employee) {
+		Trip trip = new Trip();
+		trip.setClientVendor(relationship);
+		trip.setEmployee(employee);
+		trip.setDistance(new BigDecimal("25.00"));
+		trip.setDuration(BigDecimal.ONE);
+		trip.setTripDate(LocalDate.now().minusDays(1));
+		trip.setTotalCost(new BigDecimal("40.00"));
+		trip.setVendorCost(new BigDecimal("20.00"));
+		trip.setEmployeeCost(new BigDecimal("20.00"));
+		return trip;
+	}
+
+	private ClientVendor createRelationship(TransactionTemplate transactionTemplate) {
+		User client = userRepository.findByRole(UserRole.CLIENT).get(0);
+		return transactionTemplate.execute(status -> {
+			User vendor = new User();
+			vendor.setName("Overage Vendor");
+			vendor.setEmail("overage-" + UUID.randomUUID() + "@example.com");
+			vendor.setPasswordHash("x");
+			vendor.setRole(UserRole.VENDOR);
+			entityManager.persist(vendor);
+			ClientVendor created = new ClientVendor();
+			created.setClient(client);
+			created.setVendor(vendor);
+			created.setBillingModel(BillingModel.TRIP);
+			created.setTripRate(new BigDecimal("40.00"));
+			created.setStandardDistanceLimit(new BigDecimal("10.00"));
+			created.setVendorExtraDistanceRate(new BigDecimal("2.00"));
+			created.setEmployeeExtraDistanceRate(new BigDecimal("1.00"));
+			entityManager.persist(created);
+			return created;
+		});
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(30, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.example.billing_platform_mis.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PageCursorTest {
+
+	@Test
+	void roundTripsBothKinds() {
+		PageCursor tripDate = PageCursor.decodeTripDate(PageCursor.tripDate(LocalDate.of(2026, 2, 28), 123L).encode());
+		assertEquals(LocalDate.of(2026, 2, 28), tripDate.getTripDate());
+		assertEquals(123L, tripDate.getId());
+
+		LocalDateTime createdAt = LocalDateTime.of(2026, 10, 17, 7, 30, 15, 123_456_789);
+		PageCursor created = PageCursor.decodeCreatedAt(PageCursor.createdAt(createdAt, 9L).encode());
+		assertEquals(createdAt, created.getCreatedAt());
+		assertEquals(9L, created.getId());
+	}
+
+	@Test
+	void firstPageStartsAfterEveryRow() {
+		PageCursor first = PageCursor.decodeTripDate(null);
+		assertEquals(LocalDate.of(9999, 12, 31), first.getTripDate());
+		assertEquals(Long.MAX_VALUE, first.getId());
+		assertEquals(Long.MAX_VALUE, PageCursor.decodeCreatedAt(null).getId());
+	}
+
+	@Test
+	void rejectsCursorOfTheOtherSort() {
+		String byTripDate = PageCursor.tripDate(LocalDate.of(2026, 1, 1), 1L).encode();
+		String byCreatedAt = PageCursor.createdAt(LocalDateTime.of(2026, 1, 1, 0, 0), 1L).encode();
+		assertInvalid(() -> PageCursor.decodeCreatedAt(byTripDate));
+		assertInvalid(() -> PageCursor.decodeTripDate(byCreatedAt));
+	}
+
+	@Test
+	void rejectsTamperedCursors() {
+		assertInvalid(() -> PageCursor.decodeTripDate("not base64!"));
+		assertInvalid(() -> PageCursor.decodeTripDate(""));
+		assertInvalid(() -> PageCursor.decodeTripDate(token("2|d|2026-01-01|5")));
+		assertInvalid(() -> PageCursor.decodeTripDate(token("1|d|2026-13-01|5")));
+		assertInvalid(() -> PageCursor.decodeTripDate(token("1|d|2026-01-01|five")));
+		assertInvalid(() -> PageCursor.decodeTripDate(token("1|d|2026-01-01")));
+		assertInvalid(() -> PageCursor.decodeTripDate(token("1|d|2026-01-01|5|6")));
+		assertInvalid(() -> PageCursor.decodeCreatedAt(token("1|c|yesterday|5")));
+	}
+
+	private static String token(String text) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void assertInvalid(Runnable decode) {
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, decode::run);
+		assertEquals("Invalid cursor", e.getMessage());
+	}
+}
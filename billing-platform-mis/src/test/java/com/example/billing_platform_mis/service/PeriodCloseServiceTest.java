@@ -0,0 +1,180 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.BillingModel;
+import com.example.billing_platform_mis.entity.ClientVendor;
+import com.example.billing_platform_mis.entity.InvoiceSnapshot;
+import com.example.billing_platform_mis.entity.Trip;
+import com.example.billing_platform_mis.entity.User;
+import com.example.billing_platform_mis.entity.UserRole;
+import com.example.billing_platform_mis.repository.InvoiceSnapshotRepository;
+import com.example.billing_platform_mis.repository.TripRepository;
+import com.example.billing_platform_mis.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+//Two closes of overlapping periods of one relationship, the second started while the first is still uncommitted:
+//the second must see the first and refuse, and the cache must hold the committed period afterwards.
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class PeriodCloseServiceTest {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private PeriodCloseService periodCloseService;
+
+	@Autowired
+	private InvoiceSnapshotRepository invoiceSnapshotRepository;
+
+	@Autowired
+	private TripService tripService;
+
+	@Autowired
+	private TripRepository tripRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void concurrentOverlappingClosesBillOnce() throws Exception {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		User client = userRepository.findByRole(UserRole.CLIENT).get(0);
+		ClientVendor relationship = transactionTemplate.execute(status -> {
+			User vendor = new User();
+			vendor.setName("Closing Vendor");
+			vendor.setEmail("closing-" + UUID.randomUUID() + "@example.com");
+			vendor.setPasswordHash("x");
+			vendor.setRole(UserRole.VENDOR);
+			entityManager.persist(vendor);
+			ClientVendor created = new ClientVendor();
+			created.setClient(client);
+			created.setVendor(vendor);
+			created.setBillingModel(BillingModel.PACKAGE);
+			created.setPackageRate(new BigDecimal("1000.00"));
+			entityManager.persist(created);
+			return created;
+		});
+		Long id = relationship.getId();
+		//Loaded before either close, so only the table can tell the second close about the first
+		assertEquals(0, periodCloseService.getClosedPeriods(id).size());
+
+		CountDownLatch firstClosed = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<?> first = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+				periodCloseService.closePeriod(id, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31));
+				firstClosed.countDown();
+				sleep(500);
+			}));
+			Future<?> second = executor.submit(() -> {
+				await(firstClosed);
+				periodCloseService.closePeriod(id, LocalDate.of(2024, 1, 15), LocalDate.of(2024, 2, 14));
+			});
+			first.get(30, TimeUnit.SECONDS);
+			ExecutionException failure = assertThrows(ExecutionException.class, () -> second.get(30, TimeUnit.SECONDS));
+			assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(1, invoiceSnapshotRepository.findByClientVendorIdOrderByPeriodStartAsc(id).size());
+		List<InvoiceSnapshot> cached = periodCloseService.getClosedPeriods(id);
+		assertEquals(1, cached.size());
+		assertEquals(LocalDate.of(2024, 1, 1), cached.get(0).getPeriodStart());
+	}
+
+	//A trip can neither change inside a closed period nor move into or out of one
+	@Test
+	void closedPeriodsRefuseTripUpdates() {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		ClientVendor relationship = createRelationship(transactionTemplate);
+		Long id = relationship.getId();
+		Trip closedTrip = createTrip(transactionTemplate, relationship, LocalDate.of(2024, 3, 10));
+		Trip openTrip = createTrip(transactionTemplate, relationship, LocalDate.of(2024, 5, 10));
+		periodCloseService.closePeriod(id, LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31));
+
+		assertThrows(IllegalArgumentException.class, () -> transactionTemplate.executeWithoutResult(status ->
+			tripService.updateTrip(closedTrip.getId(), new BigDecimal("20.00"), BigDecimal.ONE, LocalDate.of(2024, 3, 10))));
+		assertThrows(IllegalArgumentException.class, () -> transactionTemplate.executeWithoutResult(status ->
+			tripService.updateTrip(closedTrip.getId(), BigDecimal.TEN, BigDecimal.ONE, LocalDate.of(2024, 5, 11))));
+		assertThrows(IllegalArgumentException.class, () -> transactionTemplate.executeWithoutResult(status ->
+			tripService.updateTrip(openTrip.getId(), BigDecimal.TEN, BigDecimal.ONE, LocalDate.of(2024, 3, 11))));
+		assertEquals(LocalDate.of(2024, 3, 10), tripRepository.findById(closedTrip.getId()).orElseThrow().getTripDate());
+		assertEquals(0, new BigDecimal("10.00").compareTo(tripRepository.findById(closedTrip.getId()).orElseThrow().getDistance()));
+
+		transactionTemplate.executeWithoutResult(status ->
+			tripService.updateTrip(openTrip.getId(), new BigDecimal("15.00"), BigDecimal.ONE, LocalDate.of(2024, 4, 20)));
+		assertEquals(LocalDate.of(2024, 4, 20), tripRepository.findById(openTrip.getId()).orElseThrow().getTripDate());
+	}
+
+	private ClientVendor createRelationship(TransactionTemplate transactionTemplate) {
+		User client = userRepository.findByRole(UserRole.CLIENT).get(0);
+		return transactionTemplate.execute(status -> {
+			User vendor = new User();
+			vendor.setName("Frozen Vendor");
+			vendor.setEmail("frozen-" + UUID.randomUUID() + "@example.com");
+			vendor.setPasswordHash("x");
+			vendor.setRole(UserRole.VENDOR);
+			entityManager.persist(vendor);
+			ClientVendor created = new ClientVendor();
+			created.setClient(client);
+			created.setVendor(vendor);
+			created.setBillingModel(BillingModel.TRIP);
+			created.setTripRate(new BigDecimal("40.00"));
+			entityManager.persist(created);
+			return created;
+		});
+	}
+
+	private Trip createTrip(TransactionTemplate transactionTemplate, ClientVendor relationship, LocalDate tripDate) {
+		User employee = userRepository.findByRole(UserRole.EMPLOYEE).get(0);
+		return transactionTemplate.execute(status -> {
+			Trip created = new Trip();
+			created.setClientVendor(entityManager.getReference(ClientVendor.class, relationship.getId()));
+			created.setEmployee(entityManager.getReference(User.class, employee.getId()));
+			created.setDistance(new BigDecimal("10.00"));
+			created.setDuration(BigDecimal.ONE);
+			created.setTripDate(tripDate);
+			return tripService.saveTrip(created);
+		});
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(30, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.BillingModel;
+import com.example.billing_platform_mis.entity.ClientVendor;
+import com.example.billing_platform_mis.entity.HybridPricingTier;
+import com.example.billing_platform_mis.entity.User;
+import com.example.billing_platform_mis.entity.UserRole;
+import com.example.billing_platform_mis.pricing.RateCard;
+import com.example.billing_platform_mis.repository.ClientVendorRepository;
+import com.example.billing_platform_mis.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Replacing a hybrid relationship's pricing tiers must reach cached rate cards, whether they are looked up by id
+//or through a copy of the relationship loaded before the change.
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class RateCardServiceTest {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ClientVendorRepository clientVendorRepository;
+
+	@Autowired
+	private RateCardService rateCardService;
+
+	@Autowired
+	private HybridBillingService hybridBillingService;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void replacedTiersReachCachedRateCards() {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		User client = userRepository.findByRole(UserRole.CLIENT).get(0);
+		ClientVendor relationship = transactionTemplate.execute(status -> {
+			User vendor = new User();
+			vendor.setName("Tiered Vendor");
+			vendor.setEmail("tiered-" + UUID.randomUUID() + "@example.com");
+			vendor.setPasswordHash("x");
+			vendor.setRole(UserRole.VENDOR);
+			entityManager.persist(vendor);
+			ClientVendor created = new ClientVendor();
+			created.setClient(client);
+			created.setVendor(vendor);
+			created.setBillingModel(BillingModel.HYBRID);
+			created.setPackageRate(new BigDecimal("1000.00"));
+			created.setTripRate(new BigDecimal("40.00"));
+			entityManager.persist(created);
+			return created;
+		});
+		Long id = relationship.getId();
+
+		hybridBillingService.replacePricingTiers(id, List.of(tier(10, "30.00"), tier(null, "20.00")));
+		ClientVendor before = clientVendorRepository.findById(id).orElseThrow();
+		assertEquals(2, rateCardService.getRateCard(id).getTiers().size());
+
+		hybridBillingService.replacePricingTiers(id, List.of(tier(null, "25.00")));
+
+		RateCard byId = rateCardService.getRateCard(id);
+		assertEquals(1, byId.getTiers().size());
+		assertEquals(2500, byId.getTiers().get(0).getTripRate());
+
+		//A card compiled from the copy read before the change is served to that copy, never cached over the new one
+		rateCardService.evict(id);
+		rateCardService.getRateCard(before);
+		ClientVendor after = clientVendorRepository.findById(id).orElseThrow();
+		assertTrue(after.getUpdatedAt().isAfter(before.getUpdatedAt()));
+		RateCard current = rateCardService.getRateCard(after);
+		assertEquals(1, current.getTiers().size());
+		assertEquals(2500, current.getTiers().get(0).getTripRate());
+	}
+
+	private static HybridPricingTier tier(Integer tripLimit, String tripRate) {
+		HybridPricingTier tier = new HybridPricingTier();
+		tier.setTripLimit(tripLimit);
+		tier.setTripRate(new BigDecimal(tripRate));
+		return tier;
+	}
+}
@@ -0,0 +1,118 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.BillingModel;
+import com.example.billing_platform_mis.entity.ClientVendor;
+import com.example.billing_platform_mis.entity.Trip;
+import com.example.billing_platform_mis.entity.User;
+import com.example.billing_platform_mis.entity.UserRole;
+import com.example.billing_platform_mis.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//Two bookings of the first trip of a day for the same relationship, the second one made while the first is still
+//uncommitted: both must commit and the day row must count both trips.
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class TripAccumulatorConcurrencyTest {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private TripService tripService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void firstTripsOfTheSameDayBothCount() throws Exception {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		User client = userRepository.findByRole(UserRole.CLIENT).get(0);
+		User vendor = userRepository.findByRole(UserRole.VENDOR).get(0);
+		User employee = userRepository.findByRole(UserRole.EMPLOYEE).get(0);
+		ClientVendor relationship = transactionTemplate.execute(status -> {
+			ClientVendor created = new ClientVendor();
+			created.setClient(client);
+			created.setVendor(vendor);
+			created.setBillingModel(BillingModel.TRIP);
+			created.setTripRate(new BigDecimal("40.00"));
+			entityManager.persist(created);
+			return created;
+		});
+		LocalDate day = LocalDate.of(2031, 3, 14);
+
+		CountDownLatch firstBooked = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<?> first = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+				tripService.saveTrip(trip(relationship, employee, day, "12.00"));
+				firstBooked.countDown();
+				sleep(500);
+			}));
+			Future<?> second = executor.submit(() -> {
+				await(firstBooked);
+				transactionTemplate.executeWithoutResult(status ->
+					tripService.saveTrip(trip(relationship, employee, day, "8.00")));
+			});
+			first.get(30, TimeUnit.SECONDS);
+			second.get(30, TimeUnit.SECONDS);
+		} finally {
+			firstBooked.countDown();
+			executor.shutdownNow();
+		}
+
+		Map<String, Object> total = jdbcTemplate.queryForMap(
+			"SELECT trip_count, total_distance FROM trip_daily_totals WHERE client_vendor_id = ? AND trip_date = ?",
+			relationship.getId(), day);
+		assertEquals(2L, ((Number) total.get("trip_count")).longValue());
+		assertEquals(0, new BigDecimal("20.00").compareTo((BigDecimal) total.get("total_distance")));
+	}
+
+	private Trip trip(ClientVendor relationship, User employee, LocalDate day, String distance) {
+		Trip trip = new Trip();
+		trip.setClientVendor(entityManager.getReference(ClientVendor.class, relationship.getId()));
+		trip.setEmployee(entityManager.getReference(User.class, employee.getId()));
+		trip.setDistance(new BigDecimal(distance));
+		trip.setDuration(new BigDecimal("1.00"));
+		trip.setTripDate(day);
+		return trip;
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.TripStatus;
+import com.example.billing_platform_mis.service.TripArchiveSegment.Column;
+import com.example.billing_platform_mis.service.TripArchiveSegment.Row;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Rows written to a segment come back unchanged, apart from amounts rounded to the cents of their columns
+class TripArchiveSegmentTest {
+
+	@TempDir
+	private Path directory;
+
+	@Test
+	void roundTripsEveryColumn() throws IOException {
+		//Sorted by date then ID, so IDs fall between dates (negative deltas) and dates jump by years (gaps)
+		List<Row> rows = List.of(
+			row(9_000_000_000L, 7, LocalDate.of(2020, 1, 31), "12.34", "1.50", TripStatus.COMPLETED,
+				LocalDateTime.of(2020, 1, 31, 8, 15, 30, 123_456_000)),
+			row(42, 8, LocalDate.of(2020, 2, 1), "0.00", "0.01", TripStatus.CANCELLED, null),
+			row(43, 7, LocalDate.of(2020, 2, 1), "99999.99", "9999.99", null, LocalDateTime.of(2020, 2, 1, 0, 0)),
+			row(1, 7, LocalDate.of(2023, 6, 15), "-5.25", "-0.01", TripStatus.PENDING,
+				LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_999_000)));
+		Path path = directory.resolve("trips-0000000001.seg");
+		TripArchiveSegment.write(path, rows);
+
+		TripArchiveSegment segment = TripArchiveSegment.open(path);
+		assertEquals(4, segment.getRowCount());
+		assertEquals(LocalDate.of(2020, 1, 31), segment.getMinDate());
+		assertEquals(LocalDate.of(2023, 6, 15), segment.getMaxDate());
+		assertEquals(List.of(9_000_000_000L, 42L, 43L, 1L), List.of(segment.ids()[0], segment.ids()[1], segment.ids()[2], segment.ids()[3]));
+
+		List<Row> read = segment.readAll();
+		assertEquals(rows.size(), read.size());
+		for (int i = 0; i < rows.size(); i++) {
+			assertRow(rows.get(i), read.get(i));
+		}
+	}
+
+	@Test
+	void roundsSubCentAmountsHalfUp() throws IOException {
+		Row subCent = new Row(1, 1, 2, 3, 4, LocalDate.of(2024, 3, 1), new BigDecimal("1.005"), new BigDecimal("2.004"),
+			new BigDecimal("-0.015"), new BigDecimal("0.0049"), null, new BigDecimal("7"), new BigDecimal("0.995"),
+			TripStatus.COMPLETED, null);
+		Path path = directory.resolve("trips-0000000002.seg");
+		TripArchiveSegment.write(path, List.of(subCent));
+
+		Row read = TripArchiveSegment.open(path).readAll().get(0);
+		assertEquals(new BigDecimal("1.01"), read.getDistance());
+		assertEquals(new BigDecimal("2.00"), read.getDuration());
+		assertEquals(new BigDecimal("-0.02"), read.getTotalCost());
+		assertEquals(new BigDecimal("0.00"), read.getEmployeeCost());
+		assertNull(read.getVendorCost());
+		assertEquals(new BigDecimal("7.00"), read.getExtraDistanceCost());
+		assertEquals(new BigDecimal("1.00"), read.getExtraTimeCost());
+	}
+
+	@Test
+	void readsOnlyTheRangeAndKey() throws IOException {
+		List<Row> rows = List.of(
+			row(10, 7, LocalDate.of(2021, 1, 1), "1.00", "1.00", TripStatus.COMPLETED, null),
+			row(5, 8, LocalDate.of(2021, 1, 2), "2.00", "1.00", TripStatus.COMPLETED, null),
+			row(6, 7, LocalDate.of(2021, 1, 2), "3.00", "1.00", TripStatus.COMPLETED, null),
+			row(2, 7, LocalDate.of(2021, 9, 30), "4.00", "1.00", TripStatus.COMPLETED, null));
+		Path path = directory.resolve("trips-0000000003.seg");
+		TripArchiveSegment.write(path, rows);
+		TripArchiveSegment segment = TripArchiveSegment.open(path);
+
+		List<Row> relationship = segment.read(LocalDate.of(2021, 1, 2), LocalDate.of(2021, 12, 31), Column.CLIENT_VENDOR_ID, 7L);
+		assertEquals(List.of(6L, 2L), relationship.stream().map(Row::getId).toList());
+		//Inside the gap between the second and the last date
+		assertTrue(segment.read(LocalDate.of(2021, 1, 3), LocalDate.of(2021, 9, 29), null, null).isEmpty());
+		assertTrue(segment.overlaps(LocalDate.of(2021, 5, 1), LocalDate.of(2021, 5, 31)));
+		assertFalse(segment.overlaps(LocalDate.of(2021, 10, 1), LocalDate.of(2021, 10, 31)));
+	}
+
+	private static Row row(long id, long clientVendorId, LocalDate tripDate, String distance, String duration,
+						   TripStatus status, LocalDateTime createdAt) {
+		BigDecimal cost = new BigDecimal(distance).add(new BigDecimal("40.00"));
+		return new Row(id, clientVendorId, clientVendorId + 100, clientVendorId + 200, id % 17, tripDate,
+			new BigDecimal(distance), new BigDecimal(duration), cost, null, cost.negate(), new BigDecimal("0.00"),
+			new BigDecimal(duration), status, createdAt);
+	}
+
+	private static void assertRow(Row expected, Row actual) {
+		assertEquals(expected.getId(), actual.getId());
+		assertEquals(expected.getClientVendorId(), actual.getClientVendorId());
+		assertEquals(expected.getClientId(), actual.getClientId());
+		assertEquals(expected.getVendorId(), actual.getVendorId());
+		assertEquals(expected.getEmployeeId(), actual.getEmployeeId());
+		assertEquals(expected.getTripDate(), actual.getTripDate());
+		assertEquals(expected.getDistance(), actual.getDistance());
+		assertEquals(expected.getDuration(), actual.getDuration());
+		assertEquals(expected.getTotalCost(), actual.getTotalCost());
+		assertEquals(expected.getEmployeeCost(), actual.getEmployeeCost());
+		assertEquals(expected.getVendorCost(), actual.getVendorCost());
+		assertEquals(expected.getExtraDistanceCost(), actual.getExtraDistanceCost());
+		assertEquals(expected.getExtraTimeCost(), actual.getExtraTimeCost());
+		assertEquals(expected.getStatus(), actual.getStatus());
+		assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+	}
+}
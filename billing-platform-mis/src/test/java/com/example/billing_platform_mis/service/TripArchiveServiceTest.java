@@ -0,0 +1,221 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.controller.ClientController;
+import com.example.billing_platform_mis.controller.EmployeeController;
+import com.example.billing_platform_mis.controller.VendorController;
+import com.example.billing_platform_mis.entity.BillingModel;
+import com.example.billing_platform_mis.entity.ClientVendor;
+import com.example.billing_platform_mis.entity.Payout;
+import com.example.billing_platform_mis.entity.Trip;
+import com.example.billing_platform_mis.entity.User;
+import com.example.billing_platform_mis.entity.UserRole;
+import com.example.billing_platform_mis.pricing.RateCard;
+import com.example.billing_platform_mis.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Readers must see archived trips exactly as they saw them live: the same trips, in the same order and with the
+//same amounts, including across segments that overlap in dates (a period closed after a later one).
+@SpringBootTest(properties = {"spring.jpa.show-sql=false", "billing.archive.dir=target/trip-archive-test-${random.uuid}"})
+class TripArchiveServiceTest {
+
+	private static final LocalDate START = LocalDate.of(2020, 1, 1);
+	private static final LocalDate END = LocalDate.of(2020, 3, 31);
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private TripArchiveService tripArchiveService;
+
+	@Autowired
+	private TripExplanationService tripExplanationService;
+
+	@Autowired
+	private PeriodCloseService periodCloseService;
+
+	@Autowired
+	private KeysetPageService keysetPageService;
+
+	@Autowired
+	private ClientController clientController;
+
+	@Autowired
+	private VendorController vendorController;
+
+	@Autowired
+	private EmployeeController employeeController;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void overlappingSegmentsReadBackInTripOrder() {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		User client = userRepository.findByRole(UserRole.CLIENT).get(0);
+		User employee = userRepository.findByRole(UserRole.EMPLOYEE).get(0);
+		ClientVendor relationship = createRelationship(transactionTemplate, client,
+			createUser(transactionTemplate, UserRole.VENDOR));
+		Long id = relationship.getId();
+		List<Long> tripIds = new ArrayList<>();
+		for (String date : List.of("2020-03-10", "2020-01-10", "2020-02-10", "2020-01-20", "2020-02-20", "2020-03-20")) {
+			tripIds.add(createTrip(transactionTemplate, relationship, employee, LocalDate.parse(date)));
+		}
+		String before = explain(id);
+
+		periodCloseService.closePeriod(id, LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 31));
+		periodCloseService.closePeriod(id, LocalDate.of(2020, 3, 1), LocalDate.of(2020, 3, 31));
+		assertEquals(4, tripArchiveService.archive());
+		assertEquals(before, explain(id));
+
+		periodCloseService.closePeriod(id, LocalDate.of(2020, 2, 1), LocalDate.of(2020, 2, 29));
+		assertEquals(2, tripArchiveService.archive());
+		assertEquals(before, explain(id));
+
+		List<LocalDate> newestFirst = new ArrayList<>();
+		tripArchiveService.iterateArchivedRows(TripArchiveSegment.Column.CLIENT_VENDOR_ID, id, START, END, true)
+			.forEachRemaining(row -> newestFirst.add(row.getTripDate()));
+		assertEquals(List.of(LocalDate.of(2020, 3, 20), LocalDate.of(2020, 3, 10), LocalDate.of(2020, 2, 20),
+			LocalDate.of(2020, 2, 10), LocalDate.of(2020, 1, 20), LocalDate.of(2020, 1, 10)), newestFirst);
+		assertEquals(tripIds.size(), newestFirst.size());
+	}
+
+	//Summaries over all of a client's, vendor's or employee's trips, and the keyset pages of them
+	@Test
+	void allTimeTotalsAndPagesKeepArchivedTrips() {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		User client = createUser(transactionTemplate, UserRole.CLIENT);
+		User vendor = createUser(transactionTemplate, UserRole.VENDOR);
+		User employee = createUser(transactionTemplate, UserRole.EMPLOYEE);
+		ClientVendor relationship = createRelationship(transactionTemplate, client, vendor);
+		for (String date : List.of("2020-01-10", "2020-01-20", "2020-01-20", "2020-02-10", "2020-02-20")) {
+			createTrip(transactionTemplate, relationship, employee, LocalDate.parse(date));
+		}
+		//Read in a transaction, as open-in-view would for a request, so summaries can walk lazy associations
+		Map<String, Object> totals = transactionTemplate.execute(status -> totals(client, vendor, employee));
+		List<List<Long>> pages = pages(client, vendor, employee);
+		assertEquals(5, ((Map<?, ?>) totals.get("vendor")).get("totalTrips"));
+		assertEquals(5, ((Map<?, ?>) totals.get("employee")).get("totalTrips"));
+		assertEquals(5, pages.get(0).size());
+
+		periodCloseService.closePeriod(relationship.getId(), LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 31));
+		tripArchiveService.archive();
+		assertTrue(tripArchiveService.covers(LocalDate.of(2020, 1, 20), LocalDate.of(2020, 1, 20)));
+
+		assertEquals(totals, transactionTemplate.execute(status -> totals(client, vendor, employee)));
+		assertEquals(pages, pages(client, vendor, employee));
+	}
+
+	private Map<String, Object> totals(User client, User vendor, User employee) {
+		Map<String, Object> totals = new HashMap<>();
+		totals.put("vendor", vendorController.getPerformanceSummary(vendor.getId()).getBody());
+		totals.put("employee", employeeController.getTripSummary(employee.getId()).getBody());
+		totals.put("client", clientController.getDashboardSummary(client.getId()).getBody());
+		totals.put("vendorTrips", tripIds(clientController.getVendorAllTrips(vendor.getId(), client.getId()).getBody()));
+		totals.put("employeeTrips", tripIds(clientController.getEmployeeTrips(employee.getId(), client.getId()).getBody()));
+		return totals;
+	}
+
+	private static List<Long> tripIds(Object trips) {
+		return ((List<?>) trips).stream().map(trip -> ((Trip) trip).getId()).sorted().toList();
+	}
+
+	//Trip IDs of every page, two trips per page, for the client, the vendor and the employee (with the client)
+	private List<List<Long>> pages(User client, User vendor, User employee) {
+		List<List<Long>> pages = new ArrayList<>();
+		pages.add(walk(cursor -> keysetPageService.findClientTrips(client.getId(), cursor, 2)));
+		pages.add(walk(cursor -> keysetPageService.findVendorTrips(vendor.getId(), cursor, 2)));
+		pages.add(walk(cursor -> keysetPageService.findEmployeeTrips(employee.getId(), null, cursor, 2)));
+		pages.add(walk(cursor -> keysetPageService.findEmployeeTrips(employee.getId(), client.getId(), cursor, 2)));
+		return pages;
+	}
+
+	private static List<Long> walk(Function<String, KeysetPageService.Page<Trip>> pageAfter) {
+		List<Long> ids = new ArrayList<>();
+		String cursor = null;
+		do {
+			KeysetPageService.Page<Trip> page = pageAfter.apply(cursor);
+			page.getItems().forEach(trip -> ids.add(trip.getId()));
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+		return ids;
+	}
+
+	private String explain(Long clientVendorId) {
+		RateCard rateCard = tripExplanationService.prepare(clientVendorId, START, END);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		tripExplanationService.writeExplanations(rateCard, START, END, output);
+		return output.toString(StandardCharsets.UTF_8);
+	}
+
+	private User createUser(TransactionTemplate transactionTemplate, UserRole role) {
+		return transactionTemplate.execute(status -> {
+			User user = new User();
+			user.setName("Archived " + role);
+			user.setEmail("archived-" + UUID.randomUUID() + "@example.com");
+			user.setPasswordHash("x");
+			user.setRole(role);
+			entityManager.persist(user);
+			return user;
+		});
+	}
+
+	private ClientVendor createRelationship(TransactionTemplate transactionTemplate, User client, User vendor) {
+		return transactionTemplate.execute(status -> {
+			ClientVendor created = new ClientVendor();
+			created.setClient(entityManager.getReference(User.class, client.getId()));
+			created.setVendor(entityManager.getReference(User.class, vendor.getId()));
+			created.setBillingModel(BillingModel.TRIP);
+			created.setTripRate(new BigDecimal("40.00"));
+			entityManager.persist(created);
+			return created;
+		});
+	}
+
+	//A priced trip with its payout, written directly so no overage work is left pending for it
+	private Long createTrip(TransactionTemplate transactionTemplate, ClientVendor relationship, User employee,
+							LocalDate tripDate) {
+		return transactionTemplate.execute(status -> {
+			Trip trip = new Trip();
+			trip.setClientVendor(entityManager.getReference(ClientVendor.class, relationship.getId()));
+			trip.setEmployee(entityManager.getReference(User.class, employee.getId()));
+			trip.setDistance(new BigDecimal("12.50"));
+			trip.setDuration(new BigDecimal("1.25"));
+			trip.setTripDate(tripDate);
+			trip.setTotalCost(new BigDecimal("40.00"));
+			trip.setEmployeeCost(new BigDecimal("20.00"));
+			trip.setVendorCost(new BigDecimal("20.00"));
+			entityManager.persist(trip);
+			Payout payout = new Payout();
+			payout.setClientVendor(trip.getClientVendor());
+			payout.setTrip(trip);
+			payout.setTripDate(tripDate);
+			payout.setBaseAmount(new BigDecimal("20.00"));
+			payout.setTotalAmount(new BigDecimal("20.00"));
+			entityManager.persist(payout);
+			return trip.getId();
+		});
+	}
+}
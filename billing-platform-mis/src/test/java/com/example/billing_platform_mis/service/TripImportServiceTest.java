@@ -0,0 +1,180 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.BillingModel;
+import com.example.billing_platform_mis.entity.ClientEmployee;
+import com.example.billing_platform_mis.entity.ClientVendor;
+import com.example.billing_platform_mis.entity.Trip;
+import com.example.billing_platform_mis.entity.User;
+import com.example.billing_platform_mis.entity.UserRole;
+import com.example.billing_platform_mis.repository.TripRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//CSV uploads for a client with one employee and one vendor: every bad row is reported on its own line number
+//and the good rows around it are stored, whether it fails validation or only at insert.
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class TripImportServiceTest {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private TripImportService tripImportService;
+
+	@Autowired
+	private PeriodCloseService periodCloseService;
+
+	@Autowired
+	private TripRepository tripRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void reportsEachRejectedRowAndStoresTheRest() throws IOException {
+		Fixture fixture = createFixture();
+		periodCloseService.closePeriod(fixture.relationship.getId(), LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31));
+		long employeeId = fixture.employee.getId();
+		long vendorId = fixture.relationship.getVendor().getId();
+		LocalDate tomorrow = LocalDate.now().plusDays(1);
+
+		//Columns in any order, extra columns ignored, blank lines skipped but counted
+		String csv = String.join("\n",
+			"tripDate, vendorId ,employeeId,distance,duration,note",
+			"2025-03-01," + vendorId + "," + employeeId + ",12.50,1.25,first",
+			"",
+			"2025-03-02," + vendorId + "," + employeeId + ",abc,1.00,",
+			"2025-03-03," + vendorId + "," + (employeeId + 1_000_000) + ",10,1,",
+			"2025-03-04,999999," + employeeId + ",10,1,",
+			"2024-01-15," + vendorId + "," + employeeId + ",10,1,closed",
+			tomorrow + "," + vendorId + "," + employeeId + ",10,1,",
+			"2025-03-05," + vendorId,
+			"2025-03-06," + vendorId + "," + employeeId + ",8.5,0.75,last");
+
+		TripImportService.ImportResult result = importCsv(fixture, csv);
+
+		assertEquals(8, result.getRowsRead());
+		assertEquals(2, result.getImported());
+		assertEquals(6, result.getRejected());
+		Map<Long, String> errors = errorsByLine(result);
+		assertEquals(Map.of(
+			4L, "Invalid distance: abc",
+			5L, "Employee is not associated with this client",
+			6L, "No agreement exists between client and vendor",
+			7L, "Billing period is closed for this trip date",
+			8L, "Invalid trip date",
+			9L, "Expected 6 columns but found 2"), errors);
+
+		List<Trip> stored = tripRepository.findByClientVendorId(fixture.relationship.getId());
+		assertEquals(List.of(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 6)),
+			stored.stream().map(Trip::getTripDate).sorted().toList());
+	}
+
+	@Test
+	void rejectsOnlyTheRowsTheDatabaseRefuses() throws IOException {
+		Fixture fixture = createFixture();
+		long employeeId = fixture.employee.getId();
+		long vendorId = fixture.relationship.getVendor().getId();
+		StringBuilder csv = new StringBuilder("employeeId,vendorId,distance,duration,tripDate");
+		for (int day = 1; day <= 10; day++) {
+			String distance = day == 4 || day == 7 ? "77.77" : "10.00";
+			csv.append('\n').append(employeeId).append(',').append(vendorId).append(',').append(distance)
+				.append(",1.00,2025-04-").append(String.format("%02d", day));
+		}
+
+		//A constraint only the insert checks, so these rows pass validation and fail the batch
+		jdbcTemplate.execute("ALTER TABLE trips ADD CONSTRAINT import_test_distance CHECK (distance <> 77.77)");
+		TripImportService.ImportResult result;
+		try {
+			result = importCsv(fixture, csv.toString());
+		} finally {
+			jdbcTemplate.execute("ALTER TABLE trips DROP CONSTRAINT import_test_distance");
+		}
+
+		assertEquals(10, result.getRowsRead());
+		assertEquals(8, result.getImported());
+		assertEquals(2, result.getRejected());
+		assertEquals(1, result.getRetriedBatches());
+		Map<Long, String> errors = errorsByLine(result);
+		assertEquals(List.of(5L, 8L), errors.keySet().stream().sorted().toList());
+		assertTrue(errors.values().stream().allMatch(error -> error.startsWith("Insert failed")));
+		assertEquals(8, tripRepository.findByClientVendorId(fixture.relationship.getId()).size());
+	}
+
+	@Test
+	void refusesAHeaderWithoutARequiredColumn() {
+		Fixture fixture = createFixture();
+		IllegalArgumentException failure = assertThrows(IllegalArgumentException.class,
+			() -> importCsv(fixture, "employeeId,vendorId,distance,tripDate\n1,2,3,2025-01-01"));
+		assertEquals("CSV header is missing column duration", failure.getMessage());
+	}
+
+	private TripImportService.ImportResult importCsv(Fixture fixture, String csv) throws IOException {
+		return tripImportService.importTrips(fixture.client.getId(), TripImportService.FORMAT_CSV,
+			new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static Map<Long, String> errorsByLine(TripImportService.ImportResult result) {
+		return result.getErrors().stream()
+			.collect(Collectors.toMap(TripImportService.RowError::getLine, TripImportService.RowError::getError));
+	}
+
+	private Fixture createFixture() {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		return transactionTemplate.execute(status -> {
+			Fixture fixture = new Fixture();
+			fixture.client = createUser(UserRole.CLIENT);
+			fixture.employee = createUser(UserRole.EMPLOYEE);
+			ClientEmployee assignment = new ClientEmployee();
+			assignment.setClient(fixture.client);
+			assignment.setEmployee(fixture.employee);
+			entityManager.persist(assignment);
+			fixture.relationship = new ClientVendor();
+			fixture.relationship.setClient(fixture.client);
+			fixture.relationship.setVendor(createUser(UserRole.VENDOR));
+			fixture.relationship.setBillingModel(BillingModel.TRIP);
+			fixture.relationship.setTripRate(new BigDecimal("40.00"));
+			entityManager.persist(fixture.relationship);
+			return fixture;
+		});
+	}
+
+	private User createUser(UserRole role) {
+		User user = new User();
+		user.setName("Import " + role);
+		user.setEmail("import-" + UUID.randomUUID() + "@example.com");
+		user.setPasswordHash("x");
+		user.setRole(role);
+		entityManager.persist(user);
+		return user;
+	}
+
+	private static class Fixture {
+		private User client;
+		private User employee;
+		private ClientVendor relationship;
+	}
+}
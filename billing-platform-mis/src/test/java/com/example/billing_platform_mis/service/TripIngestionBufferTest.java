@@ -0,0 +1,220 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.BillingModel;
+import com.example.billing_platform_mis.entity.ClientVendor;
+import com.example.billing_platform_mis.entity.Trip;
+import com.example.billing_platform_mis.entity.User;
+import com.example.billing_platform_mis.entity.UserRole;
+import com.example.billing_platform_mis.repository.ClientVendorRepository;
+import com.example.billing_platform_mis.repository.TripRepository;
+import com.example.billing_platform_mis.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Startup replay of the write-behind trip log: segments are written the way a previous run would have left
+//them, then the buffer is restarted and must store exactly the trips the log durably holds.
+@SpringBootTest(properties = {
+	"spring.jpa.show-sql=false",
+	"billing.ingestion.write-behind.enabled=true",
+	"billing.ingestion.write-behind.retry-millis=50"
+})
+class TripIngestionBufferTest {
+
+	private static final Path LOG_DIR = createLogDir();
+
+	@DynamicPropertySource
+	static void logDir(DynamicPropertyRegistry registry) {
+		registry.add("billing.ingestion.write-behind.log-dir", LOG_DIR::toString);
+	}
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private TripIngestionBuffer tripIngestionBuffer;
+
+	@Autowired
+	private TripService tripService;
+
+	@Autowired
+	private TripRepository tripRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ClientVendorRepository clientVendorRepository;
+
+	@Autowired
+	private SequenceIdAllocator sequenceIdAllocator;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private TransactionTemplate transactionTemplate;
+	private User client;
+	private User employee;
+	private ClientVendor relationship;
+
+	@BeforeEach
+	void setUp() throws InterruptedException {
+		tripIngestionBuffer.stop();
+		transactionTemplate = new TransactionTemplate(transactionManager);
+		client = userRepository.findByRole(UserRole.CLIENT).get(0);
+		employee = userRepository.findByRole(UserRole.EMPLOYEE).get(0);
+		User vendor = userRepository.findByRole(UserRole.VENDOR).get(0);
+		relationship = clientVendorRepository.findByClientIdAndVendorId(client.getId(), vendor.getId())
+			.orElseGet(() -> transactionTemplate.execute(status -> {
+				ClientVendor created = new ClientVendor();
+				created.setClient(client);
+				created.setVendor(vendor);
+				created.setBillingModel(BillingModel.TRIP);
+				created.setTripRate(new BigDecimal("40.00"));
+				entityManager.persist(created);
+				return created;
+			}));
+	}
+
+	@Test
+	void replaysLoggedTripsAfterRestart() throws Exception {
+		LocalDate day = LocalDate.of(2032, 1, 5);
+		//Stored before the crash: its log entry was not settled yet and must not be stored twice
+		Trip stored = transactionTemplate.execute(status -> tripService.saveTrip(trip(null, day, "10.00")));
+		long recoveredBefore = tripIngestionBuffer.getMetrics().getRecovered();
+		List<Long> ids = nextIds(2);
+		Path segment = writeSegment(900,
+			line(stored.getId(), employee.getId(), day, "10.00"),
+			line(ids.get(0), employee.getId(), day, "11.00"),
+			line(ids.get(1), employee.getId(), day, "12.00"));
+
+		tripIngestionBuffer.start();
+		awaitDrained();
+
+		assertEquals(3, tripRepository.findExistingIds(List.of(stored.getId(), ids.get(0), ids.get(1))).size());
+		assertEquals(3L, dayTripCount(day));
+		assertEquals(recoveredBefore + 2, tripIngestionBuffer.getMetrics().getRecovered());
+		assertFalse(Files.exists(segment));
+	}
+
+	@Test
+	void ignoresTornLastLine() throws Exception {
+		LocalDate day = LocalDate.of(2032, 2, 6);
+		List<Long> ids = nextIds(3);
+		String torn = line(ids.get(1), employee.getId(), day, "11.00");
+		String tampered = line(ids.get(2), employee.getId(), day, "12.00").replace(",12.00,", ",99.00,");
+		Path segment = writeSegment(901,
+			line(ids.get(0), employee.getId(), day, "10.00"),
+			tampered,
+			torn.substring(0, torn.length() - 4));
+
+		tripIngestionBuffer.start();
+		awaitDrained();
+
+		assertEquals(List.of(ids.get(0)), tripRepository.findExistingIds(ids));
+		assertEquals(1L, dayTripCount(day));
+		assertFalse(Files.exists(segment));
+	}
+
+	@Test
+	void rejectsTripsTheDatabaseCannotTakeAndStoresTheRest() throws Exception {
+		LocalDate day = LocalDate.of(2032, 3, 7);
+		long rejectedBefore = tripIngestionBuffer.getMetrics().getRejected();
+		List<Long> ids = nextIds(3);
+		Path segment = writeSegment(902,
+			line(ids.get(0), employee.getId(), day, "10.00"),
+			//No such employee: the foreign key can never be satisfied
+			line(ids.get(1), Long.MAX_VALUE, day, "11.00"),
+			line(ids.get(2), employee.getId(), day, "12.00"));
+
+		tripIngestionBuffer.start();
+		awaitDrained();
+
+		assertEquals(List.of(ids.get(0), ids.get(2)), tripRepository.findExistingIds(ids).stream().sorted().toList());
+		assertEquals(2L, dayTripCount(day));
+		assertEquals(rejectedBefore + 1, tripIngestionBuffer.getMetrics().getRejected());
+		String rejectedLog = Files.readString(LOG_DIR.resolve("rejected.log"));
+		assertTrue(rejectedLog.contains(ids.get(1) + "\t"));
+		assertFalse(Files.exists(segment));
+	}
+
+	private Trip trip(Long id, LocalDate day, String distance) {
+		Trip trip = new Trip();
+		trip.setId(id);
+		trip.setClientVendor(entityManager.getReference(ClientVendor.class, relationship.getId()));
+		trip.setEmployee(entityManager.getReference(User.class, employee.getId()));
+		trip.setDistance(new BigDecimal(distance));
+		trip.setDuration(new BigDecimal("1.00"));
+		trip.setTripDate(day);
+		return trip;
+	}
+
+	private List<Long> nextIds(int count) {
+		return transactionTemplate.execute(status -> sequenceIdAllocator.nextIds(Trip.class, count));
+	}
+
+	//A log line as the buffer writes it: the trip's fields followed by their CRC-32
+	private String line(Long tripId, Long employeeId, LocalDate day, String distance) {
+		String fields = String.join(",", String.valueOf(tripId), String.valueOf(client.getId()),
+			String.valueOf(relationship.getId()), String.valueOf(employeeId), distance, "1.00", day.toString(),
+			"40.00", "", "40.00", "0.00", "0.00", LocalDateTime.of(2032, 1, 1, 9, 0).toString());
+		CRC32 crc = new CRC32();
+		crc.update(fields.getBytes(StandardCharsets.US_ASCII));
+		return fields + "," + Long.toHexString(crc.getValue());
+	}
+
+	private static Path writeSegment(long number, String... lines) throws IOException {
+		Path path = LOG_DIR.resolve(String.format("trips-%010d.log", number));
+		Files.writeString(path, String.join("\n", lines), StandardCharsets.US_ASCII);
+		return path;
+	}
+
+	private void awaitDrained() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (tripIngestionBuffer.getMetrics().getPendingTrips() > 0) {
+			assertTrue(System.currentTimeMillis() < deadline, "log not drained: " + tripIngestionBuffer.getMetrics().getLastError());
+			Thread.sleep(20);
+		}
+	}
+
+	private long dayTripCount(LocalDate day) {
+		Long count = jdbcTemplate.queryForObject(
+			"SELECT COALESCE(SUM(trip_count), 0) FROM trip_daily_totals WHERE client_vendor_id = ? AND trip_date = ?",
+			Long.class, relationship.getId(), day);
+		return count;
+	}
+
+	private static Path createLogDir() {
+		try {
+			return Files.createTempDirectory("trip-log-test");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.BillingModel;
+import com.example.billing_platform_mis.entity.ClientVendor;
+import com.example.billing_platform_mis.entity.Trip;
+import com.example.billing_platform_mis.entity.TripEvent;
+import com.example.billing_platform_mis.entity.TripEventType;
+import com.example.billing_platform_mis.entity.User;
+import com.example.billing_platform_mis.entity.UserRole;
+import com.example.billing_platform_mis.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+//Events of one trip reach subscribers in the order the trip changed, whatever order their pooled ids are in.
+@SpringBootTest(properties = {"spring.jpa.show-sql=false", "billing.outbox.enabled=true", "billing.outbox.poll-millis=50"})
+class TripOutboxTest {
+
+	private static final long FOREIGN_TRIP_ID = 987654321L;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private TripService tripService;
+
+	@Autowired
+	private RecordingSubscriber subscriber;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void eachTripsEventsArriveInCommitOrder() throws InterruptedException {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		User client = userRepository.findByRole(UserRole.CLIENT).get(0);
+		User employee = userRepository.findByRole(UserRole.EMPLOYEE).get(0);
+		ClientVendor relationship = transactionTemplate.execute(status -> {
+			User vendor = new User();
+			vendor.setName("Outbox Vendor");
+			vendor.setEmail("outbox-" + UUID.randomUUID() + "@example.com");
+			vendor.setPasswordHash("x");
+			vendor.setRole(UserRole.VENDOR);
+			entityManager.persist(vendor);
+			ClientVendor created = new ClientVendor();
+			created.setClient(client);
+			created.setVendor(vendor);
+			created.setBillingModel(BillingModel.TRIP);
+			created.setTripRate(new BigDecimal("40.00"));
+			entityManager.persist(created);
+			return created;
+		});
+
+		Trip trip = transactionTemplate.execute(status -> {
+			Trip created = new Trip();
+			created.setClientVendor(entityManager.getReference(ClientVendor.class, relationship.getId()));
+			created.setEmployee(entityManager.getReference(User.class, employee.getId()));
+			created.setDistance(new BigDecimal("12.00"));
+			created.setDuration(new BigDecimal("1.00"));
+			created.setTripDate(LocalDate.of(2031, 5, 2));
+			return tripService.saveTrip(created);
+		});
+		for (String distance : List.of("13.00", "14.00")) {
+			transactionTemplate.executeWithoutResult(status ->
+				tripService.updateTrip(trip.getId(), new BigDecimal(distance), new BigDecimal("1.00"), trip.getTripDate()));
+		}
+
+		//Two events of another trip whose ids run against their commit order, as blocks of two instances would
+		transactionTemplate.executeWithoutResult(status -> {
+			Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+			String insert = "INSERT INTO trip_outbox (id, trip_id, client_vendor_id, event_type, payload, attempts, created_at, trip_seq) " +
+				"VALUES (?, ?, ?, ?, '{}', 0, ?, ?)";
+			jdbcTemplate.update(insert, 9_000_000_020L, FOREIGN_TRIP_ID, relationship.getId(), "CREATED", now, 1);
+			jdbcTemplate.update(insert, 9_000_000_010L, FOREIGN_TRIP_ID, relationship.getId(), "UPDATED", now, 2);
+		});
+
+		List<TripEvent> ours = awaitEvents(trip.getId(), 3);
+		assertEquals(List.of(TripEventType.CREATED, TripEventType.UPDATED, TripEventType.UPDATED),
+			ours.stream().map(TripEvent::getEventType).toList());
+		assertEquals(List.of(new BigDecimal("12.00"), new BigDecimal("13.00"), new BigDecimal("14.00")),
+			ours.stream().map(event -> distance(event.getPayload())).toList());
+
+		List<TripEvent> foreign = awaitEvents(FOREIGN_TRIP_ID, 2);
+		assertEquals(List.of(9_000_000_020L, 9_000_000_010L), foreign.stream().map(TripEvent::getId).toList());
+	}
+
+	private static BigDecimal distance(String payload) {
+		return new BigDecimal(JsonMapper.builder().build().readTree(payload).get("distance").asString()).setScale(2);
+	}
+
+	private List<TripEvent> awaitEvents(Long tripId, int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (System.currentTimeMillis() < deadline) {
+			List<TripEvent> events = subscriber.events.stream().filter(event -> event.getTripId().equals(tripId)).toList();
+			if (events.size() >= count) {
+				return events;
+			}
+			Thread.sleep(50);
+		}
+		fail("Events of trip " + tripId + " were not delivered");
+		return List.of();
+	}
+
+	@TestConfiguration
+	static class SubscriberConfig {
+		@Bean
+		RecordingSubscriber recordingSubscriber() {
+			return new RecordingSubscriber();
+		}
+	}
+
+	static class RecordingSubscriber implements TripEventSubscriber {
+		private final List<TripEvent> events = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void onTripEvents(List<TripEvent> delivered) {
+			events.addAll(delivered);
+		}
+	}
+}
@@ -0,0 +1,230 @@
+package com.example.billing_platform_mis.service;
+
+import com.example.billing_platform_mis.entity.BillingModel;
+import com.example.billing_platform_mis.entity.ClientVendor;
+import com.example.billing_platform_mis.entity.RepricingJob;
+import com.example.billing_platform_mis.entity.RepricingStatus;
+import com.example.billing_platform_mis.entity.Trip;
+import com.example.billing_platform_mis.entity.TripEvent;
+import com.example.billing_platform_mis.entity.TripEventType;
+import com.example.billing_platform_mis.entity.User;
+import com.example.billing_platform_mis.entity.UserRole;
+import com.example.billing_platform_mis.pricing.PricingEngine;
+import com.example.billing_platform_mis.pricing.TripCharges;
+import com.example.billing_platform_mis.repository.ClientVendorRepository;
+import com.example.billing_platform_mis.repository.RepricingJobRepository;
+import com.example.billing_platform_mis.repository.TripRepository;
+import com.example.billing_platform_mis.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+//A repricing job left RUNNING by an interrupted run, with the first chunk already checkpointed: after a restart
+//it reprices only the trips past the checkpoint, leaves closed periods frozen, publishes one REPRICED event per
+//trip it changed and leaves the daily accumulators (counts, distances, durations) as they were.
+@SpringBootTest(properties = {"spring.jpa.show-sql=false", "billing.outbox.enabled=true", "billing.outbox.poll-millis=50",
+	"billing.repricing.chunk-size=2", "billing.repricing.duty-cycle-percent=100"})
+class TripRepricingServiceTest {
+
+	private static final String DAILY_TOTALS =
+		"SELECT trip_date, trip_count, total_distance, total_duration, distance_overage, time_overage " +
+		"FROM trip_daily_totals WHERE client_vendor_id = ? ORDER BY trip_date";
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ClientVendorRepository clientVendorRepository;
+
+	@Autowired
+	private TripRepository tripRepository;
+
+	@Autowired
+	private RepricingJobRepository repricingJobRepository;
+
+	@Autowired
+	private TripService tripService;
+
+	@Autowired
+	private TripRepricingService tripRepricingService;
+
+	@Autowired
+	private RateCardService rateCardService;
+
+	@Autowired
+	private PeriodCloseService periodCloseService;
+
+	@Autowired
+	private RecordingSubscriber subscriber;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void resumedJobRepricesOpenTripsAfterTheCheckpoint() throws InterruptedException {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		ClientVendor relationship = createRelationship(transactionTemplate);
+		Long id = relationship.getId();
+		//Trips in ID order: two covered by the checkpoint, then February (open) and January (to be closed) mixed
+		List<Long> tripIds = new ArrayList<>();
+		for (String date : List.of("2024-02-01", "2024-02-02", "2024-01-10", "2024-02-03", "2024-01-11", "2024-02-04")) {
+			tripIds.add(createTrip(transactionTemplate, relationship, LocalDate.parse(date)));
+		}
+		periodCloseService.closePeriod(id, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31));
+		List<Map<String, Object>> totalsBefore = jdbcTemplate.queryForList(DAILY_TOTALS, id);
+
+		ClientVendor changed = clientVendorRepository.findById(id).orElseThrow();
+		changed.setTripRate(new BigDecimal("60.00"));
+		clientVendorRepository.save(changed);
+		rateCardService.evict(id);
+
+		//What a run stopped after its first committed chunk leaves behind
+		tripRepricingService.stop();
+		RepricingJob interrupted = new RepricingJob();
+		interrupted.setClientVendorId(id);
+		interrupted.setStatus(RepricingStatus.RUNNING);
+		interrupted.setReason("vendor-rates");
+		interrupted.setLastTripId(tripIds.get(1));
+		interrupted.setTripsScanned(2L);
+		interrupted.setRequestedAt(LocalDateTime.now());
+		repricingJobRepository.save(interrupted);
+		tripRepricingService.start();
+
+		RepricingJob job = awaitCompleted(id);
+		assertEquals(6L, job.getTripsScanned());
+		assertEquals(2L, job.getTripsUpdated());
+		assertEquals(2L, job.getTripsSkipped());
+
+		TripCharges repriced = PricingEngine.priceTrip(rateCardService.getRateCard(id), new BigDecimal("10.00"), BigDecimal.ONE);
+		List<Long> repricedIds = List.of(tripIds.get(3), tripIds.get(5));
+		for (Long tripId : tripIds) {
+			Trip trip = tripRepository.findById(tripId).orElseThrow();
+			BigDecimal expected = repricedIds.contains(tripId) ? repriced.getTotalCost() : new BigDecimal("40.00");
+			assertEquals(0, expected.compareTo(trip.getTotalCost()), "total cost of trip " + tripId);
+		}
+
+		List<TripEvent> events = awaitRepriced(id, repricedIds.size());
+		assertEquals(repricedIds, events.stream().map(TripEvent::getTripId).sorted().toList());
+		for (TripEvent event : events) {
+			JsonNode payload = JsonMapper.builder().build().readTree(event.getPayload());
+			Trip trip = tripRepository.findById(event.getTripId()).orElseThrow();
+			assertEquals(0, trip.getTotalCost().compareTo(new BigDecimal(payload.get("totalCost").asString())));
+			assertEquals(0, trip.getVendorCost().compareTo(new BigDecimal(payload.get("vendorCost").asString())));
+			assertEquals(0, trip.getEmployeeCost().compareTo(new BigDecimal(payload.get("employeeCost").asString())));
+		}
+
+		assertEquals(totalsBefore, jdbcTemplate.queryForList(DAILY_TOTALS, id));
+		assertEquals(6L, totalsBefore.stream().mapToLong(row -> ((Number) row.get("TRIP_COUNT")).longValue()).sum());
+	}
+
+	private RepricingJob awaitCompleted(Long clientVendorId) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (System.currentTimeMillis() < deadline) {
+			RepricingJob job = repricingJobRepository.findByClientVendorId(clientVendorId).orElseThrow();
+			if (job.getStatus() == RepricingStatus.COMPLETED) {
+				return job;
+			}
+			Thread.sleep(50);
+		}
+		fail("Repricing of relationship " + clientVendorId + " did not complete");
+		return null;
+	}
+
+	//REPRICED events of the relationship, once count have arrived and no more follow shortly after
+	private List<TripEvent> awaitRepriced(Long clientVendorId, int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (System.currentTimeMillis() < deadline && repriced(clientVendorId).size() < count) {
+			Thread.sleep(50);
+		}
+		Thread.sleep(300);
+		return repriced(clientVendorId);
+	}
+
+	private List<TripEvent> repriced(Long clientVendorId) {
+		return subscriber.events.stream()
+			.filter(event -> event.getEventType() == TripEventType.REPRICED && event.getClientVendorId().equals(clientVendorId))
+			.toList();
+	}
+
+	private ClientVendor createRelationship(TransactionTemplate transactionTemplate) {
+		User client = userRepository.findByRole(UserRole.CLIENT).get(0);
+		return transactionTemplate.execute(status -> {
+			User vendor = new User();
+			vendor.setName("Repriced Vendor");
+			vendor.setEmail("repriced-" + UUID.randomUUID() + "@example.com");
+			vendor.setPasswordHash("x");
+			vendor.setRole(UserRole.VENDOR);
+			entityManager.persist(vendor);
+			ClientVendor created = new ClientVendor();
+			created.setClient(client);
+			created.setVendor(vendor);
+			created.setBillingModel(BillingModel.TRIP);
+			created.setTripRate(new BigDecimal("40.00"));
+			entityManager.persist(created);
+			return created;
+		});
+	}
+
+	//A trip priced at the relationship's original rate
+	private Long createTrip(TransactionTemplate transactionTemplate, ClientVendor relationship, LocalDate tripDate) {
+		User employee = userRepository.findByRole(UserRole.EMPLOYEE).get(0);
+		return transactionTemplate.execute(status -> {
+			Trip created = new Trip();
+			created.setClientVendor(entityManager.getReference(ClientVendor.class, relationship.getId()));
+			created.setEmployee(entityManager.getReference(User.class, employee.getId()));
+			created.setDistance(new BigDecimal("10.00"));
+			created.setDuration(BigDecimal.ONE);
+			created.setTripDate(tripDate);
+			created.setTotalCost(new BigDecimal("40.00"));
+			created.setVendorCost(new BigDecimal("20.00"));
+			created.setEmployeeCost(new BigDecimal("20.00"));
+			created.setExtraDistanceCost(BigDecimal.ZERO);
+			created.setExtraTimeCost(BigDecimal.ZERO);
+			return tripService.saveTrip(created).getId();
+		});
+	}
+
+	@TestConfiguration
+	static class SubscriberConfig {
+		@Bean
+		RecordingSubscriber recordingSubscriber() {
+			return new RecordingSubscriber();
+		}
+	}
+
+	static class RecordingSubscriber implements TripEventSubscriber {
+		private final List<TripEvent> events = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void onTripEvents(List<TripEvent> delivered) {
+			events.addAll(delivered);
+		}
+	}
+}
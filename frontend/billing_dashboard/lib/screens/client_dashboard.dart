@@ -73,8 +73,8 @@ class _ClientDashboardState extends State<ClientDashboard> {
         'clientId': _currentUser!.id,
       });
       
-      // Load recent trips
-      final tripsResponse = await _apiService.get('/client/trips', queryParameters: {
+      // Load every page of trips; the dashboard shows the most recent and counts them all
+      final trips = await _apiService.getAllPages('/client/trips', queryParameters: {
         'clientId': _currentUser!.id,
       });
 
@@ -82,7 +82,7 @@ class _ClientDashboardState extends State<ClientDashboard> {
         _dashboardSummary = summaryResponse.data;
         _employees = employeesResponse.data;
         _vendors = vendorsResponse.data;
-        _recentTrips = tripsResponse.data;
+        _recentTrips = trips;
         _isLoading = false;
       });
     } catch (e) {
@@ -51,12 +51,13 @@ class _ClientTripsScreenState extends State<ClientTripsScreen> {
     });
 
     try {
-      final tripsResponse = await _apiService.get('/client/trips', queryParameters: {
+      // Every page, so the total below covers all trips
+      final trips = await _apiService.getAllPages('/client/trips', queryParameters: {
         'clientId': _currentUser!.id,
       });
 
       setState(() {
-        _allTrips = tripsResponse.data ?? [];
+        _allTrips = trips;
         _isLoading = false;
       });
     } catch (e) {
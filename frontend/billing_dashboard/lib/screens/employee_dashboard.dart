@@ -58,14 +58,14 @@ class _EmployeeDashboardState extends State<EmployeeDashboard> {
         'employeeId': _currentUser!.id,
       });
       
-      // Load trip history
-      final tripsResponse = await _apiService.get('/employee/trips', queryParameters: {
+      // Load the whole trip history; the totals below are computed over every page
+      final trips = await _apiService.getAllPages('/employee/trips', queryParameters: {
         'employeeId': _currentUser!.id,
       });
 
       setState(() {
         _employeeStats = profileResponse.data;
-        _tripHistory = tripsResponse.data;
+        _tripHistory = trips;
         _isLoading = false;
       });
     } catch (e) {
@@ -51,12 +51,13 @@ class _VendorTripsScreenState extends State<VendorTripsScreen> {
     });
 
     try {
-      final tripsResponse = await _apiService.get('/vendor/trips', queryParameters: {
+      // Every page, so the total below covers all trips
+      final trips = await _apiService.getAllPages('/vendor/trips', queryParameters: {
         'vendorId': _currentUser!.id,
       });
 
       setState(() {
-        _allTrips = tripsResponse.data ?? [];
+        _allTrips = trips;
         _isLoading = false;
       });
     } catch (e) {
@@ -128,12 +128,10 @@ class ApiService {
 
   Future<List<Trip>> getVendorTrips(int vendorId) async {
     try {
-      final response = await _dio.get(ApiEndpoints.vendorTrips, queryParameters: {
+      final trips = await getAllPages(ApiEndpoints.vendorTrips, queryParameters: {
         'vendorId': vendorId,
       });
-      return (response.data as List)
-          .map((json) => Trip.fromJson(json))
-          .toList();
+      return trips.map((json) => Trip.fromJson(json)).toList();
     } catch (e) {
       throw _handleError(e);
     }
@@ -153,12 +151,10 @@ class ApiService {
 
   Future<List<Trip>> getEmployeeTrips(int employeeId) async {
     try {
-      final response = await _dio.get(ApiEndpoints.employeeTrips, queryParameters: {
+      final trips = await getAllPages(ApiEndpoints.employeeTrips, queryParameters: {
         'employeeId': employeeId,
       });
-      return (response.data as List)
-          .map((json) => Trip.fromJson(json))
-          .toList();
+      return trips.map((json) => Trip.fromJson(json)).toList();
     } catch (e) {
       throw _handleError(e);
     }
@@ -173,6 +169,27 @@ class ApiService {
     }
   }
 
+  // Every row of a paginated list endpoint, following X-Next-Cursor from page to page; for screens
+  // that count or total the whole list
+  Future<List<dynamic>> getAllPages(String path, {Map<String, dynamic>? queryParameters}) async {
+    try {
+      final rows = <dynamic>[];
+      String? cursor;
+      do {
+        final response = await _dio.get(path, queryParameters: {
+          ...?queryParameters,
+          'limit': AppConstants.pageSize,
+          if (cursor != null) 'cursor': cursor,
+        });
+        rows.addAll(response.data as List);
+        cursor = response.headers.value(AppConstants.nextCursorHeader);
+      } while (cursor != null);
+      return rows;
+    } catch (e) {
+      throw _handleError(e);
+    }
+  }
+
   Future<Response> post(String path, {dynamic data}) async {
     try {
       return await _dio.post(path, data: data);
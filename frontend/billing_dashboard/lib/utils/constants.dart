@@ -3,6 +3,10 @@ class AppConstants {
   // API Configuration
   static const String apiBaseUrl = 'http://localhost:8082/api';
   static const Duration apiTimeout = Duration(seconds: 30);
+  // Paginated lists return the next page's cursor in this header; no header on the last page
+  static const String nextCursorHeader = 'X-Next-Cursor';
+  // Rows per request when a screen reads every page (the server's maximum)
+  static const int pageSize = 500;
   
   // App Information
   static const String appName = 'MoveInSync Billing Dashboard';